@@ -1,14 +1,1100 @@
 package ai;
 
 
-import move.Move;
-import board.Board;
+import engine.bitbase.Bitbase;
+import engine.bitbase.Bitbases;
+import engine.board.Board;
+import engine.board.BoardInfo;
+import engine.move.Move;
+import engine.move.MoveGenerator;
+import engine.move.MoveList;
+import engine.piece.Piece;
+import engine.util.Bitboard;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 
+/**
+ * A computer player that chooses moves by searching the game tree.
+ * <p>
+ * The search is a negamax alpha-beta search with iterative deepening: the position is searched
+ * to depth 1, then 2, and so on until a limit is reached. Each iteration starts by following
+ * the principal variation (PV) of the previous one, which gives good move ordering at the
+ * nodes that matter most. From depth {@code ASPIRATION_MIN_DEPTH}, each iteration is first
+ * searched with a narrow aspiration window around the previous score, which is widened and
+ * searched again if the score falls outside it.
+ * <p>
+ * Results are cached in a {@code TranspositionTable}. A cached result that was searched deeply
+ * enough ends the search of a node early when its bound allows it, and otherwise its best move
+ * is searched first. The rest of the moves are ordered by a {@code MovePicker}, which uses the
+ * killer moves and history table kept by this class.
+ * <p>
+ * After the first move of a node, moves are searched with a null window that only proves
+ * whether they are worse than the best move so far (principal variation search), and are
+ * searched again with the full window if they are not. Leaves are searched by a quiescence
+ * search over captures and promotions. The techniques in {@code Feature} reduce the size of the
+ * tree further, at the risk of missing some moves, and can each be switched on and off.
+ * <p>
+ * The search can use several threads with Lazy SMP. Helper threads search the same root as
+ * the main thread, sharing only the transposition table. They add no coordination, but fill
+ * the table with results the main thread reuses, and every other helper starts one ply deeper
+ * so the threads do not all search the same depth at once. Only the main thread's result is
+ * reported.
+ * <p>
+ * A search on a clock is timed by a {@code TimeManager}: it stops between iterations once a
+ * soft limit, scaled by how stable the best move has been, has passed, and stops in the middle
+ * of an iteration at a hard deadline. While the opponent thinks, {@code ponder} searches the
+ * position after the expected reply without any time limit. If the opponent plays that reply,
+ * {@code ponderHit} starts the clock and the search goes on with a head start; otherwise
+ * {@code stop} ends it. Every search can be stopped from another thread, and returns within
+ * about {@code TIME_CHECK_INTERVAL} nodes.
+ * <p>
+ * If an {@code OpeningBook} is set and holds the position, {@code search} returns a move chosen
+ * from the book at once, without searching. Pondering always searches, since the book move can
+ * be chosen just as quickly once the opponent has moved.
+ * <p>
+ * Positions covered by the endgame bitbases loaded in {@code engine.bitbase.Bitbases} are
+ * scored from them: a won position scores {@code BITBASE_WIN_SCORE} plus
+ * {@code Evaluation.mopUp}, which drives the losing king to where it can be mated, and a drawn
+ * one scores 0. A capture or pawn move into a covered position ends the search of the node,
+ * and the leaves of the quiescence search use the bitbase score in place of the static
+ * evaluation. Other covered positions are still searched, so that the search can make progress
+ * towards checkmate, and positions in check are never scored from the bitbases, so the final
+ * checkmate is found and scored as a mate.
+ * <p>
+ * The search plays moves with {@code Board.makeMove} and {@code Board.unmakeMove} on a private
+ * copy of the position, so the board passed to {@code search} is never modified. An
+ * {@code AIPlayer} object can only run one search at a time, but separate objects can search
+ * in parallel.
+ *
+ * @author Jonathan Uhler
+ */
 public class AIPlayer {
 
+	/**
+	 * The score of checkmate. Checkmate {@code n} plies from the root scores
+	 * {@code MATE_SCORE - n}, so shorter mates are preferred.
+	 */
+	public static final int MATE_SCORE = 32000;
+	/** A score larger than any real score. */
+	public static final int INFINITY = 32001;
+	/**
+	 * The score of a position that the endgame bitbases prove won, before the score that guides
+	 * the winning player towards checkmate is added. Below any mate score, so a mate that is
+	 * found is always preferred.
+	 */
+	public static final int BITBASE_WIN_SCORE = 20000;
+	/** The maximum number of plies searched from the root. */
+	public static final int MAX_PLY = 128;
+	/** The default size of the transposition table in MiB. */
+	public static final int DEFAULT_HASH_SIZE = 16;
+	/** The maximum number of search threads. */
+	public static final int MAX_THREADS = 256;
+	/** The limits used by {@code getBestMove(Board)}. */
+	public static final SearchLimits DEFAULT_LIMITS = SearchLimits.time(1000);
+	/**
+	 * The search features enabled in a new {@code AIPlayer}: every feature except
+	 * {@code RAZORING}, which loses tactics that the other features find when combined with
+	 * late move reductions.
+	 */
+	public static final Set<AIPlayer.Feature> DEFAULT_FEATURES =
+		Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(AIPlayer.Feature.RAZORING)));
+
+	/** The smallest depth searched with an aspiration window. */
+	private static final int ASPIRATION_MIN_DEPTH = 4;
+	/** The initial half-width of an aspiration window, in centipawns. */
+	private static final int ASPIRATION_WINDOW = 25;
+	/** The number of nodes between checks of the time limit. */
+	private static final int TIME_CHECK_INTERVAL = 256;
+	/** The smallest depth at which a null move is tried. */
+	private static final int NULL_MOVE_MIN_DEPTH = 3;
+	/** The depth reduction of a null move search, on top of the ply of the null move. */
+	private static final int NULL_MOVE_REDUCTION = 2;
+	/** The largest depth at which futility pruning applies. */
+	private static final int FUTILITY_MAX_DEPTH = 3;
+	/** The futility margin for each remaining depth, in centipawns. */
+	private static final int[] FUTILITY_MARGINS = {0, 150, 300, 450};
+	/**
+	 * The razoring margin, in centipawns. Razoring only applies one ply from the leaves, since a
+	 * deeper quiescence search misses a sacrifice that a full search would see to be a mate.
+	 */
+	private static final int RAZORING_MARGIN = 600;
+	/** The smallest depth at which late moves are reduced. */
+	private static final int LMR_MIN_DEPTH = 3;
+	/** The number of moves searched at a node before later moves are reduced. */
+	private static final int LMR_MIN_MOVES = 3;
+	/**
+	 * The late move reduction for each remaining depth and number of moves searched, growing
+	 * with the logarithm of both.
+	 */
+	private static final int[][] LMR_REDUCTIONS = AIPlayer.lmrReductions();
+
+
+	/**
+	 * Techniques that make the search smaller or more selective. The features enabled by default
+	 * are {@code DEFAULT_FEATURES}.
+	 *
+	 * @see setEnabled
+	 */
+	public static enum Feature {
+		/** Skip captures that lose material by static exchange evaluation in quiescence. */
+		SEE_PRUNING,
+		/**
+		 * Let the player to move pass, and end the search of the node if a reduced search still
+		 * fails high. Not tried in check, or when the player to move has only pawns, where
+		 * zugzwang makes passing better than any move.
+		 */
+		NULL_MOVE,
+		/** Search quiet moves late in the move order to a reduced depth, unless they fail high. */
+		LATE_MOVE_REDUCTIONS,
+		/**
+		 * Near the leaves, end the search of a node whose static evaluation is far above beta,
+		 * and skip quiet moves when the static evaluation is far below alpha.
+		 */
+		FUTILITY_PRUNING,
+		/**
+		 * One ply from the leaves, drop into quiescence search when the static evaluation is far
+		 * below alpha, and end the search of the node if it fails low there. Disabled by default,
+		 * since quiescence search misses a quiet mate after a sacrifice that late move
+		 * reductions have brought close to the leaves.
+		 */
+		RAZORING,
+		/** Search one ply deeper when the player to move is in check. */
+		CHECK_EXTENSIONS
+	}
+
+	/** The transposition table, or {@code null} if results are not cached. */
+	private final TranspositionTable table;
+	/** The players that search on helper threads, sharing {@code table}. */
+	private AIPlayer[] helpers;
+	/** The position being searched, owned by this object. */
+	private Board board;
+	/** The limits of the current search. */
+	private SearchLimits limits;
+	/** The time the current search started, from {@code System.nanoTime}. */
+	private long startTime;
+	/** The time limits of the current search. */
+	private volatile TimeManager timeManager;
+	/** The number of nodes searched by the current search. */
+	private long nodes;
+	/** The number of nodes searched before the ponder hit, which do not count toward the limit. */
+	private long ponderNodes;
+	/** Whether the current search has been stopped, by a limit or by {@code stop}. */
+	private volatile boolean stopped;
+	/** Whether a search is running, so that {@code stop} applies to it. */
+	private boolean searching;
+	/** Whether {@code stop} was called during the current search. */
+	private volatile boolean stopRequested;
+	/** Whether the current search has completed an iteration, and so may be stopped. */
+	private boolean stoppable;
+	/** Whether the current search is pondering, and so ignores its time and node limits. */
+	private volatile boolean pondering;
+
+	/** The move picker for each ply. */
+	private final MovePicker[] movePickers;
+	/** The two killer moves for each ply, most recent first. */
+	private final int[][] killers;
+	/** The history table, indexed by {@code MovePicker.historyIndex}. */
+	private final int[] history;
+	/** The number of beta cutoffs in the current search. */
+	private long cutoffs;
+	/** The number of beta cutoffs caused by the first move searched at a node. */
+	private long firstMoveCutoffs;
+	/** The triangular PV table. Row {@code ply} holds the PV from {@code ply}. */
+	private final int[][] pvTable;
+	/** The length of each row of the PV table. */
+	private final int[] pvLength;
+	/** The PV of the last completed iteration. */
+	private int[] previousPv;
+	/** The length of the PV of the last completed iteration. */
+	private int previousPvLength;
+	/** Whether the current node is on the PV of the last completed iteration. */
+	private boolean followPv;
+	/** The enabled search features. */
+	private final EnumSet<AIPlayer.Feature> features;
+	/** The opening book probed before searching, or {@code null} if there is none. */
+	private OpeningBook openingBook;
+
+
+	/**
+	 * Constructs a new {@code AIPlayer} object with a transposition table of
+	 * {@code DEFAULT_HASH_SIZE}.
+	 */
+	public AIPlayer() {
+		this(new TranspositionTable(AIPlayer.DEFAULT_HASH_SIZE));
+	}
+
+
+	/**
+	 * Constructs a new {@code AIPlayer} object with a given transposition table.
+	 *
+	 * @param table  the transposition table to use, or {@code null} to search without one.
+	 */
+	public AIPlayer(TranspositionTable table) {
+		this.table = table;
+		this.movePickers = new MovePicker[AIPlayer.MAX_PLY + 1];
+		for (int i = 0; i < this.movePickers.length; i++)
+			this.movePickers[i] = new MovePicker();
+		this.killers = new int[AIPlayer.MAX_PLY + 1][2];
+		this.history = new int[MovePicker.HISTORY_SIZE];
+		this.pvTable = new int[AIPlayer.MAX_PLY + 1][AIPlayer.MAX_PLY + 1];
+		this.pvLength = new int[AIPlayer.MAX_PLY + 1];
+		this.previousPv = new int[AIPlayer.MAX_PLY + 1];
+		this.features = EnumSet.copyOf(AIPlayer.DEFAULT_FEATURES);
+		this.helpers = new AIPlayer[0];
+	}
+
+
+	/**
+	 * Returns the best move for the player to move, searching with {@code DEFAULT_LIMITS}.
+	 *
+	 * @param board  the position to search. This object is not modified.
+	 *
+	 * @return the best move found, or {@code null} if the player to move has no legal moves.
+	 *
+	 * @throws NullPointerException  if {@code board == null}.
+	 */
 	public Move getBestMove(Board board) {
-		
+		return this.search(board, AIPlayer.DEFAULT_LIMITS).getBestMove();
+	}
+
+
+	/**
+	 * Returns the transposition table used by this player.
+	 *
+	 * @return the transposition table used by this player, or {@code null} if there is none.
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return this.table;
+	}
+
+
+	/**
+	 * Returns the number of threads used by a search.
+	 *
+	 * @return the number of threads used by a search, including the calling thread.
+	 */
+	public int getThreads() {
+		return this.helpers.length + 1;
+	}
+
+
+	/**
+	 * Sets the number of threads used by a search. This method must not be called during a
+	 * search.
+	 *
+	 * @param threads  the number of threads, including the calling thread.
+	 *
+	 * @throws IllegalArgumentException  if {@code threads} is not on the interval
+	 *                                   [1, {@code MAX_THREADS}].
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1 || threads > AIPlayer.MAX_THREADS)
+			throw new IllegalArgumentException("threads must be on [1, " + AIPlayer.MAX_THREADS +
+											   "]: " + threads);
+
+		AIPlayer[] helpers = new AIPlayer[threads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = (i < this.helpers.length) ? this.helpers[i] : new AIPlayer(this.table);
+			helpers[i].features.clear();
+			helpers[i].features.addAll(this.features);
+		}
+		this.helpers = helpers;
+	}
+
+
+	/**
+	 * Returns whether a search feature is enabled.
+	 *
+	 * @param feature  the feature to check.
+	 *
+	 * @return whether {@code feature} is enabled.
+	 *
+	 * @throws NullPointerException  if {@code feature == null}.
+	 */
+	public boolean isEnabled(AIPlayer.Feature feature) {
+		if (feature == null)
+			throw new NullPointerException("feature was null");
+		return this.features.contains(feature);
+	}
+
+
+	/**
+	 * Enables or disables a search feature. The features in {@code DEFAULT_FEATURES} are enabled
+	 * by default. This method must not be called during a search.
+	 *
+	 * @param feature  the feature to enable or disable.
+	 * @param enabled  whether to enable {@code feature}.
+	 *
+	 * @throws NullPointerException  if {@code feature == null}.
+	 */
+	public void setEnabled(AIPlayer.Feature feature, boolean enabled) {
+		if (feature == null)
+			throw new NullPointerException("feature was null");
+
+		if (enabled)
+			this.features.add(feature);
+		else
+			this.features.remove(feature);
+		for (AIPlayer helper : this.helpers)
+			helper.setEnabled(feature, enabled);
+	}
+
+
+	/**
+	 * Returns the opening book probed before searching.
+	 *
+	 * @return the opening book probed before searching, or {@code null} if there is none.
+	 */
+	public OpeningBook getOpeningBook() {
+		return this.openingBook;
+	}
+
+
+	/**
+	 * Sets the opening book probed before searching. This method must not be called during a
+	 * search.
+	 *
+	 * @param openingBook  the opening book to probe, or {@code null} to always search.
+	 */
+	public void setOpeningBook(OpeningBook openingBook) {
+		this.openingBook = openingBook;
+	}
+
+
+	/**
+	 * Stops the current search, including a search that is pondering. The search returns the
+	 * result of the last completed iteration, once at least depth 1 is complete, so a move is
+	 * never returned without being searched. A stop while no search is running is ignored, and
+	 * does not affect the next search. This method may be called from any thread.
+	 */
+	public void stop() {
+		synchronized (this) {
+			if (!this.searching)
+				return;
+			this.stopRequested = true;
+			this.notifyAll();
+		}
+	}
+
+
+	/**
+	 * Tells a search started with {@code ponder} that the opponent played the expected move.
+	 * The clock and the node count of the search start now, and it stops by its limits as if it
+	 * had been started with {@code search}, keeping the iterations already completed. This
+	 * method may be called from any thread, and does nothing if the current search is not
+	 * pondering.
+	 */
+	public void ponderHit() {
+		TimeManager timeManager = this.timeManager;
+		if (!this.pondering || timeManager == null)
+			return;
+
+		// The clock is started before pondering ends, so the search never sees the old start
+		timeManager.start(System.nanoTime());
+		synchronized (this) {
+			this.pondering = false;
+			this.notifyAll();
+		}
+	}
+
+
+	/**
+	 * Returns whether the current search is pondering.
+	 *
+	 * @return whether the current search was started with {@code ponder} and has not yet been
+	 *         told of a ponder hit.
+	 */
+	public boolean isPondering() {
+		return this.pondering;
+	}
+
+
+	/**
+	 * Searches a position for the best move. The limits are checked by the main thread only, so
+	 * a node limit counts the nodes of the main thread.
+	 *
+	 * @param board   the position to search. This object is not modified.
+	 * @param limits  the limits of the search.
+	 *
+	 * @return the result of the deepest completed iteration of the main thread. At least depth 1
+	 *         is always completed, even if the search is stopped. The node count includes the
+	 *         nodes of every thread. A move from the opening book is returned with
+	 *         depth 0 and no nodes.
+	 *
+	 * @throws NullPointerException  if {@code board} or {@code limits} is null.
+	 */
+	public SearchResult search(Board board, SearchLimits limits) {
+		return this.run(board, limits, false);
+	}
+
+
+	/**
+	 * Searches a position during the opponent's turn. {@code board} should be the position after
+	 * the move the opponent is expected to play, such as {@code SearchResult.getPonderMove}.
+	 * The time and node limits are ignored until {@code ponderHit} is called, and the search
+	 * does not return before that, or before {@code stop} is called, even if it finishes. This
+	 * method blocks, so it is normally called from its own thread.
+	 *
+	 * @param board   the position to search. This object is not modified.
+	 * @param limits  the limits of the search, applied from the ponder hit.
+	 *
+	 * @return the result of the deepest completed iteration of the main thread, the same as
+	 *         {@code search}.
+	 *
+	 * @throws NullPointerException  if {@code board} or {@code limits} is null.
+	 */
+	public SearchResult ponder(Board board, SearchLimits limits) {
+		return this.run(board, limits, true);
+	}
+
+
+	/**
+	 * Runs a search on the calling thread and the helper threads.
+	 *
+	 * @param board   the position to search. This object is not modified.
+	 * @param limits  the limits of the search.
+	 * @param ponder  whether to ignore the time limits until {@code ponderHit}.
+	 *
+	 * @return the result of the deepest completed iteration of the main thread.
+	 *
+	 * @throws NullPointerException  if {@code board} or {@code limits} is null.
+	 */
+	private SearchResult run(Board board, SearchLimits limits, boolean ponder) {
+		if (board == null)
+			throw new NullPointerException("board was null");
+		if (limits == null)
+			throw new NullPointerException("limits was null");
+
+		// A stop applies only while this search is running, so one that arrives after the
+		// previous search returned is not carried over to this one
+		synchronized (this) {
+			this.stopRequested = false;
+			this.searching = true;
+		}
+		try {
+			if (this.openingBook != null && !ponder) {
+				long bookStart = System.nanoTime();
+				int bookMove = this.openingBook.chooseMove(board.getInfoPointer());
+				if (bookMove != 0) {
+					Move move = Move.decode(bookMove);
+					return new SearchResult(move, 0, 0, 0, System.nanoTime() - bookStart,
+											List.of(move), 0, 0);
+				}
+			}
+
+			if (this.table != null)
+				this.table.newSearch();
+			this.prepare(board, limits);
+			this.pondering = ponder;
+
+			// Start the helpers. They search without limits until the main thread stops them. Their
+			// state is prepared here, before their threads start, so that a stop from this thread
+			// can never be lost
+			Thread[] helperThreads = new Thread[this.helpers.length];
+			for (int i = 0; i < this.helpers.length; i++) {
+				AIPlayer helper = this.helpers[i];
+				int startDepth = (i % 2 == 0) ? 2 : 1;
+				helper.prepare(board, new SearchLimits(0, 0, 0));
+				helperThreads[i] = new Thread(() -> helper.iterate(startDepth));
+				helperThreads[i].setDaemon(true);
+				helperThreads[i].start();
+			}
+
+			SearchResult result = this.iterate(1);
+			this.awaitPonderEnd();
+			if (helperThreads.length == 0)
+				return result;
+
+			// Stop and wait for the helpers, then report the nodes searched by every thread
+			long nodes = result.getNodes();
+			for (int i = 0; i < this.helpers.length; i++) {
+				this.helpers[i].stopped = true;
+				try {
+					helperThreads[i].join();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				nodes += this.helpers[i].nodes;
+			}
+			return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(),
+									nodes, System.nanoTime() - this.startTime, result.getPv(),
+									result.getCutoffs(), result.getFirstMoveCutoffs());
+		}
+		finally {
+			synchronized (this) {
+				this.searching = false;
+				this.stopRequested = false;
+			}
+		}
+	}
+
+
+	/**
+	 * Resets the state of this object for a new search.
+	 *
+	 * @param board   the position to search. This object is not modified.
+	 * @param limits  the limits of the search.
+	 */
+	private void prepare(Board board, SearchLimits limits) {
+		this.board = new Board(new BoardInfo(board.getInfoPointer()));
+		this.limits = limits;
+		this.startTime = System.nanoTime();
+		this.timeManager = new TimeManager(limits);
+		this.timeManager.start(this.startTime);
+		this.nodes = 0;
+		this.ponderNodes = 0;
+		this.stopped = false;
+		this.stoppable = false;
+		this.pondering = false;
+		this.previousPvLength = 0;
+		this.cutoffs = 0;
+		this.firstMoveCutoffs = 0;
+
+		// Killers are specific to the position searched, but the history of good moves still
+		// applies after a move or two, so it only fades
+		for (int[] plyKillers : this.killers)
+			Arrays.fill(plyKillers, 0);
+		for (int i = 0; i < this.history.length; i++)
+			this.history[i] /= 8;
+	}
+
+
+	/**
+	 * Waits until the current search is no longer pondering, or is stopped.
+	 */
+	private void awaitPonderEnd() {
+		synchronized (this) {
+			while (this.pondering && !this.stopped && !this.stopRequested) {
+				try {
+					this.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Runs the iterative deepening loop of a prepared search.
+	 *
+	 * @param startDepth  the depth of the first iteration.
+	 *
+	 * @return the result of the deepest completed iteration.
+	 */
+	private SearchResult iterate(int startDepth) {
+		int maxDepth = (this.limits.getDepth() == 0) ? AIPlayer.MAX_PLY : this.limits.getDepth();
+		maxDepth = Math.min(maxDepth, AIPlayer.MAX_PLY);
+		MoveList rootMoves = new MoveList();
+		MoveGenerator.generateLegalMoves(this.board.getInfoPointer(), rootMoves);
+
+		int bestMove = 0;
+		int bestScore = 0;
+		int completedDepth = 0;
+		int stableIterations = 0;
+		for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++) {
+			int score = this.searchWithAspiration(depth, bestScore);
+			// An iteration that was stopped is incomplete, so its result cannot be trusted. The
+			// main thread is not stopped before its first iteration completes, but a helper can be
+			if (this.stopped)
+				break;
+
+			bestScore = score;
+			completedDepth = depth;
+			this.previousPvLength = this.pvLength[0];
+			System.arraycopy(this.pvTable[0], 0, this.previousPv, 0, this.previousPvLength);
+			int previousBestMove = bestMove;
+			bestMove = (this.previousPvLength > 0) ? this.previousPv[0] : 0;
+			stableIterations = (bestMove == previousBestMove) ? stableIterations + 1 : 0;
+			this.stoppable = true;
+			this.checkLimits();
+
+			// There are no legal moves, or a forced checkmate shorter than this depth was found
+			if (bestMove == 0 || Math.abs(score) >= AIPlayer.MATE_SCORE - depth)
+				break;
+			if (this.stopped)
+				break;
+
+			// On a clock, another iteration is not started once the soft limit has passed, and
+			// there is nothing to think about with only one legal move
+			TimeManager timeManager = this.timeManager;
+			if (!this.pondering && timeManager.getSoftTime() > 0 &&
+				(rootMoves.size() == 1 ||
+				 timeManager.isSoftLimitReached(System.nanoTime(), stableIterations)))
+				break;
+		}
+
+		List<Move> pv = new ArrayList<>(this.previousPvLength);
+		for (int i = 0; i < this.previousPvLength; i++)
+			pv.add(Move.decode(this.previousPv[i]));
+		return new SearchResult((bestMove == 0) ? null : Move.decode(bestMove), bestScore,
+								completedDepth, this.nodes, System.nanoTime() - this.startTime,
+								pv, this.cutoffs, this.firstMoveCutoffs);
+	}
+
+
+	/**
+	 * Searches the root to a given depth. Deep enough iterations are searched with a narrow
+	 * window around the score of the previous iteration first, which is widened on the failing
+	 * side until the score falls inside it.
+	 *
+	 * @param depth          the depth to search to.
+	 * @param previousScore  the score of the previous iteration.
+	 *
+	 * @return the score of the root.
+	 */
+	private int searchWithAspiration(int depth, int previousScore) {
+		if (depth < AIPlayer.ASPIRATION_MIN_DEPTH ||
+			Math.abs(previousScore) >= AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY)
+		{
+			this.followPv = true;
+			return this.negamax(depth, 0, -AIPlayer.INFINITY, AIPlayer.INFINITY, true);
+		}
+
+		int delta = AIPlayer.ASPIRATION_WINDOW;
+		int alpha = Math.max(previousScore - delta, -AIPlayer.INFINITY);
+		int beta = Math.min(previousScore + delta, AIPlayer.INFINITY);
+		while (true) {
+			this.followPv = true;
+			int score = this.negamax(depth, 0, alpha, beta, true);
+			if (this.stopped)
+				return score;
+
+			if (score <= alpha)
+				alpha = Math.max(score - delta, -AIPlayer.INFINITY);
+			else if (score >= beta)
+				beta = Math.min(score + delta, AIPlayer.INFINITY);
+			else
+				return score;
+			delta *= 2;
+		}
+	}
+
+
+	/**
+	 * Checks whether the search has been asked to stop, or has reached its node or time limit,
+	 * and stops it if it has. Nothing is stopped before the first iteration completes. The
+	 * helpers are stopped at once, so they do not compete with the main thread for the cores
+	 * while it returns.
+	 */
+	private void checkLimits() {
+		// The node limit counts from the ponder hit, like the clock
+		if (this.pondering)
+			this.ponderNodes = this.nodes;
+		if (this.stopped || !this.stoppable)
+			return;
+		if (this.stopRequested ||
+			(this.limits.getNodes() > 0 && !this.pondering &&
+			 this.nodes - this.ponderNodes >= this.limits.getNodes()) ||
+			(this.nodes % AIPlayer.TIME_CHECK_INTERVAL == 0 && !this.pondering &&
+			 this.timeManager.isHardLimitReached(System.nanoTime())))
+		{
+			this.stopped = true;
+			for (AIPlayer helper : this.helpers)
+				helper.stopped = true;
+		}
+	}
+
+
+	/**
+	 * Builds the table of late move reductions.
+	 *
+	 * @return the table of late move reductions, indexed by remaining depth and number of moves
+	 *         searched.
+	 */
+	private static int[][] lmrReductions() {
+		int[][] reductions = new int[AIPlayer.MAX_PLY + 1][MoveList.DEFAULT_CAPACITY];
+		for (int depth = 1; depth < reductions.length; depth++) {
+			for (int moves = 1; moves < reductions[depth].length; moves++)
+				reductions[depth][moves] = (int) (0.75 + Math.log(depth) * Math.log(moves) / 2.25);
+		}
+		return reductions;
+	}
+
+
+	/**
+	 * Determines whether the player to move has any piece other than pawns and the king. Without
+	 * one, zugzwang is common and passing is often the best move, so null moves are not tried.
+	 *
+	 * @param boardInfo  the position to check.
+	 *
+	 * @return true if the player to move has a knight, bishop, rook, or queen.
+	 */
+	private static boolean hasNonPawnMaterial(BoardInfo boardInfo) {
+		boolean white = boardInfo.whiteToMove;
+		return (boardInfo.getPieceBoard(Piece.Type.KNIGHT, white) |
+				boardInfo.getPieceBoard(Piece.Type.BISHOP, white) |
+				boardInfo.getPieceBoard(Piece.Type.ROOK, white) |
+				boardInfo.getPieceBoard(Piece.Type.QUEEN, white)) != 0;
+	}
+
+
+	/**
+	 * Determines whether the player to move is in check.
+	 *
+	 * @param boardInfo  the position to check.
+	 *
+	 * @return true if the king of the player to move is attacked. Positions without exactly one
+	 *         king for the player to move are never in check.
+	 */
+	private static boolean inCheck(BoardInfo boardInfo) {
+		long king = boardInfo.getPieceBoard(Piece.Type.KING, boardInfo.whiteToMove);
+		if (Bitboard.count(king) != 1)
+			return false;
+		return MoveGenerator.isSquareAttacked(boardInfo, Bitboard.first(king),
+											  !boardInfo.whiteToMove);
+	}
+
+
+	/**
+	 * Scores a position from the loaded endgame bitbases.
+	 *
+	 * @param boardInfo  the position to score.
+	 *
+	 * @return the score of the position from the perspective of the player to move, or
+	 *         {@code -INFINITY} if the position is not covered by the loaded bitbases.
+	 */
+	private static int bitbaseScore(BoardInfo boardInfo) {
+		Bitbase.Wdl result = Bitbases.probe(boardInfo);
+		if (result == null)
+			return -AIPlayer.INFINITY;
+
+		boolean white = boardInfo.whiteToMove;
+		return switch (result) {
+		case WIN -> AIPlayer.BITBASE_WIN_SCORE + Evaluation.mopUp(boardInfo, white);
+		case LOSS -> -AIPlayer.BITBASE_WIN_SCORE - Evaluation.mopUp(boardInfo, !white);
+		default -> 0;
+		};
+	}
+
+
+	/**
+	 * Updates the killer moves and history table after a quiet move causes a beta cutoff.
+	 *
+	 * @param move   the move that caused the cutoff.
+	 * @param white  whether the move was made by the white player.
+	 * @param depth  the remaining depth of the node.
+	 * @param ply    the distance of the node from the root.
+	 */
+	private void updateQuietCutoff(int move, boolean white, int depth, int ply) {
+		int[] plyKillers = this.killers[ply];
+		if (plyKillers[0] != move) {
+			plyKillers[1] = plyKillers[0];
+			plyKillers[0] = move;
+		}
+
+		// Deeper cutoffs prune more of the tree, so they earn a larger bonus
+		int index = MovePicker.historyIndex(white, move);
+		this.history[index] += depth * depth;
+		if (this.history[index] > MovePicker.MAX_HISTORY) {
+			for (int i = 0; i < this.history.length; i++)
+				this.history[i] /= 2;
+		}
+	}
+
+
+	/**
+	 * Converts a score to the form stored in the transposition table. Mate scores are stored as
+	 * the distance to mate from the node rather than from the root, so they remain correct when
+	 * the node is reached at a different ply.
+	 *
+	 * @param score  the score of the node.
+	 * @param ply    the distance of the node from the root.
+	 *
+	 * @return the score to store.
+	 */
+	private static int scoreToTable(int score, int ply) {
+		if (score >= AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY)
+			return score + ply;
+		if (score <= -AIPlayer.MATE_SCORE + AIPlayer.MAX_PLY)
+			return score - ply;
+		return score;
+	}
+
+
+	/**
+	 * Converts a score from the transposition table to a score for a node. This is the inverse
+	 * of {@code scoreToTable}.
+	 *
+	 * @param score  the score from the table.
+	 * @param ply    the distance of the node from the root.
+	 *
+	 * @return the score of the node.
+	 */
+	private static int scoreFromTable(int score, int ply) {
+		if (score >= AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY)
+			return score - ply;
+		if (score <= -AIPlayer.MATE_SCORE + AIPlayer.MAX_PLY)
+			return score + ply;
+		return score;
+	}
+
+
+	/**
+	 * Searches a node with negamax alpha-beta.
+	 *
+	 * @param depth        the remaining depth to search.
+	 * @param ply          the distance of the node from the root.
+	 * @param alpha        the lower bound of the search window.
+	 * @param beta         the upper bound of the search window.
+	 * @param nullAllowed  whether a null move may be tried. It is not after a null move, since
+	 *                     two in a row only waste a search.
+	 *
+	 * @return the score of the node from the perspective of the player to move. If the score is
+	 *         at most {@code alpha} it is an upper bound, and if it is at least {@code beta} it
+	 *         is a lower bound. Meaningless if the search was stopped.
+	 */
+	private int negamax(int depth, int ply, int alpha, int beta, boolean nullAllowed) {
+		BoardInfo boardInfo = this.board.getInfoPointer();
+		boolean inCheck = AIPlayer.inCheck(boardInfo);
+		if (inCheck && this.features.contains(AIPlayer.Feature.CHECK_EXTENSIONS))
+			depth++;
+		if (depth <= 0 || ply >= AIPlayer.MAX_PLY)
+			return this.quiesce(ply, alpha, beta);
+
+		this.pvLength[ply] = 0;
+		this.nodes++;
+		this.checkLimits();
+		if (this.stopped)
+			return 0;
+
+		if (ply > 0 && (boardInfo.halfmoves >= 100 || boardInfo.getRepetitionCount() >= 2))
+			return 0;
+
+		// A capture or pawn move that reaches a position in the bitbases settles its result. Later
+		// positions of the same set are searched, and scored from the bitbases at the leaves
+		if (ply > 0 && !inCheck && boardInfo.halfmoves == 0) {
+			int bitbaseScore = AIPlayer.bitbaseScore(boardInfo);
+			if (bitbaseScore != -AIPlayer.INFINITY)
+				return bitbaseScore;
+		}
+
+		// Probe the transposition table. Away from the root, a deep enough entry whose bound
+		// proves the score is outside the window, or which is exact, ends the search of the node
+		long hash = boardInfo.getHash();
+		int ttMove = 0;
+		if (this.table != null) {
+			long entry = this.table.probe(hash);
+			if (entry != 0) {
+				ttMove = TranspositionTable.getMove(entry);
+				int ttScore = AIPlayer.scoreFromTable(TranspositionTable.getScore(entry), ply);
+				int ttBound = TranspositionTable.getBound(entry);
+				if (ply > 0 && TranspositionTable.getDepth(entry) >= depth &&
+					(ttBound == TranspositionTable.BOUND_EXACT ||
+					 (ttBound == TranspositionTable.BOUND_LOWER && ttScore >= beta) ||
+					 (ttBound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)))
+					return ttScore;
+			}
+		}
+
+		// Prune nodes that are very likely to fail high or low. This is only safe with a null
+		// window, since the exact score of a PV node matters, and not in check, where the
+		// static evaluation means little
+		boolean pvNode = beta - alpha > 1;
+		boolean mateWindow = Math.abs(alpha) >= AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY ||
+			Math.abs(beta) >= AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY;
+		boolean futile = false;
+		if (!pvNode && !inCheck) {
+			int staticEval = Evaluation.evaluate(boardInfo);
+			boolean futility = this.features.contains(AIPlayer.Feature.FUTILITY_PRUNING) &&
+				depth <= AIPlayer.FUTILITY_MAX_DEPTH;
+
+			if (futility && staticEval - AIPlayer.FUTILITY_MARGINS[depth] >= beta &&
+				Math.abs(beta) < AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY)
+				return staticEval - AIPlayer.FUTILITY_MARGINS[depth];
+
+			// Razoring trusts quiescence to find every way back up to alpha, which it cannot when
+			// the window is about a mate
+			if (this.features.contains(AIPlayer.Feature.RAZORING) && depth == 1 && !mateWindow &&
+				staticEval + AIPlayer.RAZORING_MARGIN <= alpha)
+			{
+				int score = this.quiesce(ply, alpha, beta);
+				if (this.stopped)
+					return 0;
+				if (score <= alpha)
+					return score;
+			}
+
+			if (this.features.contains(AIPlayer.Feature.NULL_MOVE) && nullAllowed &&
+				depth >= AIPlayer.NULL_MOVE_MIN_DEPTH && staticEval >= beta &&
+				AIPlayer.hasNonPawnMaterial(boardInfo))
+			{
+				int reduction = AIPlayer.NULL_MOVE_REDUCTION + depth / 4;
+				this.followPv = false;
+				this.board.makeNullMove();
+				int score = -this.negamax(depth - 1 - reduction, ply + 1, -beta, -beta + 1, false);
+				this.board.unmakeMove();
+				if (this.stopped)
+					return 0;
+				// A mate found after passing is not a real mate, so it is not returned
+				if (score >= beta)
+					return (score >= AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY) ? beta : score;
+			}
+
+			futile = futility && staticEval + AIPlayer.FUTILITY_MARGINS[depth] <= alpha;
+		}
+
+		// While on the PV of the previous iteration, its move is searched first. Otherwise the
+		// move from the transposition table is
+		boolean onPv = this.followPv && ply < this.previousPvLength;
+		int pvMove = (onPv) ? this.previousPv[ply] : 0;
+		MovePicker picker = this.movePickers[ply];
+		picker.reset(boardInfo, (onPv) ? pvMove : ttMove, this.killers[ply][0],
+					 this.killers[ply][1], this.history);
+
+		boolean lmr = this.features.contains(AIPlayer.Feature.LATE_MOVE_REDUCTIONS) &&
+			depth >= AIPlayer.LMR_MIN_DEPTH && !inCheck && !mateWindow;
+		int originalAlpha = alpha;
+		int bestScore = -AIPlayer.INFINITY;
+		int bestMove = 0;
+		int movesSearched = 0;
+		for (int move = picker.next(); move != 0; move = picker.next()) {
+			boolean quiet = MovePicker.isQuiet(boardInfo, move);
+			boolean killer = move == this.killers[ply][0] || move == this.killers[ply][1];
+			this.followPv = onPv && movesSearched == 0 && move == pvMove;
+			this.board.makeMove(move);
+
+			// Skip quiet moves that cannot bring the score up to alpha, unless they give check
+			if (futile && quiet && movesSearched > 0 && !AIPlayer.inCheck(boardInfo)) {
+				this.board.unmakeMove();
+				continue;
+			}
+
+			// The first move is searched with the full window. Later moves are searched with a
+			// null window, reduced if they are quiet and late, and searched again without the
+			// reduction and then with the full window only if they beat alpha
+			int score;
+			if (movesSearched == 0)
+				score = -this.negamax(depth - 1, ply + 1, -beta, -alpha, true);
+			else {
+				int reduction = 0;
+				if (lmr && quiet && !killer && movesSearched >= AIPlayer.LMR_MIN_MOVES &&
+					!AIPlayer.inCheck(boardInfo))
+				{
+					int moves = Math.min(movesSearched, MoveList.DEFAULT_CAPACITY - 1);
+					reduction = Math.min(AIPlayer.LMR_REDUCTIONS[depth][moves], depth - 2);
+				}
+				score = -this.negamax(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+				if (score > alpha && reduction > 0)
+					score = -this.negamax(depth - 1, ply + 1, -alpha - 1, -alpha, true);
+				if (score > alpha && score < beta)
+					score = -this.negamax(depth - 1, ply + 1, -beta, -alpha, true);
+			}
+			this.board.unmakeMove();
+			movesSearched++;
+			if (this.stopped)
+				return 0;
+
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					bestMove = move;
+
+					// Update the PV: this move followed by the PV of the child
+					this.pvTable[ply][0] = move;
+					System.arraycopy(this.pvTable[ply + 1], 0, this.pvTable[ply], 1,
+									 this.pvLength[ply + 1]);
+					this.pvLength[ply] = this.pvLength[ply + 1] + 1;
+				}
+				if (score >= beta) {
+					this.cutoffs++;
+					if (movesSearched == 1)
+						this.firstMoveCutoffs++;
+					if (quiet)
+						this.updateQuietCutoff(move, boardInfo.whiteToMove, depth, ply);
+					break;
+				}
+			}
+		}
+		if (movesSearched == 0)
+			return (inCheck) ? -AIPlayer.MATE_SCORE + ply : 0;
+
+		if (this.table != null) {
+			int bound = (bestScore >= beta) ? TranspositionTable.BOUND_LOWER :
+				(bestScore > originalAlpha) ? TranspositionTable.BOUND_EXACT :
+				TranspositionTable.BOUND_UPPER;
+			this.table.store(hash, bestMove, AIPlayer.scoreToTable(bestScore, ply), depth, bound);
+		}
+		return bestScore;
+	}
+
+
+	/**
+	 * Searches a leaf of the main search until the position is quiet, so that the score is not
+	 * taken in the middle of an exchange. The player to move may stand pat on the static
+	 * evaluation or try a capture or promotion. When in check, every move is searched instead,
+	 * so that checkmate is found.
+	 *
+	 * @param ply    the distance of the node from the root.
+	 * @param alpha  the lower bound of the search window.
+	 * @param beta   the upper bound of the search window.
+	 *
+	 * @return the score of the node from the perspective of the player to move, bounded the
+	 *         same way as by {@code negamax}. Meaningless if the search was stopped.
+	 */
+	private int quiesce(int ply, int alpha, int beta) {
+		this.pvLength[ply] = 0;
+		this.nodes++;
+		this.checkLimits();
+		if (this.stopped)
+			return 0;
+
+		BoardInfo boardInfo = this.board.getInfoPointer();
+		if (boardInfo.halfmoves >= 100 || boardInfo.getRepetitionCount() >= 2)
+			return 0;
+		if (ply >= AIPlayer.MAX_PLY)
+			return Evaluation.evaluate(boardInfo);
+
+		boolean inCheck = AIPlayer.inCheck(boardInfo);
+		if (!inCheck) {
+			int bitbaseScore = AIPlayer.bitbaseScore(boardInfo);
+			if (bitbaseScore != -AIPlayer.INFINITY)
+				return bitbaseScore;
+		}
+
+		int bestScore = -AIPlayer.INFINITY;
+		MovePicker picker = this.movePickers[ply];
+		if (inCheck)
+			picker.reset(boardInfo, 0, 0, 0, this.history);
+		else {
+			bestScore = Evaluation.evaluate(boardInfo);
+			if (bestScore >= beta)
+				return bestScore;
+			if (bestScore > alpha)
+				alpha = bestScore;
+			picker.resetCaptures(boardInfo, this.features.contains(AIPlayer.Feature.SEE_PRUNING));
+		}
+
+		int movesSearched = 0;
+		for (int move = picker.next(); move != 0; move = picker.next()) {
+			this.board.makeMove(move);
+			int score = -this.quiesce(ply + 1, -beta, -alpha);
+			this.board.unmakeMove();
+			movesSearched++;
+			if (this.stopped)
+				return 0;
+
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha)
+					alpha = score;
+				if (score >= beta)
+					break;
+			}
+		}
+		if (inCheck && movesSearched == 0)
+			return -AIPlayer.MATE_SCORE + ply;
+		return bestScore;
 	}
 
 }
@@ -0,0 +1,408 @@
+package ai;
+
+
+import engine.board.Board;
+import engine.board.BoardInfo;
+import engine.board.PolyglotZobrist;
+import engine.fen.FenUtility;
+import engine.move.Move;
+import engine.move.MoveGenerator;
+import engine.move.MoveList;
+import engine.piece.Piece;
+import engine.util.Bitboard;
+import jnet.Log;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Builds an opening book in the Polyglot {@code .bin} format from a collection of games in PGN.
+ * <p>
+ * The first {@code maxPlies} moves of each game are added to the book. Each move is weighted by
+ * the result of the game for the player that made it: 2 for a win, 1 for a draw, and 0 for a
+ * loss, summed over all games the move was played in. Moves with a total weight of 0 are left
+ * out of the book, so it only holds moves that scored. Games without a result are skipped.
+ * Comments, variations, and numeric annotation glyphs are ignored. A game that starts from a
+ * {@code FEN} tag is played from that position.
+ *
+ * @see OpeningBook
+ *
+ * @author Jonathan Uhler
+ */
+public class BookBuilder {
+
+	/** The default number of plies of each game added to the book. */
+	public static final int DEFAULT_MAX_PLIES = 24;
+
+	/** The largest weight an entry can be written with. */
+	private static final int MAX_WEIGHT = 0xFFFF;
+
+
+	/** The number of plies of each game added to the book. */
+	private final int maxPlies;
+	/** The summed weights of the moves of each position, by key and then Polyglot move. */
+	private final Map<Long, Map<Integer, Long>> positions;
+	/** The number of games added to the book. */
+	private int numGames;
+
+
+	/**
+	 * Constructs a new {@code BookBuilder} object with an empty book.
+	 *
+	 * @param maxPlies  the number of plies of each game to add to the book.
+	 *
+	 * @throws IllegalArgumentException  if {@code maxPlies < 1}.
+	 */
+	public BookBuilder(int maxPlies) {
+		if (maxPlies < 1)
+			throw new IllegalArgumentException("maxPlies must be positive: " + maxPlies);
+
+		this.maxPlies = maxPlies;
+		this.positions = new HashMap<>();
+		this.numGames = 0;
+	}
+
+
+	/**
+	 * Returns the number of games added to the book.
+	 *
+	 * @return the number of games added to the book.
+	 */
+	public int getNumGames() {
+		return this.numGames;
+	}
+
+
+	/**
+	 * Returns the number of positions in the book.
+	 *
+	 * @return the number of positions in the book.
+	 */
+	public int getNumPositions() {
+		return this.positions.size();
+	}
+
+
+	/**
+	 * Adds the games of a PGN file to the book.
+	 *
+	 * @param path  the path of the PGN file.
+	 *
+	 * @return the number of games added.
+	 *
+	 * @throws NullPointerException  if {@code path == null}.
+	 * @throws IOException           if the file cannot be read.
+	 */
+	public int addGames(String path) throws IOException {
+		if (path == null)
+			throw new NullPointerException("path was null");
+
+		int added = 0;
+		try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+			Map<String, String> tags = new HashMap<>();
+			StringBuilder movetext = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith("%"))
+					continue;
+
+				if (line.startsWith("[")) {
+					// A tag after movetext starts the next game
+					if (movetext.length() > 0) {
+						added += this.addGame(tags, movetext.toString());
+						tags.clear();
+						movetext.setLength(0);
+					}
+					BookBuilder.parseTag(line, tags);
+					continue;
+				}
+
+				int semicolon = line.indexOf(';');
+				if (semicolon != -1 && line.lastIndexOf('{', semicolon) == -1)
+					line = line.substring(0, semicolon);
+				movetext.append(line).append(' ');
+			}
+			if (movetext.length() > 0)
+				added += this.addGame(tags, movetext.toString());
+		}
+
+		this.numGames += added;
+		return added;
+	}
+
+
+	/**
+	 * Parses a PGN tag pair, such as {@code [Result "1-0"]}, into a map of tags.
+	 *
+	 * @param line  the line holding the tag pair.
+	 * @param tags  the map to add the tag to. Malformed tag pairs are ignored.
+	 */
+	private static void parseTag(String line, Map<String, String> tags) {
+		int space = line.indexOf(' ');
+		int open = line.indexOf('"');
+		int close = line.lastIndexOf('"');
+		if (space == -1 || open == -1 || close <= open)
+			return;
+		tags.put(line.substring(1, space), line.substring(open + 1, close));
+	}
+
+
+	/**
+	 * Adds the opening of a single game to the book.
+	 *
+	 * @param tags      the tag pairs of the game.
+	 * @param movetext  the movetext of the game.
+	 *
+	 * @return 1 if the game was added, or 0 if it was skipped.
+	 */
+	private int addGame(Map<String, String> tags, String movetext) {
+		String result = tags.getOrDefault("Result", "*");
+		int whiteWeight;
+		switch (result) {
+		case "1-0" -> whiteWeight = 2;
+		case "0-1" -> whiteWeight = 0;
+		case "1/2-1/2" -> whiteWeight = 1;
+		default -> {
+			return 0;
+		}
+		}
+
+		BoardInfo boardInfo;
+		try {
+			boardInfo = FenUtility.informationFromFen(tags.getOrDefault("FEN", Board.START_FEN));
+		}
+		catch (IllegalArgumentException e) {
+			Log.stdout(Log.WARN, "BookBuilder", "skipping game with invalid FEN: " + e);
+			return 0;
+		}
+
+		Board board = new Board(boardInfo);
+		MoveList legalMoves = new MoveList();
+		List<String> sans = BookBuilder.tokenize(movetext);
+		for (int ply = 0; ply < sans.size() && ply < this.maxPlies; ply++) {
+			legalMoves.clear();
+			MoveGenerator.generateLegalMoves(boardInfo, legalMoves);
+			int move = BookBuilder.parseSan(boardInfo, legalMoves, sans.get(ply));
+			if (move == 0) {
+				Log.stdout(Log.DEBUG, "BookBuilder", "stopping game at unknown move " +
+						   sans.get(ply) + " in " + boardInfo.getFenString());
+				break;
+			}
+
+			long weight = (boardInfo.whiteToMove) ? whiteWeight : 2 - whiteWeight;
+			this.positions
+				.computeIfAbsent(PolyglotZobrist.hash(boardInfo), k -> new HashMap<>())
+				.merge(OpeningBook.toPolyglotMove(move), weight, Long::sum);
+			board.makeMove(move);
+		}
+		return 1;
+	}
+
+
+	/**
+	 * Splits movetext into its moves. Comments, variations, move numbers, numeric annotation
+	 * glyphs, and the result are removed.
+	 *
+	 * @param movetext  the movetext of a game.
+	 *
+	 * @return the moves of the game in standard algebraic notation.
+	 */
+	private static List<String> tokenize(String movetext) {
+		StringBuilder main = new StringBuilder();
+		int variationDepth = 0;
+		boolean inComment = false;
+		for (int i = 0; i < movetext.length(); i++) {
+			char c = movetext.charAt(i);
+			if (inComment)
+				inComment = c != '}';
+			else if (c == '{')
+				inComment = true;
+			else if (c == '(')
+				variationDepth++;
+			else if (c == ')')
+				variationDepth = Math.max(variationDepth - 1, 0);
+			else if (variationDepth == 0)
+				main.append(c);
+		}
+
+		List<String> sans = new ArrayList<>();
+		for (String token : main.toString().split("\\s+")) {
+			// Move numbers may be joined to the move that follows, as in "1.e4"
+			token = token.replaceFirst("^[0-9]+\\.+", "");
+			if (token.isEmpty() || token.startsWith("$") ||
+				token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") ||
+				token.equals("*"))
+				continue;
+			sans.add(token);
+		}
+		return sans;
+	}
+
+
+	/**
+	 * Finds the legal move written in standard algebraic notation, such as {@code Nbd7},
+	 * {@code exd5}, {@code e8=Q+}, or {@code O-O}.
+	 *
+	 * @param boardInfo   the position the move is made in.
+	 * @param legalMoves  the legal moves of the position.
+	 * @param san         the move in standard algebraic notation.
+	 *
+	 * @return the encoded move, or 0 if no single legal move matches {@code san}.
+	 */
+	public static int parseSan(BoardInfo boardInfo, MoveList legalMoves, String san) {
+		san = san.replaceAll("[+#!?]", "");
+		if (san.equals("O-O") || san.equals("0-0") || san.equals("O-O-O") || san.equals("0-0-0")) {
+			Move.Flag castle = (san.length() == 3) ?
+				Move.Flag.CASTLE_KINGSIDE : Move.Flag.CASTLE_QUEENSIDE;
+			for (int i = 0; i < legalMoves.size(); i++) {
+				if (Move.getFlag(legalMoves.get(i)) == castle)
+					return legalMoves.get(i);
+			}
+			return 0;
+		}
+
+		// Promotion, written as "e8=Q" or "e8Q"
+		Move.Flag promotion = Move.Flag.NONE;
+		if (san.length() > 2 && "NBRQ".indexOf(san.charAt(san.length() - 1)) != -1) {
+			promotion = switch (san.charAt(san.length() - 1)) {
+			case 'N' -> Move.Flag.PROMOTE_KNIGHT;
+			case 'B' -> Move.Flag.PROMOTE_BISHOP;
+			case 'R' -> Move.Flag.PROMOTE_ROOK;
+			default -> Move.Flag.PROMOTE_QUEEN;
+			};
+			san = san.substring(0, san.length() - 1);
+			if (san.endsWith("="))
+				san = san.substring(0, san.length() - 1);
+		}
+
+		Piece.Type type = switch ((san.isEmpty()) ? ' ' : san.charAt(0)) {
+		case 'N' -> Piece.Type.KNIGHT;
+		case 'B' -> Piece.Type.BISHOP;
+		case 'R' -> Piece.Type.ROOK;
+		case 'Q' -> Piece.Type.QUEEN;
+		case 'K' -> Piece.Type.KING;
+		default -> Piece.Type.PAWN;
+		};
+		if (type != Piece.Type.PAWN)
+			san = san.substring(1);
+		san = san.replace("x", "").replace("-", "");
+		if (san.length() < 2 || san.length() > 4)
+			return 0;
+
+		int endSquare = BookBuilder.parseSquare(san.substring(san.length() - 2));
+		if (endSquare == -1)
+			return 0;
+
+		// Disambiguation by the start file, rank, or both
+		int startFile = -1;
+		int startRank = -1;
+		for (char c : san.substring(0, san.length() - 2).toCharArray()) {
+			if (c >= 'a' && c <= 'h')
+				startFile = c - 'a';
+			else if (c >= '1' && c <= '8')
+				startRank = c - '1';
+			else
+				return 0;
+		}
+
+		int found = 0;
+		for (int i = 0; i < legalMoves.size(); i++) {
+			int move = legalMoves.get(i);
+			int startSquare = Move.getStartSquare(move);
+			Move.Flag flag = Move.getFlag(move);
+			if (Move.getEndSquare(move) != endSquare ||
+				boardInfo.getPiece(startSquare).getType() != type ||
+				(startFile != -1 && (startSquare & 7) != startFile) ||
+				(startRank != -1 && (startSquare >>> 3) != startRank) ||
+				flag == Move.Flag.CASTLE_KINGSIDE || flag == Move.Flag.CASTLE_QUEENSIDE)
+				continue;
+
+			boolean promotes = flag == Move.Flag.PROMOTE_KNIGHT ||
+				flag == Move.Flag.PROMOTE_BISHOP || flag == Move.Flag.PROMOTE_ROOK ||
+				flag == Move.Flag.PROMOTE_QUEEN;
+			if ((promotes || promotion != Move.Flag.NONE) && flag != promotion)
+				continue;
+
+			if (found != 0)
+				return 0;
+			found = move;
+		}
+		return found;
+	}
+
+
+	/**
+	 * Parses a square in algebraic notation, such as {@code e4}.
+	 *
+	 * @param square  the square in algebraic notation.
+	 *
+	 * @return the square index, or -1 if {@code square} is not a valid square.
+	 */
+	private static int parseSquare(String square) {
+		char file = square.charAt(0);
+		char rank = square.charAt(1);
+		if (file < 'a' || file > 'h' || rank < '1' || rank > '8')
+			return -1;
+		return Bitboard.square(file - 'a', rank - '1');
+	}
+
+
+	/**
+	 * Writes the book to a file. Entries are sorted by key and then from highest to lowest
+	 * weight. If the weights of a position exceed the largest weight an entry can hold, they are
+	 * scaled down together, keeping every move with a positive weight.
+	 *
+	 * @param path  the path of the file to write.
+	 *
+	 * @return the number of entries written.
+	 *
+	 * @throws NullPointerException  if {@code path == null}.
+	 * @throws IOException           if the file cannot be written.
+	 */
+	public long write(String path) throws IOException {
+		if (path == null)
+			throw new NullPointerException("path was null");
+
+		List<Long> keys = new ArrayList<>(this.positions.keySet());
+		keys.sort(Long::compareUnsigned);
+
+		long written = 0;
+		try (DataOutputStream out =
+			 new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path))))
+		{
+			for (long key : keys) {
+				List<Map.Entry<Integer, Long>> moves =
+					new ArrayList<>(this.positions.get(key).entrySet());
+				moves.removeIf(entry -> entry.getValue() == 0);
+				moves.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+				if (moves.isEmpty())
+					continue;
+
+				long maxWeight = moves.get(0).getValue();
+				for (Map.Entry<Integer, Long> entry : moves) {
+					long weight = entry.getValue();
+					if (maxWeight > BookBuilder.MAX_WEIGHT)
+						weight = Math.max(weight * BookBuilder.MAX_WEIGHT / maxWeight, 1);
+
+					// DataOutputStream writes big-endian, as the format requires
+					out.writeLong(key);
+					out.writeShort(entry.getKey());
+					out.writeShort((int) weight);
+					out.writeInt(0);
+					written++;
+				}
+			}
+		}
+		return written;
+	}
+
+}
@@ -1,5 +1,210 @@
+package ai;
+
+
+import engine.board.BoardInfo;
+import engine.piece.Piece;
+import engine.piece.PieceSquareTables;
+import engine.util.Bitboard;
+
+
+/**
+ * Static evaluation of chess positions. Scores are in centipawns (1/100 of a pawn) from the
+ * perspective of the player to move, so a positive score is good for the player to move. This
+ * is the convention used by negamax search.
+ * <p>
+ * The evaluation is tapered: each piece has a midgame and an endgame value that depends on its
+ * square, from {@code engine.piece.PieceSquareTables}. The two totals are blended by the game
+ * phase, which is computed from the minor and major pieces left on the board. Both totals and
+ * the phase are sums over the pieces, so {@code BoardInfo} keeps them up to date every time a
+ * piece is placed or removed, and evaluating a position only blends three numbers.
+ * {@code evaluateFull} recomputes the same score from the bitboards, and {@code verify} checks
+ * the two agree.
+ *
+ * @author Jonathan Uhler
+ */
 public class Evaluation {
 
-	
+	/**
+	 * Blends midgame and endgame scores by the game phase.
+	 *
+	 * @param midgame  the midgame score.
+	 * @param endgame  the endgame score.
+	 * @param phase    the game phase. Values above {@code MAX_PHASE} are treated as
+	 *                 {@code MAX_PHASE}.
+	 *
+	 * @return the blended score.
+	 */
+	private static int taper(int midgame, int endgame, int phase) {
+		int maxPhase = PieceSquareTables.MAX_PHASE;
+		phase = Math.min(phase, maxPhase);
+		return (midgame * phase + endgame * (maxPhase - phase)) / maxPhase;
+	}
+
+
+	/**
+	 * Evaluates a position from the scores maintained incrementally by {@code BoardInfo}.
+	 *
+	 * @param boardInfo  the position to evaluate.
+	 *
+	 * @return the score of the position in centipawns, from the perspective of the player to
+	 *         move.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 */
+	public static int evaluate(BoardInfo boardInfo) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		int score = Evaluation.taper(boardInfo.getMidgameScore(), boardInfo.getEndgameScore(),
+									 boardInfo.getPhase());
+		return (boardInfo.whiteToMove) ? score : -score;
+	}
+
+
+	/**
+	 * Returns the distance of a square from the centre of the board, as the sum of its file and
+	 * rank distances from the four centre squares.
+	 *
+	 * @param square  the square index, on the interval [0, 63].
+	 *
+	 * @return the distance of the square from the centre, on the interval [0, 6].
+	 */
+	private static int centreDistance(int square) {
+		int x = square & 7;
+		int y = square >>> 3;
+		return Math.max(3 - x, x - 4) + Math.max(3 - y, y - 4);
+	}
+
+
+	/**
+	 * Scores a position known to be won, to guide the winning player towards checkmate. The
+	 * losing king is driven to the edge of the board and the winning king brought close to it.
+	 * When the winning player's only pieces are bishops of one color and knights, the losing king
+	 * is driven to a corner of the bishops' color, the only corners where it can be mated. The
+	 * winning player's material is added, so that promoting and keeping pieces score higher.
+	 *
+	 * @param boardInfo  the position, with exactly one king for each player.
+	 * @param white      whether the white player is the winning player.
+	 *
+	 * @return the score of the position from the perspective of the winning player, on the
+	 *         interval [0, 4000).
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 */
+	public static int mopUp(BoardInfo boardInfo, boolean white) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		int winningKing = Bitboard.first(boardInfo.getPieceBoard(Piece.Type.KING, white));
+		int losingKing = Bitboard.first(boardInfo.getPieceBoard(Piece.Type.KING, !white));
+		int kingDistance = Math.abs((winningKing & 7) - (losingKing & 7)) +
+			Math.abs((winningKing >>> 3) - (losingKing >>> 3));
+		int score = 10 * Evaluation.centreDistance(losingKing) + 4 * (14 - kingDistance);
+
+		long bishops = boardInfo.getPieceBoard(Piece.Type.BISHOP, white);
+		long others = boardInfo.getColorBoard(white) & ~bishops &
+			~boardInfo.getPieceBoard(Piece.Type.KNIGHT, white) &
+			~boardInfo.getPieceBoard(Piece.Type.KING, white);
+		boolean lightBishops = (bishops & Bitboard.LIGHT_TILES) == bishops;
+		boolean darkBishops = (bishops & Bitboard.LIGHT_TILES) == 0;
+		if (bishops != 0 && others == 0 && (lightBishops || darkBishops)) {
+			// The light corners are a8 and h1, and the dark corners are a1 and h8
+			int x = losingKing & 7;
+			int y = losingKing >>> 3;
+			int toCorner = (lightBishops) ? Math.min(x + (7 - y), (7 - x) + y) :
+				Math.min(x + y, (7 - x) + (7 - y));
+			score += 40 * (14 - toCorner);
+		}
+
+		// Material without the piece-square tables, which would drown out the terms above,
+		// except that pawns score more the closer they are to promoting
+		int pawnIndex = (white) ? 0 : Piece.NUM_TYPES;
+		for (long pawns = boardInfo.getPieceBoard(Piece.Type.PAWN, white); pawns != 0;
+			 pawns &= pawns - 1)
+		{
+			int value = PieceSquareTables.endgameValue(pawnIndex, Bitboard.first(pawns));
+			score += (white) ? value : -value;
+		}
+		for (Piece.Type type : new Piece.Type[] {Piece.Type.KNIGHT, Piece.Type.BISHOP,
+												 Piece.Type.ROOK, Piece.Type.QUEEN})
+			score += Bitboard.count(boardInfo.getPieceBoard(type, white)) *
+				PieceSquareTables.ENDGAME_PIECE_VALUES[type.ordinal()];
+		return Math.min(score, 3999);
+	}
+
+
+	/**
+	 * Evaluates a position by summing the value of every piece on the board. This is slower
+	 * than {@code evaluate}, and is meant for debugging the incremental scores.
+	 *
+	 * @param boardInfo  the position to evaluate.
+	 *
+	 * @return the score of the position in centipawns, from the perspective of the player to
+	 *         move. Always equal to {@code evaluate(boardInfo)}.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 */
+	public static int evaluateFull(BoardInfo boardInfo) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		int[] scores = Evaluation.sumPieces(boardInfo);
+		int score = Evaluation.taper(scores[0], scores[1], scores[2]);
+		return (boardInfo.whiteToMove) ? score : -score;
+	}
+
+
+	/**
+	 * Checks that the scores maintained incrementally by {@code BoardInfo} match the scores
+	 * recomputed from the bitboards.
+	 *
+	 * @param boardInfo  the position to check.
+	 *
+	 * @throws NullPointerException   if {@code boardInfo == null}.
+	 * @throws IllegalStateException  if any incremental score differs from the recomputed one.
+	 */
+	public static void verify(BoardInfo boardInfo) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		int[] scores = Evaluation.sumPieces(boardInfo);
+		if (scores[0] != boardInfo.getMidgameScore() || scores[1] != boardInfo.getEndgameScore() ||
+			scores[2] != boardInfo.getPhase())
+			throw new IllegalStateException("incremental evaluation (" +
+											boardInfo.getMidgameScore() + ", " +
+											boardInfo.getEndgameScore() + ", " +
+											boardInfo.getPhase() + ") does not match (" +
+											scores[0] + ", " + scores[1] + ", " + scores[2] +
+											") for " + boardInfo.getFenString());
+	}
+
+
+	/**
+	 * Sums the midgame value, endgame value, and phase of every piece on the board.
+	 *
+	 * @param boardInfo  the position to sum.
+	 *
+	 * @return an array of the midgame score, endgame score, and phase.
+	 */
+	private static int[] sumPieces(BoardInfo boardInfo) {
+		int[] scores = new int[3];
+		for (Piece.Type type : Piece.Type.values()) {
+			if (type == Piece.Type.NONE)
+				continue;
+			for (boolean white : new boolean[] {true, false}) {
+				Piece.Color color = (white) ? Piece.Color.WHITE : Piece.Color.BLACK;
+				int index = Piece.of(type, color).getIndex();
+				long pieces = boardInfo.getPieceBoard(type, white);
+				while (pieces != 0) {
+					int square = Bitboard.first(pieces);
+					pieces &= pieces - 1;
+					scores[0] += PieceSquareTables.midgameValue(index, square);
+					scores[1] += PieceSquareTables.endgameValue(index, square);
+					scores[2] += PieceSquareTables.phaseWeight(index);
+				}
+			}
+		}
+		return scores;
+	}
 
 }
@@ -0,0 +1,355 @@
+package ai;
+
+
+import engine.board.BoardInfo;
+import engine.move.Move;
+import engine.move.MoveGenerator;
+import engine.move.MoveList;
+import engine.piece.Piece;
+import engine.piece.PieceSquareTables;
+import engine.util.Bitboard;
+
+
+/**
+ * Returns the legal moves of a position one at a time, in the order a search should try them.
+ * <p>
+ * Moves are produced in stages, and each stage is only generated when the previous one is used
+ * up, so a beta cutoff early in the list skips generating the rest:
+ * <ol>
+ * <li> The hash move: the best move from the transposition table, or the move of the previous
+ *      principal variation. It is checked for legality by generating the moves of its piece.
+ * <li> Captures and promotions that do not lose material by static exchange evaluation, best
+ *      first by most valuable victim, least valuable attacker (MVV-LVA).
+ * <li> The two killer moves of the ply: quiet moves that recently caused a cutoff at the same
+ *      distance from the root, checked for legality the same way as the hash move.
+ * <li> The remaining quiet moves, best first by the history heuristic: the total bonus each
+ *      move has earned by causing cutoffs anywhere in the tree.
+ * <li> The captures that lose material, in the order they were found.
+ * </ol>
+ * The quiescence search uses a picker that only returns the captures and promotions, and can
+ * skip the losing ones entirely.
+ * Every legal move is returned exactly once. Moves within a stage are chosen by selection
+ * rather than sorted up front, since most nodes only ever look at the first few.
+ * <p>
+ * A {@code MovePicker} object is reused for every node at one ply, so it never allocates during
+ * a search.
+ *
+ * @author Jonathan Uhler
+ */
+class MovePicker {
+
+	/**
+	 * The stages of move picking, in order.
+	 */
+	private static enum Stage {
+		/** Return the hash move. */
+		HASH_MOVE,
+		/** Generate and score the captures. */
+		GENERATE_CAPTURES,
+		/** Return the captures. */
+		CAPTURES,
+		/** Return the killer moves. */
+		KILLERS,
+		/** Generate and score the quiet moves. */
+		GENERATE_QUIETS,
+		/** Return the quiet moves. */
+		QUIETS,
+		/** Return the captures that lose material. */
+		LOSING_CAPTURES,
+		/** All moves have been returned. */
+		DONE
+	}
+
+
+	/** The number of entries in a history table. */
+	public static final int HISTORY_SIZE = 2 * 64 * 64;
+	/** The largest value of a history entry. When an entry exceeds this, the table is halved. */
+	public static final int MAX_HISTORY = 1 << 20;
+
+	/** The position the moves are picked from. */
+	private BoardInfo boardInfo;
+	/** The hash move, or 0 if there is none. */
+	private int hashMove;
+	/** The killer moves, 0 for an empty slot. */
+	private final int[] killers;
+	/** The history table. */
+	private int[] history;
+	/** Whether only captures and promotions are returned. */
+	private boolean capturesOnly;
+	/** Whether captures that lose material are skipped rather than returned last. */
+	private boolean skipLosing;
+
+	/** The current stage. */
+	private MovePicker.Stage stage;
+	/** The moves of the current stage. */
+	private final MoveList moves;
+	/** The ordering score of each move in {@code moves}. */
+	private final int[] scores;
+	/** The index of the next move or killer to consider in the current stage. */
+	private int index;
+	/** The captures that lose material, returned after the quiet moves. */
+	private final MoveList losingCaptures;
+	/** A list used to check the legality of the hash move and the killers. */
+	private final MoveList scratch;
+	/** A scratch array for {@code MoveGenerator.staticExchange}. */
+	private final int[] exchangeGains;
+
+
+	/**
+	 * Constructs a new {@code MovePicker} object. The object must be reset before it is used.
+	 */
+	public MovePicker() {
+		this.killers = new int[2];
+		this.moves = new MoveList();
+		this.scores = new int[MoveList.DEFAULT_CAPACITY];
+		this.losingCaptures = new MoveList();
+		this.scratch = new MoveList();
+		this.exchangeGains = new int[MoveGenerator.EXCHANGE_LENGTH];
+		this.stage = MovePicker.Stage.DONE;
+	}
+
+
+	/**
+	 * Starts picking the moves of a new position.
+	 *
+	 * @param boardInfo  the position. It must not change until every move wanted is picked.
+	 * @param hashMove   the move to try first, or 0 if there is none. It does not need to be legal.
+	 * @param killer1    the first killer move, or 0 if there is none.
+	 * @param killer2    the second killer move, or 0 if there is none.
+	 * @param history    the history table, indexed by {@code historyIndex}.
+	 */
+	public void reset(BoardInfo boardInfo, int hashMove, int killer1, int killer2, int[] history) {
+		this.boardInfo = boardInfo;
+		this.hashMove = hashMove;
+		this.killers[0] = killer1;
+		this.killers[1] = killer2;
+		this.history = history;
+		this.capturesOnly = false;
+		this.skipLosing = false;
+		this.losingCaptures.clear();
+		this.stage = MovePicker.Stage.HASH_MOVE;
+		this.index = 0;
+	}
+
+
+	/**
+	 * Starts picking only the captures and promotions of a new position, for the quiescence
+	 * search.
+	 *
+	 * @param boardInfo   the position. It must not change until every move wanted is picked.
+	 * @param skipLosing  whether to skip the captures that lose material by static exchange
+	 *                    evaluation.
+	 */
+	public void resetCaptures(BoardInfo boardInfo, boolean skipLosing) {
+		this.boardInfo = boardInfo;
+		this.hashMove = 0;
+		this.killers[0] = 0;
+		this.killers[1] = 0;
+		this.capturesOnly = true;
+		this.skipLosing = skipLosing;
+		this.losingCaptures.clear();
+		this.stage = MovePicker.Stage.GENERATE_CAPTURES;
+		this.index = 0;
+	}
+
+
+	/**
+	 * Returns the index of a move in a history table.
+	 *
+	 * @param white  whether the move is made by the white player.
+	 * @param move   the encoded move.
+	 *
+	 * @return the index of the move in a history table.
+	 */
+	public static int historyIndex(boolean white, int move) {
+		return ((white) ? 0 : 64 * 64) + Move.getStartSquare(move) * 64 + Move.getEndSquare(move);
+	}
+
+
+	/**
+	 * Determines whether a move is quiet: not a capture or a promotion. Quiet moves are the ones
+	 * that can become killers and earn history.
+	 *
+	 * @param boardInfo  the position before the move is made.
+	 * @param move       the encoded move.
+	 *
+	 * @return true if {@code move} is quiet.
+	 */
+	public static boolean isQuiet(BoardInfo boardInfo, int move) {
+		Move.Flag flag = Move.getFlag(move);
+		return boardInfo.getPiece(Move.getEndSquare(move)) == null &&
+			flag != Move.Flag.EN_PASSANT &&
+			(flag.ordinal() < Move.Flag.PROMOTE_KNIGHT.ordinal() ||
+			 flag.ordinal() > Move.Flag.PROMOTE_QUEEN.ordinal());
+	}
+
+
+	/**
+	 * Returns the next move.
+	 *
+	 * @return the next legal move, or 0 if every move has been returned.
+	 */
+	public int next() {
+		while (true) {
+			switch (this.stage) {
+			case HASH_MOVE -> {
+				this.stage = MovePicker.Stage.GENERATE_CAPTURES;
+				if (this.isLegal(this.hashMove, MoveGenerator.Kind.ALL))
+					return this.hashMove;
+			}
+			case GENERATE_CAPTURES -> {
+				MoveGenerator.generateLegalMoves(this.boardInfo, this.moves,
+												 MoveGenerator.Kind.CAPTURES, Bitboard.FULL);
+				for (int i = 0; i < this.moves.size(); i++)
+					this.scores[i] = this.captureScore(this.moves.get(i));
+				this.index = 0;
+				this.stage = MovePicker.Stage.CAPTURES;
+			}
+			case CAPTURES -> {
+				int move = this.selectBest(false);
+				if (move == 0) {
+					this.index = 0;
+					this.stage = (this.capturesOnly) ? MovePicker.Stage.LOSING_CAPTURES :
+						MovePicker.Stage.KILLERS;
+				}
+				else if (!this.isLosing(move))
+					return move;
+				else if (!this.skipLosing)
+					this.losingCaptures.add(move);
+			}
+			case KILLERS -> {
+				if (this.index >= this.killers.length) {
+					this.stage = MovePicker.Stage.GENERATE_QUIETS;
+					break;
+				}
+				int killer = this.killers[this.index++];
+				if (killer != this.hashMove && this.isLegal(killer, MoveGenerator.Kind.QUIETS))
+					return killer;
+			}
+			case GENERATE_QUIETS -> {
+				MoveGenerator.generateLegalMoves(this.boardInfo, this.moves,
+												 MoveGenerator.Kind.QUIETS, Bitboard.FULL);
+				boolean white = this.boardInfo.whiteToMove;
+				for (int i = 0; i < this.moves.size(); i++)
+					this.scores[i] = this.history[MovePicker.historyIndex(white,
+																		  this.moves.get(i))];
+				this.index = 0;
+				this.stage = MovePicker.Stage.QUIETS;
+			}
+			case QUIETS -> {
+				int move = this.selectBest(true);
+				if (move != 0)
+					return move;
+				this.index = 0;
+				this.stage = MovePicker.Stage.LOSING_CAPTURES;
+			}
+			case LOSING_CAPTURES -> {
+				if (this.index < this.losingCaptures.size())
+					return this.losingCaptures.get(this.index++);
+				this.stage = MovePicker.Stage.DONE;
+			}
+			case DONE -> {
+				return 0;
+			}
+			}
+		}
+	}
+
+
+	/**
+	 * Determines whether a move is a legal move of a given kind in the current position.
+	 *
+	 * @param move  the encoded move, or 0.
+	 * @param kind  the kind the move must be.
+	 *
+	 * @return true if {@code move} is legal and of the given kind.
+	 */
+	private boolean isLegal(int move, MoveGenerator.Kind kind) {
+		if (move == 0)
+			return false;
+		MoveGenerator.generateLegalMoves(this.boardInfo, this.scratch, kind,
+										 Bitboard.mask(Move.getStartSquare(move)));
+		return this.scratch.contains(move);
+	}
+
+
+	/**
+	 * Returns the MVV-LVA score of a capture or promotion: the value of the captured piece
+	 * (and of the promoted piece) comes first, and the value of the capturing piece breaks ties.
+	 *
+	 * @param move  the encoded capture or promotion.
+	 *
+	 * @return the ordering score of {@code move}.
+	 */
+	private int captureScore(int move) {
+		Piece victim = this.boardInfo.getPiece(Move.getEndSquare(move));
+		Piece attacker = this.boardInfo.getPiece(Move.getStartSquare(move));
+		int score = 0;
+		if (victim != null)
+			score += 10 * PieceSquareTables.pieceValue(victim.getType());
+		else if (Move.getFlag(move) == Move.Flag.EN_PASSANT)
+			score += 10 * PieceSquareTables.pieceValue(Piece.Type.PAWN);
+		score += switch (Move.getFlag(move)) {
+		case PROMOTE_KNIGHT -> PieceSquareTables.pieceValue(Piece.Type.KNIGHT);
+		case PROMOTE_BISHOP -> PieceSquareTables.pieceValue(Piece.Type.BISHOP);
+		case PROMOTE_ROOK -> PieceSquareTables.pieceValue(Piece.Type.ROOK);
+		case PROMOTE_QUEEN -> PieceSquareTables.pieceValue(Piece.Type.QUEEN);
+		default -> 0;
+		};
+		return score - PieceSquareTables.pieceValue(attacker.getType());
+	}
+
+
+	/**
+	 * Determines whether a capture or promotion loses material by static exchange evaluation.
+	 * The exchange is only evaluated when the piece taken is worth less than the piece left
+	 * on the tile, since otherwise the move cannot lose material.
+	 *
+	 * @param move  the encoded capture or promotion.
+	 *
+	 * @return true if {@code move} loses material.
+	 */
+	private boolean isLosing(int move) {
+		Piece victim = this.boardInfo.getPiece(Move.getEndSquare(move));
+		Piece attacker = this.boardInfo.getPiece(Move.getStartSquare(move));
+		Move.Flag flag = Move.getFlag(move);
+		if (victim != null && flag.ordinal() < Move.Flag.PROMOTE_KNIGHT.ordinal() &&
+			PieceSquareTables.pieceValue(victim.getType()) >=
+			PieceSquareTables.pieceValue(attacker.getType()))
+			return false;
+		if (flag == Move.Flag.EN_PASSANT)
+			return false;
+		return MoveGenerator.staticExchange(this.boardInfo, move, this.exchangeGains) < 0;
+	}
+
+
+	/**
+	 * Returns the remaining move of the current stage with the highest score, skipping moves
+	 * that were already returned by an earlier stage.
+	 *
+	 * @param skipKillers  whether to skip the killers. Killers are only returned early if they
+	 *                     are quiet, so they are only skipped in the quiet stage.
+	 *
+	 * @return the best remaining move of the current stage, or 0 if there are none.
+	 */
+	private int selectBest(boolean skipKillers) {
+		while (this.index < this.moves.size()) {
+			int best = this.index;
+			for (int i = this.index + 1; i < this.moves.size(); i++) {
+				if (this.scores[i] > this.scores[best])
+					best = i;
+			}
+
+			int move = this.moves.get(best);
+			this.moves.set(best, this.moves.get(this.index));
+			this.scores[best] = this.scores[this.index];
+			this.index++;
+
+			if (move != this.hashMove &&
+				(!skipKillers || (move != this.killers[0] && move != this.killers[1])))
+				return move;
+		}
+		return 0;
+	}
+
+}
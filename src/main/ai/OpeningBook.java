@@ -0,0 +1,325 @@
+package ai;
+
+
+import engine.board.BoardInfo;
+import engine.board.PolyglotZobrist;
+import engine.move.Move;
+import engine.move.MoveGenerator;
+import engine.move.MoveList;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * An opening book in the Polyglot {@code .bin} format.
+ * <p>
+ * A Polyglot book is a sequence of 16-byte big-endian entries, sorted by key: the 8-byte
+ * {@code PolyglotZobrist} key of a position, a 2-byte move, a 2-byte weight, and 4 bytes of
+ * learning data, which are ignored. A position may have several entries, one for each move. The
+ * move packs the end file, end rank, start file, and start rank in 3 bits each from the lowest
+ * bits, then the promotion piece (none, knight, bishop, rook, queen) in the next 3 bits.
+ * Castling is written as the king capturing its own rook, such as {@code e1h1}.
+ * <p>
+ * The file is memory-mapped rather than read, so opening a book takes the same time whatever
+ * its size, and the entries stay off the heap, paged in by the operating system as they are
+ * probed. A single mapping is limited to 2 GiB, so larger books are mapped in several chunks.
+ * Probing is a binary search for the first entry of a key. An {@code OpeningBook} object is
+ * immutable and can be probed from several threads at once.
+ *
+ * @see engine.board.PolyglotZobrist
+ * @see BookBuilder
+ *
+ * @author Jonathan Uhler
+ */
+public class OpeningBook {
+
+	/** The size of an entry in bytes. */
+	public static final int ENTRY_SIZE = 16;
+
+	/** The base 2 logarithm of the number of entries in a chunk of the mapping. */
+	private static final int CHUNK_BITS = 26;
+	/** The number of entries in a chunk of the mapping (1 GiB of entries). */
+	private static final long CHUNK_ENTRIES = 1L << OpeningBook.CHUNK_BITS;
+
+
+	/**
+	 * A move of an opening book with its weight.
+	 */
+	public static class Entry {
+
+		/** The encoded move. */
+		private final int move;
+		/** The weight of the move. */
+		private final int weight;
+
+
+		/**
+		 * Constructs a new {@code Entry} object.
+		 *
+		 * @param move    the encoded move.
+		 * @param weight  the weight of the move.
+		 */
+		private Entry(int move, int weight) {
+			this.move = move;
+			this.weight = weight;
+		}
+
+
+		/**
+		 * Returns the move.
+		 *
+		 * @return the encoded move, as returned by {@code Move.encode}.
+		 */
+		public int getMove() {
+			return this.move;
+		}
+
+
+		/**
+		 * Returns the weight of the move. A move is chosen with a probability proportional to
+		 * its weight.
+		 *
+		 * @return the weight of the move, on the interval [0, 65535].
+		 */
+		public int getWeight() {
+			return this.weight;
+		}
+
+
+		@Override
+		public String toString() {
+			return Move.toLongAlgebraic(this.move) + " " + this.weight;
+		}
+
+	}
+
+
+	/** The path of the book file. */
+	private final Path path;
+	/** The mappings of the book file, each holding {@code CHUNK_ENTRIES} entries but the last. */
+	private final MappedByteBuffer[] chunks;
+	/** The number of entries in the book. */
+	private final long size;
+	/** The random number generator used to choose moves. */
+	private final Random random;
+
+
+	/**
+	 * Opens an opening book. The file is mapped, not read, so it must not be modified while the
+	 * book is in use.
+	 *
+	 * @param path  the path of the book file.
+	 *
+	 * @throws NullPointerException  if {@code path == null}.
+	 * @throws IOException           if the file cannot be mapped, or its size is not a multiple
+	 *                               of {@code ENTRY_SIZE}.
+	 */
+	public OpeningBook(String path) throws IOException {
+		if (path == null)
+			throw new NullPointerException("path was null");
+
+		this.path = Paths.get(path);
+		this.random = new Random();
+
+		// The mappings stay valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+			long bytes = channel.size();
+			if (bytes % OpeningBook.ENTRY_SIZE != 0)
+				throw new IOException("not a Polyglot book, size is not a multiple of " +
+									  OpeningBook.ENTRY_SIZE + ": " + path);
+
+			this.size = bytes / OpeningBook.ENTRY_SIZE;
+			int numChunks = (int) ((this.size + OpeningBook.CHUNK_ENTRIES - 1) /
+								   OpeningBook.CHUNK_ENTRIES);
+			this.chunks = new MappedByteBuffer[numChunks];
+			for (int i = 0; i < numChunks; i++) {
+				long first = i * OpeningBook.CHUNK_ENTRIES;
+				long entries = Math.min(OpeningBook.CHUNK_ENTRIES, this.size - first);
+				this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+											 first * OpeningBook.ENTRY_SIZE,
+											 entries * OpeningBook.ENTRY_SIZE);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of entries in the book.
+	 *
+	 * @return the number of entries in the book.
+	 */
+	public long size() {
+		return this.size;
+	}
+
+
+	/**
+	 * Returns the key of an entry.
+	 *
+	 * @param index  the index of the entry.
+	 *
+	 * @return the key of the entry.
+	 */
+	private long getKey(long index) {
+		MappedByteBuffer chunk = this.chunks[(int) (index >>> OpeningBook.CHUNK_BITS)];
+		return chunk.getLong((int) (index & (OpeningBook.CHUNK_ENTRIES - 1)) *
+							 OpeningBook.ENTRY_SIZE);
+	}
+
+
+	/**
+	 * Returns the move and weight of an entry, packed as the 4 bytes following its key.
+	 *
+	 * @param index  the index of the entry.
+	 *
+	 * @return the Polyglot move in the upper 16 bits and the weight in the lower 16 bits.
+	 */
+	private int getMoveAndWeight(long index) {
+		MappedByteBuffer chunk = this.chunks[(int) (index >>> OpeningBook.CHUNK_BITS)];
+		return chunk.getInt((int) (index & (OpeningBook.CHUNK_ENTRIES - 1)) *
+							OpeningBook.ENTRY_SIZE + 8);
+	}
+
+
+	/**
+	 * Finds the first entry with a key. Keys are sorted as unsigned numbers.
+	 *
+	 * @param key  the key to find.
+	 *
+	 * @return the index of the first entry with {@code key}, or {@code size()} if there is none.
+	 */
+	private long find(long key) {
+		long low = 0;
+		long high = this.size;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(this.getKey(middle), key) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return (low < this.size && this.getKey(low) == key) ? low : this.size;
+	}
+
+
+	/**
+	 * Returns the book moves for a position. Entries whose move is not legal in the position,
+	 * which can only come from a key collision or a corrupt book, are skipped.
+	 *
+	 * @param boardInfo  the position.
+	 *
+	 * @return the book moves for the position in the order of the book, which is normally from
+	 *         highest to lowest weight. Empty if the position is not in the book.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 */
+	public List<OpeningBook.Entry> getEntries(BoardInfo boardInfo) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		List<OpeningBook.Entry> entries = new ArrayList<>();
+		long key = PolyglotZobrist.hash(boardInfo);
+		long index = this.find(key);
+		if (index == this.size)
+			return entries;
+
+		MoveList legalMoves = new MoveList();
+		MoveGenerator.generateLegalMoves(boardInfo, legalMoves);
+		for (; index < this.size && this.getKey(index) == key; index++) {
+			int moveAndWeight = this.getMoveAndWeight(index);
+			int move = OpeningBook.fromPolyglotMove(moveAndWeight >>> 16, legalMoves);
+			if (move != 0)
+				entries.add(new OpeningBook.Entry(move, moveAndWeight & 0xFFFF));
+		}
+		return entries;
+	}
+
+
+	/**
+	 * Chooses a book move for a position, with a probability proportional to its weight.
+	 *
+	 * @param boardInfo  the position.
+	 *
+	 * @return the encoded move chosen, or 0 if the position is not in the book or all of its
+	 *         moves have weight 0.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 */
+	public int chooseMove(BoardInfo boardInfo) {
+		List<OpeningBook.Entry> entries = this.getEntries(boardInfo);
+		int totalWeight = 0;
+		for (OpeningBook.Entry entry : entries)
+			totalWeight += entry.getWeight();
+		if (totalWeight == 0)
+			return 0;
+
+		int choice = this.random.nextInt(totalWeight);
+		for (OpeningBook.Entry entry : entries) {
+			choice -= entry.getWeight();
+			if (choice < 0)
+				return entry.getMove();
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Converts a move to the Polyglot encoding.
+	 *
+	 * @param move  the encoded move.
+	 *
+	 * @return the move in the Polyglot encoding.
+	 */
+	public static int toPolyglotMove(int move) {
+		int startSquare = Move.getStartSquare(move);
+		int endSquare = Move.getEndSquare(move);
+		Move.Flag flag = Move.getFlag(move);
+
+		// Castling is written as the king capturing its own rook
+		if (flag == Move.Flag.CASTLE_KINGSIDE)
+			endSquare = startSquare + 3;
+		else if (flag == Move.Flag.CASTLE_QUEENSIDE)
+			endSquare = startSquare - 4;
+
+		int promotion = switch (flag) {
+		case PROMOTE_KNIGHT -> 1;
+		case PROMOTE_BISHOP -> 2;
+		case PROMOTE_ROOK -> 3;
+		case PROMOTE_QUEEN -> 4;
+		default -> 0;
+		};
+		return (promotion << 12) | (startSquare << 6) | endSquare;
+	}
+
+
+	/**
+	 * Finds the legal move with a Polyglot encoding.
+	 *
+	 * @param polyglotMove  the move in the Polyglot encoding.
+	 * @param legalMoves    the legal moves of the position.
+	 *
+	 * @return the encoded legal move, or 0 if no legal move has the Polyglot encoding.
+	 */
+	public static int fromPolyglotMove(int polyglotMove, MoveList legalMoves) {
+		for (int i = 0; i < legalMoves.size(); i++) {
+			int move = legalMoves.get(i);
+			if (OpeningBook.toPolyglotMove(move) == polyglotMove)
+				return move;
+		}
+		return 0;
+	}
+
+
+	@Override
+	public String toString() {
+		return this.path + " (" + this.size + " entries)";
+	}
+
+}
@@ -0,0 +1,202 @@
+package ai;
+
+
+/**
+ * Limits on a search. A search stops when any one of its limits is reached. A limit of 0 means
+ * no limit; a search with no limits runs until it is stopped with {@code AIPlayer.stop}.
+ * <p>
+ * Instead of a fixed time, the limits can give the state of the clock of the player to move,
+ * from which the search decides how long to think.
+ *
+ * @author Jonathan Uhler
+ */
+public class SearchLimits {
+
+	/** The maximum depth to search to, or 0 for no limit. */
+	private final int depth;
+	/** The maximum number of nodes to search, or 0 for no limit. */
+	private final long nodes;
+	/** The maximum time to search for in milliseconds, or 0 for no limit. */
+	private final long time;
+	/** The time left on the clock of the player to move in milliseconds, or 0 for no clock. */
+	private final long remaining;
+	/** The time added to the clock after each move in milliseconds. */
+	private final long increment;
+	/** The number of moves until the next time control, or 0 if unknown. */
+	private final int movesToGo;
+
+
+	/**
+	 * Constructs a new {@code SearchLimits} object.
+	 *
+	 * @param depth  the maximum depth to search to, or 0 for no limit.
+	 * @param nodes  the maximum number of nodes to search, or 0 for no limit.
+	 * @param time   the maximum time to search for in milliseconds, or 0 for no limit.
+	 *
+	 * @throws IllegalArgumentException  if any limit is negative.
+	 */
+	public SearchLimits(int depth, long nodes, long time) {
+		this(depth, nodes, time, 0, 0, 0);
+	}
+
+
+	/**
+	 * Constructs a new {@code SearchLimits} object with a clock.
+	 *
+	 * @param depth      the maximum depth to search to, or 0 for no limit.
+	 * @param nodes      the maximum number of nodes to search, or 0 for no limit.
+	 * @param time       the maximum time to search for in milliseconds, or 0 for no limit.
+	 * @param remaining  the time left on the clock of the player to move in milliseconds, or 0
+	 *                   for no clock.
+	 * @param increment  the time added to the clock after each move in milliseconds.
+	 * @param movesToGo  the number of moves until the next time control, or 0 if unknown.
+	 *
+	 * @throws IllegalArgumentException  if any argument is negative.
+	 */
+	public SearchLimits(int depth, long nodes, long time, long remaining, long increment,
+						int movesToGo)
+	{
+		if (depth < 0)
+			throw new IllegalArgumentException("depth cannot be negative: " + depth);
+		if (nodes < 0)
+			throw new IllegalArgumentException("nodes cannot be negative: " + nodes);
+		if (time < 0)
+			throw new IllegalArgumentException("time cannot be negative: " + time);
+		if (remaining < 0)
+			throw new IllegalArgumentException("remaining cannot be negative: " + remaining);
+		if (increment < 0)
+			throw new IllegalArgumentException("increment cannot be negative: " + increment);
+		if (movesToGo < 0)
+			throw new IllegalArgumentException("movesToGo cannot be negative: " + movesToGo);
+
+		this.depth = depth;
+		this.nodes = nodes;
+		this.time = time;
+		this.remaining = remaining;
+		this.increment = increment;
+		this.movesToGo = movesToGo;
+	}
+
+
+	/**
+	 * Returns limits for a fixed depth search.
+	 *
+	 * @param depth  the depth to search to.
+	 *
+	 * @return limits for a fixed depth search.
+	 */
+	public static SearchLimits depth(int depth) {
+		return new SearchLimits(depth, 0, 0);
+	}
+
+
+	/**
+	 * Returns limits for a fixed node count search.
+	 *
+	 * @param nodes  the number of nodes to search.
+	 *
+	 * @return limits for a fixed node count search.
+	 */
+	public static SearchLimits nodes(long nodes) {
+		return new SearchLimits(0, nodes, 0);
+	}
+
+
+	/**
+	 * Returns limits for a fixed time search.
+	 *
+	 * @param time  the time to search for in milliseconds.
+	 *
+	 * @return limits for a fixed time search.
+	 */
+	public static SearchLimits time(long time) {
+		return new SearchLimits(0, 0, time);
+	}
+
+
+	/**
+	 * Returns limits for a search on a clock.
+	 *
+	 * @param remaining  the time left on the clock of the player to move in milliseconds.
+	 * @param increment  the time added to the clock after each move in milliseconds.
+	 *
+	 * @return limits for a search on a clock.
+	 */
+	public static SearchLimits clock(long remaining, long increment) {
+		return new SearchLimits(0, 0, 0, remaining, increment, 0);
+	}
+
+
+	/**
+	 * Returns the maximum depth to search to.
+	 *
+	 * @return the maximum depth to search to, or 0 for no limit.
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+
+	/**
+	 * Returns the maximum number of nodes to search.
+	 *
+	 * @return the maximum number of nodes to search, or 0 for no limit.
+	 */
+	public long getNodes() {
+		return this.nodes;
+	}
+
+
+	/**
+	 * Returns the maximum time to search for.
+	 *
+	 * @return the maximum time to search for in milliseconds, or 0 for no limit.
+	 */
+	public long getTime() {
+		return this.time;
+	}
+
+
+	/**
+	 * Returns the time left on the clock of the player to move.
+	 *
+	 * @return the time left on the clock of the player to move in milliseconds, or 0 for no
+	 *         clock.
+	 */
+	public long getRemaining() {
+		return this.remaining;
+	}
+
+
+	/**
+	 * Returns the time added to the clock after each move.
+	 *
+	 * @return the time added to the clock after each move in milliseconds.
+	 */
+	public long getIncrement() {
+		return this.increment;
+	}
+
+
+	/**
+	 * Returns the number of moves until the next time control.
+	 *
+	 * @return the number of moves until the next time control, or 0 if unknown.
+	 */
+	public int getMovesToGo() {
+		return this.movesToGo;
+	}
+
+
+	@Override
+	public String toString() {
+		String string = "depth " + this.depth + " nodes " + this.nodes + " time " + this.time;
+		if (this.remaining > 0) {
+			string += " remaining " + this.remaining + " increment " + this.increment;
+			if (this.movesToGo > 0)
+				string += " movestogo " + this.movesToGo;
+		}
+		return string;
+	}
+
+}
@@ -0,0 +1,219 @@
+package ai;
+
+
+import engine.move.Move;
+import java.util.List;
+
+
+/**
+ * The result of a search: the best move found, its score, and statistics about the search.
+ *
+ * @author Jonathan Uhler
+ */
+public class SearchResult {
+
+	/** The best move found, or {@code null} if the player to move has no legal moves. */
+	private final Move bestMove;
+	/** The score of the best move in centipawns, from the perspective of the player to move. */
+	private final int score;
+	/** The deepest fully completed depth. */
+	private final int depth;
+	/** The number of nodes searched. */
+	private final long nodes;
+	/** The time spent searching in nanoseconds. */
+	private final long time;
+	/** The principal variation, starting with {@code bestMove}. */
+	private final List<Move> pv;
+	/** The number of beta cutoffs. */
+	private final long cutoffs;
+	/** The number of beta cutoffs caused by the first move searched at a node. */
+	private final long firstMoveCutoffs;
+
+
+	/**
+	 * Constructs a new {@code SearchResult} object.
+	 *
+	 * @param bestMove          the best move found, or {@code null} if there are no legal moves.
+	 * @param score             the score of the best move in centipawns.
+	 * @param depth             the deepest fully completed depth.
+	 * @param nodes             the number of nodes searched.
+	 * @param time              the time spent searching in nanoseconds.
+	 * @param pv                the principal variation, starting with {@code bestMove}.
+	 * @param cutoffs           the number of beta cutoffs.
+	 * @param firstMoveCutoffs  the number of beta cutoffs caused by the first move searched.
+	 */
+	public SearchResult(Move bestMove, int score, int depth, long nodes, long time, List<Move> pv,
+						long cutoffs, long firstMoveCutoffs)
+	{
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.time = time;
+		this.pv = List.copyOf(pv);
+		this.cutoffs = cutoffs;
+		this.firstMoveCutoffs = firstMoveCutoffs;
+	}
+
+
+	/**
+	 * Returns the best move found.
+	 *
+	 * @return the best move found, or {@code null} if the player to move has no legal moves.
+	 */
+	public Move getBestMove() {
+		return this.bestMove;
+	}
+
+
+	/**
+	 * Returns the score of the best move.
+	 *
+	 * @return the score of the best move in centipawns, from the perspective of the player to
+	 *         move.
+	 *
+	 * @see isMate
+	 */
+	public int getScore() {
+		return this.score;
+	}
+
+
+	/**
+	 * Returns whether the score is a forced checkmate, for either player.
+	 *
+	 * @return true if the score is a forced checkmate.
+	 */
+	public boolean isMate() {
+		return Math.abs(this.score) >= AIPlayer.MATE_SCORE - AIPlayer.MAX_PLY;
+	}
+
+
+	/**
+	 * Returns the number of moves until checkmate, if the score is a forced checkmate.
+	 *
+	 * @return the number of moves (not plies) until checkmate, negative if the player to move
+	 *         is mated, or 0 if the score is not a checkmate.
+	 */
+	public int getMateIn() {
+		if (!this.isMate())
+			return 0;
+		int plies = AIPlayer.MATE_SCORE - Math.abs(this.score);
+		int moves = (plies + 1) / 2;
+		return (this.score > 0) ? moves : -moves;
+	}
+
+
+	/**
+	 * Returns the deepest fully completed depth.
+	 *
+	 * @return the deepest fully completed depth.
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+
+	/**
+	 * Returns the number of nodes searched.
+	 *
+	 * @return the number of nodes searched.
+	 */
+	public long getNodes() {
+		return this.nodes;
+	}
+
+
+	/**
+	 * Returns the time spent searching.
+	 *
+	 * @return the time spent searching in nanoseconds.
+	 */
+	public long getTime() {
+		return this.time;
+	}
+
+
+	/**
+	 * Returns the search speed.
+	 *
+	 * @return the number of nodes searched per second.
+	 */
+	public long getNodesPerSecond() {
+		return (this.time <= 0) ? 0 : (long) (this.nodes * 1e9 / this.time);
+	}
+
+
+	/**
+	 * Returns the principal variation: the sequence of moves both players are expected to play.
+	 *
+	 * @return an unmodifiable list of the moves of the principal variation.
+	 */
+	public List<Move> getPv() {
+		return this.pv;
+	}
+
+
+	/**
+	 * Returns the move the opponent is expected to reply with, which is the second move of the
+	 * principal variation. The position after it can be searched with {@code AIPlayer.ponder}
+	 * while the opponent thinks.
+	 *
+	 * @return the expected reply, or {@code null} if the principal variation has no reply.
+	 */
+	public Move getPonderMove() {
+		return (this.pv.size() >= 2) ? this.pv.get(1) : null;
+	}
+
+
+	/**
+	 * Returns the number of beta cutoffs in the search of the main thread.
+	 *
+	 * @return the number of beta cutoffs.
+	 */
+	public long getCutoffs() {
+		return this.cutoffs;
+	}
+
+
+	/**
+	 * Returns the number of beta cutoffs caused by the first move searched at a node, in the
+	 * search of the main thread.
+	 *
+	 * @return the number of beta cutoffs caused by the first move searched.
+	 */
+	public long getFirstMoveCutoffs() {
+		return this.firstMoveCutoffs;
+	}
+
+
+	/**
+	 * Returns the percentage of beta cutoffs caused by the first move searched at a node. This
+	 * measures the quality of move ordering: with perfect ordering, it would be 100.
+	 *
+	 * @return the percentage of beta cutoffs caused by the first move searched, or 0 if there
+	 *         were no cutoffs.
+	 */
+	public double getFirstMoveCutoffRate() {
+		return (this.cutoffs == 0) ? 0 : 100.0 * this.firstMoveCutoffs / this.cutoffs;
+	}
+
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("depth ").append(this.depth);
+		if (this.isMate())
+			builder.append(" score mate ").append(this.getMateIn());
+		else
+			builder.append(" score cp ").append(this.score);
+		builder.append(" nodes ").append(this.nodes);
+		builder.append(" time ").append(this.time / 1000000);
+		builder.append(" nps ").append(this.getNodesPerSecond());
+		builder.append(" pv");
+		for (Move move : this.pv)
+			builder.append(" ").append(Move.toLongAlgebraic(move.encode()));
+		return builder.toString();
+	}
+
+}
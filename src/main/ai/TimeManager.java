@@ -0,0 +1,149 @@
+package ai;
+
+
+/**
+ * Decides how long a search may run from its limits.
+ * <p>
+ * A search has a hard deadline, which it never runs past, and on a clock also a soft limit,
+ * which it checks between iterations. Iterative deepening cannot finish an iteration early, so
+ * the soft limit is the point after which a new iteration is not worth starting, and the hard
+ * deadline cuts off an iteration that runs much longer than expected. The soft limit is
+ * shortened while the best move stays the same from one iteration to the next, and lengthened
+ * when it has just changed, since a change means the search has not settled yet.
+ * <p>
+ * On a clock, the remaining time is divided between the moves left until the next time
+ * control, and most of the increment is added. A small overhead is reserved for returning the
+ * move, so the clock is not lost to latency.
+ *
+ * @author Jonathan Uhler
+ */
+class TimeManager {
+
+	/** The number of moves the remaining time is divided between, if it is not known. */
+	private static final int DEFAULT_MOVES_TO_GO = 30;
+	/** The largest number of moves the remaining time is divided between. */
+	private static final int MAX_MOVES_TO_GO = 50;
+	/** The time reserved on the clock for returning the move, in milliseconds. */
+	private static final long MOVE_OVERHEAD = 20;
+	/** The largest multiple of the soft limit the hard deadline can be. */
+	private static final int HARD_LIMIT_FACTOR = 4;
+	/** The largest fraction of the remaining time, in percent, the hard deadline can be. */
+	private static final int HARD_LIMIT_PERCENT = 75;
+	/**
+	 * The percentage of the soft limit used, indexed by the number of iterations the best move
+	 * has stayed the same. The last entry applies to any longer run.
+	 */
+	private static final int[] STABILITY_PERCENTS = {150, 110, 80, 60};
+
+	/** The soft limit in nanoseconds, or 0 if there is none. */
+	private final long softTime;
+	/** The hard limit in nanoseconds, or 0 if there is none. */
+	private final long hardTime;
+	/** The time the clock started, from {@code System.nanoTime}. */
+	private volatile long startTime;
+
+
+	/**
+	 * Constructs a new {@code TimeManager} object. The clock is started now, and can be restarted
+	 * with {@code start}.
+	 *
+	 * @param limits  the limits of the search.
+	 *
+	 * @throws NullPointerException  if {@code limits == null}.
+	 */
+	public TimeManager(SearchLimits limits) {
+		if (limits == null)
+			throw new NullPointerException("limits was null");
+
+		long soft = 0;
+		long hard = limits.getTime();
+		if (limits.getRemaining() > 0) {
+			int movesToGo = (limits.getMovesToGo() > 0) ?
+				Math.min(limits.getMovesToGo(), TimeManager.MAX_MOVES_TO_GO) :
+				TimeManager.DEFAULT_MOVES_TO_GO;
+			long available = Math.max(limits.getRemaining() - TimeManager.MOVE_OVERHEAD, 1);
+
+			soft = available / movesToGo + limits.getIncrement() * 3 / 4;
+			long clockHard = Math.min(soft * TimeManager.HARD_LIMIT_FACTOR,
+									  available * TimeManager.HARD_LIMIT_PERCENT / 100);
+			clockHard = Math.max(clockHard, 1);
+			hard = (hard == 0) ? clockHard : Math.min(hard, clockHard);
+			soft = Math.max(Math.min(soft, hard), 1);
+		}
+
+		this.softTime = soft * 1000000;
+		this.hardTime = hard * 1000000;
+		this.startTime = System.nanoTime();
+	}
+
+
+	/**
+	 * Starts the clock. The soft limit and hard deadline are measured from this time.
+	 *
+	 * @param now  the current time, from {@code System.nanoTime}.
+	 */
+	public void start(long now) {
+		this.startTime = now;
+	}
+
+
+	/**
+	 * Returns whether the search has a hard deadline.
+	 *
+	 * @return whether the search has a hard deadline.
+	 */
+	public boolean isLimited() {
+		return this.hardTime > 0;
+	}
+
+
+	/**
+	 * Returns the soft limit.
+	 *
+	 * @return the soft limit in milliseconds, or 0 if there is none.
+	 */
+	public long getSoftTime() {
+		return this.softTime / 1000000;
+	}
+
+
+	/**
+	 * Returns the hard limit.
+	 *
+	 * @return the hard limit in milliseconds, or 0 if there is none.
+	 */
+	public long getHardTime() {
+		return this.hardTime / 1000000;
+	}
+
+
+	/**
+	 * Determines whether the hard deadline has passed.
+	 *
+	 * @param now  the current time, from {@code System.nanoTime}.
+	 *
+	 * @return true if the search has a hard deadline and it has passed.
+	 */
+	public boolean isHardLimitReached(long now) {
+		return this.hardTime > 0 && now - this.startTime >= this.hardTime;
+	}
+
+
+	/**
+	 * Determines whether the soft limit has passed, scaled by the stability of the best move.
+	 *
+	 * @param now               the current time, from {@code System.nanoTime}.
+	 * @param stableIterations  the number of completed iterations the best move has stayed the
+	 *                          same for, 0 if it changed in the last one.
+	 *
+	 * @return true if the search has a soft limit and the scaled limit has passed.
+	 */
+	public boolean isSoftLimitReached(long now, int stableIterations) {
+		if (this.softTime == 0)
+			return false;
+
+		int index = Math.min(stableIterations, TimeManager.STABILITY_PERCENTS.length - 1);
+		return now - this.startTime >= this.softTime / 100 * TimeManager.STABILITY_PERCENTS[index];
+	}
+
+}
@@ -0,0 +1,398 @@
+package ai;
+
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A transposition table for the search: a fixed-size cache of search results keyed on the
+ * Zobrist hash of a position.
+ * <p>
+ * The table is one preallocated {@code long[]}. Each entry is a pair of values: the hash
+ * XOR-ed with the data, then the data itself. The data packs the best move (16 bits), the
+ * score (16 bits), the depth (8 bits), the bound type (2 bits), and the age (6 bits). Storing
+ * the hash XOR-ed with the data means an entry torn by two threads writing at once reads as a
+ * miss, so the table can be shared between search threads without locks (see
+ * {@code tests.PerftTable} for the same scheme).
+ * <p>
+ * Entries are grouped into buckets of {@code BUCKET_SIZE} entries, which fill 64 bytes: the
+ * size of a cache line on most machines. A probe only reads one bucket, so it touches one
+ * contiguous block of memory. When a bucket is full, the entry with the lowest depth is
+ * replaced, preferring entries left over from earlier searches.
+ *
+ * @author Jonathan Uhler
+ */
+public class TranspositionTable {
+
+	/** The bound type of an empty entry. */
+	public static final int BOUND_NONE = 0;
+	/** The bound type of a score that is at most the true score (search failed low). */
+	public static final int BOUND_UPPER = 1;
+	/** The bound type of a score that is at least the true score (search failed high). */
+	public static final int BOUND_LOWER = 2;
+	/** The bound type of an exact score. */
+	public static final int BOUND_EXACT = 3;
+
+	/** The number of entries in each bucket. */
+	public static final int BUCKET_SIZE = 4;
+	/** The number of {@code long} values used by one entry. */
+	private static final int ENTRY_LONGS = 2;
+	/** The number of bytes used by one bucket. */
+	private static final int BUCKET_BYTES = TranspositionTable.BUCKET_SIZE *
+		TranspositionTable.ENTRY_LONGS * Long.BYTES;
+
+	/** The number of different ages. Ages wrap around after this many searches. */
+	private static final int NUM_AGES = 64;
+
+	/** The shift of the move in the data of an entry. */
+	private static final int MOVE_SHIFT = 0;
+	/** The shift of the score in the data of an entry. */
+	private static final int SCORE_SHIFT = 16;
+	/** The shift of the depth in the data of an entry. */
+	private static final int DEPTH_SHIFT = 32;
+	/** The shift of the bound type in the data of an entry. */
+	private static final int BOUND_SHIFT = 40;
+	/** The shift of the age in the data of an entry. */
+	private static final int AGE_SHIFT = 42;
+
+	/** The entries of the table. */
+	private long[] table;
+	/** The mask applied to a hash to get the index of a bucket. */
+	private int bucketMask;
+	/** The age of the current search. */
+	private int age;
+
+	/** The number of calls to {@code probe}. */
+	private final LongAdder probes;
+	/** The number of calls to {@code probe} that found an entry. */
+	private final LongAdder hits;
+	/** The number of calls to {@code store}. */
+	private final LongAdder stores;
+	/** The number of stores that replaced an entry of another position from the same search. */
+	private final LongAdder collisions;
+
+
+	/**
+	 * Constructs a new {@code TranspositionTable}.
+	 *
+	 * @param megabytes  the size of the table in MiB.
+	 *
+	 * @throws IllegalArgumentException  if {@code megabytes} is not on the interval [1, 16384].
+	 *
+	 * @see resize
+	 */
+	public TranspositionTable(int megabytes) {
+		this.probes = new LongAdder();
+		this.hits = new LongAdder();
+		this.stores = new LongAdder();
+		this.collisions = new LongAdder();
+		this.resize(megabytes);
+	}
+
+
+	/**
+	 * Resizes this table, discarding every entry. The number of buckets is the largest power of
+	 * two that fits in the requested size. This method must not be called during a search.
+	 *
+	 * @param megabytes  the size of the table in MiB.
+	 *
+	 * @throws IllegalArgumentException  if {@code megabytes} is not on the interval [1, 16384].
+	 */
+	public void resize(int megabytes) {
+		if (megabytes < 1 || megabytes > 16384)
+			throw new IllegalArgumentException("megabytes must be on [1, 16384]: " + megabytes);
+
+		long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 /
+										  TranspositionTable.BUCKET_BYTES);
+		// A Java array cannot have more than Integer.MAX_VALUE elements
+		int longsPerBucket = TranspositionTable.BUCKET_SIZE * TranspositionTable.ENTRY_LONGS;
+		buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / longsPerBucket));
+		this.table = null; // Allow the old table to be collected before the new one is allocated
+		this.table = new long[(int) buckets * longsPerBucket];
+		this.bucketMask = (int) buckets - 1;
+		this.age = 0;
+		this.resetStatistics();
+	}
+
+
+	/**
+	 * Discards every entry of this table. This method must not be called during a search.
+	 */
+	public void clear() {
+		Arrays.fill(this.table, 0);
+		this.age = 0;
+	}
+
+
+	/**
+	 * Marks the start of a new search. Entries stored by earlier searches are kept, but are
+	 * replaced before entries of the new search.
+	 */
+	public void newSearch() {
+		this.age = (this.age + 1) % TranspositionTable.NUM_AGES;
+	}
+
+
+	/**
+	 * Returns the index of the first value of the bucket of a hash.
+	 *
+	 * @param hash  the Zobrist hash of a position.
+	 *
+	 * @return the index of the first value of the bucket of {@code hash}.
+	 */
+	private int bucketIndex(long hash) {
+		// The upper bits of the hash are used so that the bucket does not depend on the same
+		// bits as the other tables indexed by the hash
+		int bucket = (int) (hash >>> 32) & this.bucketMask;
+		return bucket * TranspositionTable.BUCKET_SIZE * TranspositionTable.ENTRY_LONGS;
+	}
+
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param hash  the Zobrist hash of the position.
+	 *
+	 * @return the data of the entry for the position, or 0 if it is not in the table. The data
+	 *         can be read with {@code getMove}, {@code getScore}, {@code getDepth}, and
+	 *         {@code getBound}.
+	 */
+	public long probe(long hash) {
+		this.probes.increment();
+
+		int index = this.bucketIndex(hash);
+		for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+			int entry = index + i * TranspositionTable.ENTRY_LONGS;
+			long data = this.table[entry + 1];
+			if (data != 0 && (this.table[entry] ^ data) == hash) {
+				this.hits.increment();
+				return data;
+			}
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Stores a search result. If the bucket of the position already holds an entry for it, that
+	 * entry is replaced. Otherwise, the entry with the lowest depth is replaced, where entries
+	 * from earlier searches count as shallower.
+	 *
+	 * @param hash   the Zobrist hash of the position.
+	 * @param move   the best move, encoded with {@code Move.encode}, or 0 if not known. If 0 and
+	 *               the table has a move for this position, that move is kept.
+	 * @param score  the score, on the interval [-32768, 32767].
+	 * @param depth  the depth searched, on the interval [0, 255].
+	 * @param bound  the bound type of the score, one of the {@code BOUND_*} constants.
+	 */
+	public void store(long hash, int move, int score, int depth, int bound) {
+		this.stores.increment();
+
+		int index = this.bucketIndex(hash);
+		int replace = index;
+		int replaceWorth = Integer.MAX_VALUE;
+		for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+			int entry = index + i * TranspositionTable.ENTRY_LONGS;
+			long data = this.table[entry + 1];
+			if (data == 0) {
+				// An empty entry is never better than an entry for the same position
+				if (replaceWorth > Integer.MIN_VALUE + 1) {
+					replace = entry;
+					replaceWorth = Integer.MIN_VALUE + 1;
+				}
+				continue;
+			}
+			if ((this.table[entry] ^ data) == hash) {
+				if (move == 0)
+					move = TranspositionTable.getMove(data);
+				replace = entry;
+				replaceWorth = Integer.MIN_VALUE;
+				break;
+			}
+
+			int ageDistance = (this.age - TranspositionTable.getAge(data) +
+							   TranspositionTable.NUM_AGES) % TranspositionTable.NUM_AGES;
+			int worth = TranspositionTable.getDepth(data) - 8 * ageDistance;
+			if (worth < replaceWorth) {
+				replace = entry;
+				replaceWorth = worth;
+			}
+		}
+
+		long oldData = this.table[replace + 1];
+		if (replaceWorth > Integer.MIN_VALUE + 1 &&
+			TranspositionTable.getAge(oldData) == this.age)
+			this.collisions.increment();
+
+		long data = ((long) (move & 0xFFFF) << TranspositionTable.MOVE_SHIFT) |
+			((long) (score & 0xFFFF) << TranspositionTable.SCORE_SHIFT) |
+			((long) (depth & 0xFF) << TranspositionTable.DEPTH_SHIFT) |
+			((long) (bound & 0x3) << TranspositionTable.BOUND_SHIFT) |
+			((long) this.age << TranspositionTable.AGE_SHIFT);
+		this.table[replace] = hash ^ data;
+		this.table[replace + 1] = data;
+	}
+
+
+	/**
+	 * Returns the best move of an entry.
+	 *
+	 * @param data  the data of an entry, as returned by {@code probe}.
+	 *
+	 * @return the best move, encoded with {@code Move.encode}, or 0 if not known.
+	 */
+	public static int getMove(long data) {
+		return (int) (data >>> TranspositionTable.MOVE_SHIFT) & 0xFFFF;
+	}
+
+
+	/**
+	 * Returns the score of an entry.
+	 *
+	 * @param data  the data of an entry, as returned by {@code probe}.
+	 *
+	 * @return the score.
+	 */
+	public static int getScore(long data) {
+		return (short) (data >>> TranspositionTable.SCORE_SHIFT);
+	}
+
+
+	/**
+	 * Returns the depth of an entry.
+	 *
+	 * @param data  the data of an entry, as returned by {@code probe}.
+	 *
+	 * @return the depth searched.
+	 */
+	public static int getDepth(long data) {
+		return (int) (data >>> TranspositionTable.DEPTH_SHIFT) & 0xFF;
+	}
+
+
+	/**
+	 * Returns the bound type of an entry.
+	 *
+	 * @param data  the data of an entry, as returned by {@code probe}.
+	 *
+	 * @return the bound type of the score, one of the {@code BOUND_*} constants.
+	 */
+	public static int getBound(long data) {
+		return (int) (data >>> TranspositionTable.BOUND_SHIFT) & 0x3;
+	}
+
+
+	/**
+	 * Returns the age of an entry.
+	 *
+	 * @param data  the data of an entry.
+	 *
+	 * @return the age of the search that stored the entry.
+	 */
+	private static int getAge(long data) {
+		return (int) (data >>> TranspositionTable.AGE_SHIFT) & (TranspositionTable.NUM_AGES - 1);
+	}
+
+
+	/**
+	 * Returns the number of entries in this table.
+	 *
+	 * @return the number of entries in this table.
+	 */
+	public int getCapacity() {
+		return this.table.length / TranspositionTable.ENTRY_LONGS;
+	}
+
+
+	/**
+	 * Estimates how full this table is with entries from the current search, by sampling the
+	 * first 1000 entries.
+	 *
+	 * @return the number of entries per thousand used by the current search.
+	 */
+	public int getPermillFull() {
+		int samples = Math.min(1000, this.getCapacity());
+		int used = 0;
+		for (int i = 0; i < samples; i++) {
+			long data = this.table[i * TranspositionTable.ENTRY_LONGS + 1];
+			if (data != 0 && TranspositionTable.getAge(data) == this.age)
+				used++;
+		}
+		return used * 1000 / samples;
+	}
+
+
+	/**
+	 * Returns the number of probes since the statistics were last reset.
+	 *
+	 * @return the number of probes since the statistics were last reset.
+	 */
+	public long getProbes() {
+		return this.probes.sum();
+	}
+
+
+	/**
+	 * Returns the number of probes that found an entry since the statistics were last reset.
+	 *
+	 * @return the number of probes that found an entry since the statistics were last reset.
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+
+	/**
+	 * Returns the number of stores since the statistics were last reset.
+	 *
+	 * @return the number of stores since the statistics were last reset.
+	 */
+	public long getStores() {
+		return this.stores.sum();
+	}
+
+
+	/**
+	 * Returns the number of stores that replaced an entry for another position stored during
+	 * the same search, since the statistics were last reset. A high number of collisions
+	 * relative to stores means the table is too small for the searches being run.
+	 *
+	 * @return the number of collisions since the statistics were last reset.
+	 */
+	public long getCollisions() {
+		return this.collisions.sum();
+	}
+
+
+	/**
+	 * Returns the percentage of probes that found an entry since the statistics were last
+	 * reset.
+	 *
+	 * @return the hit rate as a percentage on the interval [0, 100].
+	 */
+	public double getHitRate() {
+		long probeCount = this.getProbes();
+		return (probeCount == 0) ? 0.0 : this.getHits() * 100.0 / probeCount;
+	}
+
+
+	/**
+	 * Resets the probe, hit, store, and collision counts.
+	 */
+	public void resetStatistics() {
+		this.probes.reset();
+		this.hits.reset();
+		this.stores.reset();
+		this.collisions.reset();
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("hits %.1f%% (%d/%d) stores %d collisions %d full %d/1000",
+							 this.getHitRate(), this.getHits(), this.getProbes(),
+							 this.getStores(), this.getCollisions(), this.getPermillFull());
+	}
+
+}
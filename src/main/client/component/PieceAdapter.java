@@ -65,7 +65,7 @@ public class PieceAdapter extends MouseAdapter {
 		// be switched
 		yTile = (!this.piecePane.getPlayerColor().equals(Piece.Color.BLACK)) ? (7 - yTile) : yTile;
 		xTile = (!this.piecePane.getPlayerColor().equals(Piece.Color.BLACK)) ? xTile : (7 - xTile);
-		return new Coordinate(xTile, yTile);
+		return Coordinate.of(xTile, yTile);
 	}
 
 
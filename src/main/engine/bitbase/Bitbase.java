@@ -0,0 +1,333 @@
+package engine.bitbase;
+
+
+import engine.piece.Piece;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * A win/draw/loss bitbase for a single set of material, such as {@code KRK} or {@code KQKR}.
+ * <p>
+ * A set is named by the pieces of its stronger side, starting with the king, followed by the
+ * pieces of the weaker side, each side ordered queen, rook, bishop, knight, pawn. The stronger
+ * side is the one with more pieces, or with the stronger piece at the first difference. Within
+ * the bitbase the stronger side is always white; a position where black is the stronger side
+ * is looked up by mirroring the board vertically and swapping the colors.
+ * <p>
+ * Each piece of the set has a slot: the white king, the black king, the other white pieces in
+ * the order of the name, then the other black pieces. A position is indexed by the player to
+ * move and the square of the piece in each slot, 6 bits each:
+ * <pre>
+ * index = (whiteToMove ? 0 : 1) &lt;&lt; (6 * n) | square[0] &lt;&lt; (6 * (n - 1)) | ...
+ *         | square[n - 1]
+ * </pre>
+ * Every index has a 2-bit value, packed four to a byte from the lowest bits, after an 8-byte
+ * header: a 4-piece set takes 8 MiB. The value is the result with best play for the player to
+ * move, ignoring the fifty-move rule. Indices that are not legal positions hold a draw, so a
+ * position must be legal to be looked up. Positions with castling rights or an en passant
+ * capture are not covered by the index.
+ * <p>
+ * The file is memory-mapped, so opening a bitbase does not read it, and looking up a position
+ * reads a single byte. A {@code Bitbase} object is immutable and can be read from several
+ * threads at once.
+ *
+ * @see Bitbases
+ * @see BitbaseGenerator
+ *
+ * @author Jonathan Uhler
+ */
+public class Bitbase {
+
+	/**
+	 * The result of a position with best play, from the perspective of the player to move.
+	 */
+	public static enum Wdl {
+		/** The player to move loses. */
+		LOSS,
+		/** The position is drawn. */
+		DRAW,
+		/** The player to move wins. */
+		WIN;
+
+
+		/**
+		 * Returns the result from the perspective of the other player.
+		 *
+		 * @return the result from the perspective of the other player.
+		 */
+		public Bitbase.Wdl negate() {
+			return switch (this) {
+			case LOSS -> Bitbase.Wdl.WIN;
+			case WIN -> Bitbase.Wdl.LOSS;
+			default -> Bitbase.Wdl.DRAW;
+			};
+		}
+	}
+
+
+	/** The file extension of a bitbase. */
+	public static final String EXTENSION = ".bb";
+	/** The magic number at the start of a bitbase file, "JCBB" in ASCII. */
+	public static final int MAGIC = 0x4A434242;
+	/** The size of the header of a bitbase file in bytes. */
+	public static final int HEADER_SIZE = 8;
+
+	/** The 2-bit value of a drawn or illegal position. */
+	static final int VALUE_DRAW = 0;
+	/** The 2-bit value of a position won by the player to move. */
+	static final int VALUE_WIN = 1;
+	/** The 2-bit value of a position lost by the player to move. */
+	static final int VALUE_LOSS = 2;
+
+	/** The piece letters of a set name, from the strongest to the weakest piece. */
+	private static final String PIECE_ORDER = "QRBNP";
+	/** The piece index, as returned by {@code Piece.getIndex}, of each of {@code PIECE_ORDER}. */
+	private static final int[] PIECE_INDICES = {4, 3, 2, 1, 0};
+	/** The piece index of the white king. */
+	static final int WHITE_KING = 5;
+	/** The piece index of the black king. */
+	static final int BLACK_KING = 11;
+
+
+	/** The canonical name of the set. */
+	private final String name;
+	/** The piece index, as returned by {@code Piece.getIndex}, of the piece in each slot. */
+	private final int[] slots;
+	/** The mapping of the file. */
+	private final MappedByteBuffer data;
+
+
+	/**
+	 * Constructs a new {@code Bitbase} object.
+	 *
+	 * @param name  the canonical name of the set.
+	 * @param data  the mapping of the file.
+	 */
+	private Bitbase(String name, MappedByteBuffer data) {
+		this.name = name;
+		this.slots = Bitbase.slots(name);
+		this.data = data;
+	}
+
+
+	/**
+	 * Opens a bitbase file. The set is taken from the name of the file, such as
+	 * {@code KQKR.bb}. The file is mapped, not read, so it must not be modified while the
+	 * bitbase is in use.
+	 *
+	 * @param path  the path of the bitbase file.
+	 *
+	 * @return the opened bitbase.
+	 *
+	 * @throws NullPointerException      if {@code path == null}.
+	 * @throws IllegalArgumentException  if the name of the file is not a canonical set name
+	 *                                   followed by {@code EXTENSION}.
+	 * @throws IOException               if the file cannot be mapped, or is not a bitbase of the
+	 *                                   set it is named for.
+	 */
+	public static Bitbase open(String path) throws IOException {
+		if (path == null)
+			throw new NullPointerException("path was null");
+
+		Path file = Paths.get(path);
+		String fileName = file.getFileName().toString();
+		if (!fileName.endsWith(Bitbase.EXTENSION))
+			throw new IllegalArgumentException("not a bitbase file: " + path);
+		String name = fileName.substring(0, fileName.length() - Bitbase.EXTENSION.length());
+		if (!name.equals(Bitbase.canonicalName(name)))
+			throw new IllegalArgumentException("not a canonical set name: " + name);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			int numPieces = name.length();
+			if (channel.size() != Bitbase.HEADER_SIZE + Bitbase.size(numPieces) / 4)
+				throw new IOException("invalid size for " + name + ": " + channel.size());
+
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (data.getInt(0) != Bitbase.MAGIC || data.getInt(4) != numPieces)
+				throw new IOException("invalid header for " + name + ": " + path);
+			return new Bitbase(name, data);
+		}
+	}
+
+
+	/**
+	 * Returns the number of indices of a set.
+	 *
+	 * @param numPieces  the number of pieces in the set, including the kings.
+	 *
+	 * @return the number of indices of a set of {@code numPieces} pieces.
+	 */
+	static int size(int numPieces) {
+		return 2 << (6 * numPieces);
+	}
+
+
+	/**
+	 * Returns the pieces of one side of a set name in canonical order.
+	 *
+	 * @param side  the letters of the side, without the king.
+	 *
+	 * @return the letters of {@code side} ordered from the strongest to the weakest piece.
+	 */
+	private static String sortSide(String side) {
+		StringBuilder sorted = new StringBuilder();
+		for (char piece : Bitbase.PIECE_ORDER.toCharArray()) {
+			for (char c : side.toCharArray()) {
+				if (c == piece)
+					sorted.append(c);
+			}
+		}
+		return sorted.toString();
+	}
+
+
+	/**
+	 * Compares the strength of two sides of a set.
+	 *
+	 * @param a  the letters of the first side, without the king, in canonical order.
+	 * @param b  the letters of the second side, without the king, in canonical order.
+	 *
+	 * @return a positive number if {@code a} is stronger, a negative number if {@code b} is
+	 *         stronger, or 0 if they are the same.
+	 */
+	private static int compareSides(String a, String b) {
+		if (a.length() != b.length())
+			return a.length() - b.length();
+		for (int i = 0; i < a.length(); i++) {
+			int difference = Bitbase.PIECE_ORDER.indexOf(b.charAt(i)) -
+				Bitbase.PIECE_ORDER.indexOf(a.charAt(i));
+			if (difference != 0)
+				return difference;
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Returns the canonical name of a set, with the stronger side first and each side in
+	 * canonical order. For example, {@code KKNB} becomes {@code KBNK}.
+	 *
+	 * @param name  the name of the set: a king and the other pieces of one side, followed by a
+	 *              king and the other pieces of the other side.
+	 *
+	 * @return the canonical name of the set.
+	 *
+	 * @throws NullPointerException      if {@code name == null}.
+	 * @throws IllegalArgumentException  if {@code name} is not the name of a set, or has more than
+	 *                                   {@code Bitbases.MAX_PIECES} pieces.
+	 */
+	public static String canonicalName(String name) {
+		if (name == null)
+			throw new NullPointerException("name was null");
+		if (!name.matches("K[QRBNP]*K[QRBNP]*"))
+			throw new IllegalArgumentException("invalid set name: " + name);
+		if (name.length() > Bitbases.MAX_PIECES)
+			throw new IllegalArgumentException("set has more than " + Bitbases.MAX_PIECES +
+											   " pieces: " + name);
+
+		int secondKing = name.indexOf('K', 1);
+		String first = Bitbase.sortSide(name.substring(1, secondKing));
+		String second = Bitbase.sortSide(name.substring(secondKing + 1));
+		return (Bitbase.compareSides(first, second) >= 0) ?
+			"K" + first + "K" + second : "K" + second + "K" + first;
+	}
+
+
+	/**
+	 * Returns the piece in each slot of a set.
+	 *
+	 * @param name  the canonical name of the set.
+	 *
+	 * @return the piece index, as returned by {@code Piece.getIndex}, of the piece in each slot.
+	 */
+	static int[] slots(String name) {
+		int[] slots = new int[name.length()];
+		slots[0] = Bitbase.WHITE_KING;
+		slots[1] = Bitbase.BLACK_KING;
+		int secondKing = name.indexOf('K', 1);
+		int slot = 2;
+		for (int i = 1; i < name.length(); i++) {
+			if (i == secondKing)
+				continue;
+			int piece = Bitbase.PIECE_INDICES[Bitbase.PIECE_ORDER.indexOf(name.charAt(i))];
+			slots[slot++] = (i < secondKing) ? piece : piece + Piece.NUM_TYPES;
+		}
+		return slots;
+	}
+
+
+	/**
+	 * Returns the canonical name of the set.
+	 *
+	 * @return the canonical name of the set.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+
+	/**
+	 * Returns the number of pieces in the set.
+	 *
+	 * @return the number of pieces in the set, including the kings.
+	 */
+	public int getNumPieces() {
+		return this.slots.length;
+	}
+
+
+	/**
+	 * Returns the piece in a slot.
+	 *
+	 * @param slot  the slot.
+	 *
+	 * @return the piece index, as returned by {@code Piece.getIndex}, of the piece in
+	 *         {@code slot}.
+	 */
+	int getSlot(int slot) {
+		return this.slots[slot];
+	}
+
+
+	/**
+	 * Returns the shift of the square of a slot in an index.
+	 *
+	 * @param slot  the slot.
+	 *
+	 * @return the number of bits the square of {@code slot} is shifted by in an index.
+	 */
+	int getShift(int slot) {
+		return 6 * (this.slots.length - 1 - slot);
+	}
+
+
+	/**
+	 * Returns the result of a position by its index.
+	 *
+	 * @param index  the index of the position, which must be a legal position.
+	 *
+	 * @return the result of the position with best play, from the perspective of the player to
+	 *         move.
+	 */
+	public Bitbase.Wdl get(int index) {
+		int packed = this.data.get(Bitbase.HEADER_SIZE + (index >>> 2));
+		int value = (packed >>> ((index & 3) << 1)) & 3;
+		return switch (value) {
+		case Bitbase.VALUE_WIN -> Bitbase.Wdl.WIN;
+		case Bitbase.VALUE_LOSS -> Bitbase.Wdl.LOSS;
+		default -> Bitbase.Wdl.DRAW;
+		};
+	}
+
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+}
@@ -0,0 +1,768 @@
+package engine.bitbase;
+
+
+import engine.move.Attacks;
+import engine.piece.Piece;
+import engine.util.Bitboard;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Generates endgame bitbases by retrograde analysis.
+ * <p>
+ * Generation starts from the positions whose result is known without looking ahead:
+ * checkmates, stalemates, and positions where a capture or promotion leads to a smaller set
+ * with a known result. Those smaller sets are generated first, so every set only needs the
+ * bitbases of the sets it can turn into. Every other position counts its moves that stay in the
+ * set. Results are then spread backwards by unmaking moves: a position with a move to a lost
+ * position is won, and a position whose every move leads to a won position is lost, which is
+ * found by counting down its moves. Positions left without a result once nothing changes are
+ * drawn.
+ * <p>
+ * Both phases are split between threads. The initial results are independent for every
+ * position, and the backward passes update the results and move counts with atomic operations,
+ * so positions reached by several threads at once are resolved exactly once.
+ * <p>
+ * A pawn that moves two squares can leave an en passant capture, which the index of a set does
+ * not hold. The move is treated as reaching the position in the index, except that the
+ * opponent may capture en passant instead: if that capture wins for the opponent the move
+ * loses, and if it draws the move cannot win.
+ *
+ * @see Bitbase
+ * @see Bitbases
+ *
+ * @author Jonathan Uhler
+ */
+public class BitbaseGenerator {
+
+	/** The sets generated when no set is given, each with the sets it turns into. */
+	public static final List<String> DEFAULT_SETS = List.of("KPK", "KRK", "KQK", "KBNK");
+
+	/** The result of a position that has not been resolved. */
+	private static final byte UNKNOWN = 0;
+	/** The result of a position won by the player to move. */
+	private static final byte WIN = 1;
+	/** The result of a position lost by the player to move. */
+	private static final byte LOSS = 2;
+	/** The result of a position that is illegal, stalemate, or otherwise known to be drawn. */
+	private static final byte DRAW = 3;
+
+	/** Atomic access to the elements of the result and move count arrays. */
+	private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+	/** The types a pawn can promote to, as indices from pawn as 0 to king as 5. */
+	private static final int[] PROMOTIONS = {4, 3, 2, 1};
+
+
+	/**
+	 * A growable list of indices, one for each thread, so threads never share a list.
+	 */
+	private static class IndexList {
+		/** The indices in the list. */
+		private int[] items = new int[1024];
+		/** The number of indices in the list. */
+		private int size = 0;
+
+
+		/**
+		 * Adds an index to the list.
+		 *
+		 * @param index  the index to add.
+		 */
+		private void add(int index) {
+			if (this.size == this.items.length)
+				this.items = Arrays.copyOf(this.items, this.items.length * 2);
+			this.items[this.size++] = index;
+		}
+	}
+
+
+	/**
+	 * A task run by {@code runShared} on a share of a range.
+	 */
+	@FunctionalInterface
+	private static interface RangeTask {
+		/**
+		 * Runs the task on a share of a range.
+		 *
+		 * @param start     the first index of the share.
+		 * @param end       the index after the last index of the share.
+		 * @param resolved  the list to add resolved positions to.
+		 */
+		public void run(int start, int end, IndexList resolved);
+	}
+
+
+	/**
+	 * The state of the generation of a single set, shared by the threads generating it. Every
+	 * thread keeps its own copy of the squares, so the methods of this class are safe to call
+	 * from several threads at once.
+	 */
+	private static class Generation {
+		/** The number of pieces in the set. */
+		private final int numPieces;
+		/** The piece index of the piece in each slot. */
+		private final int[] slots;
+		/** The number of indices of the set. */
+		private final int size;
+		/** The result of each position, one of {@code UNKNOWN}, {@code WIN}, and so on. */
+		private final byte[] results;
+		/** The number of moves of each unresolved position that have not yet been refuted. */
+		private final byte[] counts;
+
+
+		/**
+		 * Constructs a new {@code Generation} object.
+		 *
+		 * @param name  the canonical name of the set.
+		 */
+		private Generation(String name) {
+			this.numPieces = name.length();
+			this.slots = Bitbase.slots(name);
+			this.size = Bitbase.size(this.numPieces);
+			this.results = new byte[this.size];
+			this.counts = new byte[this.size];
+		}
+
+
+		/**
+		 * Returns whether a slot holds a white piece.
+		 *
+		 * @param slot  the slot.
+		 *
+		 * @return whether {@code slot} holds a white piece.
+		 */
+		private boolean isWhite(int slot) {
+			return this.slots[slot] < Piece.NUM_TYPES;
+		}
+
+
+		/**
+		 * Returns the type of the piece in a slot.
+		 *
+		 * @param slot  the slot.
+		 *
+		 * @return the type of the piece in {@code slot}, as an index from pawn as 0 to king as 5.
+		 */
+		private int type(int slot) {
+			return this.slots[slot] % Piece.NUM_TYPES;
+		}
+
+
+		/**
+		 * Splits an index into the squares of the pieces.
+		 *
+		 * @param index    the index.
+		 * @param squares  the array to write the square of each slot to.
+		 *
+		 * @return whether it is the white player's turn to move.
+		 */
+		private boolean decode(int index, int[] squares) {
+			for (int slot = 0; slot < this.numPieces; slot++)
+				squares[slot] = (index >>> (6 * (this.numPieces - 1 - slot))) & 63;
+			return (index >>> (6 * this.numPieces)) == 0;
+		}
+
+
+		/**
+		 * Combines the squares of the pieces into an index.
+		 *
+		 * @param squares      the square of each slot.
+		 * @param whiteToMove  whether it is the white player's turn to move.
+		 *
+		 * @return the index of the position.
+		 */
+		private int encode(int[] squares, boolean whiteToMove) {
+			int index = (whiteToMove) ? 0 : 1;
+			for (int slot = 0; slot < this.numPieces; slot++)
+				index = (index << 6) | squares[slot];
+			return index;
+		}
+
+
+		/**
+		 * Returns the squares occupied by the pieces.
+		 *
+		 * @param squares  the square of each slot, or -1 for a captured piece.
+		 *
+		 * @return a bitboard of the squares occupied by any piece.
+		 */
+		private long occupied(int[] squares) {
+			long occupied = Bitboard.EMPTY;
+			for (int slot = 0; slot < this.numPieces; slot++) {
+				if (squares[slot] != -1)
+					occupied |= Bitboard.mask(squares[slot]);
+			}
+			return occupied;
+		}
+
+
+		/**
+		 * Returns the squares occupied by the pieces of one player.
+		 *
+		 * @param squares  the square of each slot, or -1 for a captured piece.
+		 * @param white    whether to return the white pieces or the black pieces.
+		 *
+		 * @return a bitboard of the squares occupied by the pieces of {@code white}.
+		 */
+		private long occupied(int[] squares, boolean white) {
+			long occupied = Bitboard.EMPTY;
+			for (int slot = 0; slot < this.numPieces; slot++) {
+				if (squares[slot] != -1 && this.isWhite(slot) == white)
+					occupied |= Bitboard.mask(squares[slot]);
+			}
+			return occupied;
+		}
+
+
+		/**
+		 * Returns the squares attacked by a piece.
+		 *
+		 * @param slot      the slot of the piece.
+		 * @param square    the square of the piece.
+		 * @param occupied  the squares occupied by any piece.
+		 *
+		 * @return a bitboard of the squares attacked by the piece.
+		 */
+		private long attacks(int slot, int square, long occupied) {
+			return switch (this.type(slot)) {
+			case 0 -> Attacks.pawnAttacks(square, this.isWhite(slot));
+			case 1 -> Attacks.knightAttacks(square);
+			case 2 -> Attacks.bishopAttacks(square, occupied);
+			case 3 -> Attacks.rookAttacks(square, occupied);
+			case 4 -> Attacks.queenAttacks(square, occupied);
+			default -> Attacks.kingAttacks(square);
+			};
+		}
+
+
+		/**
+		 * Determines whether a king is attacked.
+		 *
+		 * @param squares  the square of each slot, or -1 for a captured piece.
+		 * @param white    whether to check the white king.
+		 *
+		 * @return whether the king of {@code white} is attacked by any piece of the other player.
+		 */
+		private boolean isKingAttacked(int[] squares, boolean white) {
+			int king = squares[(white) ? 0 : 1];
+			long occupied = this.occupied(squares);
+			for (int slot = 0; slot < this.numPieces; slot++) {
+				if (squares[slot] != -1 && this.isWhite(slot) != white &&
+					(this.attacks(slot, squares[slot], occupied) & Bitboard.mask(king)) != 0)
+					return true;
+			}
+			return false;
+		}
+
+
+		/**
+		 * Determines whether a position is legal: no two pieces share a square, no pawn is on
+		 * the first or last rank, and the player not to move is not in check.
+		 *
+		 * @param squares      the square of each slot.
+		 * @param whiteToMove  whether it is the white player's turn to move.
+		 *
+		 * @return whether the position is legal.
+		 */
+		private boolean isLegal(int[] squares, boolean whiteToMove) {
+			if (Bitboard.count(this.occupied(squares)) != this.numPieces)
+				return false;
+			for (int slot = 2; slot < this.numPieces; slot++) {
+				if (this.type(slot) == 0 && (squares[slot] < 8 || squares[slot] >= 56))
+					return false;
+			}
+			return !this.isKingAttacked(squares, !whiteToMove);
+		}
+
+
+		/**
+		 * Looks up the result of a position that has left the set by a capture or promotion.
+		 *
+		 * @param pieces       the piece index of each slot after the move.
+		 * @param squares      the square of each slot after the move, or -1 for a captured
+		 *                     piece.
+		 * @param whiteToMove  whether it is the white player's turn to move after the move.
+		 *
+		 * @return the result from the perspective of the player to move after the move.
+		 *
+		 * @throws IllegalStateException  if the bitbase of the set reached is not loaded.
+		 */
+		private Bitbase.Wdl probeExit(int[] pieces, int[] squares, boolean whiteToMove) {
+			Bitbase.Wdl result = Bitbases.probe(pieces, squares, whiteToMove);
+			if (result == null)
+				throw new IllegalStateException("bitbase not loaded for an exit of " +
+												Arrays.toString(this.slots));
+			return result;
+		}
+
+
+		/**
+		 * Returns the best result for the opponent of capturing en passant after a pawn moved
+		 * two squares.
+		 *
+		 * @param squares  the square of each slot after the pawn moved.
+		 * @param pawn     the slot of the pawn that moved.
+		 * @param pieces   a scratch array for the piece index of each slot.
+		 *
+		 * @return the best result of the opponent's en passant captures, from the perspective of
+		 *         the opponent, or {@code null} if the opponent cannot capture en passant.
+		 */
+		private Bitbase.Wdl enPassantResult(int[] squares, int pawn, int[] pieces) {
+			boolean white = this.isWhite(pawn);
+			int pawnSquare = squares[pawn];
+			int target = pawnSquare + ((white) ? -8 : 8);
+			Bitbase.Wdl best = null;
+			for (int slot = 2; slot < this.numPieces; slot++) {
+				if (this.type(slot) != 0 || this.isWhite(slot) == white ||
+					(Attacks.pawnAttacks(squares[slot], !white) & Bitboard.mask(target)) == 0)
+					continue;
+
+				// Capture en passant, and check the capturing player's king is not left attacked
+				int from = squares[slot];
+				squares[slot] = target;
+				squares[pawn] = -1;
+				if (!this.isKingAttacked(squares, !white)) {
+					System.arraycopy(this.slots, 0, pieces, 0, this.numPieces);
+					Bitbase.Wdl result = this.probeExit(pieces, squares, white).negate();
+					if (best == null || result.compareTo(best) > 0)
+						best = result;
+				}
+				squares[slot] = from;
+				squares[pawn] = pawnSquare;
+			}
+			return best;
+		}
+
+
+		/**
+		 * Returns the squares a piece can move to without capturing, including pawn pushes that
+		 * promote.
+		 *
+		 * @param slot      the slot of the piece.
+		 * @param square    the square of the piece.
+		 * @param occupied  the squares occupied by any piece.
+		 *
+		 * @return a bitboard of the squares the piece can move to.
+		 */
+		private long quietTargets(int slot, int square, long occupied) {
+			if (this.type(slot) != 0)
+				return this.attacks(slot, square, occupied) & ~occupied;
+
+			boolean white = this.isWhite(slot);
+			int forward = square + ((white) ? 8 : -8);
+			if ((occupied & Bitboard.mask(forward)) != 0)
+				return Bitboard.EMPTY;
+			long targets = Bitboard.mask(forward);
+			boolean startRank = (white) ? square >>> 3 == 1 : square >>> 3 == 6;
+			int twoForward = forward + ((white) ? 8 : -8);
+			if (startRank && (occupied & Bitboard.mask(twoForward)) == 0)
+				targets |= Bitboard.mask(twoForward);
+			return targets;
+		}
+
+
+		/**
+		 * Finds the initial result of the positions in a range of indices, and counts the moves
+		 * that stay in the set of the others.
+		 *
+		 * @param start     the first index of the range.
+		 * @param end       the index after the last index of the range.
+		 * @param resolved  the list to add the positions resolved as won or lost to.
+		 */
+		private void initialize(int start, int end, IndexList resolved) {
+			int[] squares = new int[this.numPieces];
+			int[] pieces = new int[this.numPieces];
+			for (int index = start; index < end; index++) {
+				boolean whiteToMove = this.decode(index, squares);
+				if (!this.isLegal(squares, whiteToMove)) {
+					this.results[index] = BitbaseGenerator.DRAW;
+					continue;
+				}
+
+				int count = 0;
+				boolean hasMove = false;
+				Bitbase.Wdl bestExit = null;
+				long occupied = this.occupied(squares);
+				long enemies = this.occupied(squares, !whiteToMove);
+				for (int slot = 0; slot < this.numPieces; slot++) {
+					if (this.isWhite(slot) != whiteToMove)
+						continue;
+
+					int from = squares[slot];
+					boolean pawn = this.type(slot) == 0;
+					long quiet = this.quietTargets(slot, from, occupied);
+					long captures = this.attacks(slot, from, occupied) & enemies;
+					for (long targets = quiet | captures; targets != 0; targets &= targets - 1) {
+						int to = Bitboard.first(targets);
+						int captured = -1;
+						for (int other = 0; other < this.numPieces; other++) {
+							if (squares[other] == to && other != slot)
+								captured = other;
+						}
+						// Pawns only capture diagonally, and never the king
+						if ((captured == -1 && (quiet & Bitboard.mask(to)) == 0) || captured == 0 ||
+							captured == 1)
+							continue;
+
+						squares[slot] = to;
+						if (captured != -1)
+							squares[captured] = -1;
+						boolean legal = !this.isKingAttacked(squares, whiteToMove);
+						boolean promotion = pawn && (to < 8 || to >= 56);
+
+						if (legal && (captured != -1 || promotion)) {
+							// The move leaves the set, so its result is already known
+							System.arraycopy(this.slots, 0, pieces, 0, this.numPieces);
+							int numResults = (promotion) ? BitbaseGenerator.PROMOTIONS.length : 1;
+							for (int i = 0; i < numResults; i++) {
+								if (promotion)
+									pieces[slot] = BitbaseGenerator.PROMOTIONS[i] +
+										((whiteToMove) ? 0 : Piece.NUM_TYPES);
+								Bitbase.Wdl result =
+									this.probeExit(pieces, squares, !whiteToMove).negate();
+								if (bestExit == null || result.compareTo(bestExit) > 0)
+									bestExit = result;
+							}
+						}
+						else if (legal) {
+							Bitbase.Wdl enPassant = (pawn && Math.abs(to - from) == 16) ?
+								this.enPassantResult(squares, slot, pieces) : null;
+							if (enPassant == Bitbase.Wdl.WIN) {
+								if (bestExit == null)
+									bestExit = Bitbase.Wdl.LOSS;
+							}
+							else
+								count++;
+						}
+						hasMove |= legal;
+
+						squares[slot] = from;
+						if (captured != -1)
+							squares[captured] = to;
+					}
+				}
+
+				if (!hasMove) {
+					boolean inCheck = this.isKingAttacked(squares, whiteToMove);
+					this.results[index] = (inCheck) ? BitbaseGenerator.LOSS : BitbaseGenerator.DRAW;
+					if (inCheck)
+						resolved.add(index);
+				}
+				else if (bestExit == Bitbase.Wdl.WIN) {
+					this.results[index] = BitbaseGenerator.WIN;
+					resolved.add(index);
+				}
+				else {
+					// A drawing exit is a move that is never refuted, so the count never reaches 0
+					if (bestExit == Bitbase.Wdl.DRAW)
+						count++;
+					if (count == 0) {
+						this.results[index] = BitbaseGenerator.LOSS;
+						resolved.add(index);
+					}
+					else
+						this.counts[index] = (byte) count;
+				}
+			}
+		}
+
+
+		/**
+		 * Counts down the moves of a position that have not been refuted.
+		 *
+		 * @param index  the index of the position.
+		 *
+		 * @return the number of moves left after counting down.
+		 */
+		private int decrement(int index) {
+			// A compare-and-set loop rather than getAndAdd, which gave wrong results on a byte
+			// array once compiled by C2 in JDK 17
+			byte count;
+			do {
+				count = (byte) BitbaseGenerator.BYTES.getVolatile(this.counts, index);
+			} while (!BitbaseGenerator.BYTES.compareAndSet(this.counts, index, count,
+														   (byte) (count - 1)));
+			return count - 1;
+		}
+
+
+		/**
+		 * Spreads the results of some resolved positions to the positions before them.
+		 *
+		 * @param positions  the resolved positions.
+		 * @param start      the first index into {@code positions} to spread.
+		 * @param end        the index after the last index into {@code positions} to spread.
+		 * @param resolved   the list to add the positions newly resolved as won or lost to.
+		 */
+		private void propagate(int[] positions, int start, int end, IndexList resolved) {
+			int[] squares = new int[this.numPieces];
+			int[] pieces = new int[this.numPieces];
+			for (int i = start; i < end; i++) {
+				int index = positions[i];
+				byte result = this.results[index];
+				boolean whiteToMove = this.decode(index, squares);
+				long occupied = this.occupied(squares);
+
+				// Unmake every move of the player who moved last that did not capture or promote
+				for (int slot = 0; slot < this.numPieces; slot++) {
+					if (this.isWhite(slot) == whiteToMove)
+						continue;
+
+					int to = squares[slot];
+					long sources;
+					boolean pawn = this.type(slot) == 0;
+					Bitbase.Wdl enPassant = null;
+					if (pawn) {
+						int back = to + ((this.isWhite(slot)) ? -8 : 8);
+						int twoBack = back + ((this.isWhite(slot)) ? -8 : 8);
+						boolean fourthRank = (this.isWhite(slot)) ? to >>> 3 == 3 : to >>> 3 == 4;
+						sources = Bitboard.EMPTY;
+						if ((occupied & Bitboard.mask(back)) == 0 && back >= 8 && back < 56) {
+							sources |= Bitboard.mask(back);
+							if (fourthRank && (occupied & Bitboard.mask(twoBack)) == 0) {
+								sources |= Bitboard.mask(twoBack);
+								enPassant = this.enPassantResult(squares, slot, pieces);
+							}
+						}
+					}
+					else
+						sources = this.attacks(slot, to, occupied) & ~occupied;
+
+					for (; sources != 0; sources &= sources - 1) {
+						int from = Bitboard.first(sources);
+						boolean twoSquares = pawn && Math.abs(to - from) == 16;
+						squares[slot] = from;
+						// The player to move before the move must not have left the other in check
+						if (!this.isKingAttacked(squares, whiteToMove)) {
+							int previous = this.encode(squares, !whiteToMove);
+							if (result == BitbaseGenerator.LOSS) {
+								// An en passant capture that draws or wins refutes the move
+								if ((!twoSquares || enPassant == null ||
+									 enPassant == Bitbase.Wdl.LOSS) &&
+									BitbaseGenerator.BYTES.compareAndSet(this.results, previous,
+																		 BitbaseGenerator.UNKNOWN,
+																		 BitbaseGenerator.WIN))
+									resolved.add(previous);
+							}
+							else if (!twoSquares || enPassant != Bitbase.Wdl.WIN) {
+								if (this.decrement(previous) == 0 &&
+									BitbaseGenerator.BYTES.compareAndSet(this.results, previous,
+																		 BitbaseGenerator.UNKNOWN,
+																		 BitbaseGenerator.LOSS))
+									resolved.add(previous);
+							}
+						}
+						squares[slot] = to;
+					}
+				}
+			}
+		}
+
+
+		/**
+		 * Packs the results into the 2-bit values of a bitbase file. Unresolved positions are
+		 * drawn.
+		 *
+		 * @return the packed values.
+		 */
+		private byte[] pack() {
+			byte[] packed = new byte[this.size / 4];
+			for (int index = 0; index < this.size; index++) {
+				int value = switch (this.results[index]) {
+				case BitbaseGenerator.WIN -> Bitbase.VALUE_WIN;
+				case BitbaseGenerator.LOSS -> Bitbase.VALUE_LOSS;
+				default -> Bitbase.VALUE_DRAW;
+				};
+				packed[index >>> 2] |= (byte) (value << ((index & 3) << 1));
+			}
+			return packed;
+		}
+	}
+
+
+	/** The directory bitbases are written to and read from. */
+	private final Path directory;
+	/** The number of threads used to generate a set. */
+	private final int threads;
+
+
+	/**
+	 * Constructs a new {@code BitbaseGenerator} object.
+	 *
+	 * @param directory  the directory to write bitbases to. Bitbases already in the directory
+	 *                   are loaded instead of generated again.
+	 * @param threads    the number of threads used to generate a set.
+	 *
+	 * @throws NullPointerException      if {@code directory == null}.
+	 * @throws IllegalArgumentException  if {@code threads < 1}.
+	 */
+	public BitbaseGenerator(String directory, int threads) {
+		if (directory == null)
+			throw new NullPointerException("directory was null");
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+
+		this.directory = Paths.get(directory);
+		this.threads = threads;
+	}
+
+
+	/**
+	 * Returns the sets a set can turn into by a single capture or promotion.
+	 *
+	 * @param name  the canonical name of the set.
+	 *
+	 * @return the canonical names of the sets reached, not including a set of only the kings.
+	 */
+	private static Set<String> exits(String name) {
+		Set<String> exits = new LinkedHashSet<>();
+		for (int i = 1; i < name.length(); i++) {
+			char piece = name.charAt(i);
+			if (piece == 'K')
+				continue;
+
+			String captured = name.substring(0, i) + name.substring(i + 1);
+			if (captured.length() > 2)
+				exits.add(Bitbase.canonicalName(captured));
+			if (piece != 'P')
+				continue;
+
+			// A promotion, which may also capture any piece of the other player
+			int secondKing = name.indexOf('K', 1);
+			for (char promoted : "QRBN".toCharArray()) {
+				String promotion = name.substring(0, i) + promoted + name.substring(i + 1);
+				exits.add(Bitbase.canonicalName(promotion));
+				int start = (i < secondKing) ? secondKing + 1 : 1;
+				int end = (i < secondKing) ? promotion.length() : secondKing;
+				for (int j = start; j < end; j++) {
+					String both = promotion.substring(0, j) + promotion.substring(j + 1);
+					exits.add(Bitbase.canonicalName(both));
+				}
+			}
+		}
+		return exits;
+	}
+
+
+	/**
+	 * Generates the bitbase of a set, and loads it into {@code Bitbases}. The sets it can turn
+	 * into are generated first, if they are not already loaded or in the directory. A set
+	 * already in the directory is loaded instead of generated.
+	 *
+	 * @param name  the name of the set, in any order, such as {@code KRK} or {@code KKNB}.
+	 *
+	 * @return the bitbase of the set.
+	 *
+	 * @throws NullPointerException      if {@code name == null}.
+	 * @throws IllegalArgumentException  if {@code name} is not the name of a set, or has more than
+	 *                                   {@code Bitbases.MAX_PIECES} pieces.
+	 * @throws IOException               if a bitbase cannot be written or read.
+	 */
+	public Bitbase generate(String name) throws IOException {
+		String canonical = Bitbase.canonicalName(name);
+		Bitbase bitbase = Bitbases.get(canonical);
+		if (bitbase != null)
+			return bitbase;
+
+		Path file = this.directory.resolve(canonical + Bitbase.EXTENSION);
+		if (!Files.exists(file)) {
+			for (String exit : BitbaseGenerator.exits(canonical))
+				this.generate(exit);
+			this.write(canonical, file);
+		}
+
+		bitbase = Bitbase.open(file.toString());
+		Bitbases.add(bitbase);
+		return bitbase;
+	}
+
+
+	/**
+	 * Runs a task on the threads of this generator, each with a share of a range.
+	 *
+	 * @param size  the size of the range.
+	 * @param task  the task, given the start and end of its share and the list to add resolved
+	 *              positions to.
+	 *
+	 * @return the positions resolved by every thread.
+	 */
+	private int[] runShared(int size, RangeTask task) {
+		IndexList[] lists = new IndexList[this.threads];
+		Thread[] workers = new Thread[this.threads];
+		for (int i = 0; i < this.threads; i++) {
+			int start = (int) ((long) size * i / this.threads);
+			int end = (int) ((long) size * (i + 1) / this.threads);
+			IndexList list = new IndexList();
+			lists[i] = list;
+			workers[i] = new Thread(() -> task.run(start, end, list));
+			workers[i].start();
+		}
+
+		int total = 0;
+		for (int i = 0; i < this.threads; i++) {
+			try {
+				workers[i].join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted while generating a bitbase", e);
+			}
+			total += lists[i].size;
+		}
+
+		int[] resolved = new int[total];
+		int offset = 0;
+		for (IndexList list : lists) {
+			System.arraycopy(list.items, 0, resolved, offset, list.size);
+			offset += list.size;
+		}
+		return resolved;
+	}
+
+
+	/**
+	 * Generates the bitbase of a set and writes it to a file. The sets it can turn into must
+	 * be loaded.
+	 *
+	 * @param name  the canonical name of the set.
+	 * @param file  the file to write.
+	 *
+	 * @throws IOException  if the file cannot be written.
+	 */
+	private void write(String name, Path file) throws IOException {
+		Generation generation = new Generation(name);
+		int[] resolved = this.runShared(generation.size, generation::initialize);
+		while (resolved.length > 0) {
+			int[] positions = resolved;
+			resolved = this.runShared(positions.length,
+									  (start, end, list) ->
+									  generation.propagate(positions, start, end, list));
+		}
+
+		// Write to a temporary file first, so a partly written bitbase is never loaded
+		Files.createDirectories(file.getParent());
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				 new BufferedOutputStream(new FileOutputStream(temporary.toFile()))))
+		{
+			out.writeInt(Bitbase.MAGIC);
+			out.writeInt(generation.numPieces);
+			out.write(generation.pack());
+		}
+		Files.move(temporary, file);
+	}
+
+}
@@ -0,0 +1,347 @@
+package engine.bitbase;
+
+
+import engine.board.BoardInfo;
+import engine.move.Attacks;
+import engine.piece.Piece;
+import engine.util.Bitboard;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The endgame bitbases loaded by the engine, and the lookup of positions in them.
+ * <p>
+ * A position is looked up by its material: the pieces other than the kings are combined into a
+ * key that selects the bitbase of the set, in either color orientation, so probing a position
+ * never searches through the loaded sets. Positions with only the kings are always drawn, and
+ * need no bitbase. Probing is meant to be cheap enough to do at every node of a search: a
+ * position with more pieces than the largest loaded set is rejected by counting its pieces.
+ * <p>
+ * The loaded bitbases are shared by the whole engine, the same as the attack tables, so every
+ * search probes them without any other context. They are only used to score positions in the
+ * search, and never decide the state of a game, which follows the rules alone. Loading is
+ * thread-safe, and can happen while other threads probe.
+ *
+ * @see Bitbase
+ * @see BitbaseGenerator
+ *
+ * @author Jonathan Uhler
+ */
+public class Bitbases {
+
+	/** The largest number of pieces, including the kings, in a set. */
+	public static final int MAX_PIECES = 4;
+
+	/** The number of piece codes: the piece index plus 1, or 0 for no piece. */
+	private static final int NUM_CODES = Piece.NUM_KINDS + 1;
+
+	/**
+	 * The loaded bitbases, indexed by the key of their material in either orientation. The
+	 * array is replaced, never modified, when a bitbase is loaded.
+	 */
+	private static volatile Bitbase[] bitbases =
+		new Bitbase[Bitbases.NUM_CODES * Bitbases.NUM_CODES];
+	/** The number of pieces in the largest loaded set, or 0 if none are loaded. */
+	private static volatile int maxPieces = 0;
+
+
+	/**
+	 * Returns the key of some material. The kings are not part of the key.
+	 *
+	 * @param first   the piece index of one piece other than the kings, or -1 if there is none.
+	 * @param second  the piece index of another piece other than the kings, or -1 if there is
+	 *                none.
+	 *
+	 * @return the key of the material.
+	 */
+	private static int key(int first, int second) {
+		int a = first + 1;
+		int b = second + 1;
+		return Math.min(a, b) * Bitbases.NUM_CODES + Math.max(a, b);
+	}
+
+
+	/**
+	 * Returns the piece index of a piece with the other color.
+	 *
+	 * @param piece  the piece index.
+	 *
+	 * @return the piece index of the same type with the other color.
+	 */
+	static int swapColor(int piece) {
+		return (piece < Piece.NUM_TYPES) ? piece + Piece.NUM_TYPES : piece - Piece.NUM_TYPES;
+	}
+
+
+	/**
+	 * Returns the key of the material of a bitbase.
+	 *
+	 * @param bitbase  the bitbase.
+	 * @param flip     whether to swap the colors of the pieces.
+	 *
+	 * @return the key of the material of {@code bitbase}.
+	 */
+	private static int key(Bitbase bitbase, boolean flip) {
+		int first = (bitbase.getNumPieces() > 2) ? bitbase.getSlot(2) : -1;
+		int second = (bitbase.getNumPieces() > 3) ? bitbase.getSlot(3) : -1;
+		if (flip && first != -1)
+			first = Bitbases.swapColor(first);
+		if (flip && second != -1)
+			second = Bitbases.swapColor(second);
+		return Bitbases.key(first, second);
+	}
+
+
+	/**
+	 * Adds a bitbase to the loaded bitbases, replacing any loaded bitbase of the same set.
+	 *
+	 * @param bitbase  the bitbase to add.
+	 *
+	 * @throws NullPointerException  if {@code bitbase == null}.
+	 */
+	public static synchronized void add(Bitbase bitbase) {
+		if (bitbase == null)
+			throw new NullPointerException("bitbase was null");
+
+		Bitbase[] bitbases = Bitbases.bitbases.clone();
+		bitbases[Bitbases.key(bitbase, true)] = bitbase;
+		bitbases[Bitbases.key(bitbase, false)] = bitbase;
+		Bitbases.bitbases = bitbases;
+		Bitbases.maxPieces = Math.max(Bitbases.maxPieces, bitbase.getNumPieces());
+	}
+
+
+	/**
+	 * Loads every bitbase in a directory. Files whose name is not a canonical set name followed
+	 * by {@code Bitbase.EXTENSION} are ignored.
+	 *
+	 * @param directory  the directory to load from.
+	 *
+	 * @return the bitbases loaded.
+	 *
+	 * @throws NullPointerException  if {@code directory == null}.
+	 * @throws IOException           if the directory cannot be listed, or a bitbase cannot be
+	 *                               opened.
+	 */
+	public static List<Bitbase> load(String directory) throws IOException {
+		if (directory == null)
+			throw new NullPointerException("directory was null");
+
+		List<Bitbase> loaded = new ArrayList<>();
+		try (DirectoryStream<Path> files =
+			 Files.newDirectoryStream(Paths.get(directory), "*" + Bitbase.EXTENSION))
+		{
+			for (Path file : files) {
+				String fileName = file.getFileName().toString();
+				String name = fileName.substring(0, fileName.length() - Bitbase.EXTENSION.length());
+				if (!name.matches("K[QRBNP]*K[QRBNP]*") || name.length() > Bitbases.MAX_PIECES ||
+					!name.equals(Bitbase.canonicalName(name)))
+					continue;
+
+				Bitbase bitbase = Bitbase.open(file.toString());
+				Bitbases.add(bitbase);
+				loaded.add(bitbase);
+			}
+		}
+		return loaded;
+	}
+
+
+	/**
+	 * Unloads every bitbase.
+	 */
+	public static synchronized void clear() {
+		Bitbases.bitbases = new Bitbase[Bitbases.bitbases.length];
+		Bitbases.maxPieces = 0;
+	}
+
+
+	/**
+	 * Returns the loaded bitbase of a set.
+	 *
+	 * @param name  the name of the set, in any order.
+	 *
+	 * @return the loaded bitbase of the set, or {@code null} if it is not loaded.
+	 *
+	 * @throws NullPointerException      if {@code name == null}.
+	 * @throws IllegalArgumentException  if {@code name} is not the name of a set.
+	 */
+	public static Bitbase get(String name) {
+		return Bitbases.find(Bitbase.canonicalName(name));
+	}
+
+
+	/**
+	 * Finds a loaded bitbase by its canonical name.
+	 *
+	 * @param name  the canonical name of the set.
+	 *
+	 * @return the loaded bitbase of the set, or {@code null} if it is not loaded.
+	 */
+	private static Bitbase find(String name) {
+		int[] slots = Bitbase.slots(name);
+		int first = (slots.length > 2) ? slots[2] : -1;
+		int second = (slots.length > 3) ? slots[3] : -1;
+		Bitbase bitbase = Bitbases.bitbases[Bitbases.key(first, second)];
+		return (bitbase != null && bitbase.getName().equals(name)) ? bitbase : null;
+	}
+
+
+	/**
+	 * Returns the number of pieces in the largest loaded set.
+	 *
+	 * @return the number of pieces in the largest loaded set, including the kings, or 0 if no
+	 *         bitbase is loaded.
+	 */
+	public static int getMaxPieces() {
+		return Bitbases.maxPieces;
+	}
+
+
+	/**
+	 * Returns the first free slot of a bitbase that holds a piece.
+	 *
+	 * @param bitbase  the bitbase.
+	 * @param used     the slots already assigned, one bit per slot.
+	 * @param piece    the piece index of the piece.
+	 *
+	 * @return the first slot not in {@code used} that holds {@code piece}.
+	 */
+	private static int findSlot(Bitbase bitbase, int used, int piece) {
+		int slot = 0;
+		while ((used & (1 << slot)) != 0 || bitbase.getSlot(slot) != piece)
+			slot++;
+		return slot;
+	}
+
+
+	/**
+	 * Looks up a position in the loaded bitbases.
+	 * <p>
+	 * The result ignores the fifty-move rule and the repetition of positions. A position with
+	 * castling rights, or where the player to move can capture en passant, is not covered by
+	 * the bitbases.
+	 *
+	 * @param boardInfo  the position, which must be legal.
+	 *
+	 * @return the result of the position with best play from the perspective of the player to
+	 *         move, or {@code null} if the position is not covered by the loaded bitbases.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 */
+	public static Bitbase.Wdl probe(BoardInfo boardInfo) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		long occupied = boardInfo.getOccupied();
+		int numPieces = Bitboard.count(occupied);
+		if (numPieces > Bitbases.maxPieces && numPieces > 2)
+			return null;
+		if (boardInfo.castleK || boardInfo.castleQ || boardInfo.castlek || boardInfo.castleq)
+			return null;
+		if (boardInfo.enPassantTile != null && boardInfo.enPassantTile.isValidTile()) {
+			int square = Bitboard.square(boardInfo.enPassantTile);
+			long capturers = Attacks.pawnAttacks(square, !boardInfo.whiteToMove) &
+				boardInfo.getPieceBoard(Piece.Type.PAWN, boardInfo.whiteToMove);
+			if (capturers != 0)
+				return null;
+		}
+
+		// Find the set from the pieces other than the kings
+		int numKings = 0;
+		int first = -1;
+		int second = -1;
+		for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+			int piece = boardInfo.getPiece(Bitboard.first(pieces)).getIndex();
+			if (piece == Bitbase.WHITE_KING || piece == Bitbase.BLACK_KING)
+				numKings++;
+			else if (first == -1)
+				first = piece;
+			else
+				second = piece;
+		}
+		if (numKings != 2)
+			return null;
+		if (numPieces == 2)
+			return Bitbase.Wdl.DRAW;
+
+		int key = Bitbases.key(first, second);
+		Bitbase bitbase = Bitbases.bitbases[key];
+		if (bitbase == null || bitbase.getNumPieces() != numPieces)
+			return null;
+
+		// Index the position in the orientation of the set, where the stronger side is white
+		boolean flip = key != Bitbases.key(bitbase, false);
+		int index = (boardInfo.whiteToMove != flip) ? 0 : 1 << (6 * numPieces);
+		int used = 0;
+		for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+			int square = Bitboard.first(pieces);
+			int piece = boardInfo.getPiece(square).getIndex();
+			if (flip) {
+				square ^= 56;
+				piece = Bitbases.swapColor(piece);
+			}
+			int slot = Bitbases.findSlot(bitbase, used, piece);
+			used |= 1 << slot;
+			index |= square << bitbase.getShift(slot);
+		}
+		return bitbase.get(index);
+	}
+
+
+	/**
+	 * Looks up a position, given as a list of pieces, in the loaded bitbases. This is used to
+	 * look up the positions after captures and promotions while generating a bitbase.
+	 *
+	 * @param pieces       the piece index, as returned by {@code Piece.getIndex}, of each piece.
+	 * @param squares      the square of each piece, or -1 for a piece that is not on the board.
+	 * @param whiteToMove  whether it is the white player's turn to move.
+	 *
+	 * @return the result of the position with best play from the perspective of the player to
+	 *         move, or {@code null} if the position is not covered by the loaded bitbases.
+	 */
+	static Bitbase.Wdl probe(int[] pieces, int[] squares, boolean whiteToMove) {
+		int numPieces = 0;
+		int first = -1;
+		int second = -1;
+		for (int i = 0; i < pieces.length; i++) {
+			if (squares[i] == -1)
+				continue;
+			numPieces++;
+			if (pieces[i] == Bitbase.WHITE_KING || pieces[i] == Bitbase.BLACK_KING)
+				continue;
+			else if (first == -1)
+				first = pieces[i];
+			else
+				second = pieces[i];
+		}
+		if (numPieces == 2)
+			return Bitbase.Wdl.DRAW;
+
+		int key = Bitbases.key(first, second);
+		Bitbase bitbase = Bitbases.bitbases[key];
+		if (bitbase == null || bitbase.getNumPieces() != numPieces)
+			return null;
+
+		boolean flip = key != Bitbases.key(bitbase, false);
+		int index = (whiteToMove != flip) ? 0 : 1 << (6 * numPieces);
+		int used = 0;
+		for (int i = 0; i < pieces.length; i++) {
+			if (squares[i] == -1)
+				continue;
+			int square = (flip) ? squares[i] ^ 56 : squares[i];
+			int piece = (flip) ? Bitbases.swapColor(pieces[i]) : pieces[i];
+			int slot = Bitbases.findSlot(bitbase, used, piece);
+			used |= 1 << slot;
+			index |= square << bitbase.getShift(slot);
+		}
+		return bitbase.get(index);
+	}
+
+}
@@ -1,12 +1,11 @@
 package engine.board;
 
 
+import engine.util.Bitboard;
 import engine.util.Coordinate;
-import engine.util.Vector;
 import engine.move.Move;
 import engine.piece.Piece;
-import java.util.LinkedList;
-
+import java.util.Arrays;
 
 
 /**
@@ -16,6 +15,12 @@ import java.util.LinkedList;
  * management of the informational class. This hierarchy exists to allow for the {@code BoardInfo} 
  * object to be easily transported, serialized, and deserialized without having to carry around 
  * the extra methods provided by the {@code Board} class.
+ * <p>
+ * Moves are made and unmade in place on the managed {@code BoardInfo} object. Each move made 
+ * stores a small undo record on a stack of preallocated records, holding only the information 
+ * that cannot be recovered from the move itself (the captured piece, castling rights, en passant 
+ * tile, the hash, and so on). Once the stack has grown to the depth of the game or search 
+ * being played, making and unmaking moves does not allocate any undo state.
  *
  * @author Jonathan Uhler
  */
@@ -26,8 +31,44 @@ public class Board {
 		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
 	
 
-	/** A stack of all previous board states, used to undo moves. */
-	private LinkedList<BoardInfo> boardHistory;
+	/** The number of undo records allocated when a {@code Board} object is constructed. */
+	private static final int INITIAL_HISTORY_CAPACITY = 256;
+
+
+	/**
+	 * The information needed to unmake a single move. Records are allocated once and reused by 
+	 * every move made at the same ply.
+	 */
+	private static class UndoRecord {
+		/** The encoded move that was made, or 0 for a null move. */
+		private int move;
+		/** The piece that was moved, before any promotion. */
+		private Piece movedPiece;
+		/** The piece that was captured, or {@code null} if no piece was captured. */
+		private Piece capturedPiece;
+		/** The square the captured piece was on (differs from the end tile for en passant). */
+		private int capturedSquare;
+		/** The white kingside castling right before the move. */
+		private boolean castleK;
+		/** The white queenside castling right before the move. */
+		private boolean castleQ;
+		/** The black kingside castling right before the move. */
+		private boolean castlek;
+		/** The black queenside castling right before the move. */
+		private boolean castleq;
+		/** The en passant tile before the move. */
+		private Coordinate enPassantTile;
+		/** The number of halfmoves before the move. */
+		private int halfmoves;
+		/** The Zobrist hash before the move. */
+		private long hash;
+	}
+	
+
+	/** A stack of undo records for all moves made, used to undo moves. */
+	private UndoRecord[] boardHistory;
+	/** The number of records in use on the {@code boardHistory} stack. */
+	private int boardHistorySize;
 	/** The current state of the board. */
 	private BoardInfo boardInfo;
 
@@ -38,7 +79,10 @@ public class Board {
 	 * @param boardInfo  a {@code BoardInfo} object for this class to manage.
 	 */
 	public Board(BoardInfo boardInfo) {
-		this.boardHistory = new LinkedList<>();
+		this.boardHistory = new UndoRecord[Board.INITIAL_HISTORY_CAPACITY];
+		for (int i = 0; i < this.boardHistory.length; i++)
+			this.boardHistory[i] = new UndoRecord();
+		this.boardHistorySize = 0;
 		this.boardInfo = boardInfo;
 	}
 
@@ -100,80 +144,89 @@ public class Board {
 	 *                                   tile is null.
 	 *
 	 * @see engine.move.Move
+	 * @see makeMove(int)
 	 */
 	public void makeMove(Move move) {
 		if (move == null)
 			throw new NullPointerException("move argument was null");
 		
-		// Save the current state (before the move) to the history for undoing moves
-		this.boardHistory.push(this.getInfo());
-		
-		// Set up important information
+		// Do basic validity checks
 		Coordinate startTile = move.getStartTile();
 		Coordinate endTile = move.getEndTile();
-		Move.Flag flag = move.getFlag();
-
-		// Gather other information about the move and board state to play the move
-		Piece movePiece = boardInfo.getPiece(startTile);
-		Piece capturedPiece = boardInfo.getPiece(endTile);
-
-		Coordinate castleKRook = new Coordinate(7, 0);
-		Coordinate castleQRook = new Coordinate(0, 0);
-		Coordinate castlekRook = new Coordinate(7, 7);
-		Coordinate castleqRook = new Coordinate(0, 7);
-
-		// Pawn movement direction changes based on perspective
-		int pawnDir = (this.boardInfo.whiteToMove) ? 1 : -1;
-		// Need to shift 1 "down" to highlight real pawn for EP
-		Vector enPassantVector = new Vector(0, -1 * pawnDir);
-		Coordinate enPassantTile = this.boardInfo.enPassantTile;
-		Coordinate enPassantPieceTile = null;
-		Piece enPassantPiece = null;
-		if (enPassantTile != null) {
-			enPassantPieceTile = enPassantTile.shift(enPassantVector);
-			enPassantPiece = this.boardInfo.getPiece(enPassantPieceTile);
-		}
-
-		// Do basic validity checks
+		Piece movePiece = (startTile.isValidTile()) ? this.boardInfo.getPiece(startTile) : null;
 		if (!endTile.isValidTile() || movePiece == null)
 			throw new IllegalArgumentException("illegal move attempted: " +
 											   "endTile is valid: " + endTile.isValidTile() +
 											   ", movePiece: " + movePiece);
 
+		this.makeMove(move.encode());
+	}
+
+
+	/**
+	 * Updates the {@code BoardInfo} object managed by this class with an encoded move. This 
+	 * method behaves the same as {@code makeMove(Move)}, but avoids creating {@code Move} 
+	 * objects, and is intended for moves generated into a {@code MoveList}. As with 
+	 * {@code makeMove(Move)}, the legality of the move is <b>NOT</b> validated.
+	 *
+	 * @param move  the encoded move to make.
+	 *
+	 * @throws IllegalArgumentException  if the piece on the start tile is null.
+	 *
+	 * @see engine.move.Move#encode(int, int, Move.Flag)
+	 */
+	public void makeMove(int move) {
+		// Set up important information
+		int startSquare = Move.getStartSquare(move);
+		int endSquare = Move.getEndSquare(move);
+		Move.Flag flag = Move.getFlag(move);
+
+		Piece movePiece = this.boardInfo.getPiece(startSquare);
+		if (movePiece == null)
+			throw new IllegalArgumentException("illegal move attempted: no piece to move for " +
+											   Move.toString(move));
+
+		// Gather other information about the move and board state to play the move. Pawn
+		// movement direction changes based on perspective. The piece captured en passant is one
+		// tile "behind" the end tile from the perspective of the moving player
+		int pawnDir = (this.boardInfo.whiteToMove) ? 8 : -8;
+		int capturedSquare = (flag == Move.Flag.EN_PASSANT) ? endSquare - pawnDir : endSquare;
+		Piece capturedPiece = this.boardInfo.getPiece(capturedSquare);
+
+		// Save the information needed to undo this move
+		UndoRecord record = this.pushRecord();
+		record.move = move;
+		record.movedPiece = movePiece;
+		record.capturedPiece = capturedPiece;
+		record.capturedSquare = capturedSquare;
+		record.castleK = this.boardInfo.castleK;
+		record.castleQ = this.boardInfo.castleQ;
+		record.castlek = this.boardInfo.castlek;
+		record.castleq = this.boardInfo.castleq;
+		record.enPassantTile = this.boardInfo.enPassantTile;
+		record.halfmoves = this.boardInfo.halfmoves;
+		record.hash = this.boardInfo.getHash();
+
 		// Update halfmoves
 		this.boardInfo.halfmoves++;
 
-		// Caputes (en passant and regular)
+		// Captures (en passant and regular)
 		if (capturedPiece != null) {
 			this.boardInfo.halfmoves = 0;
-			this.boardInfo.setPiece(endTile, null);
-		}
-		else if (move.isEnPassant()) {
-			this.boardInfo.halfmoves = 0;
-			this.boardInfo.setPiece(enPassantPieceTile, null);
+			this.boardInfo.setPiece(capturedSquare, null);
 		}
 
 		// Movement
-		this.boardInfo.setPiece(endTile, movePiece);
-		this.boardInfo.setPiece(startTile, null);
+		this.boardInfo.setPiece(startSquare, null);
+		this.boardInfo.setPiece(endSquare, movePiece);
 		if (movePiece.getType().equals(Piece.Type.PAWN))
 			this.boardInfo.halfmoves = 0;
 
 		// Castling
-		if (move.isCastleKingside()) {
-			Coordinate rookStartTile = endTile.shift(new Vector(1, 0));
-			Coordinate rookEndTile = endTile.shift(new Vector(-1, 0));
-			Piece rook = this.boardInfo.getPiece(rookStartTile);
-			this.boardInfo.setPiece(rookEndTile, rook);
-			this.boardInfo.setPiece(rookStartTile, null);
-		}
-		else if (move.isCastleQueenside()) {
-			Coordinate rookStartTile = endTile.shift(new Vector(-2, 0));
-			Coordinate rookEndTile = endTile.shift(new Vector(1, 0));
-			Piece rook = this.boardInfo.getPiece(rookStartTile);
-			this.boardInfo.setPiece(rookEndTile, rook);
-			this.boardInfo.setPiece(rookStartTile, null);
-		}
+		if (flag == Move.Flag.CASTLE_KINGSIDE)
+			this.moveRook(endSquare + 1, endSquare - 1);
+		else if (flag == Move.Flag.CASTLE_QUEENSIDE)
+			this.moveRook(endSquare - 2, endSquare + 1);
 
 		// King moved, updating castling rights
 		if (movePiece.getType().equals(Piece.Type.KING)) {
@@ -186,50 +239,39 @@ public class Board {
 				this.boardInfo.castleq = false;
 			}
 		}
-		// Rook moved, update castling rights
-		else if (movePiece.getType().equals(Piece.Type.ROOK)) {
-			if (startTile.equals(castleKRook)) this.boardInfo.castleK = false;
-			else if (startTile.equals(castleQRook)) this.boardInfo.castleQ = false;
-			else if (startTile.equals(castlekRook)) this.boardInfo.castlek = false;
-			else if (startTile.equals(castleqRook)) this.boardInfo.castleq = false;
-		}
-		// Rook captured, update castling rights
-		else if (capturedPiece != null && capturedPiece.getType().equals(Piece.Type.ROOK)) {
-			if (endTile.equals(castleKRook)) this.boardInfo.castleK = false;
-			else if (endTile.equals(castleQRook)) this.boardInfo.castleQ = false;
-			else if (endTile.equals(castlekRook)) this.boardInfo.castlek = false;
-			else if (endTile.equals(castleqRook)) this.boardInfo.castleq = false;
-		}
+		// Rook moved from or captured on its starting tile, update castling rights
+		this.updateCastlingRights(startSquare);
+		this.updateCastlingRights(endSquare);
 
 		// Promotion
-		if (move.isPromotion()) {
-			Piece.Type type = Piece.Type.NONE;
+		Piece.Type promotionType = Piece.Type.NONE;
+		switch (flag) {
+		case PROMOTE_KNIGHT:
+			promotionType = Piece.Type.KNIGHT;
+			break;
+		case PROMOTE_BISHOP:
+			promotionType = Piece.Type.BISHOP;
+			break;
+		case PROMOTE_ROOK:
+			promotionType = Piece.Type.ROOK;
+			break;
+		case PROMOTE_QUEEN:
+			promotionType = Piece.Type.QUEEN;
+			break;
+		default:
+			break;
+		}
+		if (promotionType != Piece.Type.NONE) {
 			Piece.Color color =
 				(this.boardInfo.whiteToMove) ?
 				Piece.Color.WHITE :
 				Piece.Color.BLACK;
-
-			switch (flag) {
-			case PROMOTE_KNIGHT:
-				type = Piece.Type.KNIGHT;
-				break;
-			case PROMOTE_BISHOP:
-				type = Piece.Type.BISHOP;
-				break;
-			case PROMOTE_ROOK:
-				type = Piece.Type.ROOK;
-				break;
-			case PROMOTE_QUEEN:
-				type = Piece.Type.QUEEN;
-				break;
-			}
-
-			this.boardInfo.setPiece(endTile, new Piece(type, color));
+			this.boardInfo.setPiece(endSquare, Piece.of(promotionType, color));
 		}
 
 		// Update after move
-		if (move.isPawnTwoForward())
-			this.boardInfo.enPassantTile = endTile.shift(enPassantVector);
+		if (flag == Move.Flag.PAWN_TWO_FORWARD)
+			this.boardInfo.enPassantTile = Bitboard.coordinate(endSquare - pawnDir);
 		else
 			this.boardInfo.enPassantTile = null;
 
@@ -238,16 +280,119 @@ public class Board {
 
 
 	/**
-	 * Undoes the next available move in the {@code boardHistory} stack.
+	 * Passes the turn to the other player without moving a piece. This is not a legal chess 
+	 * move; it is used by the search to test whether a position is so good that it stays good 
+	 * even if the player to move does nothing. It is undone with {@code unmakeMove}.
+	 * <p>
+	 * Any en passant tile is cleared. The halfmove clock is reset so that repetitions are not 
+	 * detected across the null move, since the positions before it were reached by passing.
+	 */
+	public void makeNullMove() {
+		UndoRecord record = this.pushRecord();
+		record.move = 0;
+		record.movedPiece = null;
+		record.capturedPiece = null;
+		record.capturedSquare = 0;
+		record.enPassantTile = this.boardInfo.enPassantTile;
+		record.halfmoves = this.boardInfo.halfmoves;
+		record.hash = this.boardInfo.getHash();
+
+		this.boardInfo.halfmoves = 0;
+		this.boardInfo.enPassantTile = null;
+		this.boardInfo.updateAfterMove();
+	}
+
+
+	/**
+	 * Undoes the last move made with {@code makeMove} or {@code makeNullMove}, restoring the 
+	 * {@code BoardInfo} object managed by this class in place. If no moves have been made, this 
+	 * method does nothing.
 	 */
 	public void unmakeMove() {
-		// If there are moves to be unmade, then get the latest board state saved, remove it from
-		// the boardHistory stack to save memory and allow further undos, and then set the current
-		// board state to the previous board state
-		
-		if (this.boardHistory.size() == 0)
+		if (this.boardHistorySize == 0)
+			return;
+		UndoRecord record = this.boardHistory[--this.boardHistorySize];
+
+		// A null move changed no pieces, so only the state has to be restored
+		if (record.move == 0) {
+			this.boardInfo.enPassantTile = record.enPassantTile;
+			this.boardInfo.halfmoves = record.halfmoves;
+			this.boardInfo.revertAfterMove(record.hash);
 			return;
-		this.boardInfo = this.boardHistory.pop();
+		}
+
+		int move = record.move;
+		int startSquare = Move.getStartSquare(move);
+		int endSquare = Move.getEndSquare(move);
+		Move.Flag flag = Move.getFlag(move);
+
+		// Move the piece back (as it was before any promotion) and restore any captured piece
+		this.boardInfo.setPiece(endSquare, null);
+		this.boardInfo.setPiece(startSquare, record.movedPiece);
+		if (record.capturedPiece != null)
+			this.boardInfo.setPiece(record.capturedSquare, record.capturedPiece);
+
+		// Castling
+		if (flag == Move.Flag.CASTLE_KINGSIDE)
+			this.moveRook(endSquare - 1, endSquare + 1);
+		else if (flag == Move.Flag.CASTLE_QUEENSIDE)
+			this.moveRook(endSquare + 1, endSquare - 2);
+
+		// Restore state
+		this.boardInfo.castleK = record.castleK;
+		this.boardInfo.castleQ = record.castleQ;
+		this.boardInfo.castlek = record.castlek;
+		this.boardInfo.castleq = record.castleq;
+		this.boardInfo.enPassantTile = record.enPassantTile;
+		this.boardInfo.halfmoves = record.halfmoves;
+		this.boardInfo.revertAfterMove(record.hash);
+	}
+
+
+	/**
+	 * Returns the next free record on the {@code boardHistory} stack, growing the stack if it 
+	 * is full.
+	 *
+	 * @return the next free record on the {@code boardHistory} stack.
+	 */
+	private UndoRecord pushRecord() {
+		if (this.boardHistorySize == this.boardHistory.length) {
+			int oldLength = this.boardHistory.length;
+			this.boardHistory = Arrays.copyOf(this.boardHistory, oldLength * 2);
+			for (int i = oldLength; i < this.boardHistory.length; i++)
+				this.boardHistory[i] = new UndoRecord();
+		}
+		return this.boardHistory[this.boardHistorySize++];
+	}
+
+
+	/**
+	 * Moves the rook for a castling move (or the reverse of a castling move).
+	 *
+	 * @param fromSquare  the square the rook is on.
+	 * @param toSquare    the square to move the rook to.
+	 */
+	private void moveRook(int fromSquare, int toSquare) {
+		Piece rook = this.boardInfo.getPiece(fromSquare);
+		this.boardInfo.setPiece(fromSquare, null);
+		this.boardInfo.setPiece(toSquare, rook);
+	}
+
+
+	/**
+	 * Removes the castling right associated with a rook starting tile, if the given square is 
+	 * one. Any move from or to a rook starting tile either moves or captures that rook, so the 
+	 * right is lost.
+	 *
+	 * @param square  the start or end square of a move.
+	 */
+	private void updateCastlingRights(int square) {
+		switch (square) {
+		case 7 -> this.boardInfo.castleK = false; // H1
+		case 0 -> this.boardInfo.castleQ = false; // A1
+		case 63 -> this.boardInfo.castlek = false; // H8
+		case 56 -> this.boardInfo.castleq = false; // A8
+		}
 	}
 
 }
@@ -1,26 +1,30 @@
 package engine.board;
 
 
+import engine.util.Bitboard;
 import engine.util.Coordinate;
 import engine.fen.FenUtility;
 import engine.piece.Piece;
+import engine.piece.PieceSquareTables;
 import engine.move.Move;
 import engine.move.MoveGenerator;
 import java.io.Serializable;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.IOException;
-import java.util.Map;
 import java.util.List;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.ArrayList;
 
 
 /**
  * Represents a chess board state using Forsyth–Edwards Notation. This class implements the
- * {@code Serializable} interface to allow the deep-copy functionality of the {@code clone} method.
+ * {@code Serializable} interface so that it can be transported, but copies are made structurally 
+ * by the copy constructor, {@code copyFrom}, or {@code clone} without any serialization.
+ * <p>
+ * The position is stored as a set of bitboards (as defined by {@code engine.util.Bitboard}): one 
+ * for each of the twelve kinds of colored pieces, plus the occupancy of each side. A 
+ * square-indexed array of pieces is kept alongside the bitboards so that {@code getPiece} does 
+ * not need to search the bitboards. The {@code getPiece} and {@code setPiece} methods remain the 
+ * public interface for reading and changing individual tiles.
  * <p>
  * This class provides several useful methods to check various conditions regarding the board 
  * state, however all fields are public. The intent of this class is to be used as a 
@@ -48,14 +52,33 @@ public class BoardInfo implements Serializable {
 		/** A game drawn by threefold-repetition. */
 		DRAW_REPETITION,
 		/** A game drawn by insufficient material to checkmate. */
-		DRAW_MATERIAL // Unused as this engine cannot calculate insufficient material
+		DRAW_MATERIAL
 	}
 	
 
-	/** The state of the board as a Forsyth–Edwards Notation (FEN) string. */
-	public String fenString;
-	/** The board. */
-	private Piece[][] tiles; // Only private field, explained more in getPiece(Coordinate)
+	/** The number of hashes the repetition history can hold before it must grow. */
+	private static final int INITIAL_HASH_HISTORY_CAPACITY = 128;
+	
+
+	/**
+	 * The state of the board as a Forsyth–Edwards Notation (FEN) string, or {@code null} if it 
+	 * has not been generated since the last change to the pieces. See {@code getFenString}.
+	 */
+	private String fenString;
+	/** The turn and castling rights (as packed by {@code fenStateFlags}) of {@code fenString}. */
+	private int fenStateFlags;
+	/** The en passant tile of {@code fenString}. */
+	private Coordinate fenEnPassantTile;
+	/** The number of halfmoves of {@code fenString}. */
+	private int fenHalfmoves;
+	/** The number of fullmoves of {@code fenString}. */
+	private int fenFullmoves;
+	/** Bitboards of the tiles occupied by each kind of piece, indexed by {@code Piece.getIndex}. */
+	private long[] pieceBoards;
+	/** Bitboards of the tiles occupied by any white piece (index 0) or black piece (index 1). */
+	private long[] colorBoards;
+	/** The piece on each square, indexed as defined by {@code engine.util.Bitboard}. */
+	private Piece[] tiles; // Private fields, explained more in getPiece(Coordinate)
 
 	/** Whether it is the white player's turn to move. */
 	public boolean whiteToMove;
@@ -80,10 +103,36 @@ public class BoardInfo implements Serializable {
 	/** The running total of fullmoves made. Incremented after the black player's turn. */
 	public int fullmoves;
 
-	/** A mapping of all the FEN strings and the number of times they occured during the game. */
-	public Map<String, Integer> threefoldRepetitionTracker;
-	/** A list of tiles controlled by the enemy player. */
-	public List<Coordinate> tilesOpponentControls;
+	/** The Zobrist hash of the pieces on the board, updated by every call to {@code setPiece}. */
+	private long pieceHash;
+	/** The midgame score of the pieces on the board, updated by every call to {@code setPiece}. */
+	private int midgameScore;
+	/** The endgame score of the pieces on the board, updated by every call to {@code setPiece}. */
+	private int endgameScore;
+	/** The game phase of the pieces on the board, updated by every call to {@code setPiece}. */
+	private int phase;
+	/** The Zobrist hash of the full position, as of the last move made. */
+	private long hash;
+	/**
+	 * The hashes of every position reached during the game, in order, used to detect threefold 
+	 * repetition. Only the first {@code hashHistorySize} elements are in use.
+	 */
+	private long[] hashHistory;
+	/** The number of hashes in use in {@code hashHistory}. */
+	private int hashHistorySize;
+	/**
+	 * Whether {@code hashHistory} may be referenced by another {@code BoardInfo} object. Copies 
+	 * share the history until one of them records a new position, at which point that object 
+	 * takes its own copy of the array (copy-on-write).
+	 */
+	private boolean hashHistoryShared;
+	/**
+	 * Bitboards of the tiles attacked by the white player (index 0) and black player (index 1). 
+	 * Each bitboard is computed on first use and discarded whenever a piece is changed.
+	 */
+	private long[] attackBoards;
+	/** Whether each of the bitboards in {@code attackBoards} is up to date. */
+	private boolean[] attackBoardsValid;
 
 
 	/**
@@ -122,7 +171,17 @@ public class BoardInfo implements Serializable {
 		if (fullmoves < 0)
 			throw new IllegalArgumentException("fullmoves was negative: " + fullmoves);
 		
-		this.tiles = tiles;
+		this.pieceBoards = new long[Piece.NUM_KINDS];
+		this.colorBoards = new long[2];
+		this.tiles = new Piece[64];
+		this.attackBoards = new long[2];
+		this.attackBoardsValid = new boolean[2];
+		for (int y = 0; y < 8; y++) {
+			if (tiles[y].length != 8)
+				throw new IllegalArgumentException("tiles is not an 8x8 array");
+			for (int x = 0; x < 8; x++)
+				this.setPiece(Bitboard.square(x, y), tiles[y][x]);
+		}
 		
 		this.whiteToMove = whiteToMove;
 
@@ -135,29 +194,100 @@ public class BoardInfo implements Serializable {
 		this.halfmoves = halfmoves;
 		this.fullmoves = fullmoves;
 		
-		this.threefoldRepetitionTracker = new HashMap<>();
-		this.tilesOpponentControls = new ArrayList<>();
-
-		this.fenString = FenUtility.fenFromInformation(this);
+		this.hashHistory = new long[BoardInfo.INITIAL_HASH_HISTORY_CAPACITY];
+		this.hashHistorySize = 0;
 
 		this.update();
 	}
 
 
+	/**
+	 * Constructs a new {@code BoardInfo} object as a copy of another. The copy is independent of 
+	 * the original: changes made to either object are not seen by the other.
+	 *
+	 * @param other  the {@code BoardInfo} object to copy.
+	 *
+	 * @throws NullPointerException  if {@code other == null}.
+	 *
+	 * @see copyFrom
+	 */
+	public BoardInfo(BoardInfo other) {
+		if (other == null)
+			throw new NullPointerException("other was null");
+
+		this.pieceBoards = new long[Piece.NUM_KINDS];
+		this.colorBoards = new long[2];
+		this.tiles = new Piece[64];
+		this.attackBoards = new long[2];
+		this.attackBoardsValid = new boolean[2];
+		this.copyFrom(other);
+	}
+
+
+	/**
+	 * Sets the state of this {@code BoardInfo} object to be identical to another, reusing the 
+	 * arrays already held by this object. This allows a single instance to be reused as the 
+	 * target of many copies (for example, once per node of a search) without any allocation.
+	 * <p>
+	 * The hash history used to detect threefold repetition is shared between the two objects 
+	 * rather than copied. Whichever object next records a position will first take its own copy 
+	 * of the history, so the history of one object is never changed by the other.
+	 *
+	 * @param other  the {@code BoardInfo} object to copy.
+	 *
+	 * @throws NullPointerException  if {@code other == null}.
+	 */
+	public void copyFrom(BoardInfo other) {
+		if (other == null)
+			throw new NullPointerException("other was null");
+		if (other == this)
+			return;
+
+		System.arraycopy(other.pieceBoards, 0, this.pieceBoards, 0, Piece.NUM_KINDS);
+		System.arraycopy(other.colorBoards, 0, this.colorBoards, 0, 2);
+		System.arraycopy(other.tiles, 0, this.tiles, 0, 64);
+		System.arraycopy(other.attackBoards, 0, this.attackBoards, 0, 2);
+		System.arraycopy(other.attackBoardsValid, 0, this.attackBoardsValid, 0, 2);
+
+		this.fenString = other.fenString;
+		this.fenStateFlags = other.fenStateFlags;
+		this.fenEnPassantTile = other.fenEnPassantTile;
+		this.fenHalfmoves = other.fenHalfmoves;
+		this.fenFullmoves = other.fenFullmoves;
+		this.whiteToMove = other.whiteToMove;
+
+		this.castleK = other.castleK;
+		this.castleQ = other.castleQ;
+		this.castlek = other.castlek;
+		this.castleq = other.castleq;
+
+		this.enPassantTile = other.enPassantTile;
+		this.halfmoves = other.halfmoves;
+		this.fullmoves = other.fullmoves;
+
+		this.pieceHash = other.pieceHash;
+		this.midgameScore = other.midgameScore;
+		this.endgameScore = other.endgameScore;
+		this.phase = other.phase;
+		this.hash = other.hash;
+		this.hashHistory = other.hashHistory;
+		this.hashHistorySize = other.hashHistorySize;
+		this.hashHistoryShared = true;
+		other.hashHistoryShared = true;
+	}
+
+
 	/**
 	 * Retrieves a piece from the board given a valid coordinate on the board. The {@code tiles} 
-	 * field of this class, which is accessed by this method, if the only private field. This is 
-	 * done to avoid confusion with row vs column major ordering. This method makes getting pieces 
-	 * easier through the {@code Coordinate} class.
+	 * field of this class, which is accessed by this method, is private along with the bitboards 
+	 * it mirrors. This is done to keep the two representations consistent and to avoid confusion 
+	 * with the square indexing. This method makes getting pieces easier through the 
+	 * {@code Coordinate} class.
 	 * <p>
 	 * The X/Y coordinate system (used by the {@code Coordinate} class, where the chess board 
-	 * represents quadrant I on the cartesian plane with the origin (0, 0) at A1) is in 
-	 * column-major order.
-	 * <p>
-	 * The access into the {@code tiles} array is in row-major order. The correct access for a 
-	 * piece on the tile A4 (x=0, y=3) for example would be:
-	 * <p>
-	 * {@code tiles[3][0]}
+	 * represents quadrant I on the cartesian plane with the origin (0, 0) at A1) is converted to 
+	 * a square index by {@code Bitboard.square(Coordinate)}. The piece on the tile A4 
+	 * (x=0, y=3) for example is stored at index {@code 3 * 8 + 0 = 24}.
 	 *
 	 * @param c  the coordinate of the requested piece.
 	 *
@@ -171,7 +301,22 @@ public class BoardInfo implements Serializable {
 	public Piece getPiece(Coordinate c) {
 		if (c == null || !c.isValidTile())
 			throw new IllegalArgumentException("c is null or invalid: " + c);
-		return this.tiles[c.getY()][c.getX()];
+		return this.tiles[Bitboard.square(c)];
+	}
+
+
+	/**
+	 * Retrieves a piece from the board given a square index. No validation is done on the 
+	 * argument.
+	 *
+	 * @param square  the square index of the requested piece, on the interval [0, 63].
+	 *
+	 * @return the piece on the requested square, or {@code null} if no piece exists.
+	 *
+	 * @see getPiece(Coordinate)
+	 */
+	public Piece getPiece(int square) {
+		return this.tiles[square];
 	}
 
 
@@ -191,7 +336,264 @@ public class BoardInfo implements Serializable {
 		if (c == null || !c.isValidTile())
 			throw new IllegalArgumentException("c is null or invalid: " + c);
 		
-		this.tiles[c.getY()][c.getX()] = p;
+		this.setPiece(Bitboard.square(c), p);
+	}
+
+
+	/**
+	 * Sets the piece on a given square index, updating the bitboards, the hash of the pieces, and 
+	 * the evaluation scores of the pieces. No validation is done on the square index. Pieces 
+	 * whose type or color is {@code NONE} are stored for {@code getPiece}, but are not 
+	 * represented in any bitboard.
+	 *
+	 * @param square  the square index of the tile to set, on the interval [0, 63].
+	 * @param p       the piece to place, or {@code null} to clear the tile.
+	 *
+	 * @see setPiece(Coordinate, Piece)
+	 */
+	public void setPiece(int square, Piece p) {
+		long mask = Bitboard.mask(square);
+
+		// Remove the existing piece from its bitboards
+		Piece existing = this.tiles[square];
+		if (existing != null && existing.getIndex() != -1) {
+			this.pieceBoards[existing.getIndex()] &= ~mask;
+			this.colorBoards[existing.isWhite() ? 0 : 1] &= ~mask;
+			this.pieceHash ^= Zobrist.pieceKey(existing.getIndex(), square);
+			this.midgameScore -= PieceSquareTables.midgameValue(existing.getIndex(), square);
+			this.endgameScore -= PieceSquareTables.endgameValue(existing.getIndex(), square);
+			this.phase -= PieceSquareTables.phaseWeight(existing.getIndex());
+		}
+
+		// Add the new piece to its bitboards
+		this.tiles[square] = p;
+		this.attackBoardsValid[0] = false;
+		this.attackBoardsValid[1] = false;
+		this.fenString = null;
+		if (p != null && p.getIndex() != -1) {
+			this.pieceBoards[p.getIndex()] |= mask;
+			this.colorBoards[p.isWhite() ? 0 : 1] |= mask;
+			this.pieceHash ^= Zobrist.pieceKey(p.getIndex(), square);
+			this.midgameScore += PieceSquareTables.midgameValue(p.getIndex(), square);
+			this.endgameScore += PieceSquareTables.endgameValue(p.getIndex(), square);
+			this.phase += PieceSquareTables.phaseWeight(p.getIndex());
+		}
+	}
+
+
+	/**
+	 * Returns the state of the board as a Forsyth–Edwards Notation (FEN) string.
+	 * <p>
+	 * The string is generated the first time it is requested and reused until the position 
+	 * changes, so positions that are never inspected (such as those visited by a search) never 
+	 * pay for it. Changing any piece discards the string. The public state fields (the turn, 
+	 * castling rights, en passant tile, and move counters) may be changed directly, so their 
+	 * values are recorded with the string and compared on each call, and the string is 
+	 * regenerated if any differ. A stale FEN string can therefore never be returned.
+	 *
+	 * @return the state of the board as a FEN string.
+	 *
+	 * @see engine.fen.FenUtility#fenFromInformation
+	 */
+	public String getFenString() {
+		int stateFlags = this.fenStateFlags();
+		if (this.fenString == null ||
+			this.fenStateFlags != stateFlags ||
+			!Objects.equals(this.fenEnPassantTile, this.enPassantTile) ||
+			this.fenHalfmoves != this.halfmoves ||
+			this.fenFullmoves != this.fullmoves)
+		{
+			this.fenString = FenUtility.fenFromInformation(this);
+			this.fenStateFlags = stateFlags;
+			this.fenEnPassantTile = this.enPassantTile;
+			this.fenHalfmoves = this.halfmoves;
+			this.fenFullmoves = this.fullmoves;
+		}
+		return this.fenString;
+	}
+
+
+	/**
+	 * Packs the turn and castling rights into the bits of an {@code int}, so they can be 
+	 * compared with those of the memoized FEN string at once.
+	 *
+	 * @return the turn and castling rights as bit flags.
+	 */
+	private int fenStateFlags() {
+		return (this.whiteToMove ? 1 : 0) | (this.castleK ? 2 : 0) | (this.castleQ ? 4 : 0) |
+			(this.castlek ? 8 : 0) | (this.castleq ? 16 : 0);
+	}
+
+
+	/**
+	 * Returns the Zobrist hash of this position. The hash includes the pieces on the board, the 
+	 * player to move, the castling rights, and the en passant file (if an en passant capture is 
+	 * possible). Two positions that are the same under the threefold repetition rule have the 
+	 * same hash.
+	 * <p>
+	 * The hash is maintained incrementally as moves are made and unmade, and is updated by 
+	 * {@code updateAfterMove}. Changes made directly to the public fields of this class are 
+	 * reflected after the next call to {@code updateAfterMove}.
+	 *
+	 * @return the Zobrist hash of this position.
+	 *
+	 * @see engine.board.Zobrist
+	 */
+	public long getHash() {
+		return this.hash;
+	}
+
+
+	/**
+	 * Returns the midgame score of the pieces on the board, as defined by 
+	 * {@code PieceSquareTables.midgameValue}. The score is maintained incrementally by 
+	 * {@code setPiece}.
+	 *
+	 * @return the midgame score of the pieces on the board, from the perspective of the white 
+	 *         player.
+	 */
+	public int getMidgameScore() {
+		return this.midgameScore;
+	}
+
+
+	/**
+	 * Returns the endgame score of the pieces on the board, as defined by 
+	 * {@code PieceSquareTables.endgameValue}. The score is maintained incrementally by 
+	 * {@code setPiece}.
+	 *
+	 * @return the endgame score of the pieces on the board, from the perspective of the white 
+	 *         player.
+	 */
+	public int getEndgameScore() {
+		return this.endgameScore;
+	}
+
+
+	/**
+	 * Returns the game phase of the pieces on the board, as defined by 
+	 * {@code PieceSquareTables.phaseWeight}. The phase is maintained incrementally by 
+	 * {@code setPiece}.
+	 *
+	 * @return the game phase of the pieces on the board.
+	 */
+	public int getPhase() {
+		return this.phase;
+	}
+
+
+	/**
+	 * Returns the number of times the current position has occured since the last irreversible 
+	 * move (a capture or pawn move, as tracked by {@code halfmoves}), including the current 
+	 * occurence. Only every second position in the history can be the same as the current 
+	 * position, as the player to move must match, so only those positions are compared.
+	 *
+	 * @return the number of times the current position has occured, which is at least 1.
+	 */
+	public int getRepetitionCount() {
+		int count = 1;
+		int oldest = Math.max(0, this.hashHistorySize - 1 - this.halfmoves);
+		for (int i = this.hashHistorySize - 3; i >= oldest; i -= 2) {
+			if (this.hashHistory[i] == this.hash)
+				count++;
+		}
+		return count;
+	}
+
+
+	/**
+	 * Returns the bitboard of tiles occupied by pieces of a given type and color.
+	 *
+	 * @param type   the type of piece. Must not be {@code Piece.Type.NONE}.
+	 * @param white  whether to return the bitboard of the white (or black) pieces.
+	 *
+	 * @return the bitboard of tiles occupied by pieces of the given type and color.
+	 */
+	public long getPieceBoard(Piece.Type type, boolean white) {
+		return this.pieceBoards[(white ? 0 : Piece.NUM_TYPES) + type.ordinal() - 1];
+	}
+
+
+	/**
+	 * Returns the bitboard of tiles occupied by any piece of a given color.
+	 *
+	 * @param white  whether to return the bitboard of the white (or black) pieces.
+	 *
+	 * @return the bitboard of tiles occupied by any piece of the given color.
+	 */
+	public long getColorBoard(boolean white) {
+		return this.colorBoards[white ? 0 : 1];
+	}
+
+
+	/**
+	 * Returns the bitboard of tiles occupied by any piece.
+	 *
+	 * @return the bitboard of tiles occupied by any piece.
+	 */
+	public long getOccupied() {
+		return this.colorBoards[0] | this.colorBoards[1];
+	}
+
+
+	/**
+	 * Returns the bitboard of tiles attacked by a player. A tile is attacked if a piece of the 
+	 * player could capture an enemy piece on that tile, ignoring whether the capture would leave 
+	 * the player in check. This includes tiles occupied by the player's own pieces.
+	 * <p>
+	 * The attacks of each player are generated the first time they are requested after a piece 
+	 * changes, and then reused by every later query until the next change.
+	 *
+	 * @param white  whether to return the tiles attacked by the white (or black) player.
+	 *
+	 * @return the bitboard of tiles attacked by the player.
+	 *
+	 * @see engine.move.MoveGenerator#generateAttacks
+	 */
+	public long getAttacks(boolean white) {
+		int index = white ? 0 : 1;
+		if (!this.attackBoardsValid[index]) {
+			this.attackBoards[index] = MoveGenerator.generateAttacks(this, white);
+			this.attackBoardsValid[index] = true;
+		}
+		return this.attackBoards[index];
+	}
+
+
+	/**
+	 * Determines whether a square is attacked by a player.
+	 *
+	 * @param square   the square index to check, on the interval [0, 63].
+	 * @param byWhite  whether to check for attacks by the white (or black) player.
+	 *
+	 * @return true if the square is attacked by the player.
+	 *
+	 * @see getAttacks
+	 */
+	public boolean isAttacked(int square, boolean byWhite) {
+		return (this.getAttacks(byWhite) & Bitboard.mask(square)) != 0;
+	}
+
+
+	/**
+	 * Determines whether a tile is attacked by the player of a given color.
+	 *
+	 * @param c      the coordinate of the tile to check.
+	 * @param color  the color of the attacking player.
+	 *
+	 * @return true if the tile is attacked by the player. If {@code color} is 
+	 *         {@code Piece.Color.NONE}, false is returned.
+	 *
+	 * @throws IllegalArgumentException  if {@code c == null} or {@code !(c.isValidTile())}.
+	 *
+	 * @see getAttacks
+	 */
+	public boolean isAttacked(Coordinate c, Piece.Color color) {
+		if (c == null || !c.isValidTile())
+			throw new IllegalArgumentException("c is null or invalid: " + c);
+		if (color == null || color == Piece.Color.NONE)
+			return false;
+		return this.isAttacked(Bitboard.square(c), color == Piece.Color.WHITE);
 	}
 
 
@@ -213,7 +615,11 @@ public class BoardInfo implements Serializable {
 		List<Coordinate> tilesWithPiece = new ArrayList<>();
 		if (piece == null)
 			return tilesWithPiece;
-		
+		if (piece.getIndex() != -1)
+			return Bitboard.toCoordinates(this.pieceBoards[piece.getIndex()]);
+
+		// Pieces without a bitboard (those with a type or color of NONE) are found by searching
+		// every tile
 		for (Coordinate c : Coordinate.getAllValidCoordinates()) {
 			Piece pieceOnTile = this.getPiece(c);
 			// Search through every valid coordinate and use the equals() method of the piece
@@ -235,22 +641,37 @@ public class BoardInfo implements Serializable {
 	 * @see engine.board.BoardInfo.State
 	 */
 	public BoardInfo.State inferState() {
+		return this.inferState(false);
+	}
+
+
+	/**
+	 * Determines the state of the game. This method does not modify any properties of this 
+	 * {@code BoardInfo} object, it only accesses them.
+	 *
+	 * @param drops  whether captured pieces can be dropped back onto the board, as in crazyhouse 
+	 *               and bughouse. Material never runs out when they can, so the game is never 
+	 *               drawn by insufficient material.
+	 *
+	 * @return a property of the {@code BoardInfo.State} enumerator.
+	 *
+	 * @see engine.board.BoardInfo.State
+	 */
+	public BoardInfo.State inferState(boolean drops) {
 		// Get information about the tile the king is on. If there is not exactly 1 king piece
 		// for the current player then no state can be inferred, so assume the game is ongoing
-		Piece.Color kingColor = (this.whiteToMove) ? Piece.Color.WHITE : Piece.Color.BLACK;
-		Piece kingPiece = new Piece(Piece.Type.KING, kingColor);
-		List<Coordinate> kingTiles = this.getTilesWithPiece(kingPiece);
-		if (kingTiles.size() != 1)
+		long kingBoard = this.getPieceBoard(Piece.Type.KING, this.whiteToMove);
+		if (Bitboard.count(kingBoard) != 1)
 			return BoardInfo.State.ONGOING;
 
 		// Get the information needed to determine the state of the game:
-		//  - The number of legal moves for the current player, to determine check vs checkmate,
+		//  - Whether the current player has any legal moves, to determine check vs checkmate,
 		//    and for stalemate
 		//  - The tile the king is on, to determine if the king is under attack
 		//  - Whether the king is in check
-		int numLegalMoves = MoveGenerator.generateLegalMoves(this).size();
-		Coordinate kingTile = kingTiles.get(0);
-		boolean inCheck = this.tilesOpponentControls.contains(kingTile);
+		boolean hasLegalMove = MoveGenerator.hasAnyLegalMove(this);
+		int kingSquare = Bitboard.first(kingBoard);
+		boolean inCheck = this.isAttacked(kingSquare, !this.whiteToMove);
 
 		// Combinations of states:
 		//  - Win for black: the white player has no legal moves and is in check
@@ -259,27 +680,56 @@ public class BoardInfo implements Serializable {
 		//    which player's turn it is, as the final state of the game is a draw)
 		//  - 50 move rule: the number of halfmoves since the last pawn move or piece
 		//    capture is >= 50
-		//  - Repetition: the same board layout has occured >= 3 times throughout the game
+		//  - Repetition: the current position has occured >= 3 times since the last pawn move
+		//    or piece capture
+		//  - Material: neither player can checkmate by any sequence of moves, and no piece can
+		//    be dropped onto the board
 		//  - Ongoing: none of the above sets of conditions are true
-		if (numLegalMoves == 0 && inCheck && this.whiteToMove)
+		if (!hasLegalMove && inCheck && this.whiteToMove)
 			return BoardInfo.State.WIN_BLACK;
-		else if (numLegalMoves == 0 && inCheck && !this.whiteToMove)
+		else if (!hasLegalMove && inCheck && !this.whiteToMove)
 			return BoardInfo.State.WIN_WHITE;
-		else if (numLegalMoves == 0 && !inCheck)
+		else if (!hasLegalMove && !inCheck)
 			return BoardInfo.State.DRAW_STALEMATE;
 		else if (this.halfmoves >= 50)
 			return BoardInfo.State.DRAW_FIFTY_MOVE;
-		else {
-			for (int numOccurences : this.threefoldRepetitionTracker.values()) {
-				if (numOccurences >= 3)
-					return BoardInfo.State.DRAW_REPETITION;
-			}
-		}
+		else if (this.getRepetitionCount() >= 3)
+			return BoardInfo.State.DRAW_REPETITION;
+		else if (!drops && this.isInsufficientMaterial())
+			return BoardInfo.State.DRAW_MATERIAL;
 
 		return BoardInfo.State.ONGOING;
 	}
 
 
+	/**
+	 * Determines whether neither player has the material to checkmate: there are no pawns,
+	 * rooks, or queens, and either there is at most one knight or bishop, or every piece other
+	 * than the kings is a bishop on tiles of the same color.
+	 *
+	 * @return whether neither player has the material to checkmate.
+	 */
+	public boolean isInsufficientMaterial() {
+		long heavy = Bitboard.EMPTY;
+		long bishops = Bitboard.EMPTY;
+		for (boolean white : new boolean[] {true, false}) {
+			heavy |= this.getPieceBoard(Piece.Type.PAWN, white) |
+				this.getPieceBoard(Piece.Type.ROOK, white) |
+				this.getPieceBoard(Piece.Type.QUEEN, white);
+			bishops |= this.getPieceBoard(Piece.Type.BISHOP, white);
+		}
+		if (heavy != Bitboard.EMPTY)
+			return false;
+
+		long minors = this.getOccupied() & ~this.getPieceBoard(Piece.Type.KING, true) &
+			~this.getPieceBoard(Piece.Type.KING, false);
+		if (Bitboard.count(minors) <= 1)
+			return true;
+		return minors == bishops &&
+			((bishops & Bitboard.LIGHT_TILES) == 0 || (bishops & ~Bitboard.LIGHT_TILES) == 0);
+	}
+
+
 	/**
 	 * Updates the properties of this object after a move has been made. 
 	 * <p>
@@ -308,65 +758,68 @@ public class BoardInfo implements Serializable {
 	}
 
 
+	/**
+	 * Reverts the properties changed by {@code updateAfterMove}. This method is used by 
+	 * {@code Board.unmakeMove} after the pieces of the unmade move have been restored.
+	 * <p>
+	 * The occurence of the current position is removed from the hash history, the player and 
+	 * number of fullmoves are reverted, and the hash is set back to the value it had before the 
+	 * move was made.
+	 *
+	 * @param previousHash  the hash before the move was made.
+	 */
+	void revertAfterMove(long previousHash) {
+		// Remove this position from the hash history. The array itself is not modified, so this
+		// is safe even if the history is shared
+		if (this.hashHistorySize > 0)
+			this.hashHistorySize--;
+		this.hash = previousHash;
+
+		// Revert turn and fullmoves (incremented when the black player made the move)
+		this.whiteToMove = !this.whiteToMove;
+		if (!this.whiteToMove)
+			this.fullmoves--;
+	}
+
+
 	/**
 	 * Updates internal data structures. To update move-related properties (e.g. current player), 
 	 * call {@code updateAfterMove} which also calls this routine.
 	 * <p>
 	 * This method updates the following:
 	 * <ul>
-	 * <li> The list of tiles controlled by the opponent player
-	 * <li> The FEN string
-	 * <li> The threefold repetition tracker
+	 * <li> The Zobrist hash, which is also added to the hash history
 	 * </ul>
+	 * <p>
+	 * The FEN string is not generated here. It is generated on demand by {@code getFenString}.
 	 */
 	private void update() {
-		// Update tilesOpponentControls
-		BoardInfo opponentInfo = (BoardInfo) this.clone();
-		opponentInfo.whiteToMove = !this.whiteToMove;
-	    this.tilesOpponentControls = MoveGenerator.generateTilesControlled(opponentInfo);
-
-		// Update fen string
-		this.fenString = FenUtility.fenFromInformation(this);
-
-		// Update threefold repetition
-		// Position part (first element) of fen string
-		String posString = this.fenString.split(" ")[0];
-		if (this.threefoldRepetitionTracker.containsKey(posString)) {
-			int numOccurences = this.threefoldRepetitionTracker.get(posString);
-			this.threefoldRepetitionTracker.put(posString, numOccurences + 1);
+		// Update hash and add it to the history. If the history is shared with a copy of this
+		// object or is full, take a private (larger if needed) copy before modifying it
+		this.hash = this.pieceHash ^ Zobrist.stateKey(this);
+		if (this.hashHistoryShared || this.hashHistorySize == this.hashHistory.length) {
+			int capacity = this.hashHistory.length;
+			if (this.hashHistorySize == capacity)
+				capacity *= 2;
+			this.hashHistory = Arrays.copyOf(this.hashHistory, capacity);
+			this.hashHistoryShared = false;
 		}
-		else
-			this.threefoldRepetitionTracker.put(posString, 1);
+		this.hashHistory[this.hashHistorySize++] = this.hash;
 	}
 
 
 	/**
-	 * Returns a deep-copy of this {@code BoardInfo} object.
+	 * Returns a deep-copy of this {@code BoardInfo} object. Identical to 
+	 * {@code new BoardInfo(this)}.
 	 *
 	 * @return a deep-copy of this {@code BoardInfo} object. The returned type is {@code Object}, 
-	 *         but is guaranteed to be castable to {@code BoardInfo} if not null. Upon any error, 
-	 *         {@code null} is returned.
+	 *         but is guaranteed to be castable to {@code BoardInfo}.
+	 *
+	 * @see BoardInfo(BoardInfo)
 	 */
 	@Override
 	public Object clone() {
-		try {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			ObjectOutputStream oos = new ObjectOutputStream(bos);
-			oos.writeObject(this);
-			oos.flush();
-			oos.close();
-			bos.close();
-
-			byte[] byteData = bos.toByteArray();
-			ByteArrayInputStream bis = new ByteArrayInputStream(byteData);
-			Object obj = new ObjectInputStream(bis).readObject();
-
-			return obj;
-		}
-		catch (IOException | ClassNotFoundException e) {
-			e.printStackTrace();
-			return null;
-		}
+		return new BoardInfo(this);
 	}
 
 
@@ -396,11 +849,11 @@ public class BoardInfo implements Serializable {
 	 */
 	@Override
 	public String toString() {
-		String toString = FenUtility.fenFromInformation(this) + "\n";
+		String toString = this.getFenString() + "\n";
 
 		for (int y = 7; y >= 0; y--) {
 			for (int x = 0; x < 8; x++) {
-				Piece piece = this.getPiece(new Coordinate(x, y));
+				Piece piece = this.getPiece(Bitboard.square(x, y));
 				if (piece == null)
 					toString += ". ";
 				else
@@ -0,0 +1,144 @@
+package engine.board;
+
+
+import engine.util.Bitboard;
+import engine.move.Attacks;
+import engine.piece.Piece;
+
+
+/**
+ * Random keys for Zobrist hashing of board positions. The hash of a position is the XOR of one
+ * key for each piece on each square, plus keys for the side to move, the castling rights, and
+ * the file of the en passant tile. Because XOR is its own inverse, the hash can be updated
+ * incrementally as pieces are added and removed.
+ * <p>
+ * The keys are generated from a fixed seed, so hashes are the same between runs of the program.
+ *
+ * @see engine.board.BoardInfo#getHash
+ *
+ * @author Jonathan Uhler
+ */
+public class Zobrist {
+
+	/** The seed used to generate all keys. */
+	private static final long SEED = 0x4A6F6E6174686E55L;
+
+	/** Keys for each kind of piece (indexed by {@code Piece.getIndex}) on each square. */
+	private static final long[][] PIECE_KEYS = new long[Piece.NUM_KINDS][64];
+	/** Keys for each combination of castling rights, indexed by {@code KQkq} as 4 bits. */
+	private static final long[] CASTLING_KEYS = new long[16];
+	/** Keys for the file of the en passant tile. */
+	private static final long[] EN_PASSANT_KEYS = new long[8];
+	/** Key included in the hash when it is the black player's turn to move. */
+	private static final long BLACK_TO_MOVE_KEY;
+
+
+	static {
+		// SplitMix64, a small generator with good statistical properties for this purpose
+		long state = Zobrist.SEED;
+		long[] castlingRightKeys = new long[4];
+		for (int i = 0; i < Piece.NUM_KINDS; i++) {
+			for (int square = 0; square < 64; square++) {
+				state += 0x9E3779B97F4A7C15L;
+				Zobrist.PIECE_KEYS[i][square] = Zobrist.mix(state);
+			}
+		}
+		for (int i = 0; i < 4; i++) {
+			state += 0x9E3779B97F4A7C15L;
+			castlingRightKeys[i] = Zobrist.mix(state);
+		}
+		for (int file = 0; file < 8; file++) {
+			state += 0x9E3779B97F4A7C15L;
+			Zobrist.EN_PASSANT_KEYS[file] = Zobrist.mix(state);
+		}
+		state += 0x9E3779B97F4A7C15L;
+		BLACK_TO_MOVE_KEY = Zobrist.mix(state);
+
+		// Each combination of castling rights is the XOR of the keys for the individual rights
+		for (int rights = 0; rights < 16; rights++) {
+			for (int i = 0; i < 4; i++) {
+				if ((rights & (1 << i)) != 0)
+					Zobrist.CASTLING_KEYS[rights] ^= castlingRightKeys[i];
+			}
+		}
+	}
+
+
+	/**
+	 * The output function of the SplitMix64 generator.
+	 *
+	 * @param z  the generator state.
+	 *
+	 * @return a pseudo-random number derived from the state.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+
+	/**
+	 * Returns the key for a piece on a square.
+	 *
+	 * @param index   the index of the piece, as returned by {@code Piece.getIndex}.
+	 * @param square  the square index of the piece.
+	 *
+	 * @return the key for a piece on a square.
+	 */
+	public static long pieceKey(int index, int square) {
+		return Zobrist.PIECE_KEYS[index][square];
+	}
+
+
+	/**
+	 * Returns the part of the hash that does not depend on the pieces on the board: the side to
+	 * move, the castling rights, and the en passant file. The en passant file is only included
+	 * when a pawn of the player to move could capture onto the en passant tile, so positions
+	 * that only differ by an unusable en passant tile hash the same (as they are the same
+	 * position under the threefold repetition rule).
+	 *
+	 * @param boardInfo  the {@code BoardInfo} object to hash.
+	 *
+	 * @return the part of the hash that does not depend on the pieces on the board.
+	 */
+	public static long stateKey(BoardInfo boardInfo) {
+		long key = Bitboard.EMPTY;
+		if (!boardInfo.whiteToMove)
+			key ^= Zobrist.BLACK_TO_MOVE_KEY;
+
+		int rights = (boardInfo.castleK ? 1 : 0) | (boardInfo.castleQ ? 2 : 0) |
+			(boardInfo.castlek ? 4 : 0) | (boardInfo.castleq ? 8 : 0);
+		key ^= Zobrist.CASTLING_KEYS[rights];
+
+		if (boardInfo.enPassantTile != null && boardInfo.enPassantTile.isValidTile()) {
+			int square = Bitboard.square(boardInfo.enPassantTile);
+			long capturers = Attacks.pawnAttacks(square, !boardInfo.whiteToMove) &
+				boardInfo.getPieceBoard(Piece.Type.PAWN, boardInfo.whiteToMove);
+			if (capturers != 0)
+				key ^= Zobrist.EN_PASSANT_KEYS[square & 7];
+		}
+
+		return key;
+	}
+
+
+	/**
+	 * Computes the full hash of a position from scratch. {@code BoardInfo} objects maintain
+	 * their hash incrementally, so this method is only needed to verify that hash.
+	 *
+	 * @param boardInfo  the {@code BoardInfo} object to hash.
+	 *
+	 * @return the hash of the position.
+	 */
+	public static long hash(BoardInfo boardInfo) {
+		long key = Zobrist.stateKey(boardInfo);
+		for (int square = 0; square < 64; square++) {
+			Piece piece = boardInfo.getPiece(square);
+			if (piece != null && piece.getIndex() != -1)
+				key ^= Zobrist.pieceKey(piece.getIndex(), square);
+		}
+		return key;
+	}
+
+}
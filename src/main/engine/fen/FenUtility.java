@@ -14,6 +14,11 @@ import engine.piece.Piece;
  */
 public class FenUtility {
 
+	/** A {@code StringBuilder} for each thread, reused by {@code fenFromInformation}. */
+	private static final ThreadLocal<StringBuilder> BUILDER =
+		ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+
 	/**
 	 * Creates a {@code BoardInfo} object from a FEN string.
 	 *
@@ -92,11 +97,11 @@ public class FenUtility {
 					break;
 				}
 
-				if (!(new Coordinate(x, y)).isValidTile())
+				if (!(Coordinate.of(x, y)).isValidTile())
 					throw new IllegalArgumentException("invalid dims, found x=" + x +
 													   ", y=" + y + ": " + fenString);
 
-				tiles[y][x] = new Piece(type, color);
+				tiles[y][x] = Piece.of(type, color);
 				x++;
 			}
 		}
@@ -126,7 +131,7 @@ public class FenUtility {
 			char epCol = enPassantStr.charAt(0);
 			int epX = epCol - 'a';
 			int epY = Character.getNumericValue(enPassantStr.charAt(1)) - 1;
-			enPassantTile = new Coordinate(epX, epY);
+			enPassantTile = Coordinate.of(epX, epY);
 			if (!enPassantTile.isValidTile())
 				enPassantTile = null;
 		}
@@ -146,57 +151,80 @@ public class FenUtility {
 
 	/**
 	 * Creates a FEN {@code String} object from a {@code BoardInfo} object.
+	 * <p>
+	 * The string is assembled in a {@code StringBuilder} that is reused by every call made on the 
+	 * same thread, so the only allocation is the returned string.
 	 *
 	 * @param boardInfo  the {@code BoardInfo} object to convert to a FEN string.
 	 *
 	 * @return a {@code String} object.
 	 *
 	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 *
+	 * @see appendFen
 	 */
 	public static String fenFromInformation(BoardInfo boardInfo) {
+		StringBuilder builder = FenUtility.BUILDER.get();
+		builder.setLength(0);
+		return FenUtility.appendFen(boardInfo, builder).toString();
+	}
+
+
+	/**
+	 * Appends the FEN string of a {@code BoardInfo} object to a {@code StringBuilder}.
+	 *
+	 * @param boardInfo  the {@code BoardInfo} object to convert to a FEN string.
+	 * @param builder    the {@code StringBuilder} to append to.
+	 *
+	 * @return {@code builder}, to allow chaining.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null} or {@code builder == null}.
+	 */
+	public static StringBuilder appendFen(BoardInfo boardInfo, StringBuilder builder) {
 		if (boardInfo == null)
 			throw new NullPointerException("boardInfo was null");
-		
-		String fenString = "";
+		if (builder == null)
+			throw new NullPointerException("builder was null");
 
 		// Tiles
 		for (int y = 7; y >= 0; y--) {
 			int numEmptyCols = 0;
 			for (int x = 0; x < 8; x++) {
-				Piece piece = boardInfo.getPiece(new Coordinate(x, y));
+				Piece piece = boardInfo.getPiece(Coordinate.of(x, y));
 				if (piece != null) {
 					if (numEmptyCols != 0) {
-						fenString += numEmptyCols;
+						builder.append(numEmptyCols);
 						numEmptyCols = 0;
 					}
 
-					Piece.Type pieceType = piece.getType();
-					String pieceChar = "";
-					switch (pieceType) {
+					char pieceChar = '?';
+					switch (piece.getType()) {
 					case PAWN:
-						pieceChar = "P";
+						pieceChar = 'P';
 						break;
 					case KNIGHT:
-						pieceChar = "N";
+						pieceChar = 'N';
 						break;
 					case BISHOP:
-						pieceChar = "B";
+						pieceChar = 'B';
 						break;
 					case ROOK:
-						pieceChar = "R";
+						pieceChar = 'R';
 						break;
 					case QUEEN:
-						pieceChar = "Q";
+						pieceChar = 'Q';
 						break;
 					case KING:
-						pieceChar = "K";
+						pieceChar = 'K';
+						break;
+					default:
 						break;
 					}
 
 					if (piece.isBlack())
-						pieceChar = pieceChar.toLowerCase();
+						pieceChar = Character.toLowerCase(pieceChar);
 
-					fenString += pieceChar;
+					builder.append(pieceChar);
 				}
 				else {
 					numEmptyCols++;
@@ -204,53 +232,46 @@ public class FenUtility {
 			}
 
 			if (numEmptyCols != 0)
-				fenString += numEmptyCols;
+				builder.append(numEmptyCols);
 			if (y != 0)
-				fenString += "/";
+				builder.append('/');
 		}
 
 		// Turn to play
-		fenString += " ";
-		if (boardInfo.whiteToMove)
-			fenString += "w";
-		else
-			fenString += "b";
+		builder.append(' ');
+		builder.append((boardInfo.whiteToMove) ? 'w' : 'b');
 
 		// Castling rights
-		String castlingRights = "";
+		builder.append(' ');
+		int castlingStart = builder.length();
 		if (boardInfo.castleK)
-			castlingRights += "K";
+			builder.append('K');
 		if (boardInfo.castleQ)
-			castlingRights += "Q";
+			builder.append('Q');
 		if (boardInfo.castlek)
-			castlingRights += "k";
+			builder.append('k');
 		if (boardInfo.castleq)
-			castlingRights += "q";
-
-		if (castlingRights.equals(""))
-			castlingRights = "-";
-
-		fenString += " ";
-		fenString += castlingRights;
+			builder.append('q');
+		if (builder.length() == castlingStart)
+			builder.append('-');
 
 		// En passant tile
 		Coordinate enPassantTile = boardInfo.enPassantTile;
-
-		fenString += " ";
+		builder.append(' ');
 		if (enPassantTile != null)
-			fenString += enPassantTile.toString();
+			builder.append(enPassantTile.toString());
 		else
-			fenString += "-";
+			builder.append('-');
 
 		// Halfmoves (fifty move rule)
-		fenString += " ";
-		fenString += boardInfo.halfmoves;
+		builder.append(' ');
+		builder.append(boardInfo.halfmoves);
 
 		// Fullmoves
-		fenString += " ";
-		fenString += boardInfo.fullmoves;
+		builder.append(' ');
+		builder.append(boardInfo.fullmoves);
 
-		return fenString;
+		return builder;
 	}
 
 }
@@ -0,0 +1,448 @@
+package engine.move;
+
+
+import engine.util.Bitboard;
+import engine.util.Vector;
+
+
+/**
+ * Precomputed attack sets for each piece type. All methods of this class operate on square
+ * indices and bitboards as defined by {@code engine.util.Bitboard}, and perform no allocation.
+ * <p>
+ * Leaping pieces (pawns, knights, and kings) use a simple lookup table indexed by square. Sliding
+ * pieces (bishops, rooks, and queens) use magic bitboards: the pieces that could block a slider
+ * on a given square are masked out of the occupancy, multiplied by a "magic" number for that
+ * square, and the top bits of the product are used as an index into a table holding the attacks
+ * for every possible arrangement of blockers. The magic numbers were found ahead of time with a
+ * seeded random search (each is the AND of three xorshift64* outputs, which gives the sparse
+ * numbers that work best), so initialization only needs to fill the tables.
+ * <p>
+ * The time spent initializing the tables and the memory used by them can be queried with
+ * {@code getInitTime} and {@code getTableBytes}.
+ *
+ * @see engine.util.Bitboard
+ *
+ * @author Jonathan Uhler
+ */
+public class Attacks {
+
+	// Ray directions. Directions 0-3 increase the square index as they move away from the origin
+	// square, and directions 4-7 decrease it. This is used to decide whether the nearest blocker
+	// is the least or most significant bit of the blocked ray
+	/** Ray direction towards the eighth rank. */
+	private static final int NORTH = 0;
+	/** Ray direction towards the eighth rank and H file. */
+	private static final int NORTH_EAST = 1;
+	/** Ray direction towards the H file. */
+	private static final int EAST = 2;
+	/** Ray direction towards the eighth rank and A file. */
+	private static final int NORTH_WEST = 3;
+	/** Ray direction towards the first rank. */
+	private static final int SOUTH = 4;
+	/** Ray direction towards the first rank and A file. */
+	private static final int SOUTH_WEST = 5;
+	/** Ray direction towards the A file. */
+	private static final int WEST = 6;
+	/** Ray direction towards the first rank and H file. */
+	private static final int SOUTH_EAST = 7;
+
+	/** The x change of each ray direction. */
+	private static final int[] RAY_DX = {0, 1, 1, -1, 0, -1, -1, 1};
+	/** The y change of each ray direction. */
+	private static final int[] RAY_DY = {1, 1, 0, 1, -1, -1, 0, -1};
+
+	/** Knight attacks from each square. */
+	private static final long[] KNIGHT_ATTACKS = new long[64];
+	/** King attacks from each square. */
+	private static final long[] KING_ATTACKS = new long[64];
+	/** Pawn attacks from each square, indexed first by color (0 for white, 1 for black). */
+	private static final long[][] PAWN_ATTACKS = new long[2][64];
+	/** Unblocked rays from each square, indexed first by direction. */
+	private static final long[][] RAYS = new long[8][64];
+	/** The tiles strictly between two squares that share a rank, file, or diagonal. */
+	private static final long[][] BETWEEN = new long[64][64];
+	/** The full rank, file, or diagonal through two squares, including both squares. */
+	private static final long[][] LINE = new long[64][64];
+
+	/** The tiles that can block a bishop on each square, excluding the edges of the board. */
+	private static final long[] BISHOP_MASKS = new long[64];
+	/** The magic number used to index the bishop attack table for each square. */
+	private static final long[] BISHOP_MAGICS = {
+		0x40106000A1160020L, 0x0020010250810120L, 0x2010010220280081L,
+		0x002806004050C040L, 0x0002021018000000L, 0x2001112010000400L,
+		0x0881010120218080L, 0x1030820110010500L, 0x0000120222042400L,
+		0x2000020404040044L, 0x8000480094208000L, 0x0003422A02000001L,
+		0x000A220210100040L, 0x8004820202226000L, 0x0018234854100800L,
+		0x0100004042101040L, 0x0004001004082820L, 0x0010000810010048L,
+		0x1014004208081300L, 0x2080818802044202L, 0x0040880C00A00100L,
+		0x0080400200522010L, 0x0001000188180B04L, 0x0080249202020204L,
+		0x1004400004100410L, 0x00013100A0022206L, 0x2148500001040080L,
+		0x4241080011004300L, 0x4020848004002000L, 0x10101380D1004100L,
+		0x0008004422020284L, 0x01010A1041008080L, 0x0808080400082121L,
+		0x0808080400082121L, 0x0091128200100C00L, 0x0202200802010104L,
+		0x8C0A020200440085L, 0x01A0008080B10040L, 0x0889520080122800L,
+		0x100902022202010AL, 0x04081A0816002000L, 0x0000681208005000L,
+		0x8170840041008802L, 0x0A00004200810805L, 0x0830404408210100L,
+		0x2602208106006102L, 0x1048300680802628L, 0x2602208106006102L,
+		0x0602010120110040L, 0x0941010801043000L, 0x000040440A210428L,
+		0x0008240020880021L, 0x0400002012048200L, 0x00AC102001210220L,
+		0x0220021002009900L, 0x84440C080A013080L, 0x0001008044200440L,
+		0x0004C04410841000L, 0x2000500104011130L, 0x1A0C010011C20229L,
+		0x0044800112202200L, 0x0434804908100424L, 0x0300404822C08200L,
+		0x48081010008A2A80L
+	};
+	/** The right shift applied to the magic product for each square. */
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	/** The index of the first entry for each square in the bishop attack table. */
+	private static final int[] BISHOP_OFFSETS = new int[64];
+	/** Bishop attacks for every arrangement of blockers on every square. */
+	private static final long[] BISHOP_TABLE;
+
+	/** The tiles that can block a rook on each square, excluding the edges of the board. */
+	private static final long[] ROOK_MASKS = new long[64];
+	/** The magic number used to index the rook attack table for each square. */
+	private static final long[] ROOK_MAGICS = {
+		0x0A80004000801220L, 0x8040004010002008L, 0x2080200010008008L,
+		0x1100100008210004L, 0xC200209084020008L, 0x2100010004000208L,
+		0x0400081000822421L, 0x0200010422048844L, 0x0800800080400024L,
+		0x0001402000401000L, 0x3000801000802001L, 0x4400800800100083L,
+		0x0904802402480080L, 0x4040800400020080L, 0x0018808042000100L,
+		0x4040800080004100L, 0x0040048001458024L, 0x00A0004000205000L,
+		0x3100808010002000L, 0x4825010010000820L, 0x5004808008000401L,
+		0x2024818004000A00L, 0x0005808002000100L, 0x2100060004806104L,
+		0x0080400880008421L, 0x4062220600410280L, 0x010A004A00108022L,
+		0x0000100080080080L, 0x0021000500080010L, 0x0044000202001008L,
+		0x0000100400080102L, 0xC020128200040545L, 0x0080002000400040L,
+		0x0000804000802004L, 0x0000120022004080L, 0x010A386103001001L,
+		0x9010080080800400L, 0x8440020080800400L, 0x0004228824001001L,
+		0x000000490A000084L, 0x0080002000504000L, 0x200020005000C000L,
+		0x0012088020420010L, 0x0010010080080800L, 0x0085001008010004L,
+		0x0002000204008080L, 0x0040413002040008L, 0x0000304081020004L,
+		0x0080204000800080L, 0x3008804000290100L, 0x1010100080200080L,
+		0x2008100208028080L, 0x5000850800910100L, 0x8402019004680200L,
+		0x0120911028020400L, 0x0000008044010200L, 0x0020850200244012L,
+		0x0020850200244012L, 0x0000102001040841L, 0x140900040A100021L,
+		0x000200282410A102L, 0x000200282410A102L, 0x000200282410A102L,
+		0x4048240043802106L
+	};
+	/** The right shift applied to the magic product for each square. */
+	private static final int[] ROOK_SHIFTS = new int[64];
+	/** The index of the first entry for each square in the rook attack table. */
+	private static final int[] ROOK_OFFSETS = new int[64];
+	/** Rook attacks for every arrangement of blockers on every square. */
+	private static final long[] ROOK_TABLE;
+
+	/** The number of nanoseconds spent initializing all of the tables. */
+	private static final long INIT_TIME;
+
+
+	static {
+		long startTime = System.nanoTime();
+
+		for (int square = 0; square < 64; square++) {
+			Attacks.KNIGHT_ATTACKS[square] = Attacks.leaperAttacks(square,
+																   MoveGenerator.KNIGHT_OFFSETS);
+			Attacks.KING_ATTACKS[square] = Attacks.leaperAttacks(square,
+																 MoveGenerator.KING_OFFSETS);
+
+			int x = square & 7;
+			int y = square >>> 3;
+			for (int dx = -1; dx <= 1; dx += 2) {
+				if (x + dx < 0 || x + dx > 7)
+					continue;
+				if (y < 7)
+					Attacks.PAWN_ATTACKS[0][square] |= Bitboard.mask(square + 8 + dx);
+				if (y > 0)
+					Attacks.PAWN_ATTACKS[1][square] |= Bitboard.mask(square - 8 + dx);
+			}
+
+			for (int direction = 0; direction < 8; direction++) {
+				int rayX = x + Attacks.RAY_DX[direction];
+				int rayY = y + Attacks.RAY_DY[direction];
+				while (rayX >= 0 && rayX <= 7 && rayY >= 0 && rayY <= 7) {
+					Attacks.RAYS[direction][square] |= Bitboard.mask(Bitboard.square(rayX, rayY));
+					rayX += Attacks.RAY_DX[direction];
+					rayY += Attacks.RAY_DY[direction];
+				}
+			}
+		}
+
+		// The tiles between two squares on a ray are the ray from the first square with the ray
+		// from the second square (and the second square itself) removed. Rays are built above for
+		// every square before this loop, so the second square's ray is always available
+		for (int square = 0; square < 64; square++) {
+			for (int direction = 0; direction < 8; direction++) {
+				long ray = Attacks.RAYS[direction][square];
+				long line = ray | Attacks.RAYS[(direction + 4) % 8][square] | Bitboard.mask(square);
+				for (long targets = ray; targets != 0; targets &= targets - 1) {
+					int target = Bitboard.first(targets);
+					Attacks.BETWEEN[square][target] =
+						ray & ~Attacks.RAYS[direction][target] & ~Bitboard.mask(target);
+					Attacks.LINE[square][target] = line;
+				}
+			}
+		}
+
+		// Magic tables are built from the classical ray attacks, so the rays must exist first
+		int[] bishopDirections = {Attacks.NORTH_EAST, Attacks.NORTH_WEST,
+								  Attacks.SOUTH_EAST, Attacks.SOUTH_WEST};
+		int[] rookDirections = {Attacks.NORTH, Attacks.EAST, Attacks.SOUTH, Attacks.WEST};
+		BISHOP_TABLE = Attacks.initMagics(bishopDirections, Attacks.BISHOP_MASKS,
+										  Attacks.BISHOP_MAGICS, Attacks.BISHOP_SHIFTS,
+										  Attacks.BISHOP_OFFSETS);
+		ROOK_TABLE = Attacks.initMagics(rookDirections, Attacks.ROOK_MASKS,
+										Attacks.ROOK_MAGICS, Attacks.ROOK_SHIFTS,
+										Attacks.ROOK_OFFSETS);
+
+		INIT_TIME = System.nanoTime() - startTime;
+	}
+
+
+	/**
+	 * Builds the attack table for one type of sliding piece.
+	 * <p>
+	 * For each square, every subset of the blocker mask is enumerated with the carry-rippler 
+	 * trick, its attacks are computed with the classical ray method, and the attacks are stored 
+	 * at the index given by the magic number for that square.
+	 *
+	 * @param directions  the ray directions the piece moves in.
+	 * @param masks       the array to fill with the blocker mask for each square.
+	 * @param magics      the magic number for each square.
+	 * @param shifts      the array to fill with the shift for each square.
+	 * @param offsets     the array to fill with the table offset for each square.
+	 *
+	 * @return the attack table for the piece, indexed by {@code offsets} and the magic product.
+	 *
+	 * @throws IllegalStateException  if a magic number maps two subsets with different attacks to 
+	 *                                the same index.
+	 */
+	private static long[] initMagics(int[] directions, long[] masks, long[] magics, int[] shifts,
+									 int[] offsets)
+	{
+		// Blocker masks exclude the last tile of each ray, since a piece on the edge of the
+		// board cannot block anything behind it
+		int size = 0;
+		for (int square = 0; square < 64; square++) {
+			for (int direction : directions) {
+				long ray = Attacks.RAYS[direction][square];
+				if (ray == 0)
+					continue;
+				int edge = (direction < Attacks.SOUTH) ? Bitboard.last(ray) : Bitboard.first(ray);
+				masks[square] |= ray & ~Bitboard.mask(edge);
+			}
+			int bits = Bitboard.count(masks[square]);
+			shifts[square] = 64 - bits;
+			offsets[square] = size;
+			size += 1 << bits;
+		}
+
+		long[] table = new long[size];
+		boolean[] filled = new boolean[size];
+		for (int square = 0; square < 64; square++) {
+			long mask = masks[square];
+			long subset = 0;
+			do {
+				long attacks = Bitboard.EMPTY;
+				for (int direction : directions)
+					attacks |= Attacks.rayAttacks(direction, square, subset);
+
+				int index = offsets[square] + (int) ((subset * magics[square]) >>> shifts[square]);
+				if (filled[index] && table[index] != attacks)
+					throw new IllegalStateException("magic collision on square " + square);
+				table[index] = attacks;
+				filled[index] = true;
+
+				subset = (subset - mask) & mask;
+			} while (subset != 0);
+		}
+
+		return table;
+	}
+
+
+	/**
+	 * Returns the number of nanoseconds spent initializing the attack tables of this class.
+	 *
+	 * @return the number of nanoseconds spent initializing the attack tables.
+	 */
+	public static long getInitTime() {
+		return Attacks.INIT_TIME;
+	}
+
+
+	/**
+	 * Returns an estimate of the memory used by the attack tables of this class, in bytes. Only 
+	 * the contents of the arrays are counted, not the object headers.
+	 *
+	 * @return the number of bytes used by the attack tables.
+	 */
+	public static long getTableBytes() {
+		long longs = (long) (Attacks.KNIGHT_ATTACKS.length + Attacks.KING_ATTACKS.length) +
+			2 * 64 + 8 * 64 + 2 * 64 * 64 +
+			Attacks.BISHOP_MASKS.length + Attacks.BISHOP_MAGICS.length +
+			Attacks.ROOK_MASKS.length + Attacks.ROOK_MAGICS.length +
+			Attacks.BISHOP_TABLE.length + Attacks.ROOK_TABLE.length;
+		long ints = 4 * 64;
+		return longs * Long.BYTES + ints * Integer.BYTES;
+	}
+
+
+	/**
+	 * Builds the attack bitboard for a leaping piece on a given square.
+	 *
+	 * @param square   the square the piece is on.
+	 * @param offsets  the movement offsets of the piece.
+	 *
+	 * @return the attack bitboard.
+	 */
+	private static long leaperAttacks(int square, Vector[] offsets) {
+		long attacks = Bitboard.EMPTY;
+		int x = square & 7;
+		int y = square >>> 3;
+		for (Vector offset : offsets) {
+			int endX = x + offset.getXChange();
+			int endY = y + offset.getYChange();
+			if (endX >= 0 && endX <= 7 && endY >= 0 && endY <= 7)
+				attacks |= Bitboard.mask(Bitboard.square(endX, endY));
+		}
+		return attacks;
+	}
+
+
+	/**
+	 * Returns the attacks along a single ray, stopping at (and including) the first piece in
+	 * {@code occupied}. This is only used to build the magic bitboard tables.
+	 *
+	 * @param direction  the direction of the ray.
+	 * @param square     the square the ray starts from.
+	 * @param occupied   a bitboard of all pieces on the board.
+	 *
+	 * @return the attack bitboard for the ray.
+	 */
+	private static long rayAttacks(int direction, int square, long occupied) {
+		long attacks = Attacks.RAYS[direction][square];
+		long blockers = attacks & occupied;
+		if (blockers != 0) {
+			int blocker = (direction < Attacks.SOUTH) ?
+				Bitboard.first(blockers) :
+				Bitboard.last(blockers);
+			attacks ^= Attacks.RAYS[direction][blocker];
+		}
+		return attacks;
+	}
+
+
+	/**
+	 * Returns the tiles strictly between two squares. If the squares do not share a rank, file, or 
+	 * diagonal (or are the same square), the empty bitboard is returned.
+	 *
+	 * @param from  the first square.
+	 * @param to    the second square.
+	 *
+	 * @return the tiles strictly between {@code from} and {@code to}.
+	 */
+	public static long between(int from, int to) {
+		return Attacks.BETWEEN[from][to];
+	}
+
+
+	/**
+	 * Returns every tile on the rank, file, or diagonal that passes through two squares, 
+	 * including the tiles beyond either square. If the squares do not share a rank, file, or 
+	 * diagonal (or are the same square), the empty bitboard is returned.
+	 *
+	 * @param from  the first square.
+	 * @param to    the second square.
+	 *
+	 * @return the line through {@code from} and {@code to}.
+	 */
+	public static long line(int from, int to) {
+		return Attacks.LINE[from][to];
+	}
+
+
+	/**
+	 * Returns the tiles attacked by a knight.
+	 *
+	 * @param square  the square the knight is on.
+	 *
+	 * @return the tiles attacked by a knight on {@code square}.
+	 */
+	public static long knightAttacks(int square) {
+		return Attacks.KNIGHT_ATTACKS[square];
+	}
+
+
+	/**
+	 * Returns the tiles attacked by a king, not including castling.
+	 *
+	 * @param square  the square the king is on.
+	 *
+	 * @return the tiles attacked by a king on {@code square}.
+	 */
+	public static long kingAttacks(int square) {
+		return Attacks.KING_ATTACKS[square];
+	}
+
+
+	/**
+	 * Returns the tiles attacked (diagonally in front of) a pawn.
+	 *
+	 * @param square  the square the pawn is on.
+	 * @param white   whether the pawn is white.
+	 *
+	 * @return the tiles attacked by a pawn on {@code square}.
+	 */
+	public static long pawnAttacks(int square, boolean white) {
+		return Attacks.PAWN_ATTACKS[white ? 0 : 1][square];
+	}
+
+
+	/**
+	 * Returns the tiles attacked by a bishop. The first piece in each direction, of either
+	 * color, is included in the returned bitboard.
+	 *
+	 * @param square    the square the bishop is on.
+	 * @param occupied  a bitboard of all pieces on the board.
+	 *
+	 * @return the tiles attacked by a bishop on {@code square}.
+	 */
+	public static long bishopAttacks(int square, long occupied) {
+		long blockers = occupied & Attacks.BISHOP_MASKS[square];
+		int index = (int) ((blockers * Attacks.BISHOP_MAGICS[square]) >>>
+						   Attacks.BISHOP_SHIFTS[square]);
+		return Attacks.BISHOP_TABLE[Attacks.BISHOP_OFFSETS[square] + index];
+	}
+
+
+	/**
+	 * Returns the tiles attacked by a rook. The first piece in each direction, of either color,
+	 * is included in the returned bitboard.
+	 *
+	 * @param square    the square the rook is on.
+	 * @param occupied  a bitboard of all pieces on the board.
+	 *
+	 * @return the tiles attacked by a rook on {@code square}.
+	 */
+	public static long rookAttacks(int square, long occupied) {
+		long blockers = occupied & Attacks.ROOK_MASKS[square];
+		int index = (int) ((blockers * Attacks.ROOK_MAGICS[square]) >>>
+						   Attacks.ROOK_SHIFTS[square]);
+		return Attacks.ROOK_TABLE[Attacks.ROOK_OFFSETS[square] + index];
+	}
+
+
+	/**
+	 * Returns the tiles attacked by a queen. Identical to
+	 * {@code bishopAttacks(square, occupied) | rookAttacks(square, occupied)}.
+	 *
+	 * @param square    the square the queen is on.
+	 * @param occupied  a bitboard of all pieces on the board.
+	 *
+	 * @return the tiles attacked by a queen on {@code square}.
+	 */
+	public static long queenAttacks(int square, long occupied) {
+		return Attacks.bishopAttacks(square, occupied) | Attacks.rookAttacks(square, occupied);
+	}
+
+}
@@ -1,6 +1,7 @@
 package engine.move;
 
 
+import engine.util.Bitboard;
 import engine.util.Coordinate;
 import engine.util.Vector;
 import engine.piece.Piece;
@@ -9,12 +10,27 @@ import javax.swing.JComboBox;
 import javax.swing.JOptionPane;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Objects;
 
 
 /**
  * Represents a move from one tile to another with an optional flat to represent special moves. 
  * This class implements the {@code Serializable} interface to allow deep-copying by the 
  * {@code BoardInfo} class.
+ * <p>
+ * Inside the engine, moves are usually handled in an encoded form that packs the start square, 
+ * end square, and flag into the low 16 bits of an {@code int}:
+ * <pre>
+ * bits  0-5:   start square (see engine.util.Bitboard)
+ * bits  6-11:  end square
+ * bits 12-15:  Move.Flag ordinal
+ * </pre>
+ * Encoded moves are created and read with the static {@code encode}, {@code getStartSquare}, 
+ * {@code getEndSquare}, and {@code getFlag} methods, and can be stored without allocation in a 
+ * {@code MoveList}. They are converted to and from {@code Move} objects with {@code encode()} 
+ * and {@code decode} at the boundary with the network and UI layers.
+ *
+ * @see engine.move.MoveList
  *
  * @author Jonathan Uhler
  */
@@ -46,6 +62,16 @@ public class Move implements Serializable {
 	}
 	
 
+	/** Every flag, indexed by ordinal, to decode flags without calling {@code values()}. */
+	private static final Move.Flag[] FLAGS = Move.Flag.values();
+	/** The bit offset of the end square in an encoded move. */
+	private static final int END_SHIFT = 6;
+	/** The bit offset of the flag in an encoded move. */
+	private static final int FLAG_SHIFT = 12;
+	/** The mask for a single square in an encoded move, after shifting. */
+	private static final int SQUARE_MASK = 0x3F;
+	
+
 	/** The origin of the piece. */
 	private Coordinate startTile;
 	/** The destination of the piece. */
@@ -120,6 +146,127 @@ public class Move implements Serializable {
 	}
 
 
+	/**
+	 * Returns the encoded form of this move.
+	 *
+	 * @return the encoded form of this move.
+	 *
+	 * @throws IllegalArgumentException  if the start or end tile is not a valid tile.
+	 *
+	 * @see encode(int, int, Move.Flag)
+	 */
+	public int encode() {
+		if (!this.startTile.isValidTile() || !this.endTile.isValidTile())
+			throw new IllegalArgumentException("cannot encode move with invalid tiles: " + this);
+		return Move.encode(Bitboard.square(this.startTile), Bitboard.square(this.endTile),
+						   this.flag);
+	}
+
+
+	/**
+	 * Packs a move into its encoded form. No validation is done on the arguments.
+	 *
+	 * @param startSquare  the square the piece starts on, on the interval [0, 63].
+	 * @param endSquare    the square the piece ends on, on the interval [0, 63].
+	 * @param flag         the special flag for the move.
+	 *
+	 * @return the encoded move.
+	 */
+	public static int encode(int startSquare, int endSquare, Move.Flag flag) {
+		return startSquare | (endSquare << Move.END_SHIFT) | (flag.ordinal() << Move.FLAG_SHIFT);
+	}
+
+
+	/**
+	 * Creates a {@code Move} object from an encoded move.
+	 *
+	 * @param move  the encoded move.
+	 *
+	 * @return a {@code Move} object equal to the encoded move.
+	 *
+	 * @see encode(int, int, Move.Flag)
+	 */
+	public static Move decode(int move) {
+		return new Move(Bitboard.coordinate(Move.getStartSquare(move)),
+						Bitboard.coordinate(Move.getEndSquare(move)),
+						Move.getFlag(move));
+	}
+
+
+	/**
+	 * Returns the start square of an encoded move.
+	 *
+	 * @param move  the encoded move.
+	 *
+	 * @return the start square of the move.
+	 */
+	public static int getStartSquare(int move) {
+		return move & Move.SQUARE_MASK;
+	}
+
+
+	/**
+	 * Returns the end square of an encoded move.
+	 *
+	 * @param move  the encoded move.
+	 *
+	 * @return the end square of the move.
+	 */
+	public static int getEndSquare(int move) {
+		return (move >>> Move.END_SHIFT) & Move.SQUARE_MASK;
+	}
+
+
+	/**
+	 * Returns the flag of an encoded move.
+	 *
+	 * @param move  the encoded move.
+	 *
+	 * @return the flag of the move.
+	 */
+	public static Move.Flag getFlag(int move) {
+		return Move.FLAGS[(move >>> Move.FLAG_SHIFT) & 0xF];
+	}
+
+
+	/**
+	 * Returns a string representation of an encoded move, in the same format as 
+	 * {@code toString}.
+	 *
+	 * @param move  the encoded move.
+	 *
+	 * @return a string representation of the encoded move.
+	 */
+	public static String toString(int move) {
+		return Bitboard.coordinate(Move.getStartSquare(move)) + "" +
+			Bitboard.coordinate(Move.getEndSquare(move)) + " (" + Move.getFlag(move) + ")";
+	}
+
+
+	/**
+	 * Returns the long algebraic notation of an encoded move, as used by the UCI protocol: the 
+	 * start and end tiles, followed by the promotion piece for promotions. An example of a 
+	 * pawn promoting to a queen on A8 would be:
+	 * <p>
+	 * {@code a7a8q}
+	 *
+	 * @param move  the encoded move.
+	 *
+	 * @return the long algebraic notation of the encoded move.
+	 */
+	public static String toLongAlgebraic(int move) {
+		String tiles = Bitboard.coordinate(Move.getStartSquare(move)) + "" +
+			Bitboard.coordinate(Move.getEndSquare(move));
+		return switch (Move.getFlag(move)) {
+		case PROMOTE_KNIGHT -> tiles + "n";
+		case PROMOTE_BISHOP -> tiles + "b";
+		case PROMOTE_ROOK -> tiles + "r";
+		case PROMOTE_QUEEN -> tiles + "q";
+		default -> tiles;
+		};
+	}
+
+
 	/**
 	 * Determines if this move resulted in the promotion of a piece. Promotion is defined if 
 	 * {@code getFlag().equals(Move.Flag.PROMOTE_*)}
@@ -220,11 +367,11 @@ public class Move implements Serializable {
 			int promotionRowY = piece.isWhite() ? 7 : 0;
 			List<Coordinate> promotionRowTiles = new ArrayList<>();
 			for (int x = 0; x < 8; x++)
-				promotionRowTiles.add(new Coordinate(x, promotionRowY));
+				promotionRowTiles.add(Coordinate.of(x, promotionRowY));
 			int yOffset = piece.isWhite() ? 1 : -1; // Which direction pawns move
 
 			// Pawn two forward
-			if (startTile.shift(new Vector(0, 2 * yOffset)).equals(endTile))
+			if (startTile.shift(Vector.of(0, 2 * yOffset)).equals(endTile))
 				return Flag.PAWN_TWO_FORWARD;
 
 			// En passant capture
@@ -255,10 +402,10 @@ public class Move implements Serializable {
 		}
 		// King flags: castling king-/queen-side
 		else if (piece.getType().equals(Piece.Type.KING)) {
-			if (startTile.shift(new Vector(2, 0)).equals(endTile))
+			if (startTile.shift(Vector.of(2, 0)).equals(endTile))
 				return Flag.CASTLE_KINGSIDE;
 
-			else if (startTile.shift(new Vector(-2, 0)).equals(endTile))
+			else if (startTile.shift(Vector.of(-2, 0)).equals(endTile))
 				return Flag.CASTLE_QUEENSIDE;
 		}
 
@@ -304,6 +451,18 @@ public class Move implements Serializable {
 	}
 
 
+	/**
+	 * Returns a hash code for this {@code Move} object, computed from the start tile, end tile,
+	 * and flag, so that equal moves have equal hash codes.
+	 *
+	 * @return a hash code for this {@code Move} object.
+	 */
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.startTile, this.endTile, this.flag);
+	}
+
+
 	/**
 	 * Returns a string representation of this {@code Move} object. The string is composed of:
 	 * <ul>
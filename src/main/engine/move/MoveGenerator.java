@@ -1,165 +1,504 @@
 package engine.move;
 
 
+import engine.util.Bitboard;
 import engine.util.Vector;
 import engine.util.Coordinate;
 import engine.piece.Piece;
+import engine.piece.PieceSquareTables;
 import engine.board.BoardInfo;
-import engine.board.Board;
-import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
 
 
 /**
  * Generates a {@code List} of legal moves for a {@code BoardInfo} object.
+ * <p>
+ * Each generator has two forms: one that returns a new {@code List} of {@code Move} objects, for 
+ * the server and UI, and one that writes encoded moves into a caller-supplied {@code MoveList}, 
+ * for hot paths that generate moves at many nodes.
+ * <p>
+ * Move generation works on the bitboards held by the {@code BoardInfo} object. The tiles each 
+ * piece can reach are found with the lookup tables in the {@code Attacks} class, and then masked 
+ * against the occupancy of each side. Moves are only encoded for the final destination tiles.
+ *
+ * @see engine.move.Attacks
+ * @see engine.move.MoveList
  *
  * @author Jonathan Uhler
  */
 public class MoveGenerator {
 
+	/**
+	 * The kinds of moves that can be generated separately, so that a search can generate and try
+	 * the moves most likely to be good before generating the rest.
+	 */
+	public static enum Kind {
+		/** Every move. */
+		ALL,
+		/** Captures, including en passant, and promotions, including those that do not capture. */
+		CAPTURES,
+		/** Every move that is not in {@code CAPTURES}, including castling. */
+		QUIETS
+	}
+
+
 	// Define data constants for the offsets used by each of the pieces. Pawns are not included
 	// here because they do not have any consistent offsets
 	/** Knight movement offsets. */
-	public static final Vector[] KNIGHT_OFFSETS = {new Vector(1, 2), new Vector(2, 1),
-												   new Vector(2, -1), new Vector(1, -2),
-												   new Vector(-1, -2), new Vector(-2, -1),
-												   new Vector(-2, 1), new Vector(-1, 2)};
+	public static final Vector[] KNIGHT_OFFSETS = {Vector.of(1, 2), Vector.of(2, 1),
+												   Vector.of(2, -1), Vector.of(1, -2),
+												   Vector.of(-1, -2), Vector.of(-2, -1),
+												   Vector.of(-2, 1), Vector.of(-1, 2)};
 	/** Bishop movement offsets. */
-	public static final Vector[] BISHOP_OFFSETS = {new Vector(1, 1),  new Vector(1, -1),
-												   new Vector(-1, -1), new Vector(-1, 1)};
+	public static final Vector[] BISHOP_OFFSETS = {Vector.of(1, 1),  Vector.of(1, -1),
+												   Vector.of(-1, -1), Vector.of(-1, 1)};
 	/** Rook movement offsets. */
-	public static final Vector[] ROOK_OFFSETS = {new Vector(0, 1), new Vector(1, 0),
-												 new Vector(0, -1), new Vector(-1, 0)};
+	public static final Vector[] ROOK_OFFSETS = {Vector.of(0, 1), Vector.of(1, 0),
+												 Vector.of(0, -1), Vector.of(-1, 0)};
 	/** Queen movement offsets. */
-	public static final Vector[] QUEEN_OFFSETS = {new Vector(0, 1), new Vector(1, 1),
-												  new Vector(1, 0), new Vector(1, -1),
-												  new Vector(0, -1), new Vector(-1, -1),
-												  new Vector(-1, 0), new Vector(-1, 1)};
+	public static final Vector[] QUEEN_OFFSETS = {Vector.of(0, 1), Vector.of(1, 1),
+												  Vector.of(1, 0), Vector.of(1, -1),
+												  Vector.of(0, -1), Vector.of(-1, -1),
+												  Vector.of(-1, 0), Vector.of(-1, 1)};
 	/** King movement offsets. */
-	public static final Vector[] KING_OFFSETS = {new Vector(0, 1), new Vector(1, 1),
-												 new Vector(1, 0), new Vector(1, -1),
-												 new Vector(0, -1), new Vector(-1, -1),
-												 new Vector(-1, 0), new Vector(-1, 1)};
+	public static final Vector[] KING_OFFSETS = {Vector.of(0, 1), Vector.of(1, 1),
+												 Vector.of(1, 0), Vector.of(1, -1),
+												 Vector.of(0, -1), Vector.of(-1, -1),
+												 Vector.of(-1, 0), Vector.of(-1, 1)};
+
+	/** The length of the scratch array of {@code staticExchange}, one more than its captures. */
+	public static final int EXCHANGE_LENGTH = 32;
+	/** The piece types in the order they join an exchange: least valuable first. */
+	private static final Piece.Type[] EXCHANGE_ORDER = {Piece.Type.PAWN, Piece.Type.KNIGHT,
+														Piece.Type.BISHOP, Piece.Type.ROOK,
+														Piece.Type.QUEEN, Piece.Type.KING};
 
 
 	/**
 	 * Generates a list of tiles controlled by the current player. The "tiles controlled" are 
-	 * defined as the ending tiles of all the pseudo-legal moves the current player can make.
+	 * defined as every tile attacked by a piece of the current player, including tiles occupied 
+	 * by friendly pieces (which are defended) and the diagonal tiles in front of pawns.
 	 *
 	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
 	 *
 	 * @return a {@code List} of {@code Coordinate} objects representing all the tiles controlled
 	 *         by the current player.
+	 *
+	 * @see generateAttacks
 	 */
 	public static List<Coordinate> generateTilesControlled(BoardInfo boardInfo) {
 		if (boardInfo == null)
 			throw new NullPointerException("boardInfo was null");
 		
-		List<Coordinate> tilesControlled = new ArrayList<>();
-		List<Move> moves = new ArrayList<>();
-
-		// For each tile on the board, if there is a piece on that tile and it is a friendly piece,
-		// then add all pseudo-legal moves that can be made by that piece to the "moves" list
-		for (Coordinate tile : Coordinate.getAllValidCoordinates()) {
-			Piece piece = boardInfo.getPiece(tile);
-
-			if (piece != null) {
-				if (piece.friendly(boardInfo.whiteToMove)) {
-					switch (piece.getType()) {
-					case PAWN:
-						tilesControlled.addAll(MoveGenerator
-											   .generatePawnTilesControlled(tile, boardInfo));
-						break;
-					case KNIGHT:
-						moves.addAll(MoveGenerator.generateKnightMoves(tile, boardInfo));
-						break;
-					case BISHOP:
-						moves.addAll(MoveGenerator
-									 .generateSlidingMoves(tile, boardInfo,
-														  MoveGenerator.BISHOP_OFFSETS));
-						break;
-					case ROOK:
-						moves.addAll(MoveGenerator
-									 .generateSlidingMoves(tile, boardInfo,
-														  MoveGenerator.ROOK_OFFSETS));
-						break;
-					case QUEEN:
-						moves.addAll(MoveGenerator
-									 .generateSlidingMoves(tile, boardInfo,
-														  MoveGenerator.QUEEN_OFFSETS));
-						break;
-					case KING:
-						moves.addAll(MoveGenerator.generateKingMoves(tile, boardInfo));
-						break;
-					}
-				}
+		return Bitboard.toCoordinates(MoveGenerator.generateAttacks(boardInfo,
+																	boardInfo.whiteToMove));
+	}
+
+
+	/**
+	 * Generates a bitboard of all tiles attacked by one player, regardless of whose turn it is to 
+	 * move. A tile is attacked if a piece of the player could capture an enemy piece on that 
+	 * tile, ignoring whether the capture would leave the player in check.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param white      whether to generate the attacks of the white (or black) player.
+	 *
+	 * @return a bitboard of all tiles attacked by the player.
+	 */
+	public static long generateAttacks(BoardInfo boardInfo, boolean white) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		long occupied = boardInfo.getOccupied();
+		long attacks = Bitboard.EMPTY;
+
+		// Pawns are shifted as a set, masking off the tiles that would wrap around the board
+		long pawns = boardInfo.getPieceBoard(Piece.Type.PAWN, white);
+		if (white)
+			attacks |= ((pawns & ~Bitboard.FILE_A) << 7) | ((pawns & ~Bitboard.FILE_H) << 9);
+		else
+			attacks |= ((pawns & ~Bitboard.FILE_A) >>> 9) | ((pawns & ~Bitboard.FILE_H) >>> 7);
+
+		for (long knights = boardInfo.getPieceBoard(Piece.Type.KNIGHT, white);
+			 knights != 0; knights &= knights - 1)
+			attacks |= Attacks.knightAttacks(Bitboard.first(knights));
+
+		long diagonals = boardInfo.getPieceBoard(Piece.Type.BISHOP, white) |
+			boardInfo.getPieceBoard(Piece.Type.QUEEN, white);
+		for (; diagonals != 0; diagonals &= diagonals - 1)
+			attacks |= Attacks.bishopAttacks(Bitboard.first(diagonals), occupied);
+
+		long orthogonals = boardInfo.getPieceBoard(Piece.Type.ROOK, white) |
+			boardInfo.getPieceBoard(Piece.Type.QUEEN, white);
+		for (; orthogonals != 0; orthogonals &= orthogonals - 1)
+			attacks |= Attacks.rookAttacks(Bitboard.first(orthogonals), occupied);
+
+		for (long kings = boardInfo.getPieceBoard(Piece.Type.KING, white);
+			 kings != 0; kings &= kings - 1)
+			attacks |= Attacks.kingAttacks(Bitboard.first(kings));
+
+		return attacks;
+	}
+
+
+	/**
+	 * Returns a bitboard of the pieces of a given player that attack a square. This is done in 
+	 * reverse by placing each type of piece on the square and checking if the tiles it would 
+	 * attack contain an enemy piece of the same type, which avoids generating the attacks of 
+	 * every piece.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param square     the square index to check.
+	 * @param occupied   the occupancy used to block sliding pieces. This is usually 
+	 *                   {@code boardInfo.getOccupied()}, but may differ to test hypothetical 
+	 *                   positions (such as the king having moved off its square).
+	 * @param byWhite    whether to find the attackers of the white (or black) player.
+	 *
+	 * @return a bitboard of the pieces attacking the square.
+	 */
+	private static long attackersTo(BoardInfo boardInfo, int square, long occupied,
+									boolean byWhite)
+	{
+		long queens = boardInfo.getPieceBoard(Piece.Type.QUEEN, byWhite);
+
+		// A pawn of the attacking player attacks this square if a pawn of the other color on
+		// this square would attack the attacking pawn
+		return (Attacks.pawnAttacks(square, !byWhite) &
+				boardInfo.getPieceBoard(Piece.Type.PAWN, byWhite)) |
+			(Attacks.knightAttacks(square) &
+			 boardInfo.getPieceBoard(Piece.Type.KNIGHT, byWhite)) |
+			(Attacks.kingAttacks(square) &
+			 boardInfo.getPieceBoard(Piece.Type.KING, byWhite)) |
+			(Attacks.bishopAttacks(square, occupied) &
+			 (boardInfo.getPieceBoard(Piece.Type.BISHOP, byWhite) | queens)) |
+			(Attacks.rookAttacks(square, occupied) &
+			 (boardInfo.getPieceBoard(Piece.Type.ROOK, byWhite) | queens));
+	}
+
+
+	/**
+	 * Determines whether a square is attacked by a given player.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param square     the square index to check.
+	 * @param byWhite    whether to check for attacks by the white (or black) player.
+	 *
+	 * @return true if the square is attacked by the given player.
+	 */
+	public static boolean isSquareAttacked(BoardInfo boardInfo, int square, boolean byWhite) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+		return MoveGenerator.attackersTo(boardInfo, square, boardInfo.getOccupied(), byWhite) != 0;
+	}
+
+
+	/**
+	 * Evaluates the sequence of captures on the end tile of a move, without making any moves. 
+	 * This is static exchange evaluation (SEE): after the move, each player in turn recaptures 
+	 * on the tile with their least valuable attacker, and may stop capturing whenever continuing 
+	 * would lose material. Attackers behind other pieces on the same line (x-rays) join the 
+	 * sequence once the pieces in front of them have captured.
+	 * <p>
+	 * Pieces are valued by {@code PieceSquareTables.pieceValue}. Pins and checks are ignored, 
+	 * except that a king never captures onto a tile that is still attacked.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param move       the encoded move, which should be a legal move of the current player.
+	 *
+	 * @return the material gained by the current player in centipawns, assuming both players 
+	 *         play the exchange on the end tile perfectly. Negative if the move loses material.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo == null}.
+	 *
+	 * @see staticExchange(BoardInfo, int, int[])
+	 */
+	public static int staticExchange(BoardInfo boardInfo, int move) {
+		return MoveGenerator.staticExchange(boardInfo, move,
+											new int[MoveGenerator.EXCHANGE_LENGTH]);
+	}
+
+
+	/**
+	 * Evaluates the sequence of captures on the end tile of a move, the same as
+	 * {@code staticExchange(BoardInfo, int)}, using a scratch array owned by the caller. A search
+	 * that evaluates many exchanges should keep one array and pass it to every call, so that no
+	 * memory is allocated.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param move       the encoded move, which should be a legal move of the current player.
+	 * @param gain       a scratch array of at least {@code EXCHANGE_LENGTH} elements. Its
+	 *                   contents are overwritten.
+	 *
+	 * @return the material gained by the current player in centipawns, assuming both players 
+	 *         play the exchange on the end tile perfectly. Negative if the move loses material.
+	 *
+	 * @throws NullPointerException      if {@code boardInfo} or {@code gain} is null.
+	 * @throws IllegalArgumentException  if {@code gain.length < EXCHANGE_LENGTH}.
+	 */
+	public static int staticExchange(BoardInfo boardInfo, int move, int[] gain) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+		if (gain == null)
+			throw new NullPointerException("gain was null");
+		if (gain.length < MoveGenerator.EXCHANGE_LENGTH)
+			throw new IllegalArgumentException("gain.length < EXCHANGE_LENGTH: " + gain.length);
+
+		int startSquare = Move.getStartSquare(move);
+		int endSquare = Move.getEndSquare(move);
+		Move.Flag flag = Move.getFlag(move);
+		Piece victim = boardInfo.getPiece(endSquare);
+		Piece mover = boardInfo.getPiece(startSquare);
+		if (mover == null || mover.getIndex() == -1)
+			return 0;
+
+		// The gain of each capture in the sequence, from the perspective of the capturing player,
+		// if the sequence were to stop after it
+		gain[0] = 0;
+		long occupied = boardInfo.getOccupied() ^ Bitboard.mask(startSquare);
+		int onSquare = PieceSquareTables.pieceValue(mover.getType());
+		if (victim != null && victim.getIndex() != -1)
+			gain[0] = PieceSquareTables.pieceValue(victim.getType());
+		if (flag == Move.Flag.EN_PASSANT) {
+			gain[0] = PieceSquareTables.pieceValue(Piece.Type.PAWN);
+			occupied ^= Bitboard.mask(endSquare + ((boardInfo.whiteToMove) ? -8 : 8));
+		}
+		Piece.Type promotion = switch (flag) {
+		case PROMOTE_KNIGHT -> Piece.Type.KNIGHT;
+		case PROMOTE_BISHOP -> Piece.Type.BISHOP;
+		case PROMOTE_ROOK -> Piece.Type.ROOK;
+		case PROMOTE_QUEEN -> Piece.Type.QUEEN;
+		default -> null;
+		};
+		if (promotion != null) {
+			gain[0] += PieceSquareTables.pieceValue(promotion) -
+				PieceSquareTables.pieceValue(Piece.Type.PAWN);
+			onSquare = PieceSquareTables.pieceValue(promotion);
+		}
+
+		boolean white = !boardInfo.whiteToMove;
+		int depth = 0;
+		while (depth < MoveGenerator.EXCHANGE_LENGTH - 1) {
+			long attackers = MoveGenerator.attackersTo(boardInfo, endSquare, occupied, white) &
+				occupied;
+			if (attackers == 0)
+				break;
+
+			// Find the least valuable attacker
+			Piece.Type type = null;
+			long candidates = 0;
+			for (int i = 0; candidates == 0; i++) {
+				type = MoveGenerator.EXCHANGE_ORDER[i];
+				candidates = attackers & boardInfo.getPieceBoard(type, white);
 			}
+			int attackerSquare = Bitboard.first(candidates);
+
+			// A king cannot capture onto a tile the other player still attacks
+			if (type == Piece.Type.KING &&
+				(MoveGenerator.attackersTo(boardInfo, endSquare,
+										   occupied ^ Bitboard.mask(attackerSquare), !white) &
+				 occupied) != 0)
+				break;
+
+			depth++;
+			gain[depth] = onSquare - gain[depth - 1];
+			onSquare = PieceSquareTables.pieceValue(type);
+			occupied ^= Bitboard.mask(attackerSquare);
+			white = !white;
 		}
 
-		// Add only the ending tiles of the moves (tiles controlled) to the list of tiles
-		// controlled, then return
-		for (Move m : moves)
-			tilesControlled.add(m.getEndTile());
+		// Each player only makes a capture if it is better than stopping before it
+		for (; depth > 0; depth--)
+			gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+		return gain[0];
+	}
+
 
-		return tilesControlled;
+	/**
+	 * Returns a bitboard of the pieces of the current player that are absolutely pinned to their 
+	 * king. A piece is pinned if it is the only piece between the king and an enemy sliding 
+	 * piece that moves along the line joining them.
+	 *
+	 * @param boardInfo   a {@code BoardInfo} object that defines the board state.
+	 * @param kingSquare  the square of the current player's king.
+	 *
+	 * @return a bitboard of the pinned pieces.
+	 */
+	private static long generatePinned(BoardInfo boardInfo, int kingSquare) {
+		boolean white = boardInfo.whiteToMove;
+		long occupied = boardInfo.getOccupied();
+		long friendly = boardInfo.getColorBoard(white);
+		long enemies = boardInfo.getColorBoard(!white);
+		long queens = boardInfo.getPieceBoard(Piece.Type.QUEEN, !white);
+
+		// Enemy sliders that would see the king if only enemy pieces were on the board
+		long snipers =
+			(Attacks.rookAttacks(kingSquare, enemies) &
+			 (boardInfo.getPieceBoard(Piece.Type.ROOK, !white) | queens)) |
+			(Attacks.bishopAttacks(kingSquare, enemies) &
+			 (boardInfo.getPieceBoard(Piece.Type.BISHOP, !white) | queens));
+
+		long pinned = Bitboard.EMPTY;
+		for (; snipers != 0; snipers &= snipers - 1) {
+			long blockers = Attacks.between(kingSquare, Bitboard.first(snipers)) & occupied;
+			if (Bitboard.count(blockers) == 1 && (blockers & friendly) != 0)
+				pinned |= blockers;
+		}
+		return pinned;
 	}
 	
 
 	/**
 	 * Generates a {@code List} of strictly legal moves that can be made by the current player.
+	 * <p>
+	 * Legal moves are generated directly, without making any moves. The pieces giving check and 
+	 * the pieces pinned to the king are found once for the position, and then:
+	 * <ul>
+	 * <li> King moves are only generated to tiles that are not attacked with the king removed 
+	 *      from the board (so the king cannot step backwards along the line of a checking 
+	 *      slider), and castling is only generated when not in check.
+	 * <li> In double check, only king moves are generated.
+	 * <li> In single check, other pieces may only capture the checking piece or move onto a 
+	 *      tile between it and the king.
+	 * <li> Pinned pieces may only move along the line through their king and the pinning piece.
+	 * <li> En passant is checked by removing both pawns from the board and testing whether an 
+	 *      enemy slider then attacks the king, which covers the case where both pawns shield 
+	 *      the king along a rank.
+	 * </ul>
 	 *
 	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
 	 *
 	 * @return a {@code List} of strictly legal moves that can be made by the current player.
+	 *
+	 * @see generateLegalMoves(BoardInfo, MoveList)
 	 */
 	public static List<Move> generateLegalMoves(BoardInfo boardInfo) {
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegalMoves(boardInfo, moves);
+		return moves.toList();
+	}
+
+
+	/**
+	 * Generates the strictly legal moves that can be made by the current player into a 
+	 * {@code MoveList} of encoded moves. The list is cleared before any moves are added. This 
+	 * method does not allocate, and is preferred over {@code generateLegalMoves(BoardInfo)} 
+	 * anywhere moves are generated repeatedly, such as perft and search.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param moves      the list to fill with the legal moves.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo} or {@code moves} is null.
+	 *
+	 * @see generateLegalMoves(BoardInfo)
+	 */
+	public static void generateLegalMoves(BoardInfo boardInfo, MoveList moves) {
 		if (boardInfo == null)
 			throw new NullPointerException("boardInfo was null");
-		
-		List<Move> legalMoves = new ArrayList<>();
-		List<Move> pseudoLegalMoves = MoveGenerator.generatePseudoLegalMoves(boardInfo);
-
-		// Based on whose turn it is, define the friendly player's king peice
-		Piece.Color kingColor = (boardInfo.whiteToMove) ? Piece.Color.WHITE : Piece.Color.BLACK;
-		Piece kingPiece = new Piece(Piece.Type.KING, kingColor);
-
-		// Loop through all the pseudo legal moves generated for this player
-		for (Move pseudoLegalMove : pseudoLegalMoves) {
-			// Create a deep copy of the board information, and use that to create a "ghost"
-			// board that moves can be played on to test their legality
-			BoardInfo ghostInfo = (BoardInfo) boardInfo.clone();
-			Board ghostBoard = new Board(ghostInfo);
-
-			ghostBoard.makeMove(pseudoLegalMove);
-
-			// Get the tile with the friendly king on it. The kingPiece created earlier is used
-			// here. If there is no exactly 1 king piece, then legal moves cannot be generated,
-			// so just return the list of pseudo legal moves
-			List<Coordinate> kingTiles = ghostInfo.getTilesWithPiece(kingPiece);
-			if (kingTiles.size() != 1)
-				return pseudoLegalMoves;
-			
-			Coordinate kingTile = ghostInfo.getTilesWithPiece(kingPiece).get(0);
-
-			// Set the current turn of the "ghost" board to the current opponent (remember that
-			// boardInfo is the CURRENT state of the board and ghostInfo at this point must be in
-			// the view of the current opponent). Because the BoardInfo.updateAfterMove() method
-			// is called in Board.makeMove(), this should already be true, but setting it
-			// explicitly makes sure of that
-			ghostInfo.whiteToMove = !boardInfo.whiteToMove;
-
-			// Generate the list of tiles the opponent controls. Any move that ends with the king
-			// on a tile controlled by the opponent (the king being captured) was illegal and is
-			// not added to the list of legal moves
-			List<Coordinate> opponentAttackingTiles =
-				MoveGenerator.generateTilesControlled(ghostInfo);
-			
-			if (!opponentAttackingTiles.contains(kingTile))
-				legalMoves.add(pseudoLegalMove);
-		}
+		if (moves == null)
+			throw new NullPointerException("moves was null");
+
+		moves.clear();
+		boolean legal = MoveGenerator.canGenerateLegal(boardInfo);
+		MoveGenerator.generateMoves(boardInfo, legal, moves, Integer.MAX_VALUE, true, true,
+									Bitboard.FULL);
+	}
+
 
-		return legalMoves;
+	/**
+	 * Generates the strictly legal moves of one kind that can be made by the current player's 
+	 * pieces on a set of tiles, into a {@code MoveList} of encoded moves. The list is cleared 
+	 * before any moves are added. Generating each kind of move separately gives the same moves 
+	 * as {@code generateLegalMoves(BoardInfo, MoveList)}, but lets a search skip generating the 
+	 * moves it never reaches. Restricting the starting tiles to a single tile is a cheap way to 
+	 * check whether a particular move is legal.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param moves      the list to fill with the legal moves.
+	 * @param kind       the kind of moves to generate.
+	 * @param from       a bitboard of the tiles to generate moves from, or {@code Bitboard.FULL} 
+	 *                   for every tile.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo}, {@code moves}, or {@code kind} is null.
+	 *
+	 * @see generateLegalMoves(BoardInfo, MoveList)
+	 */
+	public static void generateLegalMoves(BoardInfo boardInfo, MoveList moves,
+										  MoveGenerator.Kind kind, long from)
+	{
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+		if (moves == null)
+			throw new NullPointerException("moves was null");
+		if (kind == null)
+			throw new NullPointerException("kind was null");
+
+		moves.clear();
+		boolean legal = MoveGenerator.canGenerateLegal(boardInfo);
+		MoveGenerator.generateMoves(boardInfo, legal, moves, Integer.MAX_VALUE,
+									kind != MoveGenerator.Kind.QUIETS,
+									kind != MoveGenerator.Kind.CAPTURES, from);
+	}
+
+
+	/**
+	 * Counts the strictly legal moves that can be made by the current player, without adding 
+	 * them to any list. This is the same as the size of the list filled by 
+	 * {@code generateLegalMoves}, but does much less work: the moves of sliding pieces, knights, 
+	 * and most pawn moves are counted with a single population count.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 *
+	 * @return the number of strictly legal moves that can be made by the current player.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo} is null.
+	 *
+	 * @see generateLegalMoves(BoardInfo, MoveList)
+	 */
+	public static int countLegalMoves(BoardInfo boardInfo) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		boolean legal = MoveGenerator.canGenerateLegal(boardInfo);
+		return MoveGenerator.generateMoves(boardInfo, legal, null, Integer.MAX_VALUE, true, true,
+										   Bitboard.FULL);
+	}
+
+
+	/**
+	 * Determines whether the current player has at least one strictly legal move. Generation 
+	 * stops as soon as the first legal move is found, and king moves are considered first, so 
+	 * this is usually much faster than counting every move.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 *
+	 * @return true if the current player has at least one strictly legal move.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo} is null.
+	 *
+	 * @see countLegalMoves
+	 */
+	public static boolean hasAnyLegalMove(BoardInfo boardInfo) {
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+
+		boolean legal = MoveGenerator.canGenerateLegal(boardInfo);
+		return MoveGenerator.generateMoves(boardInfo, legal, null, 1, true, true,
+										   Bitboard.FULL) > 0;
+	}
+
+
+	/**
+	 * Determines whether strictly legal moves can be generated for the current player. If there 
+	 * is not exactly 1 king piece for the current player, then legal moves cannot be generated, 
+	 * and the legal move methods generate pseudo-legal moves instead.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 *
+	 * @return true if the current player has exactly one king.
+	 */
+	private static boolean canGenerateLegal(BoardInfo boardInfo) {
+		long kings = boardInfo.getPieceBoard(Piece.Type.KING, boardInfo.whiteToMove);
+		return Bitboard.count(kings) == 1;
 	}
 	
 
@@ -171,272 +510,364 @@ public class MoveGenerator {
 	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
 	 *
 	 * @return a {@code List} of pseudo-legal moves that can be made by the current player.
+	 *
+	 * @see generatePseudoLegalMoves(BoardInfo, MoveList)
 	 */
 	public static List<Move> generatePseudoLegalMoves(BoardInfo boardInfo) {
+		MoveList moves = new MoveList();
+		MoveGenerator.generatePseudoLegalMoves(boardInfo, moves);
+		return moves.toList();
+	}
+
+
+	/**
+	 * Generates the pseudo-legal moves that can be made by the current player into a 
+	 * {@code MoveList} of encoded moves. The list is cleared before any moves are added.
+	 *
+	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param moves      the list to fill with the pseudo-legal moves.
+	 *
+	 * @throws NullPointerException  if {@code boardInfo} or {@code moves} is null.
+	 *
+	 * @see generatePseudoLegalMoves(BoardInfo)
+	 */
+	public static void generatePseudoLegalMoves(BoardInfo boardInfo, MoveList moves) {
 		if (boardInfo == null)
 			throw new NullPointerException("boardInfo was null");
-		
-		List<Move> pseudoLegalMoves = new ArrayList<>();
-
-		// For each tile with a friendly piece, generate moves using the appropriate function
-		// for that piece type
-		for (Coordinate tile : Coordinate.getAllValidCoordinates()) {
-			Piece piece = boardInfo.getPiece(tile);
-
-			if (piece != null) {
-				if (piece.friendly(boardInfo.whiteToMove)) {
-					switch (piece.getType()) {
-					case PAWN:
-						pseudoLegalMoves.addAll(MoveGenerator.generatePawnMoves(tile, boardInfo));
-						break;
-					case KNIGHT:
-						pseudoLegalMoves.addAll(MoveGenerator.generateKnightMoves(tile, boardInfo));
-						break;
-					case BISHOP:
-						pseudoLegalMoves.addAll(MoveGenerator
-												.generateSlidingMoves(tile, boardInfo,
-																	 MoveGenerator.BISHOP_OFFSETS));
-						break;
-					case ROOK:
-						pseudoLegalMoves.addAll(MoveGenerator
-												.generateSlidingMoves(tile, boardInfo,
-																	  MoveGenerator.ROOK_OFFSETS));
-						break;
-					case QUEEN:
-						pseudoLegalMoves.addAll(MoveGenerator
-												.generateSlidingMoves(tile, boardInfo,
-																	  MoveGenerator.QUEEN_OFFSETS));
-						break;
-					case KING:
-						pseudoLegalMoves.addAll(MoveGenerator.generateKingMoves(tile, boardInfo));
-						break;
-					}
-				}
-			}
-		}
+		if (moves == null)
+			throw new NullPointerException("moves was null");
 
-		return pseudoLegalMoves;
+		moves.clear();
+		MoveGenerator.generateMoves(boardInfo, false, moves, Integer.MAX_VALUE, true, true,
+									Bitboard.FULL);
 	}
 
 
 	/**
-	 * Generates moves for regular sliding pieces (pieces that move with a specific set of offset 
-	 * vectors that can be scaled until the end of the board is reached): queen, bishop, and rook.
+	 * Generates or counts the moves of the current player.
+	 * <p>
+	 * All of the private generation methods follow the same convention: they return the number 
+	 * of moves found, and only add moves to the list if it is not {@code null}.
 	 *
-	 * @param startTile  the tile the piece starts on.
 	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
-	 * @param offsets    a list of offset vectors for how the sliding piece can move.
+	 * @param legal      whether to generate only strictly legal moves. If true, the current 
+	 *                   player must have exactly one king.
+	 * @param moves      the list to add the moves to, or {@code null} to only count them.
+	 * @param limit      the number of moves after which generation may stop early. Because 
+	 *                   moves are found in groups, more moves than this may be returned.
+	 * @param captures   whether to generate captures and promotions.
+	 * @param quiets     whether to generate all other moves.
+	 * @param from       a bitboard of the tiles to generate moves from.
+	 *
+	 * @return the number of moves found, which is the total number of moves unless it is at 
+	 *         least {@code limit}.
 	 *
-	 * @return a {@code List} of pseudo-legal moves.
+	 * @see generateLegalMoves
 	 */
-	private static List<Move> generateSlidingMoves(Coordinate startTile,
-												   BoardInfo boardInfo,
-												   Vector[] offsets)
+	private static int generateMoves(BoardInfo boardInfo, boolean legal, MoveList moves,
+									 int limit, boolean captures, boolean quiets, long from)
 	{
-		List<Move> movesGenerated = new ArrayList<>();
-
-		for (Vector offset : offsets) {
-			// tempOffset: the vector offset that is being compared in the while loop and
-			// continuously being scaled. This is used for scaling instead of just offset from the
-			// for loop because the scaling of just offset would compound as
-			// 1x -> 2x -> 6x -> 24x ... when the desired effect is 1x -> 2x -> 3x -> 4x ...
-			Vector tempOffset = offset;
-			// scaleFactor: how much the move is scaled, up until the end of the board or when
-			// hitting a piece, updated each time through the while loop
-			int scaleFactor = 2;
-
-			// Loop until the edge of the board
-			while (startTile.shift(tempOffset).isValidTile()) {
-				Coordinate endTile = startTile.shift(tempOffset);
-				if (!endTile.isValidTile()) break;
-
-				// Rules
-				//  If there is no piece on the end tile, then add that as a move
-				//  If there is a friendly piece, then you can move up to that but not onto or
-				//  past it If there is a enemy piece, then you can move on to that (and capture it)
-				//  but no past it
-				
-				Piece pieceOnEndTile = boardInfo.getPiece(endTile);
-				if (pieceOnEndTile == null)
-					movesGenerated.add(new Move(startTile, endTile));
-				else {
-					if (pieceOnEndTile.friendly(boardInfo.whiteToMove)) break;
-					movesGenerated.add(new Move(startTile, endTile));
-					if (!pieceOnEndTile.friendly(boardInfo.whiteToMove)) break;
-				}
-
-				// Scale the tempOffset used for calculations based on the value of the
-				// original movement offset
-				tempOffset = offset.scale(scaleFactor);
-				scaleFactor++;
-			}
+		boolean white = boardInfo.whiteToMove;
+		long occupied = boardInfo.getOccupied();
+
+		// Tiles that pieces other than pawns may move to for the kinds of moves requested
+		long kindTargets = ((captures) ? boardInfo.getColorBoard(!white) : Bitboard.EMPTY) |
+			((quiets) ? ~occupied : Bitboard.EMPTY);
+
+		// Tiles that non-king pieces may move to. When generating legal moves in check, this is
+		// limited to capturing the checking piece or blocking it
+		long checkMask = Bitboard.FULL;
+		long pinned = Bitboard.EMPTY;
+		int kingSquare = -1;
+		int count = 0;
+		if (legal) {
+			kingSquare = Bitboard.first(boardInfo.getPieceBoard(Piece.Type.KING, white));
+			long checkers = MoveGenerator.attackersTo(boardInfo, kingSquare, occupied, !white);
+			if ((from & Bitboard.mask(kingSquare)) != 0)
+				count += MoveGenerator.generateLegalKingMoves(kingSquare, boardInfo, kindTargets,
+															  checkers == 0 && quiets, moves);
+
+			// In double check only the king can move
+			if (Bitboard.count(checkers) > 1 || count >= limit)
+				return count;
+			if (checkers != 0)
+				checkMask = checkers | Attacks.between(kingSquare, Bitboard.first(checkers));
+			pinned = MoveGenerator.generatePinned(boardInfo, kingSquare);
 		}
-		
-		return movesGenerated;
+		long targets = kindTargets & checkMask;
+
+		// For each type of friendly piece, generate moves from each tile with that piece using
+		// the attack tables for that piece type. Pinned pieces are restricted to the line through
+		// their king. Pawns and kings have extra special moves
+		for (long pawns = boardInfo.getPieceBoard(Piece.Type.PAWN, white) & from;
+			 pawns != 0; pawns &= pawns - 1)
+		{
+			int square = Bitboard.first(pawns);
+			long allowed = checkMask;
+			if ((pinned & Bitboard.mask(square)) != 0)
+				allowed &= Attacks.line(kingSquare, square);
+			count += MoveGenerator.generatePawnMoves(square, boardInfo, allowed, captures, quiets,
+													 moves);
+			if (count >= limit)
+				return count;
+		}
+		if (captures) {
+			count += MoveGenerator.generateEnPassantMoves(boardInfo, legal, kingSquare, checkMask,
+														  from, moves);
+			if (count >= limit)
+				return count;
+		}
+
+		// A pinned knight can never move, since it cannot stay on the line of the pin
+		for (long knights = boardInfo.getPieceBoard(Piece.Type.KNIGHT, white) & ~pinned & from;
+			 knights != 0; knights &= knights - 1)
+		{
+			int square = Bitboard.first(knights);
+			count += MoveGenerator.addMoves(square, Attacks.knightAttacks(square) & targets, moves);
+			if (count >= limit)
+				return count;
+		}
+
+		for (long bishops = boardInfo.getPieceBoard(Piece.Type.BISHOP, white) & from;
+			 bishops != 0; bishops &= bishops - 1)
+		{
+			int square = Bitboard.first(bishops);
+			long endSquares = Attacks.bishopAttacks(square, occupied) & targets;
+			if ((pinned & Bitboard.mask(square)) != 0)
+				endSquares &= Attacks.line(kingSquare, square);
+			count += MoveGenerator.addMoves(square, endSquares, moves);
+			if (count >= limit)
+				return count;
+		}
+
+		for (long rooks = boardInfo.getPieceBoard(Piece.Type.ROOK, white) & from;
+			 rooks != 0; rooks &= rooks - 1)
+		{
+			int square = Bitboard.first(rooks);
+			long endSquares = Attacks.rookAttacks(square, occupied) & targets;
+			if ((pinned & Bitboard.mask(square)) != 0)
+				endSquares &= Attacks.line(kingSquare, square);
+			count += MoveGenerator.addMoves(square, endSquares, moves);
+			if (count >= limit)
+				return count;
+		}
+
+		for (long queens = boardInfo.getPieceBoard(Piece.Type.QUEEN, white) & from;
+			 queens != 0; queens &= queens - 1)
+		{
+			int square = Bitboard.first(queens);
+			long endSquares = Attacks.queenAttacks(square, occupied) & targets;
+			if ((pinned & Bitboard.mask(square)) != 0)
+				endSquares &= Attacks.line(kingSquare, square);
+			count += MoveGenerator.addMoves(square, endSquares, moves);
+			if (count >= limit)
+				return count;
+		}
+
+		if (!legal) {
+			for (long kings = boardInfo.getPieceBoard(Piece.Type.KING, white) & from;
+				 kings != 0; kings &= kings - 1)
+				count += MoveGenerator.generateKingMoves(Bitboard.first(kings), boardInfo,
+														 kindTargets, quiets, moves);
+		}
+		return count;
 	}
 
 
 	/**
-	 * Generates moves for knights.
+	 * Adds a regular (flag {@code NONE}) move to a list for each tile in a bitboard of end tiles.
 	 *
-	 * @param startTile  the tile the piece starts on.
-	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param startSquare  the square the piece starts on.
+	 * @param endSquares   a bitboard of the tiles the piece can move to.
+	 * @param moves        the list to add the moves to, or {@code null} to only count them.
 	 *
-	 * @return a {@code List} of pseudo-legal moves.
+	 * @return the number of moves.
 	 */
-	private static List<Move> generateKnightMoves(Coordinate startTile, BoardInfo boardInfo) {
-		List<Move> movesGenerated = new ArrayList<>();
-
-		// Go through each of the knight offsets
-		for (Vector offset : MoveGenerator.KNIGHT_OFFSETS) {
-			Coordinate endTile = startTile.shift(offset);
-			if (!endTile.isValidTile()) continue;
-
-			// Rules
-			//  If there is no piece on the end tile, then add that as a move
-			//  If there is a friendly piece, then you can move up to that but not onto or past it
-			//  If there is a enemy piece, then you can move on to that (and capture it)
-			//  but not past it
-
-			Piece pieceOnEndTile = boardInfo.getPiece(endTile);
-			if (pieceOnEndTile == null)
-				movesGenerated.add(new Move(startTile, endTile));
-			else {
-				if (pieceOnEndTile.friendly(boardInfo.whiteToMove)) continue;
-				movesGenerated.add(new Move(startTile, endTile));
-			}
+	private static int addMoves(int startSquare, long endSquares, MoveList moves) {
+		int count = Bitboard.count(endSquares);
+		if (moves != null) {
+			for (; endSquares != 0; endSquares &= endSquares - 1)
+				moves.add(Move.encode(startSquare, Bitboard.first(endSquares), Move.Flag.NONE));
 		}
-		
-		return movesGenerated;
+		return count;
 	}
 
 
 	/**
 	 * Generates moves for kings. These moves include castling.
 	 *
-	 * @param startTile  the tile the piece starts on.
-	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param startSquare  the square the piece starts on.
+	 * @param boardInfo    a {@code BoardInfo} object that defines the board state.
+	 * @param targets      a bitboard of the tiles the king may move to, which must not contain 
+	 *                     friendly pieces.
+	 * @param canCastle    whether castling should be considered.
+	 * @param moves        the list to add the pseudo-legal moves to, or {@code null} to only 
+	 *                     count them.
 	 *
-	 * @return a {@code List} of pseudo-legal moves.
+	 * @return the number of moves.
 	 */
-	private static List<Move> generateKingMoves(Coordinate startTile, BoardInfo boardInfo) {
-		List<Move> movesGenerated = new ArrayList<>();
-
+	private static int generateKingMoves(int startSquare, BoardInfo boardInfo, long targets,
+										 boolean canCastle, MoveList moves)
+	{
 		// Regular moves
-		for (Vector offset : MoveGenerator.KING_OFFSETS) {
-			Coordinate endTile = startTile.shift(offset);
-			if (!endTile.isValidTile()) continue;
-
-			// Rules
-			//  If there is no piece on the end tile, then add that as a move
-			//  If there is a friendly piece, then you can move up to that but not onto or past it
-			//  If there is a enemy piece, then you can move on to that (and capture it) but
-			//  not past it
-
-			Piece pieceOnEndTile = boardInfo.getPiece(endTile);
-			if (pieceOnEndTile == null)
-				movesGenerated.add(new Move(startTile, endTile));
-			else {
-				if (pieceOnEndTile.friendly(boardInfo.whiteToMove))
-					continue;
-				movesGenerated.add(new Move(startTile, endTile));
-			}
-		}
+		int count = MoveGenerator.addMoves(startSquare, Attacks.kingAttacks(startSquare) & targets,
+										   moves);
 
 		// Castling moves
+		if (!canCastle)
+			return count;
 		if (boardInfo.whiteToMove)
-			movesGenerated.addAll(MoveGenerator
-								  .generateCastlingMoves(startTile, boardInfo,
-														 boardInfo.castleK, boardInfo.castleQ));
+			count += MoveGenerator.generateCastlingMoves(startSquare, boardInfo,
+														 boardInfo.castleK, boardInfo.castleQ,
+														 moves);
 		else
-			movesGenerated.addAll(MoveGenerator
-								  .generateCastlingMoves(startTile, boardInfo,
-														 boardInfo.castlek, boardInfo.castleq));
-		
-		return movesGenerated;
+			count += MoveGenerator.generateCastlingMoves(startSquare, boardInfo,
+														 boardInfo.castlek, boardInfo.castleq,
+														 moves);
+		return count;
 	}
 
 
 	/**
-	 * Generates castling moves.
+	 * Generates strictly legal moves for the king of the current player, including castling.
 	 *
-	 * @param startTile the tile the piece starts on.
-	 * @param boardInfo a {@code BoardInfo} object that defines the board state.
+	 * @param kingSquare  the square the king is on.
+	 * @param boardInfo   a {@code BoardInfo} object that defines the board state.
+	 * @param targets     a bitboard of the tiles the king may move to, which must not contain 
+	 *                    friendly pieces.
+	 * @param canCastle   whether castling should be considered. This is false when the king is 
+	 *                    in check.
+	 * @param moves       the list to add the legal moves to, or {@code null} to only count them.
 	 *
-	 * @return a {@code List} of pseudo-legal moves.
+	 * @return the number of moves.
 	 */
-	private static List<Move> generateCastlingMoves(Coordinate startTile,
-													BoardInfo boardInfo,
-													boolean castleKingside,
-													boolean castleQueenside)
+	private static int generateLegalKingMoves(int kingSquare, BoardInfo boardInfo, long targets,
+											   boolean canCastle, MoveList moves)
 	{
-		List<Move> movesGenerated = new ArrayList<>();
+		boolean white = boardInfo.whiteToMove;
+
+		// The king is removed from the occupancy so that tiles behind it on the line of a
+		// checking slider are seen as attacked
+		long occupied = boardInfo.getOccupied() ^ Bitboard.mask(kingSquare);
+		long endSquares = Attacks.kingAttacks(kingSquare) & targets;
+		int count = 0;
+		for (; endSquares != 0; endSquares &= endSquares - 1) {
+			int endSquare = Bitboard.first(endSquares);
+			if (MoveGenerator.attackersTo(boardInfo, endSquare, occupied, !white) == 0) {
+				count++;
+				if (moves != null)
+					moves.add(Move.encode(kingSquare, endSquare, Move.Flag.NONE));
+			}
+		}
+
+		if (!canCastle)
+			return count;
+		if (white)
+			count += MoveGenerator.generateCastlingMoves(kingSquare, boardInfo,
+														 boardInfo.castleK, boardInfo.castleQ,
+														 moves);
+		else
+			count += MoveGenerator.generateCastlingMoves(kingSquare, boardInfo,
+														 boardInfo.castlek, boardInfo.castleq,
+														 moves);
+		return count;
+	}
 
+
+	/**
+	 * Generates castling moves.
+	 *
+	 * @param startSquare      the square the king starts on.
+	 * @param boardInfo        a {@code BoardInfo} object that defines the board state.
+	 * @param castleKingside   whether castling kingside is allowed.
+	 * @param castleQueenside  whether castling queenside is allowed.
+	 * @param moves            the list to add the pseudo-legal moves to, or {@code null} to only 
+	 *                         count them.
+	 *
+	 * @return the number of moves.
+	 */
+	private static int generateCastlingMoves(int startSquare,
+											  BoardInfo boardInfo,
+											  boolean castleKingside,
+											  boolean castleQueenside,
+											  MoveList moves)
+	{
 		// Castling conditions (either side):
 		//  - The king is not in check
 		//  - Castling is allowed
 		//  - The space between the king and rook is empty
 		//  - The space between the king and rook is not controlled by the opponent
+		if (!castleKingside && !castleQueenside)
+			return 0;
+
+		boolean byWhite = !boardInfo.whiteToMove;
+		int x = startSquare & 7;
+		long occupied = boardInfo.getOccupied();
+
+		long kingsidePath = Bitboard.mask(startSquare + 1) | Bitboard.mask(startSquare + 2);
+		long queensidePath = Bitboard.mask(startSquare - 1) | Bitboard.mask(startSquare - 2) |
+			Bitboard.mask(startSquare - 3);
+
+		int count = 0;
+		if (!MoveGenerator.isSquareAttacked(boardInfo, startSquare, byWhite)) {
+			if (castleKingside && x <= 5 &&
+				(occupied & kingsidePath) == 0 &&
+				!MoveGenerator.isSquareAttacked(boardInfo, startSquare + 1, byWhite) &&
+				!MoveGenerator.isSquareAttacked(boardInfo, startSquare + 2, byWhite))
+			{
+				count++;
+				if (moves != null)
+					moves.add(Move.encode(startSquare, startSquare + 2, Move.Flag.CASTLE_KINGSIDE));
+			}
 
-		if (!boardInfo.tilesOpponentControls.contains(startTile)) {
-			Coordinate endTileK = startTile.shift(new Vector(2, 0));
-			if (castleKingside == true &&
-				boardInfo.getPiece(startTile.shift(new Vector(1, 0))) == null &&
-				boardInfo.getPiece(startTile.shift(new Vector(2, 0))) == null &&
-				!boardInfo.tilesOpponentControls.contains(startTile.shift(new Vector(1, 0))) &&
-				!boardInfo.tilesOpponentControls.contains(startTile.shift(new Vector(2, 0))))
-				movesGenerated.add(new Move(startTile, endTileK, Move.Flag.CASTLE_KINGSIDE));
-
-			Coordinate endTileQ = startTile.shift(new Vector(-2, 0));
-			if (castleQueenside == true &&
-				boardInfo.getPiece(startTile.shift(new Vector(-1, 0))) == null &&
-				boardInfo.getPiece(startTile.shift(new Vector(-2, 0))) == null &&
-				boardInfo.getPiece(startTile.shift(new Vector(-3, 0))) == null &&
-				!boardInfo.tilesOpponentControls.contains(startTile.shift(new Vector(-1, 0))) &&
-				!boardInfo.tilesOpponentControls.contains(startTile.shift(new Vector(-2, 0))))
-				movesGenerated.add(new Move(startTile, endTileQ, Move.Flag.CASTLE_QUEENSIDE));
+			if (castleQueenside && x >= 3 &&
+				(occupied & queensidePath) == 0 &&
+				!MoveGenerator.isSquareAttacked(boardInfo, startSquare - 1, byWhite) &&
+				!MoveGenerator.isSquareAttacked(boardInfo, startSquare - 2, byWhite))
+			{
+				count++;
+				if (moves != null)
+					moves.add(Move.encode(startSquare, startSquare - 2,
+										  Move.Flag.CASTLE_QUEENSIDE));
+			}
 		}
-
-		return movesGenerated;
+		return count;
 	}
 
 
 	/**
-	 * Generates a list of tiles controlled by pawns (because the tiles pawns control are not the 
-	 * same as the tiles pawns can regularly move to). This method generates two moves at vectors 
-	 * <-1, 1> and <1, 1> from a given player's perspective, even if no piece can be captured in 
-	 * that square. Although, it should be noted the pawn capture tile will only be generated if 
-	 * it is on the board (e.g. a pawn on the A or H file will only have 1 controlled tile).
+	 * Adds a pawn move to a list. If the end tile is on the promotion row, one move for each 
+	 * promotion piece is added instead.
 	 *
-	 * @param startTile  the tile the piece starts on.
-	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param startSquare  the square the pawn starts on.
+	 * @param endSquare    the square the pawn moves to.
+	 * @param promotion    whether the move ends on the promotion row.
+	 * @param moves        the list to add the moves to, or {@code null} to only count them.
 	 *
-	 * @return a {@code List} of tiles controlled by a pawn on the given starting tile.
+	 * @return the number of moves.
 	 */
-	private static List<Coordinate> generatePawnTilesControlled(Coordinate startTile,
-																BoardInfo boardInfo)
+	private static int addPawnMove(int startSquare, int endSquare, boolean promotion,
+								   MoveList moves)
 	{
-		List<Coordinate> tilesControlled = new ArrayList<>();
-
-		 // Direction the pawn moves, always from the white perspective
-		int pawnDir = (boardInfo.whiteToMove) ? 1 : -1;
-		Vector v_leftCapture = new Vector(-1, 1 * pawnDir);
-		Vector v_rightCapture = new Vector(1, 1 * pawnDir);
-		Coordinate leftCapture = startTile.shift(v_leftCapture);
-		Coordinate rightCapture = startTile.shift(v_rightCapture);
-
-		if (leftCapture.isValidTile())
-			tilesControlled.add(leftCapture);
-		if (rightCapture.isValidTile())
-			tilesControlled.add(rightCapture);
-		
-		return tilesControlled;
+		if (moves == null)
+			return (promotion) ? 4 : 1;
+
+		if (promotion) {
+			moves.add(Move.encode(startSquare, endSquare, Move.Flag.PROMOTE_KNIGHT));
+			moves.add(Move.encode(startSquare, endSquare, Move.Flag.PROMOTE_BISHOP));
+			moves.add(Move.encode(startSquare, endSquare, Move.Flag.PROMOTE_ROOK));
+			moves.add(Move.encode(startSquare, endSquare, Move.Flag.PROMOTE_QUEEN));
+			return 4;
+		}
+		moves.add(Move.encode(startSquare, endSquare, Move.Flag.NONE));
+		return 1;
 	}
 
 
 	/**
 	 * Generates moves for pawns. This includes regular 1-tile moves, starting 2-tile moves, 
-	 * en passant, diagonal captures, and promotion.
+	 * diagonal captures, and promotion. En passant is generated separately by 
+	 * {@code generateEnPassantMoves}.
 	 * <p>
 	 * The general algorithm for generating all pawn moves is:
 	 * <ul>
@@ -446,100 +877,123 @@ public class MoveGenerator {
 	 * <li> generate {@code <1, 1*DIR>} IF on board AND enemy piece
 	 * <li> generate PREVIOUS 3 MOVES with PROMOTE_TO_* IF (white AND end on a8-h8) OR 
 	 *      (black AND end on a1-h1)
-	 * <li> generate {@code <1, 1*DIR>} with EN_PASSANT IF {@code <1, 1*DIR>} IS ep_tile
-	 * <li> generate {@code <-1, 1*DIR>} with EN_PASSANT IF {@code <-1, 1*DIR>} IS ep_tile
 	 * <li> generate {@code <0, 2*DIR>} with TWO_FORWARD IF both empty
+	 * <li> discard any move whose end tile is not in {@code allowed}
 	 * </ul>
 	 *
-	 * @param startTile  the tile the piece starts on.
-	 * @param boardInfo  a {@code BoardInfo} object that defines the board state.
+	 * @param startSquare  the square the piece starts on.
+	 * @param boardInfo    a {@code BoardInfo} object that defines the board state.
+	 * @param allowed      a bitboard of the end tiles the pawn may move to, used to restrict the 
+	 *                     pawn when the king is in check or the pawn is pinned.
+	 * @param captures     whether to generate captures and promotions.
+	 * @param quiets       whether to generate forward moves that do not promote.
+	 * @param moves        the list to add the moves to, or {@code null} to only count them.
 	 *
-	 * @return a {@code List} of pseudo-legal moves.
+	 * @return the number of moves.
 	 */
-	private static List<Move> generatePawnMoves(Coordinate startTile, BoardInfo boardInfo) {
-		List<Move> movesGenerated = new ArrayList<>();
-
-		// Generate the vectors and coordinates for all of the possible positions of pawn moves
-		int pawnDir = (boardInfo.whiteToMove) ? 1 : -1;
-		int homeRowY = (boardInfo.whiteToMove) ? 1 : 6;
-		int promotionRowY = (boardInfo.whiteToMove) ? 7 : 0;
-		Vector v_oneForward = new Vector(0, 1 * pawnDir);
-		Vector v_twoFoward = new Vector(0, 2 * pawnDir);
-		Vector v_leftCapture = new Vector(-1, 1 * pawnDir);
-		Vector v_rightCapture = new Vector(1, 1 * pawnDir);
-		Coordinate oneForward = startTile.shift(v_oneForward);
-		Coordinate twoForward = startTile.shift(v_twoFoward);
-		Coordinate leftCapture = startTile.shift(v_leftCapture);
-		Coordinate rightCapture = startTile.shift(v_rightCapture);
-		List<Coordinate> homeRowTiles = new ArrayList<>();
-		List<Coordinate> promotionRowTiles = new ArrayList<>();
-
-		// Generate the coordinates for the pawn home row and promotion row
-		for (int x = 0; x < 8; x++)
-			homeRowTiles.add(new Coordinate(x, homeRowY));
-		for (int x = 0; x < 8; x++)
-			promotionRowTiles.add(new Coordinate(x, promotionRowY));
-
-		
-		// One forward
-		if (oneForward.isValidTile() &&
-			boardInfo.getPiece(oneForward) == null)
-		{
-			if (promotionRowTiles.contains(oneForward)) {
-				movesGenerated.add(new Move(startTile, oneForward, Move.Flag.PROMOTE_KNIGHT));
-				movesGenerated.add(new Move(startTile, oneForward, Move.Flag.PROMOTE_BISHOP));
-				movesGenerated.add(new Move(startTile, oneForward, Move.Flag.PROMOTE_ROOK));
-				movesGenerated.add(new Move(startTile, oneForward, Move.Flag.PROMOTE_QUEEN));
-			}
-			else
-				movesGenerated.add(new Move(startTile, oneForward));
+	private static int generatePawnMoves(int startSquare, BoardInfo boardInfo, long allowed,
+										 boolean captures, boolean quiets, MoveList moves)
+	{
+		boolean white = boardInfo.whiteToMove;
+		long occupied = boardInfo.getOccupied();
+		long enemies = boardInfo.getColorBoard(!white);
+		long homeRow = (white) ? Bitboard.RANK_2 : Bitboard.RANK_7;
+		long promotionRow = (white) ? Bitboard.RANK_8 : Bitboard.RANK_1;
+		int pawnDir = (white) ? 8 : -8;
+
+		// One forward. Pawns can only be on the promotion row with a malformed FEN string, in
+		// which case there are no forward moves
+		int oneForward = startSquare + pawnDir;
+		if (oneForward < 0 || oneForward > 63)
+			return 0;
+		int count = 0;
+		boolean oneForwardEmpty = (occupied & Bitboard.mask(oneForward)) == 0;
+		boolean promotion = (promotionRow & Bitboard.mask(oneForward)) != 0;
+		if (oneForwardEmpty && (allowed & Bitboard.mask(oneForward)) != 0 &&
+			((promotion) ? captures : quiets))
+			count += MoveGenerator.addPawnMove(startSquare, oneForward, promotion, moves);
+
+		// Captures
+		long captureSquares = (captures) ? Attacks.pawnAttacks(startSquare, white) & enemies &
+			allowed : Bitboard.EMPTY;
+		for (; captureSquares != 0; captureSquares &= captureSquares - 1) {
+			int endSquare = Bitboard.first(captureSquares);
+			count += MoveGenerator.addPawnMove(startSquare, endSquare, promotion, moves);
 		}
 
-		// Left capture
-		if (leftCapture.isValidTile() &&
-			boardInfo.getPiece(leftCapture) != null &&
-			!boardInfo.getPiece(leftCapture).friendly(boardInfo.whiteToMove))
+		// Two forward
+		int twoForward = oneForward + pawnDir;
+		if (quiets &&
+			(homeRow & Bitboard.mask(startSquare)) != 0 &&
+			oneForwardEmpty &&
+			(occupied & Bitboard.mask(twoForward)) == 0 &&
+			(allowed & Bitboard.mask(twoForward)) != 0)
 		{
-			if (promotionRowTiles.contains(leftCapture)) {
-				movesGenerated.add(new Move(startTile, leftCapture, Move.Flag.PROMOTE_KNIGHT));
-				movesGenerated.add(new Move(startTile, leftCapture, Move.Flag.PROMOTE_BISHOP));
-				movesGenerated.add(new Move(startTile, leftCapture, Move.Flag.PROMOTE_ROOK));
-				movesGenerated.add(new Move(startTile, leftCapture, Move.Flag.PROMOTE_QUEEN));
-			}
-			else
-				movesGenerated.add(new Move(startTile, leftCapture));
+			count++;
+			if (moves != null)
+				moves.add(Move.encode(startSquare, twoForward, Move.Flag.PAWN_TWO_FORWARD));
 		}
+		return count;
+	}
 
-		// Right capture
-		if (rightCapture.isValidTile() &&
-			boardInfo.getPiece(rightCapture) != null &&
-			!boardInfo.getPiece(rightCapture).friendly(boardInfo.whiteToMove))
-		{
-			if (promotionRowTiles.contains(rightCapture)) {
-				movesGenerated.add(new Move(startTile, rightCapture, Move.Flag.PROMOTE_KNIGHT));
-				movesGenerated.add(new Move(startTile, rightCapture, Move.Flag.PROMOTE_BISHOP));
-				movesGenerated.add(new Move(startTile, rightCapture, Move.Flag.PROMOTE_ROOK));
-				movesGenerated.add(new Move(startTile, rightCapture, Move.Flag.PROMOTE_QUEEN));
+
+	/**
+	 * Generates en passant captures for every pawn of the current player that attacks the 
+	 * en passant tile.
+	 * <p>
+	 * When generating legal moves, the capture must resolve any check (by capturing the checking 
+	 * pawn or blocking on the en passant tile), and must not expose the king to a sliding piece 
+	 * once both the capturing and captured pawns have left their tiles. The second test covers 
+	 * both ordinary pins and the case where the two pawns are the only pieces between the king 
+	 * and an enemy rook or queen on the same rank.
+	 *
+	 * @param boardInfo   a {@code BoardInfo} object that defines the board state.
+	 * @param legal       whether to only generate strictly legal captures.
+	 * @param kingSquare  the square of the current player's king. Only used if {@code legal}.
+	 * @param checkMask   the tiles that resolve the current check, or {@code Bitboard.FULL} if 
+	 *                    not in check. Only used if {@code legal}.
+	 * @param from        a bitboard of the tiles of the pawns that may capture.
+	 * @param moves       the list to add the moves to, or {@code null} to only count them.
+	 *
+	 * @return the number of moves.
+	 */
+	private static int generateEnPassantMoves(BoardInfo boardInfo, boolean legal,
+											   int kingSquare, long checkMask, long from,
+											   MoveList moves)
+	{
+		Coordinate enPassantTile = boardInfo.enPassantTile;
+		if (enPassantTile == null || !enPassantTile.isValidTile())
+			return 0;
+
+		boolean white = boardInfo.whiteToMove;
+		int endSquare = Bitboard.square(enPassantTile);
+		int capturedSquare = endSquare - ((white) ? 8 : -8);
+		long capturers = Attacks.pawnAttacks(endSquare, !white) &
+			boardInfo.getPieceBoard(Piece.Type.PAWN, white) & from;
+		if (capturers == 0 || capturedSquare < 0 || capturedSquare > 63)
+			return 0;
+		if (legal && (checkMask & (Bitboard.mask(endSquare) | Bitboard.mask(capturedSquare))) == 0)
+			return 0;
+
+		long queens = boardInfo.getPieceBoard(Piece.Type.QUEEN, !white);
+		long orthogonals = boardInfo.getPieceBoard(Piece.Type.ROOK, !white) | queens;
+		long diagonals = boardInfo.getPieceBoard(Piece.Type.BISHOP, !white) | queens;
+		int count = 0;
+		for (; capturers != 0; capturers &= capturers - 1) {
+			int startSquare = Bitboard.first(capturers);
+			if (legal) {
+				long occupied = (boardInfo.getOccupied() &
+								 ~Bitboard.mask(startSquare) &
+								 ~Bitboard.mask(capturedSquare)) | Bitboard.mask(endSquare);
+				if ((Attacks.rookAttacks(kingSquare, occupied) & orthogonals) != 0 ||
+					(Attacks.bishopAttacks(kingSquare, occupied) & diagonals) != 0)
+					continue;
 			}
-			else
-				movesGenerated.add(new Move(startTile, rightCapture));
+			count++;
+			if (moves != null)
+				moves.add(Move.encode(startSquare, endSquare, Move.Flag.EN_PASSANT));
 		}
-
-		// Two forward
-		if (homeRowTiles.contains(startTile) &&
-			twoForward.isValidTile() &&
-			boardInfo.getPiece(oneForward) == null &&
-			boardInfo.getPiece(twoForward) == null)
-			movesGenerated.add(new Move(startTile, twoForward, Move.Flag.PAWN_TWO_FORWARD));
-
-		// En passant
-		if (boardInfo.enPassantTile != null &&
-			boardInfo.enPassantTile.isValidTile() &&
-			(leftCapture.equals(boardInfo.enPassantTile) ||
-			 rightCapture.equals(boardInfo.enPassantTile)))
-			movesGenerated.add(new Move(startTile, boardInfo.enPassantTile, Move.Flag.EN_PASSANT));
-		
-		return movesGenerated;
+		return count;
 	}
 
 }
@@ -0,0 +1,165 @@
+package engine.move;
+
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * A growable list of encoded moves backed by an {@code int} array. Move generators write into a 
+ * {@code MoveList} supplied by the caller, so a search or perft can keep one list per ply and 
+ * reuse it at every node with {@code clear}, without allocating any objects.
+ *
+ * @see engine.move.Move#encode(int, int, Move.Flag)
+ *
+ * @author Jonathan Uhler
+ */
+public class MoveList {
+
+	/**
+	 * The initial capacity of the list. No legal chess position has more than 218 moves, so 
+	 * lists of legal moves never need to grow.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** The encoded moves in this list. Only the first {@code size} elements are used. */
+	private int[] moves;
+	/** The number of moves in this list. */
+	private int size;
+
+
+	/**
+	 * Constructs an empty {@code MoveList} with the default capacity.
+	 */
+	public MoveList() {
+		this(MoveList.DEFAULT_CAPACITY);
+	}
+
+
+	/**
+	 * Constructs an empty {@code MoveList} with a given initial capacity.
+	 *
+	 * @param capacity  the initial capacity of the list.
+	 *
+	 * @throws IllegalArgumentException  if {@code capacity < 1}.
+	 */
+	public MoveList(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		this.moves = new int[capacity];
+		this.size = 0;
+	}
+
+
+	/**
+	 * Adds an encoded move to the end of this list, growing the list if it is full.
+	 *
+	 * @param move  the encoded move to add.
+	 */
+	public void add(int move) {
+		if (this.size == this.moves.length)
+			this.moves = Arrays.copyOf(this.moves, this.moves.length * 2);
+		this.moves[this.size++] = move;
+	}
+
+
+	/**
+	 * Returns the encoded move at a given index. No bounds checking is done beyond that of the 
+	 * backing array.
+	 *
+	 * @param index  the index of the move, on the interval [0, size()).
+	 *
+	 * @return the encoded move at {@code index}.
+	 */
+	public int get(int index) {
+		return this.moves[index];
+	}
+
+
+	/**
+	 * Replaces the encoded move at a given index.
+	 *
+	 * @param index  the index of the move, on the interval [0, size()).
+	 * @param move   the encoded move to store.
+	 */
+	public void set(int index, int move) {
+		this.moves[index] = move;
+	}
+
+
+	/**
+	 * Returns the number of moves in this list.
+	 *
+	 * @return the number of moves in this list.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+
+	/**
+	 * Determines whether this list is empty.
+	 *
+	 * @return true if this list has no moves.
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+
+	/**
+	 * Removes every move from this list. The backing array is kept for reuse.
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+
+	/**
+	 * Determines whether this list contains an encoded move.
+	 *
+	 * @param move  the encoded move to search for.
+	 *
+	 * @return true if {@code move} is in this list.
+	 */
+	public boolean contains(int move) {
+		for (int i = 0; i < this.size; i++) {
+			if (this.moves[i] == move)
+				return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * Converts this list to a {@code List} of {@code Move} objects, in the same order.
+	 *
+	 * @return a new {@code List} of {@code Move} objects.
+	 */
+	public List<Move> toList() {
+		List<Move> list = new ArrayList<>(this.size);
+		for (int i = 0; i < this.size; i++)
+			list.add(Move.decode(this.moves[i]));
+		return list;
+	}
+
+
+	/**
+	 * Returns a string representation of this list, with each move formatted by 
+	 * {@code Move.toString(int)}.
+	 *
+	 * @return a string representation of this list.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < this.size; i++) {
+			if (i > 0)
+				builder.append(", ");
+			builder.append(Move.toString(this.moves[i]));
+		}
+		return builder.append("]").toString();
+	}
+
+}
@@ -7,6 +7,10 @@ import java.io.Serializable;
 /**
  * Represents a piece of a given color and type. This class implements the {@code Serializable} 
  * interface to allow for deep-copying by the {@code BoardInfo} class.
+ * <p>
+ * {@code Piece} objects are immutable and are obtained with {@code Piece.of}, which returns one 
+ * shared instance for each combination of type and color. Pieces never need to be allocated, and 
+ * can be compared by identity.
  *
  * @author Jonathan Uhler
  */
@@ -46,24 +50,72 @@ public class Piece implements Serializable {
 	}
 	
 
+	/** The number of piece types, not including {@code Piece.Type.NONE}. */
+	public static final int NUM_TYPES = 6;
+	/** The number of kinds of colored pieces, equal to {@code 2 * NUM_TYPES}. */
+	public static final int NUM_KINDS = 2 * Piece.NUM_TYPES;
+	/** The number of colors, including {@code Piece.Color.NONE}. */
+	private static final int NUM_COLORS = Piece.Color.values().length;
+	
+
+	/** The shared instance for each combination of type and color, indexed by ordinals. */
+	private static final Piece[][] PIECES =
+		new Piece[Piece.Type.values().length][Piece.NUM_COLORS];
+	static {
+		for (Piece.Type type : Piece.Type.values()) {
+			for (Piece.Color color : Piece.Color.values())
+				Piece.PIECES[type.ordinal()][color.ordinal()] = new Piece(type, color);
+		}
+	}
+	
+
 	/** The piece type. */
-	private Piece.Type type;
+	private final Piece.Type type;
 	/** The piece color. */
-	private Piece.Color color;
+	private final Piece.Color color;
 
 
 	/**
-	 * Constructs a {@code Piece} object.
+	 * Constructs a {@code Piece} object. Use {@code Piece.of} to get instances.
 	 *
 	 * @param type   the type of the piece.
 	 * @param color  the color of the piece.
 	 */
-	public Piece(Piece.Type type, Piece.Color color) {
+	private Piece(Piece.Type type, Piece.Color color) {
 		this.type = type;
 		this.color = color;
 	}
 
 
+	/**
+	 * Returns the shared {@code Piece} object for a type and color.
+	 *
+	 * @param type   the type of the piece.
+	 * @param color  the color of the piece.
+	 *
+	 * @return the shared {@code Piece} object.
+	 *
+	 * @throws NullPointerException  if {@code type} or {@code color} is null.
+	 */
+	public static Piece of(Piece.Type type, Piece.Color color) {
+		if (type == null || color == null)
+			throw new NullPointerException("null arguments found: type=" + type +
+										   ", color=" + color);
+		return Piece.PIECES[type.ordinal()][color.ordinal()];
+	}
+
+
+	/**
+	 * Replaces a deserialized {@code Piece} object with the shared instance, so that pieces sent 
+	 * over the network or deep-copied by serialization stay interned.
+	 *
+	 * @return the shared instance equal to this object.
+	 */
+	private Object readResolve() {
+		return Piece.of(this.type, this.color);
+	}
+
+
 	/**
 	 * Returns the type of the piece.
 	 *
@@ -121,6 +173,21 @@ public class Piece implements Serializable {
 	}
 
 
+	/**
+	 * Returns the index of this piece among the twelve kinds of colored pieces. White pieces
+	 * occupy indices 0-5 and black pieces 6-11, each ordered pawn, knight, bishop, rook, queen,
+	 * king. This index is used by the {@code BoardInfo} class to select the bitboard for a piece.
+	 *
+	 * @return the index of this piece, or -1 if the type or color of this piece is {@code NONE}.
+	 */
+	public int getIndex() {
+		if (this.type == Piece.Type.NONE || this.color == Piece.Color.NONE)
+			return -1;
+		int colorOffset = (this.color == Piece.Color.WHITE) ? 0 : Piece.NUM_TYPES;
+		return colorOffset + this.type.ordinal() - 1;
+	}
+
+
 	/**
 	 * Checks for equality between this {@code Piece} object and another object. Equality is
 	 * determinted by:
@@ -135,6 +202,9 @@ public class Piece implements Serializable {
 	 */
 	@Override
 	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+
 		Piece pObj;
 		try {
 		    pObj = (Piece) obj;
@@ -153,6 +223,17 @@ public class Piece implements Serializable {
 	}
 
 
+	/**
+	 * Returns a hash code for this {@code Piece} object.
+	 *
+	 * @return a hash code for this {@code Piece} object.
+	 */
+	@Override
+	public int hashCode() {
+		return this.type.ordinal() * Piece.NUM_COLORS + this.color.ordinal();
+	}
+
+
 	/**
 	 * Returns a string representation of this {@code Piece} object.
 	 * <p>
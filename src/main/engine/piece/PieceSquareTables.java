@@ -0,0 +1,213 @@
+package engine.piece;
+
+
+/**
+ * Material values and piece-square tables. These are part of the engine rather than the AI, since
+ * {@code engine.board.BoardInfo} keeps the sums of the tables up to date as pieces move, and
+ * {@code engine.move.MoveGenerator} values pieces for static exchange evaluation. The AI blends
+ * the sums into a score in {@code ai.Evaluation}.
+ * <p>
+ * Each piece has a midgame and an endgame value that depends on its square, which includes its
+ * material value, and a contribution to the game phase, which is computed from the minor and
+ * major pieces left on the board.
+ *
+ * @author Jonathan Uhler
+ */
+public class PieceSquareTables {
+
+	/**
+	 * The exchange value of each piece type, indexed by {@code Piece.Type.ordinal}. These values
+	 * are used to compare captures, not in the evaluation itself.
+	 */
+	public static final int[] PIECE_VALUES = {0, 100, 320, 330, 500, 900, 0};
+	/** The midgame material value of each piece type, indexed by {@code Piece.Type.ordinal}. */
+	public static final int[] MIDGAME_PIECE_VALUES = {0, 100, 320, 330, 500, 900, 0};
+	/** The endgame material value of each piece type, indexed by {@code Piece.Type.ordinal}. */
+	public static final int[] ENDGAME_PIECE_VALUES = {0, 120, 300, 320, 520, 940, 0};
+	/** The contribution of each piece type to the game phase, indexed by {@code Type.ordinal}. */
+	public static final int[] PHASE_WEIGHTS = {0, 0, 1, 1, 2, 4, 0};
+	/** The game phase of the starting position, or of any position with more material. */
+	public static final int MAX_PHASE = 24;
+
+
+	// Piece-square tables for the white pieces, written as the board is seen from the white
+	// player's side: the first row is rank 8 and the last is rank 1. Black pieces use the same
+	// tables mirrored vertically
+	private static final int[] MIDGAME_PAWN = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		 50,  50,  50,  50,  50,  50,  50,  50,
+		 10,  10,  20,  30,  30,  20,  10,  10,
+		  5,   5,  10,  25,  25,  10,   5,   5,
+		  0,   0,   0,  20,  20,   0,   0,   0,
+		  5,  -5, -10,   0,   0, -10,  -5,   5,
+		  5,  10,  10, -20, -20,  10,  10,   5,
+		  0,   0,   0,   0,   0,   0,   0,   0
+	};
+	private static final int[] ENDGAME_PAWN = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		 80,  80,  80,  80,  80,  80,  80,  80,
+		 50,  50,  50,  50,  50,  50,  50,  50,
+		 30,  30,  30,  30,  30,  30,  30,  30,
+		 15,  15,  15,  15,  15,  15,  15,  15,
+		  5,   5,   5,   5,   5,   5,   5,   5,
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		  0,   0,   0,   0,   0,   0,   0,   0
+	};
+	private static final int[] KNIGHT = {
+		-50, -40, -30, -30, -30, -30, -40, -50,
+		-40, -20,   0,   0,   0,   0, -20, -40,
+		-30,   0,  10,  15,  15,  10,   0, -30,
+		-30,   5,  15,  20,  20,  15,   5, -30,
+		-30,   0,  15,  20,  20,  15,   0, -30,
+		-30,   5,  10,  15,  15,  10,   5, -30,
+		-40, -20,   0,   5,   5,   0, -20, -40,
+		-50, -40, -30, -30, -30, -30, -40, -50
+	};
+	private static final int[] BISHOP = {
+		-20, -10, -10, -10, -10, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,  10,  10,   5,   0, -10,
+		-10,   5,   5,  10,  10,   5,   5, -10,
+		-10,   0,  10,  10,  10,  10,   0, -10,
+		-10,  10,  10,  10,  10,  10,  10, -10,
+		-10,   5,   0,   0,   0,   0,   5, -10,
+		-20, -10, -10, -10, -10, -10, -10, -20
+	};
+	private static final int[] MIDGAME_ROOK = {
+		  0,   0,   0,   0,   0,   0,   0,   0,
+		  5,  10,  10,  10,  10,  10,  10,   5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		 -5,   0,   0,   0,   0,   0,   0,  -5,
+		  0,   0,   0,   5,   5,   0,   0,   0
+	};
+	private static final int[] ENDGAME_ROOK = new int[64];
+	private static final int[] QUEEN = {
+		-20, -10, -10,  -5,  -5, -10, -10, -20,
+		-10,   0,   0,   0,   0,   0,   0, -10,
+		-10,   0,   5,   5,   5,   5,   0, -10,
+		 -5,   0,   5,   5,   5,   5,   0,  -5,
+		  0,   0,   5,   5,   5,   5,   0,  -5,
+		-10,   5,   5,   5,   5,   5,   0, -10,
+		-10,   0,   5,   0,   0,   0,   0, -10,
+		-20, -10, -10,  -5,  -5, -10, -10, -20
+	};
+	private static final int[] MIDGAME_KING = {
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-20, -30, -30, -40, -40, -30, -30, -20,
+		-10, -20, -20, -20, -20, -20, -20, -10,
+		 20,  20,   0,   0,   0,   0,  20,  20,
+		 20,  30,  10,   0,   0,  10,  30,  20
+	};
+	private static final int[] ENDGAME_KING = {
+		-50, -40, -30, -20, -20, -30, -40, -50,
+		-30, -20, -10,   0,   0, -10, -20, -30,
+		-30, -10,  20,  30,  30,  20, -10, -30,
+		-30, -10,  30,  40,  40,  30, -10, -30,
+		-30, -10,  30,  40,  40,  30, -10, -30,
+		-30, -10,  20,  30,  30,  20, -10, -30,
+		-30, -30,   0,   0,   0,   0, -30, -30,
+		-50, -30, -30, -30, -30, -30, -30, -50
+	};
+
+	/**
+	 * The midgame value of each kind of piece (indexed by {@code Piece.getIndex}) on each square,
+	 * including its material value, from the perspective of the white player.
+	 */
+	private static final int[][] MIDGAME_TABLES = new int[Piece.NUM_KINDS][64];
+	/**
+	 * The endgame value of each kind of piece (indexed by {@code Piece.getIndex}) on each square,
+	 * including its material value, from the perspective of the white player.
+	 */
+	private static final int[][] ENDGAME_TABLES = new int[Piece.NUM_KINDS][64];
+	/** The contribution of each kind of piece (indexed by {@code Piece.getIndex}) to the phase. */
+	private static final int[] PHASES = new int[Piece.NUM_KINDS];
+
+	static {
+		int[][] midgame = {PieceSquareTables.MIDGAME_PAWN, PieceSquareTables.KNIGHT,
+						   PieceSquareTables.BISHOP, PieceSquareTables.MIDGAME_ROOK,
+						   PieceSquareTables.QUEEN, PieceSquareTables.MIDGAME_KING};
+		int[][] endgame = {PieceSquareTables.ENDGAME_PAWN, PieceSquareTables.KNIGHT,
+						   PieceSquareTables.BISHOP, PieceSquareTables.ENDGAME_ROOK,
+						   PieceSquareTables.QUEEN, PieceSquareTables.ENDGAME_KING};
+		for (int type = 0; type < Piece.NUM_TYPES; type++) {
+			int white = type;
+			int black = type + Piece.NUM_TYPES;
+			int ordinal = type + 1;
+			for (int square = 0; square < 64; square++) {
+				// The tables are written with rank 8 first, so a white piece on a square reads the
+				// vertically mirrored entry, and a black piece reads the entry itself
+				PieceSquareTables.MIDGAME_TABLES[white][square] =
+					PieceSquareTables.MIDGAME_PIECE_VALUES[ordinal] + midgame[type][square ^ 56];
+				PieceSquareTables.ENDGAME_TABLES[white][square] =
+					PieceSquareTables.ENDGAME_PIECE_VALUES[ordinal] + endgame[type][square ^ 56];
+				PieceSquareTables.MIDGAME_TABLES[black][square] =
+					-(PieceSquareTables.MIDGAME_PIECE_VALUES[ordinal] + midgame[type][square]);
+				PieceSquareTables.ENDGAME_TABLES[black][square] =
+					-(PieceSquareTables.ENDGAME_PIECE_VALUES[ordinal] + endgame[type][square]);
+			}
+			PieceSquareTables.PHASES[white] = PieceSquareTables.PHASE_WEIGHTS[ordinal];
+			PieceSquareTables.PHASES[black] = PieceSquareTables.PHASE_WEIGHTS[ordinal];
+		}
+	}
+
+
+	/**
+	 * Returns the value of a piece type.
+	 *
+	 * @param type  the type of piece.
+	 *
+	 * @return the exchange value of {@code type} in centipawns. Kings have a value of 0, since
+	 *         both players always have one.
+	 */
+	public static int pieceValue(Piece.Type type) {
+		return PieceSquareTables.PIECE_VALUES[type.ordinal()];
+	}
+
+
+	/**
+	 * Returns the midgame value of a piece on a square. No validation is done on the arguments.
+	 *
+	 * @param index   the index of the piece, from {@code Piece.getIndex}.
+	 * @param square  the square index of the piece, on the interval [0, 63].
+	 *
+	 * @return the midgame value of the piece, including its material, from the perspective of
+	 *         the white player.
+	 */
+	public static int midgameValue(int index, int square) {
+		return PieceSquareTables.MIDGAME_TABLES[index][square];
+	}
+
+
+	/**
+	 * Returns the endgame value of a piece on a square. No validation is done on the arguments.
+	 *
+	 * @param index   the index of the piece, from {@code Piece.getIndex}.
+	 * @param square  the square index of the piece, on the interval [0, 63].
+	 *
+	 * @return the endgame value of the piece, including its material, from the perspective of
+	 *         the white player.
+	 */
+	public static int endgameValue(int index, int square) {
+		return PieceSquareTables.ENDGAME_TABLES[index][square];
+	}
+
+
+	/**
+	 * Returns the contribution of a piece to the game phase. No validation is done on the
+	 * argument.
+	 *
+	 * @param index  the index of the piece, from {@code Piece.getIndex}.
+	 *
+	 * @return the contribution of the piece to the game phase.
+	 */
+	public static int phaseWeight(int index) {
+		return PieceSquareTables.PHASES[index];
+	}
+
+}
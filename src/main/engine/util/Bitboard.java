@@ -0,0 +1,179 @@
+package engine.util;
+
+
+import java.util.List;
+import java.util.ArrayList;
+
+
+/**
+ * Utilities for working with bitboards. A bitboard is a 64-bit {@code long} where each bit
+ * represents one tile of the chess board. Bit {@code n} corresponds to the tile with
+ * {@code x = n % 8} and {@code y = n / 8}, so bit 0 is A1, bit 7 is H1, and bit 63 is H8. This
+ * is the same ordering used by {@code Coordinate.getAllValidCoordinates}.
+ * <p>
+ * Throughout the engine, a tile expressed as a number on the interval [0, 63] is referred to as
+ * a "square" to distinguish it from the {@code Coordinate} object representation of a "tile".
+ *
+ * @author Jonathan Uhler
+ */
+public class Bitboard {
+
+	/** A bitboard with no tiles set. */
+	public static final long EMPTY = 0L;
+	/** A bitboard with every tile set. */
+	public static final long FULL = ~0L;
+
+	/** All tiles on the A file. */
+	public static final long FILE_A = 0x0101010101010101L;
+	/** All tiles on the B file. */
+	public static final long FILE_B = Bitboard.FILE_A << 1;
+	/** All tiles on the G file. */
+	public static final long FILE_G = Bitboard.FILE_A << 6;
+	/** All tiles on the H file. */
+	public static final long FILE_H = Bitboard.FILE_A << 7;
+
+	/** All tiles on the first rank. */
+	public static final long RANK_1 = 0xFFL;
+	/** All tiles on the second rank. */
+	public static final long RANK_2 = Bitboard.RANK_1 << 8;
+	/** All tiles on the seventh rank. */
+	public static final long RANK_7 = Bitboard.RANK_1 << 48;
+	/** All tiles on the eighth rank. */
+	public static final long RANK_8 = Bitboard.RANK_1 << 56;
+
+	/** All light tiles, such as b1 and a2. */
+	public static final long LIGHT_TILES = 0x55AA55AA55AA55AAL;
+
+
+	/**
+	 * Returns the square index of a tile given its x and y position. No validation is done on
+	 * the arguments.
+	 *
+	 * @param x  the x position of the tile, on the interval [0, 7].
+	 * @param y  the y position of the tile, on the interval [0, 7].
+	 *
+	 * @return the square index of the tile.
+	 */
+	public static int square(int x, int y) {
+		return (y << 3) | x;
+	}
+
+
+	/**
+	 * Returns the square index of a {@code Coordinate} object.
+	 *
+	 * @param c  the coordinate to convert.
+	 *
+	 * @return the square index of the coordinate.
+	 *
+	 * @throws IllegalArgumentException  if {@code c == null} or {@code !(c.isValidTile())}.
+	 */
+	public static int square(Coordinate c) {
+		if (c == null || !c.isValidTile())
+			throw new IllegalArgumentException("c is null or invalid: " + c);
+		return Bitboard.square(c.getX(), c.getY());
+	}
+
+
+	/**
+	 * Returns the {@code Coordinate} object for a square index. This method and
+	 * {@code Bitboard.square(Coordinate)} are mathematical inverses.
+	 *
+	 * @param square  the square index, on the interval [0, 63].
+	 *
+	 * @return the {@code Coordinate} object for the square.
+	 */
+	public static Coordinate coordinate(int square) {
+		return Coordinate.of(square & 7, square >>> 3);
+	}
+
+
+	/**
+	 * Returns a bitboard with only the bit for the given square set.
+	 *
+	 * @param square  the square index, on the interval [0, 63].
+	 *
+	 * @return a bitboard with only the bit for {@code square} set.
+	 */
+	public static long mask(int square) {
+		return 1L << square;
+	}
+
+
+	/**
+	 * Returns the square index of the least significant set bit of a bitboard. The result is
+	 * undefined (64) if {@code bitboard == 0}.
+	 *
+	 * @param bitboard  the bitboard to scan.
+	 *
+	 * @return the square index of the least significant set bit.
+	 */
+	public static int first(long bitboard) {
+		return Long.numberOfTrailingZeros(bitboard);
+	}
+
+
+	/**
+	 * Returns the square index of the most significant set bit of a bitboard. The result is
+	 * undefined (-1) if {@code bitboard == 0}.
+	 *
+	 * @param bitboard  the bitboard to scan.
+	 *
+	 * @return the square index of the most significant set bit.
+	 */
+	public static int last(long bitboard) {
+		return 63 - Long.numberOfLeadingZeros(bitboard);
+	}
+
+
+	/**
+	 * Returns the number of set bits in a bitboard.
+	 *
+	 * @param bitboard  the bitboard to count.
+	 *
+	 * @return the number of set bits in {@code bitboard}.
+	 */
+	public static int count(long bitboard) {
+		return Long.bitCount(bitboard);
+	}
+
+
+	/**
+	 * Returns a list of {@code Coordinate} objects for every set bit in a bitboard. The
+	 * coordinates are ordered the same way as {@code Coordinate.getAllValidCoordinates}.
+	 *
+	 * @param bitboard  the bitboard to convert.
+	 *
+	 * @return a list of {@code Coordinate} objects for every set bit in {@code bitboard}.
+	 */
+	public static List<Coordinate> toCoordinates(long bitboard) {
+		List<Coordinate> coordinates = new ArrayList<>(Long.bitCount(bitboard));
+		while (bitboard != 0) {
+			coordinates.add(Bitboard.coordinate(Bitboard.first(bitboard)));
+			bitboard &= bitboard - 1;
+		}
+		return coordinates;
+	}
+
+
+	/**
+	 * Returns a string representation of a bitboard as an 8x8 grid from the white player's
+	 * perspective. Set bits are shown as "1" and cleared bits as ".".
+	 *
+	 * @param bitboard  the bitboard to convert.
+	 *
+	 * @return a string representation of the bitboard.
+	 */
+	public static String toString(long bitboard) {
+		StringBuilder builder = new StringBuilder();
+		for (int y = 7; y >= 0; y--) {
+			for (int x = 0; x < 8; x++) {
+				boolean set = (bitboard & Bitboard.mask(Bitboard.square(x, y))) != 0;
+				builder.append(set ? "1 " : ". ");
+			}
+			builder.append("\n");
+		}
+		return builder.toString();
+	}
+
+}
@@ -7,29 +7,78 @@ import java.io.Serializable;
 /**
  * Represents a tile on the chess board. This class implements the {@code Serializable} interface
  * to allow deep-copying by the {@code BoardInfo} class.
+ * <p>
+ * {@code Coordinate} objects are immutable and are obtained with {@code Coordinate.of}. One 
+ * shared instance exists for each of the 64 valid tiles, so valid coordinates can be compared by 
+ * identity and never need to be allocated. Invalid coordinates are still allowed (for example, 
+ * the variants use an x position of -1 with a y position that selects a piece in the bank), and 
+ * are allocated as needed, except for {@code OFF_BOARD} which is shared.
  *
  * @author Jonathan Uhler
  */
 public class Coordinate implements Serializable {
 
+	/** The shared instance for each valid tile, indexed by {@code y * 8 + x}. */
+	private static final Coordinate[] TILES = new Coordinate[64];
+	static {
+		for (int y = 0; y < 8; y++) {
+			for (int x = 0; x < 8; x++)
+				Coordinate.TILES[y * 8 + x] = new Coordinate(x, y);
+		}
+	}
+
+	/** A shared placeholder for a position that is not on the board, at (-1, -1). */
+	public static final Coordinate OFF_BOARD = new Coordinate(-1, -1);
+	
+
 	/** x position of the coordinate. */
-	private int x;
+	private final int x;
 	/** y position of the coordinate. */
-	private int y;
+	private final int y;
 	
 
 	/**
-	 * Constructs a {@code Coordinate} object.
+	 * Constructs a {@code Coordinate} object. Use {@code Coordinate.of} to get instances.
 	 *
 	 * @param x  x position.
 	 * @param y  y position.
 	 */
-	public Coordinate(int x, int y) {
+	private Coordinate(int x, int y) {
 		this.x = x;
 		this.y = y;
 	}
 
 
+	/**
+	 * Returns the {@code Coordinate} object for a position. If the position is a valid tile, the 
+	 * shared instance for that tile is returned. The position (-1, -1) returns 
+	 * {@code OFF_BOARD}, and any other invalid position returns a new object.
+	 *
+	 * @param x  x position.
+	 * @param y  y position.
+	 *
+	 * @return the {@code Coordinate} object for the position.
+	 */
+	public static Coordinate of(int x, int y) {
+		if (x >= 0 && x <= 7 && y >= 0 && y <= 7)
+			return Coordinate.TILES[y * 8 + x];
+		if (x == -1 && y == -1)
+			return Coordinate.OFF_BOARD;
+		return new Coordinate(x, y);
+	}
+
+
+	/**
+	 * Replaces a deserialized {@code Coordinate} object with the shared instance, so that 
+	 * coordinates sent over the network or deep-copied by serialization stay interned.
+	 *
+	 * @return the shared instance equal to this object.
+	 */
+	private Object readResolve() {
+		return Coordinate.of(this.x, this.y);
+	}
+
+
 	/**
 	 * Returns the x position of this coordinate.
 	 *
@@ -63,18 +112,18 @@ public class Coordinate implements Serializable {
 
 
 	/**
-	 * Moves a {@code Coordinate} object by a {@code Vector} object. This method returns a new
-	 * {@code Coordinate} object, leaving {@code this} unmodified. This method is identical to:
+	 * Moves a {@code Coordinate} object by a {@code Vector} object, leaving {@code this} 
+	 * unmodified. This method is identical to:
 	 * <p>
-	 * {@code new Coordinate(getX() + v.getXChange(), getY() + v.getYChange())}
+	 * {@code Coordinate.of(getX() + v.getXChange(), getY() + v.getYChange())}
 	 *
 	 * @param v  the {@code Vector} object to shift by
 	 *
-	 * @return a new {@code Coordinate} object translated by the vector {@code v}.
+	 * @return the {@code Coordinate} object translated by the vector {@code v}.
 	 */
 	public Coordinate shift(Vector v) {
-		return new Coordinate(this.x + v.getXChange(),
-							  this.y + v.getYChange());
+		return Coordinate.of(this.x + v.getXChange(),
+							 this.y + v.getYChange());
 	}
 
 
@@ -90,22 +139,14 @@ public class Coordinate implements Serializable {
 	 * <li> Coordinates move across each coumn before going up to the next row 
 	 *      (adding to x before y)
 	 * </ul>
+	 * <p>
+	 * The elements are the shared instances returned by {@code Coordinate.of}. Only the array 
+	 * itself is copied, so callers may modify it freely.
 	 *
 	 * @return a list of all valid coordiantes.
 	 */
 	public static Coordinate[] getAllValidCoordinates() {
-		Coordinate[] allValidCoordinates = new Coordinate[64];
-
-		int i = 0;
-		// Loop through y before x, because the loop should be row-major order and y=row/x=cols
-		for (int y = 0; y < 8; y++) {
-			for (int x = 0; x < 8; x++) {
-				allValidCoordinates[i] = new Coordinate(x, y);
-				i++;
-			}
-		}
-
-		return allValidCoordinates;
+		return Coordinate.TILES.clone();
 	}
 
 
@@ -118,6 +159,10 @@ public class Coordinate implements Serializable {
 	 */
 	@Override
 	public boolean equals(Object obj) {
+		// Valid tiles are interned, so identical objects are the common case
+		if (obj == this)
+			return true;
+
 		// Attempt to cast to a Coordinate object. If this fails, then obj is a different type,
 		// and thus cannot be equal
 		Coordinate cObj;
@@ -137,6 +182,18 @@ public class Coordinate implements Serializable {
 	}
 
 
+	/**
+	 * Returns a hash code for this {@code Coordinate} object. Valid tiles hash to their square 
+	 * index as defined by {@code engine.util.Bitboard}.
+	 *
+	 * @return a hash code for this {@code Coordinate} object.
+	 */
+	@Override
+	public int hashCode() {
+		return this.y * 8 + this.x;
+	}
+
+
 	/**
 	 * Returns a {@code Coordinate} object from a string. This method and the 
 	 * {@code Coordinate.toString} method are mathematical inverses. Note that this method does
@@ -165,7 +222,7 @@ public class Coordinate implements Serializable {
 		int col = colChar - 'a';
 		int row = rowChar - '1';
 
-		return new Coordinate(col, row);
+		return Coordinate.of(col, row);
 	}
 
 
@@ -5,29 +5,77 @@ package engine.util;
  * Represents a two-dimensional translational vector. This class is used to shift {@code Coordinate}
  * objects and represent the positions to which a piece can move as relative coordinates (that is, 
  * from an unknown starting tile).
+ * <p>
+ * {@code Vector} objects are immutable and are obtained with {@code Vector.of}. Every vector 
+ * that moves between two tiles of the board (both changes on the interval [-7, 7]) is shared.
  *
  * @author Jonathan Uhler
  */
 public class Vector {
 
+	/** The largest change in either direction that has a shared instance. */
+	private static final int MAX_CACHED_CHANGE = 7;
+	/** The number of cached changes in each direction. */
+	private static final int CACHE_WIDTH = 2 * Vector.MAX_CACHED_CHANGE + 1;
+	/** The shared instances, indexed by the shifted x and y changes. */
+	private static final Vector[] CACHE = new Vector[Vector.CACHE_WIDTH * Vector.CACHE_WIDTH];
+	static {
+		for (int dy = -Vector.MAX_CACHED_CHANGE; dy <= Vector.MAX_CACHED_CHANGE; dy++) {
+			for (int dx = -Vector.MAX_CACHED_CHANGE; dx <= Vector.MAX_CACHED_CHANGE; dx++)
+				Vector.CACHE[Vector.cacheIndex(dx, dy)] = new Vector(dx, dy);
+		}
+	}
+	
+
 	/** The change in x position represented by this vector. */
-	private int deltaX;
+	private final int deltaX;
 	/** The change in y position represented by this vector. */
-	private int deltaY;
+	private final int deltaY;
 	
 
 	/**
-	 * Constructs a new {@code Vector} object.
+	 * Constructs a new {@code Vector} object. Use {@code Vector.of} to get instances.
 	 *
 	 * @param deltaX  the change in x position.
 	 * @param deltaY  the change in y position.
 	 */
-	public Vector(int deltaX, int deltaY) {
+	private Vector(int deltaX, int deltaY) {
 		this.deltaX = deltaX;
 		this.deltaY = deltaY;
 	}
 
 
+	/**
+	 * Returns the index of a vector in the cache. No validation is done on the arguments.
+	 *
+	 * @param deltaX  the change in x position.
+	 * @param deltaY  the change in y position.
+	 *
+	 * @return the index of the vector in {@code CACHE}.
+	 */
+	private static int cacheIndex(int deltaX, int deltaY) {
+		return (deltaY + Vector.MAX_CACHED_CHANGE) * Vector.CACHE_WIDTH +
+			deltaX + Vector.MAX_CACHED_CHANGE;
+	}
+
+
+	/**
+	 * Returns the {@code Vector} object for a change in position. The shared instance is 
+	 * returned if both changes are on the interval [-7, 7], and a new object otherwise.
+	 *
+	 * @param deltaX  the change in x position.
+	 * @param deltaY  the change in y position.
+	 *
+	 * @return the {@code Vector} object for the change in position.
+	 */
+	public static Vector of(int deltaX, int deltaY) {
+		if (Math.abs(deltaX) <= Vector.MAX_CACHED_CHANGE &&
+			Math.abs(deltaY) <= Vector.MAX_CACHED_CHANGE)
+			return Vector.CACHE[Vector.cacheIndex(deltaX, deltaY)];
+		return new Vector(deltaX, deltaY);
+	}
+
+
 	/**
 	 * Returns the change in x position.
 	 *
@@ -49,16 +97,16 @@ public class Vector {
 
 
 	/**
-	 * Scales this {@code Vector} object by a given scale factor. This method returns a new object,
-	 * leaving {@code this} unmodified. This method is identical to 
-	 * {@code new Vector(getXChange() * scaleFactor, getYChange() * scaleFactor)}.
+	 * Scales this {@code Vector} object by a given scale factor, leaving {@code this} 
+	 * unmodified. This method is identical to 
+	 * {@code Vector.of(getXChange() * scaleFactor, getYChange() * scaleFactor)}.
 	 *
 	 * @param scaleFactor  the multiplier to use for scaling this vector.
 	 *
-	 * @return a new {@code Vector} object scaled by {@code scaleFactor}.
+	 * @return the {@code Vector} object scaled by {@code scaleFactor}.
 	 */
 	public Vector scale(int scaleFactor) {
-		return new Vector(this.deltaX * scaleFactor, this.deltaY * scaleFactor);
+		return Vector.of(this.deltaX * scaleFactor, this.deltaY * scaleFactor);
 	}
 	
 
@@ -71,6 +119,9 @@ public class Vector {
 	 */
 	@Override
 	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+
 		// Try casting obj to a Vector object. If the cast fails, they cannot be equal
 		Vector vObj;
 		try {
@@ -89,6 +140,17 @@ public class Vector {
 	}
 
 
+	/**
+	 * Returns a hash code for this {@code Vector} object.
+	 *
+	 * @return a hash code for this {@code Vector} object.
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * this.deltaX + this.deltaY;
+	}
+
+
 	/**
 	 * Returns a string representation of this {@code Vector} object
 	 *
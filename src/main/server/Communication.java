@@ -174,15 +174,32 @@ public class Communication {
 	 * @param info  the board information to act as the value for parameters in this command.
 	 *
 	 * @return the payload for a board state command.
+	 *
+	 * @see cmdState(BoardInfo, boolean)
 	 */
 	public static Map<String, String> cmdState(BoardInfo info) {
+		return Communication.cmdState(info, false);
+	}
+
+
+	/**
+	 * Generates the payload for a board state command in a game where captured pieces may be
+	 * dropped back onto the board. The payload is the same as that of {@code cmdState(BoardInfo)},
+	 * except that the state is determined by {@code inferState(drops)}.
+	 *
+	 * @param info   the board information to act as the value for parameters in this command.
+	 * @param drops  whether captured pieces can be dropped back onto the board.
+	 *
+	 * @return the payload for a board state command.
+	 */
+	public static Map<String, String> cmdState(BoardInfo info, boolean drops) {
 		if (info == null)
 			return null;
 		
 	    Map<String, String> map = new HashMap<>();
 		map.put(Communication.KEY_CMD, Communication.CMD_STATE);
 	    map.put(Communication.KEY_FEN, FenUtility.fenFromInformation(info));
-		map.put(Communication.KEY_STATE, info.inferState().name());
+		map.put(Communication.KEY_STATE, info.inferState(drops).name());
 		return map;
 	}
 
@@ -126,6 +126,19 @@ public abstract class Server extends JServer {
 	}
 
 
+	/**
+	 * Returns whether captured pieces can be dropped back onto the board in the games hosted by
+	 * this server. Servers for variants with drops override this method, so that the states they
+	 * send never report a draw by insufficient material.
+	 *
+	 * @return whether captured pieces can be dropped back onto the board. This implementation
+	 *         returns {@code false}.
+	 */
+	protected boolean allowsDrops() {
+		return false;
+	}
+
+
 	/**
 	 * Sends a board state command to all connected clients. This operation is ignored
 	 * if this server's board information is {@code null}.
@@ -134,7 +147,8 @@ public abstract class Server extends JServer {
 		if (this.board == null || this.board.getInfo() == null)
 			return;
 		
-		Map<String, String> stateCmd = Communication.cmdState(this.board.getInfo());
+		Map<String, String> stateCmd =
+			Communication.cmdState(this.board.getInfo(), this.allowsDrops());
 		super.sendAll(Communication.serialize(stateCmd));
 	}
 
@@ -152,7 +166,8 @@ public abstract class Server extends JServer {
 		if (this.board == null || this.board.getInfo() == null)
 			return;
 		
-		Map<String, String> stateCmd = Communication.cmdState(this.board.getInfo());
+		Map<String, String> stateCmd =
+			Communication.cmdState(this.board.getInfo(), this.allowsDrops());
 		super.send(Communication.serialize(stateCmd), clientSocket);
 	}
 
@@ -167,7 +182,7 @@ public abstract class Server extends JServer {
 		if (board == null || board.getInfo() == null)
 			return;
 		
-		Map<String, String> stateCmd = Communication.cmdState(board.getInfo());
+		Map<String, String> stateCmd = Communication.cmdState(board.getInfo(), this.allowsDrops());
 		super.sendAll(Communication.serialize(stateCmd));
 	}
 
@@ -185,7 +200,7 @@ public abstract class Server extends JServer {
 		if (board == null || board.getInfo() == null)
 			return;
 		
-		Map<String, String> stateCmd = Communication.cmdState(board.getInfo());
+		Map<String, String> stateCmd = Communication.cmdState(board.getInfo(), this.allowsDrops());
 		super.send(Communication.serialize(stateCmd), clientSocket);
 	}
 	
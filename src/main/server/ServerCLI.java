@@ -2,13 +2,28 @@ package server;
 
 
 import jnet.Log;
+import ai.AIPlayer;
+import ai.BookBuilder;
+import ai.OpeningBook;
+import ai.SearchLimits;
+import ai.SearchResult;
+import ai.TranspositionTable;
 import tests.PerftTest;
+import tests.PerftSuite;
+import tests.PolyglotTest;
+import tests.BenchmarkTest;
+import engine.bitbase.Bitbase;
+import engine.bitbase.BitbaseGenerator;
+import engine.bitbase.Bitbases;
 import engine.board.Board;
 import engine.board.BoardInfo;
 import engine.fen.FenUtility;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Scanner;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.stream.Stream;
 
 
 /**
@@ -20,6 +35,10 @@ public class ServerCLI {
 
 	/** The server hosting this CLI. */
 	private Server server;
+	/** The opening book last opened by a command, kept open for the next command. */
+	private OpeningBook openingBook;
+	/** The path of {@code openingBook}, or {@code null} if no book has been opened. */
+	private String openingBookPath;
 	
 
 	/**
@@ -118,6 +137,13 @@ public class ServerCLI {
 		case "get" -> this.get();
 		case "reset" -> this.reset();
 		case "perft" -> this.perft(args);
+		case "bench" -> this.bench(args);
+		case "search" -> this.search(args);
+		case "book" -> this.book(args);
+		case "makebook" -> this.makebook(args);
+		case "booktest" -> PolyglotTest.run();
+		case "bitbase" -> this.bitbase(args);
+		case "makebitbase" -> this.makebitbase(args);
 		case "addr" -> this.addr();
 		default -> Log.stdout(Log.ERROR, "ServerCLI", "Invalid command: " + cmd);
 		}
@@ -136,11 +162,64 @@ public class ServerCLI {
 		Log.stdout(Log.INFO, "ServerCLI", "\t\tprints the current BoardInfo object");
 		Log.stdout(Log.INFO, "ServerCLI", "\treset");
 		Log.stdout(Log.INFO, "ServerCLI", "\t\tsets the boards to the starting position");
-		Log.stdout(Log.INFO, "ServerCLI", "\tperft [-s <start>] [-e <end>] [-d]");
 		Log.stdout(Log.INFO, "ServerCLI",
-				   "\t\truns perft test suite, optionally with a start/end test");
+				   "\tperft [-f <file>] [-s <start>] [-e <end>] [-d <depth>] [-t <threads>]");
+		Log.stdout(Log.INFO, "ServerCLI", "\t      [-h <MiB>] [-v]");
 		Log.stdout(Log.INFO, "ServerCLI",
-				   "\t\tand the ability to print node count after each move");
+				   "\t\truns perft test suite, optionally from an EPD/perftsuite file or");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tresource, with a start/end test, a depth, a number of threads, a hash");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\ttable size, and the ability to print node count after each move");
+		Log.stdout(Log.INFO, "ServerCLI", "\tbench [-s] [-q] [-f] [-l] [-o] [-e] [-d <depth>]");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\truns engine micro-benchmarks, printing time and allocation per operation,");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tor with -s the search time to a depth (default 6) with 1, 2, 4, and 8");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tthreads, or with -q the quiescence search nodes to a depth on tactical");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tpositions with and without pruning of losing captures, or with -f the");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\ttime to depth and tactical solve rate with each search feature, or with");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\t-l the latency of deadlines, stops, and ponder hits, or with -o the time");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tto open and probe opening books of several sizes, or with -e the time to");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tgenerate and probe endgame bitbases and the moves to mate with them");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\tsearch [-d <depth>] [-n <nodes>] [-m <millis>] [-c <millis> [-i <millis>]]");
+		Log.stdout(Log.INFO, "ServerCLI", "\t       [-h <MiB>] [-t <threads>] [-b <book>]");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tsearches the current position for the best move, by default for 1 second");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tor as if with a clock (-c) and increment (-i), with a transposition table");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tof the given size (0 to disable) and the given number of threads, playing");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tfrom a Polyglot opening book (-b) when the position is in it");
+		Log.stdout(Log.INFO, "ServerCLI", "\tbook <book>");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tprints the moves of a Polyglot opening book for the current position");
+		Log.stdout(Log.INFO, "ServerCLI", "\tmakebook <pgn> <book> [-p <plies>]");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tbuilds a Polyglot opening book from the first plies (default " +
+				   BookBuilder.DEFAULT_MAX_PLIES + ") of");
+		Log.stdout(Log.INFO, "ServerCLI", "\t\tthe games in a PGN file");
+		Log.stdout(Log.INFO, "ServerCLI", "\tbooktest");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tchecks the Polyglot keys of several positions against the published keys");
+		Log.stdout(Log.INFO, "ServerCLI", "\tbitbase <dir>");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tloads the endgame bitbases in a directory for every later search, and");
+		Log.stdout(Log.INFO, "ServerCLI", "\t\tprints the result of the current position");
+		Log.stdout(Log.INFO, "ServerCLI", "\tmakebitbase <dir> [<set> ...] [-t <threads>]");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tgenerates endgame bitbases for sets such as KRK (default " +
+				   String.join(" ", BitbaseGenerator.DEFAULT_SETS) + ")");
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "\t\tand the sets they turn into, with the given number of threads");
 		Log.stdout(Log.INFO, "ServerCLI", "\taddr");
 		Log.stdout(Log.INFO, "ServerCLI", "\t\tprints the server address and port");
 		Log.stdout(Log.INFO, "ServerCLI", "\thelp");
@@ -208,11 +287,19 @@ public class ServerCLI {
 	 * @param args  command line arguments.
 	 */
 	private void perft(List<String> args) {
+		String file = null;
 		int start = 0;
-		int end = PerftTest.TESTS.size() - 1;
-		boolean divide = args.contains("-d");
+		int end = -1;
+		int depth = PerftTest.DEFAULT_DEPTH;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int hashSize = 0;
+		boolean divide = args.contains("-v");
 
-		// Parse arguments for start/end test number
+		int fileIndex = args.indexOf("-f");
+		if (fileIndex != -1 && fileIndex < args.size() - 1)
+			file = args.get(fileIndex + 1);
+
+		// Parse arguments for start/end test number, depth, thread count, and hash size
 		try {
 			int startIndex = args.indexOf("-s");
 			if (startIndex != -1 && startIndex < args.size() - 1)
@@ -220,16 +307,393 @@ public class ServerCLI {
 			int endIndex = args.indexOf("-e");
 			if (endIndex != -1 && endIndex < args.size() - 1)
 				end = Integer.parseInt(args.get(endIndex + 1));
+			int depthIndex = args.indexOf("-d");
+			if (depthIndex != -1 && depthIndex < args.size() - 1)
+				depth = Integer.parseInt(args.get(depthIndex + 1));
+			int threadsIndex = args.indexOf("-t");
+			if (threadsIndex != -1 && threadsIndex < args.size() - 1)
+				threads = Integer.parseInt(args.get(threadsIndex + 1));
+			int hashIndex = args.indexOf("-h");
+			if (hashIndex != -1 && hashIndex < args.size() - 1)
+				hashSize = Integer.parseInt(args.get(hashIndex + 1));
 		}
 		catch (NumberFormatException e) {
 			Log.stdout(Log.ERROR, "ServerCLI",
-					   "Invalid argument for perft -s or -e, must be an integer");
+					   "Invalid argument for perft -s, -e, -d, -t, or -h, must be an integer");
+			return;
+		}
+		// Tests from a file can list any depth, but the built-in tests stop at MAX_DEPTH
+		int maxDepth = (file == null) ? PerftTest.MAX_DEPTH : 255;
+		if (depth < 1 || depth > maxDepth) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for perft -d, must be on [1, " + maxDepth + "]");
+			return;
+		}
+		if (threads < 1) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Invalid argument for perft -t, must be positive");
+			return;
+		}
+		if (hashSize < 0 || hashSize > 16384) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for perft -h, must be on [0, 16384]");
 			return;
 		}
 		
 		Log.stdout(Log.INFO, "ServerCLI",
 				   "Running perft test suite, this may take several minutes...");
-		PerftTest.run(start, end, divide);
+		if (file == null) {
+			end = (end == -1) ? PerftTest.TESTS.size() - 1 : end;
+			PerftTest.run(start, end, depth, threads, hashSize, divide);
+			return;
+		}
+
+		// Tests are read from the file as they are run
+		int first = start;
+		int last = (end == -1) ? Integer.MAX_VALUE : end;
+		try (Stream<PerftSuite.Entry> tests = PerftSuite.read(file)) {
+			PerftTest.run(tests
+						  .dropWhile(test -> test.getNumber() < first)
+						  .takeWhile(test -> test.getNumber() <= last),
+						  depth, threads, hashSize, divide);
+		}
+		catch (IOException | UncheckedIOException e) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Cannot read perft file " + file + ": " + e);
+		}
+	}
+
+
+	/**
+	 * Runs the engine micro-benchmarks, the search thread benchmark, the quiescence search
+	 * pruning benchmark, the search feature benchmark, the time management benchmark, the
+	 * opening book benchmark, or the endgame bitbase benchmark. If the command fails for any
+	 * reason, the call is terminated and ignored.
+	 *
+	 * @param args  command line arguments.
+	 */
+	private void bench(List<String> args) {
+		int depth = 6;
+		try {
+			int depthIndex = args.indexOf("-d");
+			if (depthIndex != -1 && depthIndex < args.size() - 1)
+				depth = Integer.parseInt(args.get(depthIndex + 1));
+		}
+		catch (NumberFormatException e) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Invalid argument for bench -d, must be an integer");
+			return;
+		}
+		if (depth < 1 || depth > AIPlayer.MAX_PLY) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for bench -d, must be on [1, " + AIPlayer.MAX_PLY + "]");
+			return;
+		}
+
+		Log.stdout(Log.INFO, "ServerCLI",
+				   "Running benchmarks, this may take several minutes...");
+		if (args.contains("-s"))
+			BenchmarkTest.runSearchThreads(depth);
+		else if (args.contains("-q"))
+			BenchmarkTest.runSeePruning(depth);
+		else if (args.contains("-f"))
+			BenchmarkTest.runSearchFeatures(depth);
+		else if (args.contains("-l"))
+			BenchmarkTest.runTimeManagement();
+		else if (args.contains("-o"))
+			BenchmarkTest.runOpeningBook();
+		else if (args.contains("-e"))
+			BenchmarkTest.runBitbases();
+		else
+			BenchmarkTest.run();
+	}
+
+
+	/**
+	 * Searches the current position for the best move and prints the result. If the command 
+	 * fails for any reason, the call is terminated and ignored.
+	 *
+	 * @param args  command line arguments.
+	 */
+	private void search(List<String> args) {
+		BoardInfo boardInfo = this.server.getBoardInfo();
+		if (boardInfo == null) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Cannot search board, null found");
+			return;
+		}
+
+		// Parse arguments for the depth, node, and time limits
+		int depth = 0;
+		long nodes = 0;
+		long time = 0;
+		long clock = 0;
+		long increment = 0;
+		int hashSize = AIPlayer.DEFAULT_HASH_SIZE;
+		int threads = 1;
+		try {
+			int depthIndex = args.indexOf("-d");
+			if (depthIndex != -1 && depthIndex < args.size() - 1)
+				depth = Integer.parseInt(args.get(depthIndex + 1));
+			int nodesIndex = args.indexOf("-n");
+			if (nodesIndex != -1 && nodesIndex < args.size() - 1)
+				nodes = Long.parseLong(args.get(nodesIndex + 1));
+			int timeIndex = args.indexOf("-m");
+			if (timeIndex != -1 && timeIndex < args.size() - 1)
+				time = Long.parseLong(args.get(timeIndex + 1));
+			int clockIndex = args.indexOf("-c");
+			if (clockIndex != -1 && clockIndex < args.size() - 1)
+				clock = Long.parseLong(args.get(clockIndex + 1));
+			int incrementIndex = args.indexOf("-i");
+			if (incrementIndex != -1 && incrementIndex < args.size() - 1)
+				increment = Long.parseLong(args.get(incrementIndex + 1));
+			int hashIndex = args.indexOf("-h");
+			if (hashIndex != -1 && hashIndex < args.size() - 1)
+				hashSize = Integer.parseInt(args.get(hashIndex + 1));
+			int threadsIndex = args.indexOf("-t");
+			if (threadsIndex != -1 && threadsIndex < args.size() - 1)
+				threads = Integer.parseInt(args.get(threadsIndex + 1));
+		}
+		catch (NumberFormatException e) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for search -d, -n, -m, -c, -i, -h, or -t, must be an " +
+					   "integer");
+			return;
+		}
+		if (threads < 1 || threads > AIPlayer.MAX_THREADS) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for search -t, must be on [1, " + AIPlayer.MAX_THREADS +
+					   "]");
+			return;
+		}
+		if (hashSize < 0 || hashSize > 16384) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for search -h, must be on [0, 16384]");
+			return;
+		}
+
+		SearchLimits limits;
+		try {
+			limits = (depth == 0 && nodes == 0 && time == 0 && clock == 0) ?
+				AIPlayer.DEFAULT_LIMITS : new SearchLimits(depth, nodes, time, clock, increment, 0);
+		}
+		catch (IllegalArgumentException e) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Invalid argument for search: " + e.getMessage());
+			return;
+		}
+
+		OpeningBook book = null;
+		int bookIndex = args.indexOf("-b");
+		if (bookIndex != -1 && bookIndex < args.size() - 1) {
+			book = this.openBook(args.get(bookIndex + 1));
+			if (book == null)
+				return;
+		}
+
+		TranspositionTable table = (hashSize == 0) ? null : new TranspositionTable(hashSize);
+		AIPlayer player = new AIPlayer(table);
+		player.setThreads(threads);
+		player.setOpeningBook(book);
+		Log.stdout(Log.INFO, "ServerCLI", "Searching with limits: " + limits);
+		SearchResult result = player.search(new Board(boardInfo), limits);
+		Log.stdout(Log.INFO, "ServerCLI", result.toString());
+		Log.stdout(Log.INFO, "ServerCLI",
+				   String.format("Move ordering: %.1f%% of %d cutoffs on the first move",
+								 result.getFirstMoveCutoffRate(), result.getCutoffs()));
+		if (table != null)
+			Log.stdout(Log.INFO, "ServerCLI", "Transposition table: " + table);
+	}
+
+
+	/**
+	 * Returns the opening book at a path. The book is mapped once and reused while commands name
+	 * the same file, since a mapping is only released when the book is garbage collected. If the
+	 * book cannot be opened, an error is printed.
+	 *
+	 * @param path  the path of the book file.
+	 *
+	 * @return the opening book at {@code path}, or {@code null} if it cannot be opened.
+	 */
+	private OpeningBook openBook(String path) {
+		if (!path.equals(this.openingBookPath)) {
+			try {
+				this.openingBook = new OpeningBook(path);
+				this.openingBookPath = path;
+			}
+			catch (IOException e) {
+				Log.stdout(Log.ERROR, "ServerCLI", "Cannot open opening book: " + e.getMessage());
+				return null;
+			}
+		}
+		return this.openingBook;
+	}
+
+
+	/**
+	 * Prints the moves of an opening book for the current position. If the command fails for
+	 * any reason, the call is terminated and ignored.
+	 *
+	 * @param args  command line arguments.
+	 */
+	private void book(List<String> args) {
+		BoardInfo boardInfo = this.server.getBoardInfo();
+		if (boardInfo == null) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Cannot probe board, null found");
+			return;
+		}
+		if (args.size() < 1) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Missing argument for book, expected a file");
+			return;
+		}
+
+		OpeningBook book = this.openBook(args.get(0));
+		if (book == null)
+			return;
+
+		List<OpeningBook.Entry> entries = book.getEntries(boardInfo);
+		Log.stdout(Log.INFO, "ServerCLI", "Opening book: " + book);
+		if (entries.isEmpty())
+			Log.stdout(Log.INFO, "ServerCLI", "Position not in book");
+		for (OpeningBook.Entry entry : entries)
+			Log.stdout(Log.INFO, "ServerCLI", "\t" + entry);
+	}
+
+
+	/**
+	 * Builds an opening book from a PGN file. If the command fails for any reason, the call is
+	 * terminated and ignored.
+	 *
+	 * @param args  command line arguments.
+	 */
+	private void makebook(List<String> args) {
+		if (args.size() < 2) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Missing argument for makebook, expected a PGN file and a book file");
+			return;
+		}
+
+		int plies = BookBuilder.DEFAULT_MAX_PLIES;
+		try {
+			int pliesIndex = args.indexOf("-p");
+			if (pliesIndex != -1 && pliesIndex < args.size() - 1)
+				plies = Integer.parseInt(args.get(pliesIndex + 1));
+		}
+		catch (NumberFormatException e) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for makebook -p, must be an integer");
+			return;
+		}
+		if (plies < 1) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for makebook -p, must be positive");
+			return;
+		}
+
+		// A cached book for the file being overwritten is dropped, so it is reopened when next used
+		if (args.get(1).equals(this.openingBookPath)) {
+			this.openingBook = null;
+			this.openingBookPath = null;
+		}
+
+		BookBuilder builder = new BookBuilder(plies);
+		try {
+			builder.addGames(args.get(0));
+			long entries = builder.write(args.get(1));
+			Log.stdout(Log.INFO, "ServerCLI", "Wrote " + entries + " entries for " +
+					   builder.getNumPositions() + " positions from " + builder.getNumGames() +
+					   " games to " + args.get(1));
+		}
+		catch (IOException e) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Cannot build opening book: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Loads the endgame bitbases in a directory, and prints the result of the current position.
+	 * The bitbases stay loaded, so every later search probes them. If the command fails for any
+	 * reason, the call is terminated and ignored.
+	 *
+	 * @param args  command line arguments.
+	 */
+	private void bitbase(List<String> args) {
+		BoardInfo boardInfo = this.server.getBoardInfo();
+		if (boardInfo == null) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Cannot probe board, null found");
+			return;
+		}
+		if (args.size() < 1) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Missing argument for bitbase, expected a directory");
+			return;
+		}
+
+		List<Bitbase> loaded;
+		try {
+			loaded = Bitbases.load(args.get(0));
+		}
+		catch (IOException e) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Cannot load bitbases: " + e.getMessage());
+			return;
+		}
+
+		Log.stdout(Log.INFO, "ServerCLI", "Loaded bitbases: " + loaded);
+		Bitbase.Wdl result = Bitbases.probe(boardInfo);
+		if (result == null)
+			Log.stdout(Log.INFO, "ServerCLI", "Position not in bitbases");
+		else
+			Log.stdout(Log.INFO, "ServerCLI", "Result for the player to move: " + result);
+	}
+
+
+	/**
+	 * Generates endgame bitbases into a directory, along with the sets they turn into. If the
+	 * command fails for any reason, the call is terminated and ignored.
+	 *
+	 * @param args  command line arguments.
+	 */
+	private void makebitbase(List<String> args) {
+		if (args.size() < 1) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Missing argument for makebitbase, expected a directory");
+			return;
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> sets = new ArrayList<>();
+		try {
+			for (int i = 1; i < args.size(); i++) {
+				if (args.get(i).equals("-t") && i < args.size() - 1)
+					threads = Integer.parseInt(args.get(++i));
+				else
+					sets.add(Bitbase.canonicalName(args.get(i)));
+			}
+		}
+		catch (NumberFormatException e) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for makebitbase -t, must be an integer");
+			return;
+		}
+		catch (IllegalArgumentException e) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Invalid set for makebitbase: " + e.getMessage());
+			return;
+		}
+		if (threads < 1) {
+			Log.stdout(Log.ERROR, "ServerCLI",
+					   "Invalid argument for makebitbase -t, must be positive");
+			return;
+		}
+		if (sets.isEmpty())
+			sets.addAll(BitbaseGenerator.DEFAULT_SETS);
+
+		BitbaseGenerator generator = new BitbaseGenerator(args.get(0), threads);
+		try {
+			for (String set : sets) {
+				long start = System.nanoTime();
+				Bitbase bitbase = generator.generate(set);
+				Log.stdout(Log.INFO, "ServerCLI", "Generated " + bitbase + " in " +
+						   (System.nanoTime() - start) / 1000000 + " ms");
+			}
+		}
+		catch (IOException e) {
+			Log.stdout(Log.ERROR, "ServerCLI", "Cannot generate bitbase: " + e.getMessage());
+		}
 	}
 
 
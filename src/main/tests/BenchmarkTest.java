@@ -0,0 +1,967 @@
+package tests;
+
+
+import jnet.Log;
+import ai.AIPlayer;
+import ai.Evaluation;
+import ai.OpeningBook;
+import ai.SearchLimits;
+import ai.SearchResult;
+import ai.TranspositionTable;
+import engine.bitbase.Bitbase;
+import engine.bitbase.BitbaseGenerator;
+import engine.bitbase.Bitbases;
+import engine.board.Board;
+import engine.board.BoardInfo;
+import engine.board.PolyglotZobrist;
+import engine.fen.FenUtility;
+import engine.move.Attacks;
+import engine.move.Move;
+import engine.move.MoveGenerator;
+import engine.move.MoveList;
+import server.Communication;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+
+/**
+ * Micro-benchmarks for hot paths of the chess engine. Each benchmark runs a warmup phase so the
+ * JIT compiler can optimize the code under test, then reports the average time and the average
+ * number of bytes allocated per operation.
+ * <p>
+ * Allocation is measured with the per-thread allocation counter of the JVM, which reports the 
+ * same figure as the normalized allocation rate of a GC profiler. A regression in either number 
+ * shows up when the suite is run before and after a change.
+ *
+ * @author Jonathan Uhler
+ */
+public class BenchmarkTest {
+
+	/**
+	 * Positions used by the benchmarks, taken from {@code perftsuite.txt}: the starting 
+	 * position, a busy middlegame, a castling position, a promotion position, and a sparse 
+	 * endgame with only sliding pieces.
+	 */
+	public static final List<String> POSITIONS =
+		List.of(Board.START_FEN,
+				"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"r3k1r1/8/8/8/8/8/8/R3K2R b KQq - 0 1",
+				"n1n5/1Pk5/8/8/8/8/5Kp1/5N1N w - - 0 1",
+				"8/8/1B6/7b/7k/8/2B1b3/7K w - - 0 1");
+
+	/**
+	 * Tactical positions used by {@code runSeePruning}, the first ten of the Win At Chess test
+	 * suite, each paired with its best move in long algebraic notation.
+	 */
+	public static final List<List<String>> TACTICAL_POSITIONS =
+		List.of(List.of("2rr3k/pp3pp1/1nnqbN1p/3pN3/2pP4/2P3Q1/PPB4P/R4RK1 w - - 0 1", "g3g6"),
+				List.of("8/7p/5k2/5p2/p1p2P2/Pr1pPK2/1P1R3P/8 b - - 0 1", "b3b2"),
+				List.of("5rk1/1ppb3p/p1pb4/6q1/3P1p1r/2P1R2P/PP1BQ1P1/5RKN w - - 0 1", "e3g3"),
+				List.of("r1bq2rk/pp3pbp/2p1p1pQ/7P/3P4/2PB1N2/PP3PPR/2KR4 w - - 0 1", "h6h7"),
+				List.of("5k2/6pp/p1qN4/1p1p4/3P4/2PKP2Q/PP3r2/3R4 b - - 0 1", "c6c4"),
+				List.of("7k/p7/1R5K/6r1/6p1/6P1/8/8 w - - 0 1", "b6b7"),
+				List.of("rnbqkb1r/pppp1ppp/8/4P3/6n1/7P/PPPNPPP1/R1BQKBNR b KQkq - 0 1", "g4e3"),
+				List.of("r4q1k/p2bR1rp/2p2Q1N/5p2/5p2/2P5/PP3PPP/R5K1 w - - 0 1", "e7f7"),
+				List.of("3q1rk1/p4pp1/2pb3p/3p4/6Pr/1PNQ4/P1PB1PP1/4RRK1 b - - 0 1", "d6h2"),
+				List.of("2br2k1/2q3rn/p2NppQ1/2p1P3/Pp5R/4P3/1P3PPP/3R2K1 w - - 0 1", "h4h7"));
+
+	/** The thread counts compared by {@code runSearchThreads}. */
+	public static final List<Integer> SEARCH_THREADS = List.of(1, 2, 4, 8);
+	/** The number of times every position is searched before the search is measured. */
+	private static final int SEARCH_WARMUP_ROUNDS = 3;
+	/** The number of times every position is searched by the time management benchmark. */
+	private static final int LATENCY_ROUNDS = 5;
+	/** The fixed search time used to measure latency after a deadline, in milliseconds. */
+	private static final long LATENCY_SEARCH_TIME = 50;
+	/** The clock used by the time management benchmark, in milliseconds. */
+	private static final long LATENCY_CLOCK = 10000;
+	/** The increment used by the time management benchmark, in milliseconds. */
+	private static final long LATENCY_INCREMENT = 100;
+	/** The time spent pondering before a ponder hit, in milliseconds. */
+	private static final long PONDER_TIME = 200;
+	/** The number of entries of the opening books compared by {@code runOpeningBook}. */
+	private static final List<Integer> BOOK_SIZES = List.of(1 << 16, 1 << 20, 1 << 23);
+	/**
+	 * Won endgames played out by {@code runBitbases}, each paired with the name of its set: king
+	 * and queen, king and rook, and king, bishop, and knight against a lone king.
+	 */
+	private static final List<List<String>> ENDGAME_POSITIONS =
+		List.of(List.of("KQK", "8/8/8/4k3/8/8/8/3QK3 w - - 0 1"),
+				List.of("KRK", "8/8/8/4k3/8/8/8/R3K3 w - - 0 1"),
+				List.of("KBNK", "8/8/8/4k3/8/8/8/2B1KN2 w - - 0 1"));
+	/** The number of nodes searched for each move of the endgames played by {@code runBitbases}. */
+	private static final long ENDGAME_NODES = 100000;
+	/** The number of plies an endgame played by {@code runBitbases} may last. */
+	private static final int ENDGAME_MAX_PLIES = 200;
+
+	/** The number of operations run before measurement begins. */
+	private static final int WARMUP_OPERATIONS = 20000;
+	/** The number of operations measured for each benchmark. */
+	private static final int MEASURED_OPERATIONS = 200000;
+
+	/** Sink for benchmark results, preventing the JIT compiler from removing dead code. */
+	private static volatile Object blackhole;
+	/** Sink for primitive benchmark results, which avoids boxing them. */
+	private static volatile long primitiveBlackhole;
+
+
+	/**
+	 * Copies a {@code BoardInfo} object by serializing and deserializing it. This is how
+	 * {@code BoardInfo.clone} was implemented before structural copies were added, and is kept
+	 * here only as a reference point for the clone benchmark.
+	 *
+	 * @param boardInfo  the {@code BoardInfo} object to copy.
+	 *
+	 * @return a deep-copy of {@code boardInfo}, or {@code null} upon any error.
+	 */
+	private static BoardInfo serializationCopy(BoardInfo boardInfo) {
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject(boardInfo);
+			oos.flush();
+			oos.close();
+
+			ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
+			return (BoardInfo) new ObjectInputStream(bis).readObject();
+		}
+		catch (IOException | ClassNotFoundException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far, or -1 if the JVM does
+	 * not support measuring thread allocation.
+	 *
+	 * @return the number of bytes allocated by the current thread.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+		return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+
+	/**
+	 * Runs a single benchmark and prints the results.
+	 *
+	 * @param name        the name of the benchmark to print.
+	 * @param operations  the number of operations to measure. The warmup phase is scaled down
+	 *                    by the same factor as {@code operations} is from
+	 *                    {@code MEASURED_OPERATIONS}.
+	 * @param operation   the operation to benchmark.
+	 *
+	 * @return the average number of nanoseconds per operation.
+	 */
+	private static double measure(String name, int operations, Runnable operation) {
+		int warmup = (int) ((long) BenchmarkTest.WARMUP_OPERATIONS * operations /
+							BenchmarkTest.MEASURED_OPERATIONS);
+		for (int i = 0; i < warmup; i++)
+			operation.run();
+
+		long startBytes = BenchmarkTest.allocatedBytes();
+		long startTime = System.nanoTime();
+		for (int i = 0; i < operations; i++)
+			operation.run();
+		long endTime = System.nanoTime();
+		long endBytes = BenchmarkTest.allocatedBytes();
+
+		double nanosPerOp = (endTime - startTime) * 1.0 / operations;
+		String bytesPerOp = (startBytes < 0) ? "?" : Long.toString((endBytes - startBytes) /
+																   operations);
+		Log.stdout(Log.DEBUG, "BenchmarkTest",
+				   String.format("%-40s %12.1f ns/op %10s B/op", name, nanosPerOp, bytesPerOp));
+		return nanosPerOp;
+	}
+
+
+	/**
+	 * Benchmarks the different ways of copying a {@code BoardInfo} object: the legacy
+	 * serialization round trip, {@code clone} (the copy constructor), and {@code copyFrom} into
+	 * a reused instance.
+	 */
+	public static void runClone() {
+		for (String fen : BenchmarkTest.POSITIONS) {
+			BoardInfo boardInfo = FenUtility.informationFromFen(fen);
+			BoardInfo target = new BoardInfo(boardInfo);
+			Log.stdout(Log.DEBUG, "BenchmarkTest", "Position: " + fen);
+
+			double serialization =
+				BenchmarkTest.measure("BoardInfo serialization copy",
+									  BenchmarkTest.MEASURED_OPERATIONS / 100,
+									  () -> blackhole = BenchmarkTest.serializationCopy(boardInfo));
+			double clone =
+				BenchmarkTest.measure("BoardInfo.clone",
+									  BenchmarkTest.MEASURED_OPERATIONS,
+									  () -> blackhole = boardInfo.clone());
+			double copyFrom =
+				BenchmarkTest.measure("BoardInfo.copyFrom",
+									  BenchmarkTest.MEASURED_OPERATIONS,
+									  () -> target.copyFrom(boardInfo));
+
+			Log.stdout(Log.DEBUG, "BenchmarkTest",
+					   String.format("Speedup over serialization: clone %.1fx, copyFrom %.1fx",
+									 serialization / clone, serialization / copyFrom));
+		}
+	}
+
+
+	/**
+	 * Reports the startup cost and memory of the attack tables, and benchmarks sliding piece 
+	 * attack lookups. Each operation looks up the attacks of one piece on every square, cycling 
+	 * through a fixed set of pseudo-random occupancies.
+	 */
+	public static void runAttacks() {
+		Log.stdout(Log.DEBUG, "BenchmarkTest",
+				   String.format("Attack tables: %.1f ms to initialize, %d KiB",
+								 Attacks.getInitTime() / 1e6, Attacks.getTableBytes() / 1024));
+
+		long[] occupancies = new long[256];
+		long seed = 1;
+		for (int i = 0; i < occupancies.length; i++) {
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			long a = seed;
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			occupancies[i] = a & seed;
+		}
+
+		int[] next = {0};
+		BenchmarkTest.measure("Attacks.bishopAttacks (64 squares)",
+							  BenchmarkTest.MEASURED_OPERATIONS,
+							  () -> {
+								  long occupied = occupancies[next[0]++ & 255];
+								  long sum = 0;
+								  for (int square = 0; square < 64; square++)
+									  sum += Attacks.bishopAttacks(square, occupied);
+								  primitiveBlackhole = sum;
+							  });
+		BenchmarkTest.measure("Attacks.rookAttacks (64 squares)",
+							  BenchmarkTest.MEASURED_OPERATIONS,
+							  () -> {
+								  long occupied = occupancies[next[0]++ & 255];
+								  long sum = 0;
+								  for (int square = 0; square < 64; square++)
+									  sum += Attacks.rookAttacks(square, occupied);
+								  primitiveBlackhole = sum;
+							  });
+		BenchmarkTest.measure("Attacks.queenAttacks (64 squares)",
+							  BenchmarkTest.MEASURED_OPERATIONS,
+							  () -> {
+								  long occupied = occupancies[next[0]++ & 255];
+								  long sum = 0;
+								  for (int square = 0; square < 64; square++)
+									  sum += Attacks.queenAttacks(square, occupied);
+								  primitiveBlackhole = sum;
+							  });
+	}
+
+
+	/**
+	 * Benchmarks move generation: legal and pseudo-legal moves into a reused {@code MoveList} 
+	 * and into a new {@code List}, legal move counting, and tiles controlled.
+	 */
+	public static void runMoveGeneration() {
+		MoveList moves = new MoveList();
+		for (String fen : BenchmarkTest.POSITIONS) {
+			BoardInfo boardInfo = FenUtility.informationFromFen(fen);
+			Log.stdout(Log.DEBUG, "BenchmarkTest", "Position: " + fen);
+
+			BenchmarkTest.measure("generateLegalMoves (MoveList)",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> MoveGenerator.generateLegalMoves(boardInfo, moves));
+			BenchmarkTest.measure("generateLegalMoves (List)",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole = MoveGenerator.generateLegalMoves(boardInfo));
+			BenchmarkTest.measure("generatePseudoLegalMoves (MoveList)",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> MoveGenerator.generatePseudoLegalMoves(boardInfo, moves));
+			BenchmarkTest.measure("countLegalMoves",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> primitiveBlackhole =
+								  MoveGenerator.countLegalMoves(boardInfo));
+			BenchmarkTest.measure("generateTilesControlled",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole =
+								  MoveGenerator.generateTilesControlled(boardInfo));
+		}
+	}
+
+
+	/**
+	 * Benchmarks {@code Board.makeMove} and {@code Board.unmakeMove}. Each operation makes and 
+	 * unmakes every legal move of a position, so the time per move is the time per operation 
+	 * divided by the number of legal moves printed.
+	 */
+	public static void runMakeMove() {
+		for (String fen : BenchmarkTest.POSITIONS) {
+			Board board = new Board(FenUtility.informationFromFen(fen));
+			MoveList moves = new MoveList();
+			MoveGenerator.generateLegalMoves(board.getInfoPointer(), moves);
+			Log.stdout(Log.DEBUG, "BenchmarkTest",
+					   "Position: " + fen + " (" + moves.size() + " legal moves)");
+
+			BenchmarkTest.measure("makeMove + unmakeMove (all moves)",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> {
+									  for (int i = 0; i < moves.size(); i++) {
+										  board.makeMove(moves.get(i));
+										  board.unmakeMove();
+									  }
+								  });
+		}
+	}
+
+
+	/**
+	 * Benchmarks {@code Evaluation.evaluate}, which reads the scores maintained incrementally by
+	 * {@code BoardInfo}, against {@code Evaluation.evaluateFull}, which recomputes them.
+	 */
+	public static void runEvaluation() {
+		for (String fen : BenchmarkTest.POSITIONS) {
+			BoardInfo boardInfo = FenUtility.informationFromFen(fen);
+			Log.stdout(Log.DEBUG, "BenchmarkTest", "Position: " + fen);
+
+			BenchmarkTest.measure("Evaluation.evaluate",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> primitiveBlackhole = Evaluation.evaluate(boardInfo));
+			BenchmarkTest.measure("Evaluation.evaluateFull",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> primitiveBlackhole = Evaluation.evaluateFull(boardInfo));
+		}
+	}
+
+
+	/**
+	 * Benchmarks FEN parsing with {@code FenUtility.informationFromFen} and FEN generation with 
+	 * {@code FenUtility.fenFromInformation}.
+	 */
+	public static void runFen() {
+		for (String fen : BenchmarkTest.POSITIONS) {
+			BoardInfo boardInfo = FenUtility.informationFromFen(fen);
+			Log.stdout(Log.DEBUG, "BenchmarkTest", "Position: " + fen);
+
+			BenchmarkTest.measure("FenUtility.informationFromFen",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole = FenUtility.informationFromFen(fen));
+			BenchmarkTest.measure("FenUtility.fenFromInformation",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole = FenUtility.fenFromInformation(boardInfo));
+		}
+	}
+
+
+	/**
+	 * Benchmarks {@code Communication.serialize} and {@code Communication.deserialize} with the 
+	 * board state command, which is the largest message sent by the server.
+	 */
+	public static void runCommunication() {
+		for (String fen : BenchmarkTest.POSITIONS) {
+			Map<String, String> command =
+				Communication.cmdState(FenUtility.informationFromFen(fen));
+			String serialized = Communication.serialize(command);
+			Log.stdout(Log.DEBUG, "BenchmarkTest", "Position: " + fen);
+
+			BenchmarkTest.measure("Communication.serialize (state)",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole = Communication.serialize(command));
+			BenchmarkTest.measure("Communication.deserialize (state)",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole = Communication.deserialize(serialized));
+		}
+	}
+
+
+	/**
+	 * Benchmarks the time to depth of the multi-threaded search. Every position is searched to a
+	 * fixed depth with each number of threads in {@code SEARCH_THREADS}, each time with a new
+	 * transposition table, and the total time is compared to the time with one thread. Since
+	 * Lazy SMP threads race each other, the node counts and times vary from run to run, and the
+	 * speedup is bounded by the number of cores available.
+	 *
+	 * @param depth  the depth to search each position to.
+	 *
+	 * @throws IllegalArgumentException  if {@code depth < 1}.
+	 */
+	public static void runSearchThreads(int depth) {
+		if (depth < 1)
+			throw new IllegalArgumentException("depth must be at least 1: " + depth);
+
+		Log.stdout(Log.DEBUG, "BenchmarkTest",
+				   "Search time to depth " + depth + ", " +
+				   Runtime.getRuntime().availableProcessors() + " processors available");
+
+		// Warm up the search so the first thread count measured is not penalized
+		for (int i = 0; i < BenchmarkTest.SEARCH_WARMUP_ROUNDS; i++) {
+			for (String fen : BenchmarkTest.POSITIONS) {
+				AIPlayer player = new AIPlayer();
+				blackhole = player.search(new Board(FenUtility.informationFromFen(fen)),
+										  SearchLimits.depth(depth));
+			}
+		}
+
+		long singleThreadTime = 0;
+		for (int threads : BenchmarkTest.SEARCH_THREADS) {
+			long time = 0;
+			long nodes = 0;
+			for (String fen : BenchmarkTest.POSITIONS) {
+				AIPlayer player =
+					new AIPlayer(new TranspositionTable(AIPlayer.DEFAULT_HASH_SIZE));
+				player.setThreads(threads);
+				SearchResult result = player.search(new Board(FenUtility.informationFromFen(fen)),
+													SearchLimits.depth(depth));
+				time += result.getTime();
+				nodes += result.getNodes();
+			}
+			if (threads == 1)
+				singleThreadTime = time;
+
+			double speedup = (singleThreadTime == 0) ? 0 : singleThreadTime * 1.0 / time;
+			Log.stdout(Log.DEBUG, "BenchmarkTest",
+					   String.format("%2d threads %10.1f ms %12d nodes %10d nps %6.2fx speedup",
+									 threads, time / 1e6, nodes,
+									 (long) (nodes * 1e9 / Math.max(time, 1)), speedup));
+		}
+	}
+
+
+	/**
+	 * Benchmarks the pruning of losing captures in the quiescence search. Every position of
+	 * {@code TACTICAL_POSITIONS} is searched to a fixed depth with and without pruning, each
+	 * time with a new transposition table, and the total nodes and time are compared along with
+	 * the number of positions whose best move was found.
+	 *
+	 * @param depth  the depth to search each position to.
+	 *
+	 * @throws IllegalArgumentException  if {@code depth < 1}.
+	 */
+	public static void runSeePruning(int depth) {
+		if (depth < 1)
+			throw new IllegalArgumentException("depth must be at least 1: " + depth);
+
+		Log.stdout(Log.DEBUG, "BenchmarkTest",
+				   "Quiescence search to depth " + depth + " on " +
+				   BenchmarkTest.TACTICAL_POSITIONS.size() + " tactical positions");
+
+		// Warm up the search so the first mode measured is not penalized
+		for (int i = 0; i < BenchmarkTest.SEARCH_WARMUP_ROUNDS; i++) {
+			for (List<String> position : BenchmarkTest.TACTICAL_POSITIONS) {
+				AIPlayer player = new AIPlayer();
+				player.setEnabled(AIPlayer.Feature.SEE_PRUNING, i % 2 == 0);
+				blackhole = player.search(new Board(FenUtility.informationFromFen(position.get(0))),
+										  SearchLimits.depth(depth));
+			}
+		}
+
+		for (boolean seePruning : List.of(false, true)) {
+			long time = 0;
+			long nodes = 0;
+			int solved = 0;
+			for (List<String> position : BenchmarkTest.TACTICAL_POSITIONS) {
+				AIPlayer player =
+					new AIPlayer(new TranspositionTable(AIPlayer.DEFAULT_HASH_SIZE));
+				player.setEnabled(AIPlayer.Feature.SEE_PRUNING, seePruning);
+				SearchResult result =
+					player.search(new Board(FenUtility.informationFromFen(position.get(0))),
+								  SearchLimits.depth(depth));
+				time += result.getTime();
+				nodes += result.getNodes();
+				if (result.getBestMove() != null &&
+					Move.toLongAlgebraic(result.getBestMove().encode()).equals(position.get(1)))
+					solved++;
+			}
+
+			Log.stdout(Log.DEBUG, "BenchmarkTest",
+					   String.format("SEE pruning %-3s %10.1f ms %12d nodes %10d nps %2d/%d solved",
+									 (seePruning) ? "on" : "off", time / 1e6, nodes,
+									 (long) (nodes * 1e9 / Math.max(time, 1)), solved,
+									 BenchmarkTest.TACTICAL_POSITIONS.size()));
+		}
+	}
+
+
+	/**
+	 * Searches every position to a fixed depth with some search features enabled, each time with
+	 * a new transposition table.
+	 *
+	 * @param positions  the positions to search, in FEN notation.
+	 * @param depth      the depth to search each position to.
+	 * @param features   the search features to enable. Every other feature is disabled.
+	 *
+	 * @return the results of the searches, in the order of {@code positions}.
+	 */
+	private static List<SearchResult> searchAll(List<String> positions, int depth,
+												Set<AIPlayer.Feature> features)
+	{
+		List<SearchResult> results = new ArrayList<>(positions.size());
+		for (String fen : positions) {
+			AIPlayer player = new AIPlayer(new TranspositionTable(AIPlayer.DEFAULT_HASH_SIZE));
+			for (AIPlayer.Feature feature : AIPlayer.Feature.values())
+				player.setEnabled(feature, features.contains(feature));
+			results.add(player.search(new Board(FenUtility.informationFromFen(fen)),
+									  SearchLimits.depth(depth)));
+		}
+		return results;
+	}
+
+
+	/**
+	 * Benchmarks the search features of {@code AIPlayer}. The positions of {@code POSITIONS} are
+	 * searched to a fixed depth with no features, with each feature alone, with the default
+	 * features, and with every feature, and the total time and nodes to depth are compared. The
+	 * positions of {@code TACTICAL_POSITIONS} are searched to the same depth in each
+	 * configuration, and the number whose best move was found is reported, since pruning can
+	 * hide a tactic that a full-width search would find.
+	 *
+	 * @param depth  the depth to search each position to.
+	 *
+	 * @throws IllegalArgumentException  if {@code depth < 1}.
+	 */
+	public static void runSearchFeatures(int depth) {
+		if (depth < 1)
+			throw new IllegalArgumentException("depth must be at least 1: " + depth);
+
+		Log.stdout(Log.DEBUG, "BenchmarkTest", "Search features to depth " + depth);
+
+		Map<String, Set<AIPlayer.Feature>> configurations = new LinkedHashMap<>();
+		configurations.put("none", EnumSet.noneOf(AIPlayer.Feature.class));
+		for (AIPlayer.Feature feature : AIPlayer.Feature.values())
+			configurations.put(feature.toString().toLowerCase(), EnumSet.of(feature));
+		configurations.put("default", EnumSet.copyOf(AIPlayer.DEFAULT_FEATURES));
+		configurations.put("all", EnumSet.allOf(AIPlayer.Feature.class));
+
+		List<String> tacticalPositions = new ArrayList<>();
+		for (List<String> position : BenchmarkTest.TACTICAL_POSITIONS)
+			tacticalPositions.add(position.get(0));
+
+		// Warm up the search so the first configuration measured is not penalized
+		for (int i = 0; i < BenchmarkTest.SEARCH_WARMUP_ROUNDS; i++) {
+			for (Set<AIPlayer.Feature> features : List.of(configurations.get("none"),
+														  configurations.get("all")))
+				blackhole = BenchmarkTest.searchAll(BenchmarkTest.POSITIONS, depth, features);
+		}
+
+		long baseNodes = 0;
+		for (Map.Entry<String, Set<AIPlayer.Feature>> configuration : configurations.entrySet()) {
+			long time = 0;
+			long nodes = 0;
+			for (SearchResult result : BenchmarkTest.searchAll(BenchmarkTest.POSITIONS, depth,
+															   configuration.getValue()))
+			{
+				time += result.getTime();
+				nodes += result.getNodes();
+			}
+			if (baseNodes == 0)
+				baseNodes = nodes;
+
+			int solved = 0;
+			List<SearchResult> results = BenchmarkTest.searchAll(tacticalPositions, depth,
+																 configuration.getValue());
+			for (int i = 0; i < results.size(); i++) {
+				Move bestMove = results.get(i).getBestMove();
+				String expected = BenchmarkTest.TACTICAL_POSITIONS.get(i).get(1);
+				if (bestMove != null && Move.toLongAlgebraic(bestMove.encode()).equals(expected))
+					solved++;
+			}
+
+			Log.stdout(Log.DEBUG, "BenchmarkTest",
+					   String.format("%-20s %10.1f ms %12d nodes %6.1f%% of none %2d/%d solved",
+									 configuration.getKey(), time / 1e6, nodes,
+									 100.0 * nodes / Math.max(baseNodes, 1), solved,
+									 results.size()));
+		}
+	}
+
+
+	/**
+	 * Runs a search on a new thread.
+	 *
+	 * @param search  the search to run.
+	 *
+	 * @return the thread, which has been started.
+	 */
+	private static Thread startSearch(Runnable search) {
+		Thread thread = new Thread(search);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+
+	/**
+	 * Sleeps for a number of milliseconds, ignoring interrupts.
+	 *
+	 * @param millis  the time to sleep for in milliseconds.
+	 */
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Waits for a thread to finish, ignoring interrupts.
+	 *
+	 * @param thread  the thread to wait for.
+	 */
+	private static void join(Thread thread) {
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Prints the average and maximum of some latencies.
+	 *
+	 * @param name       the name of the latencies.
+	 * @param latencies  the latencies in nanoseconds.
+	 */
+	private static void printLatencies(String name, List<Long> latencies) {
+		long total = 0;
+		long max = 0;
+		for (long latency : latencies) {
+			total += latency;
+			max = Math.max(max, latency);
+		}
+		Log.stdout(Log.DEBUG, "BenchmarkTest",
+				   String.format("%-40s %8.3f ms average %8.3f ms max", name,
+								 total / 1e6 / Math.max(latencies.size(), 1), max / 1e6));
+	}
+
+
+	/**
+	 * Benchmarks the time management of the search. This measures:
+	 * <ul>
+	 * <li> How long a search with a fixed time returns after its deadline, with one and with
+	 *      several threads.
+	 * <li> How long a search without limits takes to return after {@code AIPlayer.stop} is
+	 *      called from another thread.
+	 * <li> How much of a clock a search uses, and how deep it gets.
+	 * <li> How long a ponder search takes to return after a ponder hit, and how much deeper it
+	 *      gets than a search of the same position on the same clock without pondering.
+	 * </ul>
+	 */
+	public static void runTimeManagement() {
+		Log.stdout(Log.DEBUG, "BenchmarkTest",
+				   "Search time management, " + BenchmarkTest.LATENCY_ROUNDS + " rounds of " +
+				   BenchmarkTest.POSITIONS.size() + " positions");
+
+		// Warm up the search so the first latencies measured are not penalized
+		for (int i = 0; i < BenchmarkTest.SEARCH_WARMUP_ROUNDS; i++) {
+			for (String fen : BenchmarkTest.POSITIONS) {
+				AIPlayer player = new AIPlayer();
+				blackhole = player.search(new Board(FenUtility.informationFromFen(fen)),
+										  SearchLimits.time(BenchmarkTest.LATENCY_SEARCH_TIME));
+			}
+		}
+
+		// Latency after the deadline of a fixed time search
+		for (int threads : List.of(1, 4)) {
+			List<Long> latencies = new ArrayList<>();
+			for (int i = 0; i < BenchmarkTest.LATENCY_ROUNDS; i++) {
+				for (String fen : BenchmarkTest.POSITIONS) {
+					AIPlayer player = new AIPlayer();
+					player.setThreads(threads);
+					Board board = new Board(FenUtility.informationFromFen(fen));
+					long start = System.nanoTime();
+					blackhole = player.search(board,
+											  SearchLimits.time(BenchmarkTest.LATENCY_SEARCH_TIME));
+					long elapsed = System.nanoTime() - start;
+					latencies.add(Math.max(elapsed - BenchmarkTest.LATENCY_SEARCH_TIME * 1000000,
+										   0));
+				}
+			}
+			BenchmarkTest.printLatencies("Deadline latency, " + threads + " threads", latencies);
+		}
+
+		// Latency after a stop from another thread
+		List<Long> stopLatencies = new ArrayList<>();
+		for (int i = 0; i < BenchmarkTest.LATENCY_ROUNDS; i++) {
+			for (String fen : BenchmarkTest.POSITIONS) {
+				AIPlayer player = new AIPlayer();
+				Board board = new Board(FenUtility.informationFromFen(fen));
+				Thread thread = BenchmarkTest.startSearch(
+					() -> blackhole = player.search(board, new SearchLimits(0, 0, 0)));
+				BenchmarkTest.sleep(BenchmarkTest.LATENCY_SEARCH_TIME);
+				long start = System.nanoTime();
+				player.stop();
+				BenchmarkTest.join(thread);
+				stopLatencies.add(System.nanoTime() - start);
+			}
+		}
+		BenchmarkTest.printLatencies("Stop latency", stopLatencies);
+
+		// Clock usage, and the depth gained by pondering on the expected reply
+		SearchLimits clock =
+			SearchLimits.clock(BenchmarkTest.LATENCY_CLOCK, BenchmarkTest.LATENCY_INCREMENT);
+		List<Long> ponderLatencies = new ArrayList<>();
+		for (String fen : BenchmarkTest.POSITIONS) {
+			Board board = new Board(FenUtility.informationFromFen(fen));
+			SearchResult result = new AIPlayer().search(board, clock);
+			Move ponderMove = result.getPonderMove();
+			if (ponderMove == null)
+				continue;
+
+			Board ponderBoard = new Board(board.getInfo());
+			ponderBoard.makeMove(result.getBestMove());
+			ponderBoard.makeMove(ponderMove);
+			SearchResult plain = new AIPlayer().search(ponderBoard, clock);
+
+			AIPlayer ponderPlayer = new AIPlayer();
+			SearchResult[] pondered = new SearchResult[1];
+			Thread thread = BenchmarkTest.startSearch(
+				() -> pondered[0] = ponderPlayer.ponder(ponderBoard, clock));
+			BenchmarkTest.sleep(BenchmarkTest.PONDER_TIME);
+			long start = System.nanoTime();
+			ponderPlayer.ponderHit();
+			BenchmarkTest.join(thread);
+			long elapsed = System.nanoTime() - start;
+			ponderLatencies.add(elapsed);
+
+			Log.stdout(Log.DEBUG, "BenchmarkTest",
+					   String.format("Clock %d+%d: %6.1f ms to depth %2d, after a ponder hit " +
+									 "%6.1f ms to depth %2d",
+									 BenchmarkTest.LATENCY_CLOCK, BenchmarkTest.LATENCY_INCREMENT,
+									 plain.getTime() / 1e6, plain.getDepth(), elapsed / 1e6,
+									 pondered[0].getDepth()));
+		}
+		BenchmarkTest.printLatencies("Time used after a ponder hit", ponderLatencies);
+	}
+
+
+	/**
+	 * Writes an opening book of random entries, which also holds a legal move for each of
+	 * {@code POSITIONS}.
+	 *
+	 * @param path  the path of the book file.
+	 * @param size  the number of entries in the book.
+	 *
+	 * @throws IOException  if the file cannot be written.
+	 */
+	private static void writeBook(Path path, int size) throws IOException {
+		Random random = new Random(size);
+		long[] keys = new long[size];
+		int numRandom = size - BenchmarkTest.POSITIONS.size();
+		for (int i = 0; i < numRandom; i++)
+			keys[i] = random.nextLong();
+		for (int i = 0; i < BenchmarkTest.POSITIONS.size(); i++) {
+			BoardInfo boardInfo = FenUtility.informationFromFen(BenchmarkTest.POSITIONS.get(i));
+			keys[numRandom + i] = PolyglotZobrist.hash(boardInfo);
+		}
+
+		// Sort the keys as unsigned numbers by flipping their sign bits around a signed sort
+		for (int i = 0; i < size; i++)
+			keys[i] ^= Long.MIN_VALUE;
+		Arrays.sort(keys);
+
+		Map<Long, Integer> bookMoves = new LinkedHashMap<>();
+		for (String fen : BenchmarkTest.POSITIONS) {
+			BoardInfo boardInfo = FenUtility.informationFromFen(fen);
+			MoveList moves = new MoveList();
+			MoveGenerator.generateLegalMoves(boardInfo, moves);
+			bookMoves.put(PolyglotZobrist.hash(boardInfo),
+						  OpeningBook.toPolyglotMove(moves.get(0)));
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				 new BufferedOutputStream(new FileOutputStream(path.toFile()))))
+		{
+			for (long key : keys) {
+				key ^= Long.MIN_VALUE;
+				out.writeLong(key);
+				out.writeShort(bookMoves.getOrDefault(key, random.nextInt(1 << 12)));
+				out.writeShort(1);
+				out.writeInt(0);
+			}
+		}
+	}
+
+
+	/**
+	 * Benchmarks opening books of several sizes. This measures the time to open a book, which
+	 * maps the file and so should not grow with its size, and the time to probe a position that
+	 * is in the book and one that is not, which grows with the logarithm of its size.
+	 */
+	public static void runOpeningBook() {
+		BoardInfo hit = FenUtility.informationFromFen(BenchmarkTest.POSITIONS.get(0));
+		BoardInfo miss =
+			FenUtility.informationFromFen(BenchmarkTest.TACTICAL_POSITIONS.get(0).get(0));
+
+		for (int size : BenchmarkTest.BOOK_SIZES) {
+			Path path = null;
+			try {
+				path = Files.createTempFile("book", ".bin");
+				BenchmarkTest.writeBook(path, size);
+				String file = path.toString();
+				OpeningBook book = new OpeningBook(file);
+
+				String name = "Opening book, " + size + " entries";
+				BenchmarkTest.measure(name + ", open", 1000, () -> {
+					try {
+						blackhole = new OpeningBook(file);
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+				BenchmarkTest.measure(name + ", hit", 100000,
+									  () -> primitiveBlackhole = book.chooseMove(hit));
+				BenchmarkTest.measure(name + ", miss", 100000,
+									  () -> primitiveBlackhole = book.chooseMove(miss));
+			}
+			catch (IOException | UncheckedIOException e) {
+				Log.stdout(Log.ERROR, "BenchmarkTest", "Cannot benchmark opening book: " + e);
+			}
+			finally {
+				try {
+					if (path != null)
+						Files.deleteIfExists(path);
+				}
+				catch (IOException e) {
+					Log.stdout(Log.WARN, "BenchmarkTest", "Cannot delete " + path + ": " + e);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Plays out an endgame with the same player on both sides.
+	 *
+	 * @param fen  the starting position of the endgame.
+	 *
+	 * @return a description of how the game ended and after how many plies.
+	 */
+	private static String playEndgame(String fen) {
+		AIPlayer player = new AIPlayer();
+		Board board = new Board(FenUtility.informationFromFen(fen));
+		SearchLimits limits = SearchLimits.nodes(BenchmarkTest.ENDGAME_NODES);
+		int plies = 0;
+		while (board.getInfoPointer().inferState() == BoardInfo.State.ONGOING &&
+			   plies < BenchmarkTest.ENDGAME_MAX_PLIES)
+		{
+			board.makeMove(player.search(board, limits).getBestMove());
+			plies++;
+		}
+
+		BoardInfo.State state = board.getInfoPointer().inferState();
+		return (state == BoardInfo.State.ONGOING) ? "no result after " + plies + " plies" :
+			state + " after " + plies + " plies";
+	}
+
+
+	/**
+	 * Benchmarks the endgame bitbases. This measures the time to generate the bitbases of
+	 * {@code BitbaseGenerator.DEFAULT_SETS} with every processor, the time to probe a position
+	 * in a bitbase and one with too many pieces to be in any, and the number of plies the engine
+	 * takes to checkmate in won endgames without and with the bitbases. The bitbases are
+	 * generated into a temporary directory, and unloaded at the end.
+	 */
+	public static void runBitbases() {
+		Path directory = null;
+		try {
+			directory = Files.createTempDirectory("bitbases");
+			Bitbases.clear();
+
+			int threads = Runtime.getRuntime().availableProcessors();
+			BitbaseGenerator generator = new BitbaseGenerator(directory.toString(), threads);
+			for (String set : BitbaseGenerator.DEFAULT_SETS) {
+				// A set may already have been generated as one that an earlier set turns into
+				if (Bitbases.get(set) != null)
+					continue;
+				long start = System.nanoTime();
+				generator.generate(set);
+				Log.stdout(Log.DEBUG, "BenchmarkTest",
+						   String.format("%-40s %12.1f ms", "Bitbase generation, " + set +
+										 ", " + threads + " threads",
+										 (System.nanoTime() - start) / 1e6));
+			}
+			List<Bitbase> loaded = Bitbases.load(directory.toString());
+			Log.stdout(Log.DEBUG, "BenchmarkTest", "Bitbases generated: " + loaded);
+
+			BoardInfo hit = FenUtility.informationFromFen(
+				BenchmarkTest.ENDGAME_POSITIONS.get(1).get(1));
+			BoardInfo miss = FenUtility.informationFromFen(BenchmarkTest.POSITIONS.get(1));
+			BenchmarkTest.measure("Bitbase probe, hit", BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole = Bitbases.probe(hit));
+			BenchmarkTest.measure("Bitbase probe, too many pieces",
+								  BenchmarkTest.MEASURED_OPERATIONS,
+								  () -> blackhole = Bitbases.probe(miss));
+
+			// Play each endgame out without the bitbases, then with them
+			for (List<String> endgame : BenchmarkTest.ENDGAME_POSITIONS) {
+				Bitbases.clear();
+				String without = BenchmarkTest.playEndgame(endgame.get(1));
+				for (Bitbase bitbase : loaded)
+					Bitbases.add(bitbase);
+				String with = BenchmarkTest.playEndgame(endgame.get(1));
+				Log.stdout(Log.DEBUG, "BenchmarkTest", endgame.get(0) + " without bitbases: " +
+						   without + ", with bitbases: " + with);
+			}
+		}
+		catch (IOException e) {
+			Log.stdout(Log.ERROR, "BenchmarkTest", "Cannot benchmark bitbases: " + e);
+		}
+		finally {
+			Bitbases.clear();
+			try {
+				if (directory != null) {
+					try (Stream<Path> files = Files.list(directory)) {
+						for (Path file : (Iterable<Path>) files::iterator)
+							Files.deleteIfExists(file);
+					}
+					Files.deleteIfExists(directory);
+				}
+			}
+			catch (IOException e) {
+				Log.stdout(Log.WARN, "BenchmarkTest", "Cannot delete " + directory + ": " + e);
+			}
+		}
+	}
+
+
+	/**
+	 * Runs all benchmarks.
+	 */
+	public static void run() {
+		BenchmarkTest.runAttacks();
+		BenchmarkTest.runMoveGeneration();
+		BenchmarkTest.runMakeMove();
+		BenchmarkTest.runEvaluation();
+		BenchmarkTest.runFen();
+		BenchmarkTest.runCommunication();
+		BenchmarkTest.runClone();
+	}
+
+}
@@ -0,0 +1,358 @@
+package tests;
+
+
+import jnet.Log;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * A streaming reader for perft test suites.
+ * <p>
+ * Tests are read lazily, one line at a time, so suites of any size can be run without loading
+ * them into memory. Three line formats are understood, and can be mixed in one file:
+ * <ul>
+ * <li> The format of {@code perftsuite.txt}: a 6-field FEN string followed by depth operations,
+ *      {@code "<fen> ;D1 20 ;D2 400"}.
+ * <li> EPD: a 4-field position followed by depth operations, with the first operation in the
+ *      same segment as the position, {@code "<epd> D1 20; D2 400;"}.
+ * <li> The format of {@code PerftTest.TESTS}: a FEN string followed by the expected counts
+ *      from depth 1 upwards, {@code "<fen>;20;400"}.
+ * </ul>
+ * Blank lines and lines starting with {@code #} are skipped. Lines that cannot be parsed are
+ * reported and skipped, so one bad line does not stop a long run.
+ *
+ * @author Jonathan Uhler
+ */
+public class PerftSuite {
+
+	/**
+	 * A single test of a perft suite.
+	 */
+	public static class Entry {
+
+		/** The number of the test, counting from 0 and skipping blank and comment lines. */
+		private final int number;
+		/** The FEN string of the position to test. */
+		private final String fen;
+		/** The expected leaf node count for each depth, or -1 if not known. */
+		private final long[] expected;
+
+
+		/**
+		 * Constructs a new {@code Entry}.
+		 *
+		 * @param number    the number of the test.
+		 * @param fen       the FEN string of the position to test.
+		 * @param expected  the expected leaf node count for each depth, or -1 if not known.
+		 */
+		private Entry(int number, String fen, long[] expected) {
+			this.number = number;
+			this.fen = fen;
+			this.expected = expected;
+		}
+
+
+		/**
+		 * Returns the number of the test.
+		 *
+		 * @return the number of the test.
+		 */
+		public int getNumber() {
+			return this.number;
+		}
+
+
+		/**
+		 * Returns the FEN string of the position to test. EPD positions without move counters 
+		 * are completed with a halfmove count of 0 and a fullmove count of 1.
+		 *
+		 * @return the FEN string of the position to test.
+		 */
+		public String getFen() {
+			return this.fen;
+		}
+
+
+		/**
+		 * Returns the expected leaf node count at a depth.
+		 *
+		 * @param depth  the depth of the test.
+		 *
+		 * @return the expected leaf node count, or -1 if the test does not list one for
+		 *         {@code depth}.
+		 */
+		public long getExpected(int depth) {
+			if (depth < 0 || depth >= this.expected.length)
+				return -1;
+			return this.expected[depth];
+		}
+
+
+		/**
+		 * Returns the deepest depth with an expected leaf node count.
+		 *
+		 * @return the deepest depth with an expected leaf node count, or 0 if there is none.
+		 */
+		public int getMaxDepth() {
+			for (int depth = this.expected.length - 1; depth > 0; depth--) {
+				if (this.expected[depth] >= 0)
+					return depth;
+			}
+			return 0;
+		}
+
+
+		@Override
+		public String toString() {
+			return this.number + ": " + this.fen + " " + Arrays.toString(this.expected);
+		}
+
+	}
+
+
+	/**
+	 * An iterator that reads and parses one line at a time.
+	 */
+	private static class EntryIterator implements Iterator<Entry> {
+
+		/** The source of lines. */
+		private final BufferedReader reader;
+		/** The name of the source, used in warnings. */
+		private final String source;
+		/** The next entry, or {@code null} if it has not been read yet. */
+		private Entry next;
+		/** The number of the next entry. */
+		private int number;
+		/** The current line number of the source, counting from 1. */
+		private int lineNumber;
+
+
+		/**
+		 * Constructs a new {@code EntryIterator}.
+		 *
+		 * @param reader  the source of lines.
+		 * @param source  the name of the source, used in warnings.
+		 */
+		public EntryIterator(BufferedReader reader, String source) {
+			this.reader = reader;
+			this.source = source;
+		}
+
+
+		@Override
+		public boolean hasNext() {
+			try {
+				String line;
+				while (this.next == null && (line = this.reader.readLine()) != null) {
+					this.lineNumber++;
+					line = line.trim();
+					if (line.isEmpty() || line.startsWith("#"))
+						continue;
+
+					try {
+						this.next = PerftSuite.parse(line, this.number);
+					}
+					catch (IllegalArgumentException e) {
+						Log.stdlog(Log.WARN, "PerftSuite", "Skipping " + this.source + ":" +
+								   this.lineNumber + ", " + e.getMessage());
+					}
+					this.number++;
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return this.next != null;
+		}
+
+
+		@Override
+		public Entry next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException("no more entries in " + this.source);
+			Entry entry = this.next;
+			this.next = null;
+			return entry;
+		}
+
+	}
+
+
+	/**
+	 * Parses one line of a perft suite.
+	 *
+	 * @param line    the line to parse.
+	 * @param number  the number of the test.
+	 *
+	 * @return the parsed test.
+	 *
+	 * @throws NullPointerException      if {@code line == null}.
+	 * @throws IllegalArgumentException  if the line is not in any of the understood formats.
+	 */
+	public static Entry parse(String line, int number) {
+		if (line == null)
+			throw new NullPointerException("line was null");
+
+		String[] segments = line.split(";");
+		String[] fields = segments[0].trim().split("\\s+");
+		if (fields.length < 4)
+			throw new IllegalArgumentException("position has fewer than 4 fields: " + line);
+
+		// The position is 4 EPD fields, optionally followed by the 2 move counters of a FEN
+		// string. Anything after that is the first operation of an EPD line
+		int positionFields = 4;
+		while (positionFields < 6 && positionFields < fields.length &&
+			   PerftSuite.isInteger(fields[positionFields]))
+			positionFields++;
+		String fen = String.join(" ", Arrays.copyOfRange(fields, 0, 4)) +
+			((positionFields >= 5) ? " " + fields[4] : " 0") +
+			((positionFields == 6) ? " " + fields[5] : " 1");
+
+		String[] operations = new String[segments.length];
+		int numOperations = 0;
+		if (positionFields < fields.length)
+			operations[numOperations++] =
+				String.join(" ", Arrays.copyOfRange(fields, positionFields, fields.length));
+		for (int i = 1; i < segments.length; i++) {
+			String operation = segments[i].trim();
+			if (!operation.isEmpty())
+				operations[numOperations++] = operation;
+		}
+
+		long[] expected = new long[numOperations + 1];
+		Arrays.fill(expected, -1);
+		for (int i = 0; i < numOperations; i++) {
+			// Either "D<depth> <count>" or a bare count for the next depth
+			String[] parts = operations[i].split("\\s+");
+			int depth;
+			String count;
+			if (parts.length == 2 && (parts[0].startsWith("D") || parts[0].startsWith("d"))) {
+				try {
+					depth = Integer.parseInt(parts[0].substring(1));
+				}
+				catch (NumberFormatException e) {
+					throw new IllegalArgumentException("invalid depth operation: " + operations[i]);
+				}
+				count = parts[1];
+			}
+			else if (parts.length == 1) {
+				depth = i + 1;
+				count = parts[0];
+			}
+			else
+				continue; // Other EPD operations are ignored
+
+			if (depth < 1)
+				throw new IllegalArgumentException("invalid depth: " + operations[i]);
+			if (depth >= expected.length) {
+				long[] grown = new long[depth + 1];
+				Arrays.fill(grown, -1);
+				System.arraycopy(expected, 0, grown, 0, expected.length);
+				expected = grown;
+			}
+			try {
+				expected[depth] = Long.parseLong(count);
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("invalid node count: " + operations[i]);
+			}
+		}
+
+		return new Entry(number, fen, expected);
+	}
+
+
+	/**
+	 * Determines whether a string is a non-negative integer.
+	 *
+	 * @param str  the string to check.
+	 *
+	 * @return true if {@code str} only contains digits.
+	 */
+	private static boolean isInteger(String str) {
+		if (str.isEmpty())
+			return false;
+		for (int i = 0; i < str.length(); i++) {
+			if (!Character.isDigit(str.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Reads a perft suite from a reader. The returned stream reads lines as tests are consumed,
+	 * and closes the reader when the stream is closed.
+	 *
+	 * @param reader  the source of lines.
+	 * @param source  the name of the source, used in warnings.
+	 *
+	 * @return a sequential, lazily populated stream of tests.
+	 *
+	 * @throws NullPointerException  if {@code reader == null}.
+	 */
+	public static Stream<Entry> read(BufferedReader reader, String source) {
+		if (reader == null)
+			throw new NullPointerException("reader was null");
+
+		Iterator<Entry> iterator = new EntryIterator(reader, source);
+		int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+		Spliterator<Entry> spliterator =
+			Spliterators.spliteratorUnknownSize(iterator, characteristics);
+		return StreamSupport.stream(spliterator, false)
+			.onClose(() -> {
+					try {
+						reader.close();
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+	}
+
+
+	/**
+	 * Reads a perft suite from a file or, if no file exists at the path, from a classpath
+	 * resource. The returned stream must be closed, preferably with try-with-resources.
+	 *
+	 * @param path  the path of the file or resource.
+	 *
+	 * @return a sequential, lazily populated stream of tests.
+	 *
+	 * @throws NullPointerException  if {@code path == null}.
+	 * @throws IOException           if neither a file nor a resource exists at {@code path}, or
+	 *                               the file cannot be opened.
+	 */
+	public static Stream<Entry> read(String path) throws IOException {
+		if (path == null)
+			throw new NullPointerException("path was null");
+
+		Path file = Path.of(path);
+		if (Files.isRegularFile(file))
+			return PerftSuite.read(Files.newBufferedReader(file, StandardCharsets.UTF_8), path);
+
+		InputStream resource = Thread.currentThread()
+			.getContextClassLoader()
+			.getResourceAsStream(path);
+		if (resource == null)
+			throw new IOException("no file or resource found: " + path);
+		BufferedReader reader =
+			new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8));
+		return PerftSuite.read(reader, path);
+	}
+
+}
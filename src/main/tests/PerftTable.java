@@ -0,0 +1,152 @@
+package tests;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A fixed-size transposition table of perft results, shared between threads without locks.
+ * <p>
+ * Each entry takes two {@code long} values of a flat array: the data (the node count shifted
+ * left by 8 bits, with the depth in the low 8 bits) and the Zobrist hash XOR-ed with that data.
+ * Two threads can write the same entry at the same time, or a reader can see one half of an
+ * entry from one write and the other half from another. In both cases the XOR no longer gives
+ * back the hash of the position being probed, so torn entries are treated as misses rather
+ * than returning a wrong count. This is the "lockless hashing" scheme described by Hyatt and
+ * Mann.
+ * <p>
+ * Entries are always replaced on store. Perft results never go stale, so the table can be kept
+ * between tests.
+ *
+ * @author Jonathan Uhler
+ */
+public class PerftTable {
+
+	/** The number of bytes used by one entry of the table. */
+	private static final int ENTRY_BYTES = 2 * Long.BYTES;
+	/** The mask of the depth in the data of an entry. */
+	private static final long DEPTH_MASK = 0xFF;
+	/** The number of bits the node count is shifted by in the data of an entry. */
+	private static final int NODES_SHIFT = 8;
+
+	/** The entries of the table, two values per entry. */
+	private final long[] table;
+	/** The mask applied to a hash to get the index of an entry. */
+	private final int indexMask;
+
+	/** The number of calls to {@code probe}. */
+	private final LongAdder probes;
+	/** The number of calls to {@code probe} that found a result. */
+	private final LongAdder hits;
+
+
+	/**
+	 * Constructs a new {@code PerftTable}. The number of entries is the largest power of two that
+	 * fits in the requested size.
+	 *
+	 * @param megabytes  the size of the table in MiB.
+	 *
+	 * @throws IllegalArgumentException  if {@code megabytes} is not on the interval [1, 16384].
+	 */
+	public PerftTable(int megabytes) {
+		if (megabytes < 1 || megabytes > 16384)
+			throw new IllegalArgumentException("megabytes must be on [1, 16384]: " + megabytes);
+
+		long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / PerftTable.ENTRY_BYTES);
+		// A Java array cannot have more than Integer.MAX_VALUE elements
+		entries = Math.min(entries, 1L << 29);
+		this.table = new long[(int) entries * 2];
+		this.indexMask = (int) entries - 1;
+
+		this.probes = new LongAdder();
+		this.hits = new LongAdder();
+	}
+
+
+	/**
+	 * Looks up the number of leaf nodes below a position.
+	 *
+	 * @param hash   the Zobrist hash of the position.
+	 * @param depth  the depth of the search below the position.
+	 *
+	 * @return the number of leaf nodes below the position, or -1 if it is not in the table.
+	 */
+	public long probe(long hash, int depth) {
+		this.probes.increment();
+
+		int index = ((int) hash & this.indexMask) << 1;
+		long data = this.table[index + 1];
+		long key = this.table[index] ^ data;
+		if (key != hash || (data & PerftTable.DEPTH_MASK) != depth)
+			return -1;
+
+		this.hits.increment();
+		return data >>> PerftTable.NODES_SHIFT;
+	}
+
+
+	/**
+	 * Stores the number of leaf nodes below a position.
+	 *
+	 * @param hash   the Zobrist hash of the position.
+	 * @param depth  the depth of the search below the position, on the interval [0, 255].
+	 * @param nodes  the number of leaf nodes below the position.
+	 */
+	public void store(long hash, int depth, long nodes) {
+		int index = ((int) hash & this.indexMask) << 1;
+		long data = (nodes << PerftTable.NODES_SHIFT) | depth;
+		this.table[index] = hash ^ data;
+		this.table[index + 1] = data;
+	}
+
+
+	/**
+	 * Returns the number of entries in the table.
+	 *
+	 * @return the number of entries in the table.
+	 */
+	public int getCapacity() {
+		return this.indexMask + 1;
+	}
+
+
+	/**
+	 * Returns the number of probes since the statistics were last reset.
+	 *
+	 * @return the number of probes since the statistics were last reset.
+	 */
+	public long getProbes() {
+		return this.probes.sum();
+	}
+
+
+	/**
+	 * Returns the number of probes that found a result since the statistics were last reset.
+	 *
+	 * @return the number of probes that found a result since the statistics were last reset.
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+
+	/**
+	 * Returns the percentage of probes that found a result since the statistics were last reset.
+	 *
+	 * @return the hit rate as a percentage on the interval [0, 100].
+	 */
+	public double getHitRate() {
+		long probeCount = this.getProbes();
+		return (probeCount == 0) ? 0.0 : this.getHits() * 100.0 / probeCount;
+	}
+
+
+	/**
+	 * Resets the probe and hit counts.
+	 */
+	public void resetStatistics() {
+		this.probes.reset();
+		this.hits.reset();
+	}
+
+}
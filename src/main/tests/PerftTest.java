@@ -4,207 +4,424 @@ package tests;
 import jnet.Log;
 import engine.move.Move;
 import engine.move.MoveGenerator;
+import engine.move.MoveList;
 import engine.board.Board;
 import engine.board.BoardInfo;
 import engine.fen.FenUtility;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 
 /**
  * PERF(ormance) T(esting) framework for this chess engine.
+ * <p>
+ * Tests can be run on several threads. The moves near the root of the tree are split into 
+ * {@code ForkJoinPool} tasks, each of which searches its subtree sequentially on its own copy of 
+ * the board, and idle threads steal tasks from busy ones to keep every core working.
+ * <p>
+ * Tests can also be hashed. The node count below each position is stored in a 
+ * {@code PerftTable} shared by every thread, so positions reached again through a transposition 
+ * are counted once.
  *
  * @author Jonathan Uhler
  */
 public class PerftTest {
 
 	/** 
-	 * The maximum depth positions should be tested with. MAX_DEPTH should normally be set to 3, 
-	 * which runs in ~1.5 minutes. 4 takes >10 minutes to run, although is good to do after major 
-	 * changes to check accuracy. The goal of having so many tests is that any strange situations 
-	 * will arise at least once with MAX_DEPTH = 3, so having a high depth is not really as 
-	 * important if there are enough tests to cover a wide range of positions.
+	 * The default depth positions are tested with. A depth of 3 runs the full suite in well under 
+	 * a second. Higher depths are good to run after major changes to check accuracy. The goal of 
+	 * having so many tests is that any strange situations will arise at least once with a depth 
+	 * of 3, so having a high depth is not really as important if there are enough tests to cover 
+	 * a wide range of positions.
 	 */
-	private static final int MAX_DEPTH = 3;
+	public static final int DEFAULT_DEPTH = 3;
+	/** The maximum depth of the built-in tests, limited by the expected results in each test. */
+	public static final int MAX_DEPTH = 6;
+	/** The smallest subtree depth that is split into parallel tasks. */
+	private static final int MIN_SPLIT_DEPTH = 3;
+	/** The smallest subtree depth stored in the hash table, below which counting is cheaper. */
+	private static final int MIN_HASH_DEPTH = 2;
 	
-	/** Local list of every test, easier than reading a file. */
-	public static final List<String> TESTS = new ArrayList<>() {{
-			add("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1;" +
-				"20;400;8902;197281;4865609;119060324");
-			add("4k3/8/8/8/8/8/8/4K2R w K - 0 1;15;66;1197;7059;133987;764643");
-			add("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1;16;71;1287;7626;145232;846648");
-			add("4k2r/8/8/8/8/8/8/4K3 w k - 0 1;5;75;459;8290;47635;899442");
-			add("r3k3/8/8/8/8/8/8/4K3 w q - 0 1;5;80;493;8897;52710;1001523");
-			add("4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1;26;112;3189;17945;532933;2788982");
-			add("r3k2r/8/8/8/8/8/8/4K3 w kq - 0 1;5;130;782;22180;118882;3517770");
-			add("8/8/8/8/8/8/6k1/4K2R w K - 0 1;12;38;564;2219;37735;185867");
-			add("8/8/8/8/8/8/1k6/R3K3 w Q - 0 1;15;65;1018;4573;80619;413018");
-			add("4k2r/6K1/8/8/8/8/8/8 w k - 0 1;3;32;134;2073;10485;179869");
-			add("r3k3/1K6/8/8/8/8/8/8 w q - 0 1;4;49;243;3991;20780;367724");
-			add("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1;26;568;13744;314346;7594526;179862938");
-			add("r3k2r/8/8/8/8/8/8/1R2K2R w Kkq - 0 1;25;567;14095;328965;8153719;195629489");
-			add("r3k2r/8/8/8/8/8/8/2R1K2R w Kkq - 0 1;25;548;13502;312835;7736373;184411439");
-			add("r3k2r/8/8/8/8/8/8/R3K1R1 w Qkq - 0 1;25;547;13579;316214;7878456;189224276");
-			add("1r2k2r/8/8/8/8/8/8/R3K2R w KQk - 0 1;26;583;14252;334705;8198901;198328929");
-			add("2r1k2r/8/8/8/8/8/8/R3K2R w KQk - 0 1;25;560;13592;317324;7710115;185959088");
-			add("r3k1r1/8/8/8/8/8/8/R3K2R w KQq - 0 1;25;560;13607;320792;7848606;190755813");
-			add("4k3/8/8/8/8/8/8/4K2R b K - 0 1;5;75;459;8290;47635;899442");
-			add("4k3/8/8/8/8/8/8/R3K3 b Q - 0 1;5;80;493;8897;52710;1001523");
-			add("4k2r/8/8/8/8/8/8/4K3 b k - 0 1;15;66;1197;7059;133987;764643");
-			add("r3k3/8/8/8/8/8/8/4K3 b q - 0 1;16;71;1287;7626;145232;846648");
-			add("4k3/8/8/8/8/8/8/R3K2R b KQ - 0 1;5;130;782;22180;118882;3517770");
-			add("r3k2r/8/8/8/8/8/8/4K3 b kq - 0 1;26;112;3189;17945;532933;2788982");
-			add("8/8/8/8/8/8/6k1/4K2R b K - 0 1;3;32;134;2073;10485;179869");
-			add("8/8/8/8/8/8/1k6/R3K3 b Q - 0 1;4;49;243;3991;20780;367724");
-			add("4k2r/6K1/8/8/8/8/8/8 b k - 0 1;12;38;564;2219;37735;185867");
-			add("r3k3/1K6/8/8/8/8/8/8 b q - 0 1;15;65;1018;4573;80619;413018");
-			add("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1;26;568;13744;314346;7594526;179862938");
-			add("r3k2r/8/8/8/8/8/8/1R2K2R b Kkq - 0 1;26;583;14252;334705;8198901;198328929");
-			add("r3k2r/8/8/8/8/8/8/2R1K2R b Kkq - 0 1;25;560;13592;317324;7710115;185959088");
-			add("r3k2r/8/8/8/8/8/8/R3K1R1 b Qkq - 0 1;25;560;13607;320792;7848606;190755813");
-			add("1r2k2r/8/8/8/8/8/8/R3K2R b KQk - 0 1;25;567;14095;328965;8153719;195629489");
-			add("2r1k2r/8/8/8/8/8/8/R3K2R b KQk - 0 1;25;548;13502;312835;7736373;184411439");
-			add("r3k1r1/8/8/8/8/8/8/R3K2R b KQq - 0 1;25;547;13579;316214;7878456;189224276");
-			add("8/1n4N1/2k5/8/8/5K2/1N4n1/8 w - - 0 1;14;195;2760;38675;570726;8107539");
-			add("8/1k6/8/5N2/8/4n3/8/2K5 w - - 0 1;11;156;1636;20534;223507;2594412");
-			add("8/8/4k3/3Nn3/3nN3/4K3/8/8 w - - 0 1;19;289;4442;73584;1198299;19870403");
-			add("K7/8/2n5/1n6/8/8/8/k6N w - - 0 1;3;51;345;5301;38348;588695");
-			add("k7/8/2N5/1N6/8/8/8/K6n w - - 0 1;17;54;835;5910;92250;688780");
-			add("8/1n4N1/2k5/8/8/5K2/1N4n1/8 b - - 0 1;15;193;2816;40039;582642;8503277");
-			add("8/1k6/8/5N2/8/4n3/8/2K5 b - - 0 1;16;180;2290;24640;288141;3147566");
-			add("8/8/3K4/3Nn3/3nN3/4k3/8/8 b - - 0 1;4;68;1118;16199;281190;4405103");
-			add("K7/8/2n5/1n6/8/8/8/k6N b - - 0 1;17;54;835;5910;92250;688780");
-			add("k7/8/2N5/1N6/8/8/8/K6n b - - 0 1;3;51;345;5301;38348;588695");
-			add("B6b/8/8/8/2K5/4k3/8/b6B w - - 0 1;17;278;4607;76778;1320507;22823890");
-			add("8/8/1B6/7b/7k/8/2B1b3/7K w - - 0 1;21;316;5744;93338;1713368;28861171");
-			add("k7/B7/1B6/1B6/8/8/8/K6b w - - 0 1;21;144;3242;32955;787524;7881673");
-			add("K7/b7/1b6/1b6/8/8/8/k6B w - - 0 1;7;143;1416;31787;310862;7382896");
-			add("B6b/8/8/8/2K5/5k2/8/b6B b - - 0 1;6;106;1829;31151;530585;9250746");
-			add("8/8/1B6/7b/7k/8/2B1b3/7K b - - 0 1;17;309;5133;93603;1591064;29027891");
-			add("k7/B7/1B6/1B6/8/8/8/K6b b - - 0 1;7;143;1416;31787;310862;7382896");
-			add("K7/b7/1b6/1b6/8/8/8/k6B b - - 0 1;21;144;3242;32955;787524;7881673");
-			add("7k/RR6/8/8/8/8/rr6/7K w - - 0 1;19;275;5300;104342;2161211;44956585");
-			add("R6r/8/8/2K5/5k2/8/8/r6R w - - 0 1;36;1027;29215;771461;20506480;525169084");
-			add("7k/RR6/8/8/8/8/rr6/7K b - - 0 1;19;275;5300;104342;2161211;44956585");
-			add("R6r/8/8/2K5/5k2/8/8/r6R b - - 0 1;36;1027;29227;771368;20521342;524966748");
-			add("6kq/8/8/8/8/8/8/7K w - - 0 1;2;36;143;3637;14893;391507");
-			add("6KQ/8/8/8/8/8/8/7k b - - 0 1;2;36;143;3637;14893;391507");
-			add("K7/8/8/3Q4/4q3/8/8/7k w - - 0 1;6;35;495;8349;166741;3370175");
-			add("6qk/8/8/8/8/8/8/7K b - - 0 1;22;43;1015;4167;105749;419369");
-			add("6KQ/8/8/8/8/8/8/7k b - - 0 1;2;36;143;3637;14893;391507");
-			add("K7/8/8/3Q4/4q3/8/8/7k b - - 0 1;6;35;495;8349;166741;3370175");
-			add("8/8/8/8/8/K7/P7/k7 w - - 0 1;3;7;43;199;1347;6249");
-			add("8/8/8/8/8/7K/7P/7k w - - 0 1;3;7;43;199;1347;6249");
-			add("K7/p7/k7/8/8/8/8/8 w - - 0 1;1;3;12;80;342;2343");
-			add("7K/7p/7k/8/8/8/8/8 w - - 0 1;1;3;12;80;342;2343");
-			add("8/2k1p3/3pP3/3P2K1/8/8/8/8 w - - 0 1;7;35;210;1091;7028;34834");
-			add("8/8/8/8/8/K7/P7/k7 b - - 0 1;1;3;12;80;342;2343");
-			add("8/8/8/8/8/7K/7P/7k b - - 0 1;1;3;12;80;342;2343");
-			add("K7/p7/k7/8/8/8/8/8 b - - 0 1;3;7;43;199;1347;6249");
-			add("7K/7p/7k/8/8/8/8/8 b - - 0 1;3;7;43;199;1347;6249");
-			add("8/2k1p3/3pP3/3P2K1/8/8/8/8 b - - 0 1;5;35;182;1091;5408;34822");
-			add("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1;2;8;44;282;1814;11848");
-			add("4k3/4p3/4K3/8/8/8/8/8 b - - 0 1;2;8;44;282;1814;11848");
-			add("8/8/7k/7p/7P/7K/8/8 w - - 0 1;3;9;57;360;1969;10724");
-			add("8/8/k7/p7/P7/K7/8/8 w - - 0 1;3;9;57;360;1969;10724");
-			add("8/8/3k4/3p4/3P4/3K4/8/8 w - - 0 1;5;25;180;1294;8296;53138");
-			add("8/3k4/3p4/8/3P4/3K4/8/8 w - - 0 1;8;61;483;3213;23599;157093");
-			add("8/8/3k4/3p4/8/3P4/3K4/8 w - - 0 1;8;61;411;3213;21637;158065");
-			add("k7/8/3p4/8/3P4/8/8/7K w - - 0 1;4;15;90;534;3450;20960");
-			add("8/8/7k/7p/7P/7K/8/8 b - - 0 1;3;9;57;360;1969;10724");
-			add("8/8/k7/p7/P7/K7/8/8 b - - 0 1;3;9;57;360;1969;10724");
-			add("8/8/3k4/3p4/3P4/3K4/8/8 b - - 0 1;5;25;180;1294;8296;53138");
-			add("8/3k4/3p4/8/3P4/3K4/8/8 b - - 0 1;8;61;411;3213;21637;158065");
-			add("8/8/3k4/3p4/8/3P4/3K4/8 b - - 0 1;8;61;483;3213;23599;157093");
-			add("k7/8/3p4/8/3P4/8/8/7K b - - 0 1;4;15;89;537;3309;21104");
-			add("7k/3p4/8/8/3P4/8/8/K7 w - - 0 1;4;19;117;720;4661;32191");
-			add("7k/8/8/3p4/8/8/3P4/K7 w - - 0 1;5;19;116;716;4786;30980");
-			add("k7/8/8/7p/6P1/8/8/K7 w - - 0 1;5;22;139;877;6112;41874");
-			add("k7/8/7p/8/8/6P1/8/K7 w - - 0 1;4;16;101;637;4354;29679");
-			add("k7/8/8/6p1/7P/8/8/K7 w - - 0 1;5;22;139;877;6112;41874");
-			add("k7/8/6p1/8/8/7P/8/K7 w - - 0 1;4;16;101;637;4354;29679");
-			add("k7/8/8/3p4/4p3/8/8/7K w - - 0 1;3;15;84;573;3013;22886");
-			add("k7/8/3p4/8/8/4P3/8/7K w - - 0 1;4;16;101;637;4271;28662");
-			add("7k/3p4/8/8/3P4/8/8/K7 b - - 0 1;5;19;117;720;5014;32167");
-			add("7k/8/8/3p4/8/8/3P4/K7 b - - 0 1;4;19;117;712;4658;30749");
-			add("k7/8/8/7p/6P1/8/8/K7 b - - 0 1;5;22;139;877;6112;41874");
-			add("k7/8/7p/8/8/6P1/8/K7 b - - 0 1;4;16;101;637;4354;29679");
-			add("k7/8/8/6p1/7P/8/8/K7 b - - 0 1;5;22;139;877;6112;41874");
-			add("k7/8/6p1/8/8/7P/8/K7 b - - 0 1;4;16;101;637;4354;29679");
-			add("k7/8/8/3p4/4p3/8/8/7K b - - 0 1;5;15;102;569;4337;22579");
-			add("k7/8/3p4/8/8/4P3/8/7K b - - 0 1;4;16;101;637;4271;28662");
-			add("7k/8/8/p7/1P6/8/8/7K w - - 0 1;5;22;139;877;6112;41874");
-			add("7k/8/p7/8/8/1P6/8/7K w - - 0 1;4;16;101;637;4354;29679");
-			add("7k/8/8/1p6/P7/8/8/7K w - - 0 1;5;22;139;877;6112;41874");
-			add("7k/8/1p6/8/8/P7/8/7K w - - 0 1;4;16;101;637;4354;29679");
-			add("k7/7p/8/8/8/8/6P1/K7 w - - 0 1;5;25;161;1035;7574;55338");
-			add("k7/6p1/8/8/8/8/7P/K7 w - - 0 1;5;25;161;1035;7574;55338");
-			add("3k4/3pp3/8/8/8/8/3PP3/3K4 w - - 0 1;7;49;378;2902;24122;199002");
-			add("7k/8/8/p7/1P6/8/8/7K b - - 0 1;5;22;139;877;6112;41874");
-			add("7k/8/p7/8/8/1P6/8/7K b - - 0 1;4;16;101;637;4354;29679");
-			add("7k/8/8/1p6/P7/8/8/7K b - - 0 1;5;22;139;877;6112;41874");
-			add("7k/8/1p6/8/8/P7/8/7K b - - 0 1;4;16;101;637;4354;29679");
-			add("k7/7p/8/8/8/8/6P1/K7 b - - 0 1;5;25;161;1035;7574;55338");
-			add("k7/6p1/8/8/8/8/7P/K7 b - - 0 1;5;25;161;1035;7574;55338");
-			add("3k4/3pp3/8/8/8/8/3PP3/3K4 b - - 0 1;7;49;378;2902;24122;199002");
-			add("8/Pk6/8/8/8/8/6Kp/8 w - - 0 1;11;97;887;8048;90606;1030499");
-			add("n1n5/1Pk5/8/8/8/8/5Kp1/5N1N w - - 0 1;24;421;7421;124608;2193768;37665329");
-			add("8/PPPk4/8/8/8/8/4Kppp/8 w - - 0 1;18;270;4699;79355;1533145;28859283");
-			add("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N w - - 0 1;24;496;9483;182838;3605103;71179139");
-			add("8/Pk6/8/8/8/8/6Kp/8 b - - 0 1;11;97;887;8048;90606;1030499");
-			add("n1n5/1Pk5/8/8/8/8/5Kp1/5N1N b - - 0 1;24;421;7421;124608;2193768;37665329");
-			add("8/PPPk4/8/8/8/8/4Kppp/8 b - - 0 1;18;270;4699;79355;1533145;28859283");
-			add("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1;24;496;9483;182838;3605103;71179139");
-	}};
+	/**
+	 * The built-in test suite, in the {@code "<fen>;<depth 1>;<depth 2>;..."} format understood 
+	 * by {@code PerftSuite}. Larger suites can be run from a file with 
+	 * {@code run(Stream, int, int, int, boolean)}.
+	 */
+	public static final List<String> TESTS =
+		List.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1;" +
+				"20;400;8902;197281;4865609;119060324",
+				"4k3/8/8/8/8/8/8/4K2R w K - 0 1;15;66;1197;7059;133987;764643",
+				"4k3/8/8/8/8/8/8/R3K3 w Q - 0 1;16;71;1287;7626;145232;846648",
+				"4k2r/8/8/8/8/8/8/4K3 w k - 0 1;5;75;459;8290;47635;899442",
+				"r3k3/8/8/8/8/8/8/4K3 w q - 0 1;5;80;493;8897;52710;1001523",
+				"4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1;26;112;3189;17945;532933;2788982",
+				"r3k2r/8/8/8/8/8/8/4K3 w kq - 0 1;5;130;782;22180;118882;3517770",
+				"8/8/8/8/8/8/6k1/4K2R w K - 0 1;12;38;564;2219;37735;185867",
+				"8/8/8/8/8/8/1k6/R3K3 w Q - 0 1;15;65;1018;4573;80619;413018",
+				"4k2r/6K1/8/8/8/8/8/8 w k - 0 1;3;32;134;2073;10485;179869",
+				"r3k3/1K6/8/8/8/8/8/8 w q - 0 1;4;49;243;3991;20780;367724",
+				"r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1;26;568;13744;314346;7594526;179862938",
+				"r3k2r/8/8/8/8/8/8/1R2K2R w Kkq - 0 1;25;567;14095;328965;8153719;195629489",
+				"r3k2r/8/8/8/8/8/8/2R1K2R w Kkq - 0 1;25;548;13502;312835;7736373;184411439",
+				"r3k2r/8/8/8/8/8/8/R3K1R1 w Qkq - 0 1;25;547;13579;316214;7878456;189224276",
+				"1r2k2r/8/8/8/8/8/8/R3K2R w KQk - 0 1;26;583;14252;334705;8198901;198328929",
+				"2r1k2r/8/8/8/8/8/8/R3K2R w KQk - 0 1;25;560;13592;317324;7710115;185959088",
+				"r3k1r1/8/8/8/8/8/8/R3K2R w KQq - 0 1;25;560;13607;320792;7848606;190755813",
+				"4k3/8/8/8/8/8/8/4K2R b K - 0 1;5;75;459;8290;47635;899442",
+				"4k3/8/8/8/8/8/8/R3K3 b Q - 0 1;5;80;493;8897;52710;1001523",
+				"4k2r/8/8/8/8/8/8/4K3 b k - 0 1;15;66;1197;7059;133987;764643",
+				"r3k3/8/8/8/8/8/8/4K3 b q - 0 1;16;71;1287;7626;145232;846648",
+				"4k3/8/8/8/8/8/8/R3K2R b KQ - 0 1;5;130;782;22180;118882;3517770",
+				"r3k2r/8/8/8/8/8/8/4K3 b kq - 0 1;26;112;3189;17945;532933;2788982",
+				"8/8/8/8/8/8/6k1/4K2R b K - 0 1;3;32;134;2073;10485;179869",
+				"8/8/8/8/8/8/1k6/R3K3 b Q - 0 1;4;49;243;3991;20780;367724",
+				"4k2r/6K1/8/8/8/8/8/8 b k - 0 1;12;38;564;2219;37735;185867",
+				"r3k3/1K6/8/8/8/8/8/8 b q - 0 1;15;65;1018;4573;80619;413018",
+				"r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1;26;568;13744;314346;7594526;179862938",
+				"r3k2r/8/8/8/8/8/8/1R2K2R b Kkq - 0 1;26;583;14252;334705;8198901;198328929",
+				"r3k2r/8/8/8/8/8/8/2R1K2R b Kkq - 0 1;25;560;13592;317324;7710115;185959088",
+				"r3k2r/8/8/8/8/8/8/R3K1R1 b Qkq - 0 1;25;560;13607;320792;7848606;190755813",
+				"1r2k2r/8/8/8/8/8/8/R3K2R b KQk - 0 1;25;567;14095;328965;8153719;195629489",
+				"2r1k2r/8/8/8/8/8/8/R3K2R b KQk - 0 1;25;548;13502;312835;7736373;184411439",
+				"r3k1r1/8/8/8/8/8/8/R3K2R b KQq - 0 1;25;547;13579;316214;7878456;189224276",
+				"8/1n4N1/2k5/8/8/5K2/1N4n1/8 w - - 0 1;14;195;2760;38675;570726;8107539",
+				"8/1k6/8/5N2/8/4n3/8/2K5 w - - 0 1;11;156;1636;20534;223507;2594412",
+				"8/8/4k3/3Nn3/3nN3/4K3/8/8 w - - 0 1;19;289;4442;73584;1198299;19870403",
+				"K7/8/2n5/1n6/8/8/8/k6N w - - 0 1;3;51;345;5301;38348;588695",
+				"k7/8/2N5/1N6/8/8/8/K6n w - - 0 1;17;54;835;5910;92250;688780",
+				"8/1n4N1/2k5/8/8/5K2/1N4n1/8 b - - 0 1;15;193;2816;40039;582642;8503277",
+				"8/1k6/8/5N2/8/4n3/8/2K5 b - - 0 1;16;180;2290;24640;288141;3147566",
+				"8/8/3K4/3Nn3/3nN3/4k3/8/8 b - - 0 1;4;68;1118;16199;281190;4405103",
+				"K7/8/2n5/1n6/8/8/8/k6N b - - 0 1;17;54;835;5910;92250;688780",
+				"k7/8/2N5/1N6/8/8/8/K6n b - - 0 1;3;51;345;5301;38348;588695",
+				"B6b/8/8/8/2K5/4k3/8/b6B w - - 0 1;17;278;4607;76778;1320507;22823890",
+				"8/8/1B6/7b/7k/8/2B1b3/7K w - - 0 1;21;316;5744;93338;1713368;28861171",
+				"k7/B7/1B6/1B6/8/8/8/K6b w - - 0 1;21;144;3242;32955;787524;7881673",
+				"K7/b7/1b6/1b6/8/8/8/k6B w - - 0 1;7;143;1416;31787;310862;7382896",
+				"B6b/8/8/8/2K5/5k2/8/b6B b - - 0 1;6;106;1829;31151;530585;9250746",
+				"8/8/1B6/7b/7k/8/2B1b3/7K b - - 0 1;17;309;5133;93603;1591064;29027891",
+				"k7/B7/1B6/1B6/8/8/8/K6b b - - 0 1;7;143;1416;31787;310862;7382896",
+				"K7/b7/1b6/1b6/8/8/8/k6B b - - 0 1;21;144;3242;32955;787524;7881673",
+				"7k/RR6/8/8/8/8/rr6/7K w - - 0 1;19;275;5300;104342;2161211;44956585",
+				"R6r/8/8/2K5/5k2/8/8/r6R w - - 0 1;36;1027;29215;771461;20506480;525169084",
+				"7k/RR6/8/8/8/8/rr6/7K b - - 0 1;19;275;5300;104342;2161211;44956585",
+				"R6r/8/8/2K5/5k2/8/8/r6R b - - 0 1;36;1027;29227;771368;20521342;524966748",
+				"6kq/8/8/8/8/8/8/7K w - - 0 1;2;36;143;3637;14893;391507",
+				"6KQ/8/8/8/8/8/8/7k b - - 0 1;2;36;143;3637;14893;391507",
+				"K7/8/8/3Q4/4q3/8/8/7k w - - 0 1;6;35;495;8349;166741;3370175",
+				"6qk/8/8/8/8/8/8/7K b - - 0 1;22;43;1015;4167;105749;419369",
+				"6KQ/8/8/8/8/8/8/7k b - - 0 1;2;36;143;3637;14893;391507",
+				"K7/8/8/3Q4/4q3/8/8/7k b - - 0 1;6;35;495;8349;166741;3370175",
+				"8/8/8/8/8/K7/P7/k7 w - - 0 1;3;7;43;199;1347;6249",
+				"8/8/8/8/8/7K/7P/7k w - - 0 1;3;7;43;199;1347;6249",
+				"K7/p7/k7/8/8/8/8/8 w - - 0 1;1;3;12;80;342;2343",
+				"7K/7p/7k/8/8/8/8/8 w - - 0 1;1;3;12;80;342;2343",
+				"8/2k1p3/3pP3/3P2K1/8/8/8/8 w - - 0 1;7;35;210;1091;7028;34834",
+				"8/8/8/8/8/K7/P7/k7 b - - 0 1;1;3;12;80;342;2343",
+				"8/8/8/8/8/7K/7P/7k b - - 0 1;1;3;12;80;342;2343",
+				"K7/p7/k7/8/8/8/8/8 b - - 0 1;3;7;43;199;1347;6249",
+				"7K/7p/7k/8/8/8/8/8 b - - 0 1;3;7;43;199;1347;6249",
+				"8/2k1p3/3pP3/3P2K1/8/8/8/8 b - - 0 1;5;35;182;1091;5408;34822",
+				"8/8/8/8/8/4k3/4P3/4K3 w - - 0 1;2;8;44;282;1814;11848",
+				"4k3/4p3/4K3/8/8/8/8/8 b - - 0 1;2;8;44;282;1814;11848",
+				"8/8/7k/7p/7P/7K/8/8 w - - 0 1;3;9;57;360;1969;10724",
+				"8/8/k7/p7/P7/K7/8/8 w - - 0 1;3;9;57;360;1969;10724",
+				"8/8/3k4/3p4/3P4/3K4/8/8 w - - 0 1;5;25;180;1294;8296;53138",
+				"8/3k4/3p4/8/3P4/3K4/8/8 w - - 0 1;8;61;483;3213;23599;157093",
+				"8/8/3k4/3p4/8/3P4/3K4/8 w - - 0 1;8;61;411;3213;21637;158065",
+				"k7/8/3p4/8/3P4/8/8/7K w - - 0 1;4;15;90;534;3450;20960",
+				"8/8/7k/7p/7P/7K/8/8 b - - 0 1;3;9;57;360;1969;10724",
+				"8/8/k7/p7/P7/K7/8/8 b - - 0 1;3;9;57;360;1969;10724",
+				"8/8/3k4/3p4/3P4/3K4/8/8 b - - 0 1;5;25;180;1294;8296;53138",
+				"8/3k4/3p4/8/3P4/3K4/8/8 b - - 0 1;8;61;411;3213;21637;158065",
+				"8/8/3k4/3p4/8/3P4/3K4/8 b - - 0 1;8;61;483;3213;23599;157093",
+				"k7/8/3p4/8/3P4/8/8/7K b - - 0 1;4;15;89;537;3309;21104",
+				"7k/3p4/8/8/3P4/8/8/K7 w - - 0 1;4;19;117;720;4661;32191",
+				"7k/8/8/3p4/8/8/3P4/K7 w - - 0 1;5;19;116;716;4786;30980",
+				"k7/8/8/7p/6P1/8/8/K7 w - - 0 1;5;22;139;877;6112;41874",
+				"k7/8/7p/8/8/6P1/8/K7 w - - 0 1;4;16;101;637;4354;29679",
+				"k7/8/8/6p1/7P/8/8/K7 w - - 0 1;5;22;139;877;6112;41874",
+				"k7/8/6p1/8/8/7P/8/K7 w - - 0 1;4;16;101;637;4354;29679",
+				"k7/8/8/3p4/4p3/8/8/7K w - - 0 1;3;15;84;573;3013;22886",
+				"k7/8/3p4/8/8/4P3/8/7K w - - 0 1;4;16;101;637;4271;28662",
+				"7k/3p4/8/8/3P4/8/8/K7 b - - 0 1;5;19;117;720;5014;32167",
+				"7k/8/8/3p4/8/8/3P4/K7 b - - 0 1;4;19;117;712;4658;30749",
+				"k7/8/8/7p/6P1/8/8/K7 b - - 0 1;5;22;139;877;6112;41874",
+				"k7/8/7p/8/8/6P1/8/K7 b - - 0 1;4;16;101;637;4354;29679",
+				"k7/8/8/6p1/7P/8/8/K7 b - - 0 1;5;22;139;877;6112;41874",
+				"k7/8/6p1/8/8/7P/8/K7 b - - 0 1;4;16;101;637;4354;29679",
+				"k7/8/8/3p4/4p3/8/8/7K b - - 0 1;5;15;102;569;4337;22579",
+				"k7/8/3p4/8/8/4P3/8/7K b - - 0 1;4;16;101;637;4271;28662",
+				"7k/8/8/p7/1P6/8/8/7K w - - 0 1;5;22;139;877;6112;41874",
+				"7k/8/p7/8/8/1P6/8/7K w - - 0 1;4;16;101;637;4354;29679",
+				"7k/8/8/1p6/P7/8/8/7K w - - 0 1;5;22;139;877;6112;41874",
+				"7k/8/1p6/8/8/P7/8/7K w - - 0 1;4;16;101;637;4354;29679",
+				"k7/7p/8/8/8/8/6P1/K7 w - - 0 1;5;25;161;1035;7574;55338",
+				"k7/6p1/8/8/8/8/7P/K7 w - - 0 1;5;25;161;1035;7574;55338",
+				"3k4/3pp3/8/8/8/8/3PP3/3K4 w - - 0 1;7;49;378;2902;24122;199002",
+				"7k/8/8/p7/1P6/8/8/7K b - - 0 1;5;22;139;877;6112;41874",
+				"7k/8/p7/8/8/1P6/8/7K b - - 0 1;4;16;101;637;4354;29679",
+				"7k/8/8/1p6/P7/8/8/7K b - - 0 1;5;22;139;877;6112;41874",
+				"7k/8/1p6/8/8/P7/8/7K b - - 0 1;4;16;101;637;4354;29679",
+				"k7/7p/8/8/8/8/6P1/K7 b - - 0 1;5;25;161;1035;7574;55338",
+				"k7/6p1/8/8/8/8/7P/K7 b - - 0 1;5;25;161;1035;7574;55338",
+				"3k4/3pp3/8/8/8/8/3PP3/3K4 b - - 0 1;7;49;378;2902;24122;199002",
+				"8/Pk6/8/8/8/8/6Kp/8 w - - 0 1;11;97;887;8048;90606;1030499",
+				"n1n5/1Pk5/8/8/8/8/5Kp1/5N1N w - - 0 1;24;421;7421;124608;2193768;37665329",
+				"8/PPPk4/8/8/8/8/4Kppp/8 w - - 0 1;18;270;4699;79355;1533145;28859283",
+				"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N w - - 0 1;24;496;9483;182838;3605103;71179139",
+				"8/Pk6/8/8/8/8/6Kp/8 b - - 0 1;11;97;887;8048;90606;1030499",
+				"n1n5/1Pk5/8/8/8/8/5Kp1/5N1N b - - 0 1;24;421;7421;124608;2193768;37665329",
+				"8/PPPk4/8/8/8/8/4Kppp/8 b - - 0 1;18;270;4699;79355;1533145;28859283",
+				"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1;24;496;9483;182838;3605103;71179139");
+
+
+	/**
+	 * A {@code ForkJoinPool} task that counts the leaf nodes below a position. Tasks near the 
+	 * root fork one child task per move, each with its own copy of the board. All other tasks run 
+	 * a sequential perft on their own board.
+	 */
+	private static class PerftTask extends RecursiveTask<Long> {
+
+		/** The position to count from, owned by this task. */
+		private final BoardInfo boardInfo;
+		/** The depth to count to. */
+		private final int depth;
+		/** The number of plies below this task that are still split into child tasks. */
+		private final int splitPlies;
+		/** The shared hash table, or {@code null} if the test is not hashed. */
+		private final PerftTable table;
+
+
+		/**
+		 * Constructs a new {@code PerftTask}.
+		 *
+		 * @param boardInfo   the position to count from. The task takes ownership of this object.
+		 * @param depth       the depth to count to.
+		 * @param splitPlies  the number of plies that should be split into child tasks.
+		 * @param table       the shared hash table, or {@code null} if the test is not hashed.
+		 */
+		public PerftTask(BoardInfo boardInfo, int depth, int splitPlies, PerftTable table) {
+			this.boardInfo = boardInfo;
+			this.depth = depth;
+			this.splitPlies = splitPlies;
+			this.table = table;
+		}
+
+
+		/**
+		 * Counts the leaf nodes below the position of this task.
+		 *
+		 * @return the number of leaf nodes below the position of this task.
+		 */
+		@Override
+		protected Long compute() {
+			Board board = new Board(this.boardInfo);
+			if (this.splitPlies <= 0 || this.depth < PerftTest.MIN_SPLIT_DEPTH)
+				return PerftTest.perft(board, this.depth, PerftTest.createMoveLists(this.depth),
+									   this.table);
+
+			// Fork one task for each move, each on a copy of the position after the move
+			MoveList moves = new MoveList();
+			MoveGenerator.generateLegalMoves(this.boardInfo, moves);
+			List<PerftTask> children = new ArrayList<>(moves.size());
+			for (int i = 0; i < moves.size(); i++) {
+				board.makeMove(moves.get(i));
+				children.add(new PerftTask(new BoardInfo(this.boardInfo), this.depth - 1,
+										   this.splitPlies - 1, this.table));
+				board.unmakeMove();
+			}
+			RecursiveTask.invokeAll(children);
+
+			long nodes = 0;
+			for (PerftTask child : children)
+				nodes += child.join();
+			return nodes;
+		}
+
+	}
+
+
+	/**
+	 * Creates one reusable list of moves for each depth of a test.
+	 *
+	 * @param depth  the depth of the test.
+	 *
+	 * @return an array of {@code MoveList} objects, indexed by remaining depth.
+	 */
+	private static MoveList[] createMoveLists(int depth) {
+		MoveList[] moveLists = new MoveList[depth + 1];
+		for (int i = 0; i < moveLists.length; i++)
+			moveLists[i] = new MoveList();
+		return moveLists;
+	}
 
 
 	/**
-	 * Runs a single test from a starting position.
+	 * Runs a single test from a starting position on the current thread.
 	 * <p>
-	 * General algorithm based on C code: https://www.chessprogramming.org/Perft#Perft_function.
+	 * General algorithm based on C code: https://www.chessprogramming.org/Perft#Perft_function. 
+	 * One ply above the leaves, the legal moves are counted instead of being made and unmade 
+	 * ("bulk counting"), since each of them leads to exactly one leaf node.
 	 *
-	 * @param board   the {@code Board} object to play moves on.
-	 * @param depth   the current depth of the test (this method is recursive).
-	 * @param divide  an option that prints the found nodes after each move made (as opposed to
-	 *                only printing after all moves have been made for the entire test). Very 
-	 *                verbose, useful for debug.
+	 * @param board      the {@code Board} object to play moves on.
+	 * @param depth      the current depth of the test (this method is recursive).
+	 * @param moveLists  one reusable list of moves for each depth, so no moves are allocated 
+	 *                   during the test.
+	 * @param table      the shared hash table, or {@code null} if the test is not hashed.
 	 *
-	 * @return the number of nodes found after making all the available moves through 
-	 *         {@code PerftTest.MAX_DEPTH}.
+	 * @return the number of leaf nodes found after making all the available moves through 
+	 *         {@code depth}.
 	 */
-	private static int perft(Board board, int depth, boolean divide) {
-		// Break case
+	private static long perft(Board board, int depth, MoveList[] moveLists, PerftTable table) {
+		// Break cases
 		if (depth == 0)
 			return 1;
+		if (depth == 1)
+			return MoveGenerator.countLegalMoves(board.getInfoPointer());
+
+		boolean hashed = table != null && depth >= PerftTest.MIN_HASH_DEPTH;
+		long hash = board.getInfoPointer().getHash();
+		if (hashed) {
+			long stored = table.probe(hash, depth);
+			if (stored >= 0)
+				return stored;
+		}
 
-		int nodes = 0;
-		List<Move> moves = MoveGenerator.generateLegalMoves(board.getInfo());
+		long nodes = 0;
+		MoveList moves = moveLists[depth];
+		MoveGenerator.generateLegalMoves(board.getInfoPointer(), moves);
 		// Loop through every possible move at this depth, make the move, then recurse, then
 		// unmake the move to preserve the board structure
-		for (Move move : moves) {
-			board.makeMove(move);
-			int prevNodes = nodes;
-			nodes += PerftTest.perft(board, depth - 1, divide);
-			if (divide && depth == PerftTest.MAX_DEPTH)
-				Log.stdout(Log.DEBUG, "PerftTest", "\tMove: " + move +
-						   "\tNodes: " + (nodes - prevNodes));
+		for (int i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			nodes += PerftTest.perft(board, depth - 1, moveLists, table);
+			board.unmakeMove();
+		}
+
+		if (hashed)
+			table.store(hash, depth, nodes);
+		return nodes;
+	}
+
+
+	/**
+	 * Counts the leaf nodes below a position using a pool of threads.
+	 * <p>
+	 * The root is always split into one task per move. For deeper tests, the second ply is 
+	 * split as well, which gives positions with few root moves enough tasks to balance across 
+	 * every thread.
+	 *
+	 * @param boardInfo  the position to count from. This object is not modified.
+	 * @param depth      the depth to count to.
+	 * @param pool       the pool to run on.
+	 * @param table      the hash table shared by every thread, or {@code null} to count every 
+	 *                   position without hashing.
+	 * @param divide     an option that prints the found nodes after each root move. Very 
+	 *                   verbose, useful for debug.
+	 *
+	 * @return the number of leaf nodes found after making all the available moves through 
+	 *         {@code depth}.
+	 *
+	 * @throws NullPointerException      if {@code boardInfo} or {@code pool} is null.
+	 * @throws IllegalArgumentException  if {@code depth < 0}.
+	 */
+	public static long perft(BoardInfo boardInfo, int depth, ForkJoinPool pool, PerftTable table,
+							 boolean divide)
+	{
+		if (boardInfo == null)
+			throw new NullPointerException("boardInfo was null");
+		if (pool == null)
+			throw new NullPointerException("pool was null");
+		if (depth < 0)
+			throw new IllegalArgumentException("depth cannot be negative: " + depth);
+
+		if (divide && depth > 0)
+			return PerftTest.divide(boardInfo, depth, pool, table);
+
+		int splitPlies = (depth >= PerftTest.MIN_SPLIT_DEPTH + 2) ? 2 : 1;
+		return pool.invoke(new PerftTask(new BoardInfo(boardInfo), depth, splitPlies, table));
+	}
+
+
+	/**
+	 * Counts and prints the leaf nodes below each root move of a position.
+	 *
+	 * @param boardInfo  the position to count from. This object is not modified.
+	 * @param depth      the depth to count to, which must be at least 1.
+	 * @param pool       the pool to run on.
+	 * @param table      the shared hash table, or {@code null} if the test is not hashed.
+	 *
+	 * @return the total number of leaf nodes.
+	 */
+	private static long divide(BoardInfo boardInfo, int depth, ForkJoinPool pool,
+							   PerftTable table)
+	{
+		BoardInfo rootInfo = new BoardInfo(boardInfo);
+		Board board = new Board(rootInfo);
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegalMoves(rootInfo, moves);
+
+		List<PerftTask> children = new ArrayList<>(moves.size());
+		for (int i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			children.add(new PerftTask(new BoardInfo(rootInfo), depth - 1, 1, table));
 			board.unmakeMove();
 		}
+		for (PerftTask child : children)
+			pool.execute(child);
 
+		long nodes = 0;
+		for (int i = 0; i < children.size(); i++) {
+			long childNodes = children.get(i).join();
+			nodes += childNodes;
+			Log.stdout(Log.DEBUG, "PerftTest", "\tMove: " + Move.toString(moves.get(i)) +
+					   "\tNodes: " + childNodes);
+		}
 		return nodes;
 	}
 
 
 	/**
-	 * Runs performance tests.
+	 * Runs the built-in performance tests at the default depth, using every available processor.
 	 *
 	 * @param start   the first test number to run, inclusive.
-	 * @param end     the last test number to run, exclusive.
-	 * @param divide  an option that prints the found nodes after each move made (as opposed to
+	 * @param end     the last test number to run, inclusive.
+	 * @param divide  an option that prints the found nodes after each root move (as opposed to
 	 *                only printing after all moves have been made for the entire test). Very 
 	 *                verbose, useful for debug.
+	 *
+	 * @see run(int, int, int, int, int, boolean)
 	 */
 	public static void run(int start, int end, boolean divide) {
+		PerftTest.run(start, end, PerftTest.DEFAULT_DEPTH,
+					  Runtime.getRuntime().availableProcessors(), 0, divide);
+	}
+
+
+	/**
+	 * Runs the built-in performance tests.
+	 *
+	 * @param start      the first test number to run, inclusive.
+	 * @param end        the last test number to run, inclusive.
+	 * @param depth      the depth to run each test at, on the interval [1, MAX_DEPTH].
+	 * @param threads    the number of threads to run each test on.
+	 * @param hashSize   the size of the hash table shared by every test in MiB, or 0 to run the 
+	 *                   tests without hashing.
+	 * @param divide     an option that prints the found nodes after each root move (as opposed 
+	 *                   to only printing after all moves have been made for the entire test). 
+	 *                   Very verbose, useful for debug.
+	 *
+	 * @see run(Stream, int, int, int, boolean)
+	 */
+	public static void run(int start, int end, int depth, int threads, int hashSize,
+						   boolean divide)
+	{
 		// Validate min and max test number
 		if (start < 0) {
 			Log.stdlog(Log.WARN, "PerftTest",
@@ -216,73 +433,149 @@ public class PerftTest {
 					   "Specified end test # is too large, defaulting to last test");
 			end = PerftTest.TESTS.size() - 1;
 		}
+		if (depth > PerftTest.MAX_DEPTH) {
+			Log.stdlog(Log.WARN, "PerftTest",
+					   "Specified depth is out of range, defaulting to " + PerftTest.DEFAULT_DEPTH);
+			depth = PerftTest.DEFAULT_DEPTH;
+		}
+
+		Stream<PerftSuite.Entry> tests = IntStream.rangeClosed(start, end)
+			.mapToObj(i -> PerftSuite.parse(PerftTest.TESTS.get(i), i));
+		PerftTest.run(tests, depth, threads, hashSize, divide);
+	}
+
+
+	/**
+	 * Runs performance tests from a stream. Tests are pulled from the stream one at a time, so a 
+	 * stream from {@code PerftSuite.read} is read from its source while the tests run. The node 
+	 * count, time, and node rate (in nodes per second) are printed for each test, and in 
+	 * aggregate once all tests have finished. For hashed tests, the percentage of hash table 
+	 * probes that found a result is printed as well.
+	 *
+	 * @param tests      the tests to run. Tests without an expected node count at {@code depth} 
+	 *                   are skipped.
+	 * @param depth      the depth to run each test at.
+	 * @param threads    the number of threads to run each test on.
+	 * @param hashSize   the size of the hash table shared by every test in MiB, or 0 to run the 
+	 *                   tests without hashing.
+	 * @param divide     an option that prints the found nodes after each root move (as opposed 
+	 *                   to only printing after all moves have been made for the entire test). 
+	 *                   Very verbose, useful for debug.
+	 *
+	 * @throws NullPointerException  if {@code tests == null}.
+	 */
+	public static void run(Stream<PerftSuite.Entry> tests, int depth, int threads, int hashSize,
+						   boolean divide)
+	{
+		if (tests == null)
+			throw new NullPointerException("tests was null");
+		if (depth < 1) {
+			Log.stdlog(Log.WARN, "PerftTest",
+					   "Specified depth is out of range, defaulting to " + PerftTest.DEFAULT_DEPTH);
+			depth = PerftTest.DEFAULT_DEPTH;
+		}
+		if (threads < 1) {
+			Log.stdlog(Log.WARN, "PerftTest",
+					   "Specified thread count is too small, defaulting to 1");
+			threads = 1;
+		}
+		if (hashSize < 0) {
+			Log.stdlog(Log.WARN, "PerftTest",
+					   "Specified hash size is too small, defaulting to no hashing");
+			hashSize = 0;
+		}
 
 		// Track number of tests passed and failed for total percentage passed
 		int numPassed = 0;
 		int numFailed = 0;
+		int numSkipped = 0;
 		long testingTime = 0;
+		long testingNodes = 0;
 
-		// Loop through the specified test range
-		for (int i = start; i <= end; i++) {
-			String test = PerftTest.TESTS.get(i);
-
-			// Split the test string by the semicolon delimiter. Check to see if the test can be
-			// graded. If the maximum depth is not within the # nodes/depth listed in the string,
-			// then that test cannot be graded since the expected value is not known.
-			String[] testSplit = test.split(";");
-			if (testSplit.length != 7 ||
-				PerftTest.MAX_DEPTH < 1 ||
-				PerftTest.MAX_DEPTH > testSplit.length - 1)
-			{
-				Log.stdlog(Log.WARN, "PerftTest",
-						   "Test skipped, improper length or MAX_DEPTH is out of range");
-				continue;
-			}
+		PerftTable table = (hashSize > 0) ? new PerftTable(hashSize) : null;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			Iterator<PerftSuite.Entry> iterator = tests.iterator();
+			while (iterator.hasNext()) {
+				PerftSuite.Entry test = iterator.next();
 
-			// Board setup from the fen string
-			String fenString = testSplit[0];
-			BoardInfo boardInfo = FenUtility.informationFromFen(fenString);
-			Board board = new Board(boardInfo);
-
-			// Running the test and computing total time used
-			long startTime = System.currentTimeMillis();
-			int numTotalNodes = PerftTest.perft(board, PerftTest.MAX_DEPTH, divide);
-			long endTime = System.currentTimeMillis();
-			long totalTime = endTime - startTime;
-
-			// Get the expected result
-			int numExpectedNodes;
-			String numExpectedNodesString = testSplit[PerftTest.MAX_DEPTH];
-			try {
-				numExpectedNodes = Integer.parseInt(numExpectedNodesString);
-			}
-			catch (NumberFormatException e) {
-				Log.stdlog(Log.WARN, "PerftTest",
-						   "test eval skipped, could not parse expected nodes as int");
-				continue;
-			}
+				// Check to see if the test can be graded. If the depth is not within the 
+				// # nodes/depth listed for the test, then that test cannot be graded since the 
+				// expected value is not known.
+				long numExpectedNodes = test.getExpected(depth);
+				if (numExpectedNodes < 0) {
+					numSkipped++;
+					continue;
+				}
+
+				// Board setup from the fen string
+				BoardInfo boardInfo;
+				try {
+					boardInfo = FenUtility.informationFromFen(test.getFen());
+				}
+				catch (IllegalArgumentException e) {
+					Log.stdlog(Log.WARN, "PerftTest", "Test " + test.getNumber() +
+							   " skipped, invalid FEN: " + e.getMessage());
+					numSkipped++;
+					continue;
+				}
 
-			// Determine if the test was passed and print messages/update values
-			boolean passed = (numTotalNodes == numExpectedNodes);
-			Log.stdout(Log.DEBUG, "PerftTest",
-					   "Test: " + i +
-					   "\tDepth: " + PerftTest.MAX_DEPTH +
-					   "\tResult: " + numTotalNodes +
-					   "\tTime: " + totalTime + "ms" +
-					   "\t--  " +
-					   ((passed) ? "Passed" : "FAILED (expected " + numExpectedNodes + ")"));
-			if (passed)
-				numPassed++;
-			else
-				numFailed++;
-			testingTime += totalTime;
+				// Running the test and computing total time used
+				if (table != null)
+					table.resetStatistics();
+				long startTime = System.nanoTime();
+				long numTotalNodes = PerftTest.perft(boardInfo, depth, pool, table, divide);
+				long totalTime = System.nanoTime() - startTime;
+
+				// Determine if the test was passed and print messages/update values
+				boolean passed = (numTotalNodes == numExpectedNodes);
+				Log.stdout(Log.DEBUG, "PerftTest",
+						   "Test: " + test.getNumber() +
+						   "\tDepth: " + depth +
+						   "\tResult: " + numTotalNodes +
+						   "\tTime: " + (totalTime / 1000000) + "ms" +
+						   "\tNPS: " + PerftTest.nodesPerSecond(numTotalNodes, totalTime) +
+						   ((table != null) ?
+							String.format("\tHits: %.1f%%", table.getHitRate()) : "") +
+						   "\t--  " +
+						   ((passed) ? "Passed" : "FAILED (expected " + numExpectedNodes + ")"));
+				if (passed)
+					numPassed++;
+				else
+					numFailed++;
+				testingTime += totalTime;
+				testingNodes += numTotalNodes;
+			}
+		}
+		finally {
+			pool.shutdown();
 		}
 
+		if (numSkipped > 0)
+			Log.stdlog(Log.WARN, "PerftTest", numSkipped + " test(s) skipped, no expected " +
+					   "node count at depth " + depth + " or invalid position");
+
 		// Print total percentage passed/failed after all requested tests have been completed
 		Log.stdout(Log.DEBUG, "PerftTest", "Passed: " + numPassed +
 				   "\tFailed: " + numFailed +
-				   "\tTotal Time: " + testingTime + "ms" +
+				   "\tTotal Time: " + (testingTime / 1000000) + "ms" +
+				   "\tTotal Nodes: " + testingNodes +
+				   "\tNPS: " + PerftTest.nodesPerSecond(testingNodes, testingTime) +
+				   "\tThreads: " + threads +
 				   "\t--  " + (numPassed * 1.0 / (numPassed + numFailed) * 1.0) * 100.0 + "%");
 	}
 
+
+	/**
+	 * Computes a node rate.
+	 *
+	 * @param nodes  the number of nodes searched.
+	 * @param nanos  the number of nanoseconds spent searching.
+	 *
+	 * @return the number of nodes searched per second.
+	 */
+	private static long nodesPerSecond(long nodes, long nanos) {
+		return (nanos <= 0) ? 0 : (long) (nodes * 1e9 / nanos);
+	}
+
 }
@@ -0,0 +1,100 @@
+package tests;
+
+
+import jnet.Log;
+import engine.move.Move;
+import engine.move.MoveGenerator;
+import engine.move.MoveList;
+import engine.board.Board;
+import engine.board.PolyglotZobrist;
+import engine.fen.FenUtility;
+import java.util.List;
+
+
+/**
+ * Tests of the Polyglot keys computed by {@code PolyglotZobrist}. Each test plays a sequence of
+ * moves from the starting position and compares the key of the position reached to the key
+ * published with the Polyglot format, starting with {@code PolyglotZobrist.PUBLISHED_START_KEY}
+ * for the starting position. The sequences cover every castling right, the en passant rule of
+ * the format, which only hashes the en passant file when a pawn can capture, and a position
+ * after an en passant capture.
+ *
+ * @author Jonathan Uhler
+ */
+public class PolyglotTest {
+
+	/**
+	 * The built-in tests, each in the {@code "<moves>;<key>"} format, where the moves are in long
+	 * algebraic notation separated by spaces and the key is in hexadecimal.
+	 */
+	public static final List<String> TESTS =
+		List.of(";" + Long.toHexString(PolyglotZobrist.PUBLISHED_START_KEY),
+				"e2e4;823c9b50fd114196",
+				"e2e4 d7d5;0756b94461c50fb0",
+				"e2e4 d7d5 e4e5;662fafb965db29d4",
+				"e2e4 d7d5 e4e5 f7f5;22a48b5a8e47ff78",
+				"e2e4 d7d5 e4e5 f7f5 e1e2;652a607ca3f242c1",
+				"e2e4 d7d5 e4e5 f7f5 e1e2 e8f7;00fdd303c946bdd9",
+				"a2a4 b7b5 h2h4 b5b4 c2c4;3c8123ea7b067637",
+				"a2a4 b7b5 h2h4 b5b4 c2c4 b4c3 a1a3;5c3f9b829b279560");
+
+
+	/**
+	 * Finds the legal move of the player to move with a long algebraic notation.
+	 *
+	 * @param board  the position to search for the move.
+	 * @param move   the move in long algebraic notation.
+	 *
+	 * @return the encoded legal move, or 0 if no legal move has the notation.
+	 */
+	private static int findMove(Board board, String move) {
+		MoveList legalMoves = new MoveList();
+		MoveGenerator.generateLegalMoves(board.getInfoPointer(), legalMoves);
+		for (int i = 0; i < legalMoves.size(); i++) {
+			if (Move.toLongAlgebraic(legalMoves.get(i)).equals(move))
+				return legalMoves.get(i);
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Runs the built-in tests, printing the result of each.
+	 *
+	 * @return whether every test passed.
+	 */
+	public static boolean run() {
+		int passed = 0;
+		for (int i = 0; i < PolyglotTest.TESTS.size(); i++) {
+			String[] test = PolyglotTest.TESTS.get(i).split(";");
+			String moves = test[0].strip();
+			long expected = Long.parseUnsignedLong(test[1], 16);
+
+			Board board = new Board(FenUtility.informationFromFen(Board.START_FEN));
+			boolean legal = true;
+			if (!moves.isEmpty()) {
+				for (String move : moves.split(" ")) {
+					int encoded = PolyglotTest.findMove(board, move);
+					if (encoded == 0) {
+						legal = false;
+						break;
+					}
+					board.makeMove(encoded);
+				}
+			}
+
+			long key = PolyglotZobrist.hash(board.getInfoPointer());
+			boolean pass = legal && key == expected;
+			if (pass)
+				passed++;
+			Log.stdout(Log.DEBUG, "PolyglotTest", "Test: " + i + "\tMoves: " +
+					   (moves.isEmpty() ? "none" : moves) + "\tKey: " +
+					   String.format("%016x", key) + "\t--  " + (pass ? "Passed" : "Failed"));
+		}
+
+		Log.stdout(Log.DEBUG, "PolyglotTest", "Passed: " + passed + "\tFailed: " +
+				   (PolyglotTest.TESTS.size() - passed));
+		return passed == PolyglotTest.TESTS.size();
+	}
+
+}
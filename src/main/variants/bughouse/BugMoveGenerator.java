@@ -22,7 +22,7 @@ public class BugMoveGenerator {
 																				  myPieces);
 
 		Piece.Color playerColor = boardInfo.whiteToMove ? Piece.Color.WHITE : Piece.Color.BLACK;
-		Piece kingPiece = new Piece(Piece.Type.KING, playerColor);
+		Piece kingPiece = Piece.of(Piece.Type.KING, playerColor);
 
 		for (Move pseudoLegalMove : pseudoLegalMoves) {
 			Coordinate startTile = pseudoLegalMove.getStartTile();
@@ -40,7 +40,7 @@ public class BugMoveGenerator {
 
 			// Place the friendly player's piece for this move
 		    BoardInfo ghostInfo = (BoardInfo) boardInfo.clone();
-			ghostInfo.setPiece(endTile, new Piece(pieceType, playerColor));
+			ghostInfo.setPiece(endTile, Piece.of(pieceType, playerColor));
 			ghostInfo.updateAfterMove();
 
 			// Create the board to test opponents moves on
@@ -111,7 +111,7 @@ public class BugMoveGenerator {
 				// Add a new move. The x coordinate of the start tile is always -1, the
 				// y coordinate (row) corresponds to the row the piece is displayed
 				// on to the end-user in the GUI
-				Move move = new Move(new Coordinate(-1, pieceRow), coordinate, Move.Flag.NONE);
+				Move move = new Move(Coordinate.of(-1, pieceRow), coordinate, Move.Flag.NONE);
 				pseudoLegalMoves.add(move);
 			}
 		}
@@ -129,6 +129,12 @@ public class BugServer extends Server {
 	}
 
 
+	@Override
+	protected boolean allowsDrops() {
+		return true;
+	}
+
+
 	@Override
 	public void clientConnected(JClientSocket clientSocket) {
 		if (this.clients == null)
@@ -186,7 +192,8 @@ public class BugServer extends Server {
 		// Send information
 		BoardInfo boardInfo = this.getBoard(position).getInfo();
 		clientSocket.send(Communication.serialize(Communication.cmdColor(color)));
-		clientSocket.send(Communication.serialize(Communication.cmdState(boardInfo)));
+		Map<String, String> stateCmd = Communication.cmdState(boardInfo, this.allowsDrops());
+		clientSocket.send(Communication.serialize(stateCmd));
 	}
 
 
@@ -256,7 +263,7 @@ public class BugServer extends Server {
 			try {
 				Piece capturedPiece = boardInfo.getPiece(endTile);
 				if (flag.equals(Move.Flag.EN_PASSANT)) // Somewhat hacky edge case for ep capture
-					capturedPiece = new Piece(Piece.Type.PAWN, Piece.Color.NONE);
+					capturedPiece = Piece.of(Piece.Type.PAWN, Piece.Color.NONE);
 				
 			    board.makeMove(move);
 
@@ -374,11 +381,11 @@ public class BugServer extends Server {
 				case QUEEN -> pieceRow = 7;
 				}
 				
-				Coordinate startTile = new Coordinate(-1, pieceRow);
+				Coordinate startTile = Coordinate.of(-1, pieceRow);
 				Move placement = new Move(startTile, endTile, Move.Flag.NONE);
 				Piece.Color pieceColor = whiteToMove ? Piece.Color.WHITE : Piece.Color.BLACK;
 				if (legalMoves.contains(placement)) {
-				    boardInfoPointer.setPiece(endTile, new Piece(pieceType, pieceColor));
+				    boardInfoPointer.setPiece(endTile, Piece.of(pieceType, pieceColor));
 				    boardInfoPointer.updateAfterMove();
 					
 					// Remove the piece if placed
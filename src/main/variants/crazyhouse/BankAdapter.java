@@ -42,7 +42,7 @@ public class BankAdapter extends MouseAdapter {
 		// be switched
 		yTile = (!this.playerColor.equals(Piece.Color.BLACK)) ? (7 - yTile) : yTile;
 		xTile = (!this.playerColor.equals(Piece.Color.BLACK)) ? xTile : (7 - xTile);
-		return new Coordinate(xTile, yTile);
+		return Coordinate.of(xTile, yTile);
 	}
 
 
@@ -54,7 +54,7 @@ public class BankAdapter extends MouseAdapter {
 		this.dragOffset = e.getPoint();
 
 		int row = (int) ((this.startLocation.y + Screen.TILE_SIZE / 2.0) / Screen.TILE_SIZE);
-		Coordinate startTile = new Coordinate(-1, row);
+		Coordinate startTile = Coordinate.of(-1, row);
 		List<Coordinate> highlightedTiles = new ArrayList<>();
 
 		BoardInfo position = this.crazyPane.getPiecePane().getLatestPosition();
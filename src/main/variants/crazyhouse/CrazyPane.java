@@ -108,20 +108,20 @@ public class CrazyPane extends JLayeredPane {
 		this.myPieces.put(Piece.Type.QUEEN, myQueens);
 
 		// Draw player's pieces in the bank
-		this.drawPieceInBank(new Piece(Piece.Type.PAWN, this.playerColor), myPawns, 3);
-		this.drawPieceInBank(new Piece(Piece.Type.KNIGHT, this.playerColor), myKnights, 4);
-		this.drawPieceInBank(new Piece(Piece.Type.BISHOP, this.playerColor), myBishops, 5);
-		this.drawPieceInBank(new Piece(Piece.Type.ROOK, this.playerColor), myRooks, 6);
-		this.drawPieceInBank(new Piece(Piece.Type.QUEEN, this.playerColor), myQueens, 7);
+		this.drawPieceInBank(Piece.of(Piece.Type.PAWN, this.playerColor), myPawns, 3);
+		this.drawPieceInBank(Piece.of(Piece.Type.KNIGHT, this.playerColor), myKnights, 4);
+		this.drawPieceInBank(Piece.of(Piece.Type.BISHOP, this.playerColor), myBishops, 5);
+		this.drawPieceInBank(Piece.of(Piece.Type.ROOK, this.playerColor), myRooks, 6);
+		this.drawPieceInBank(Piece.of(Piece.Type.QUEEN, this.playerColor), myQueens, 7);
 
 		// Draw opponent's pieces in their bank (so this player can see what they have)
 		boolean isWhite = this.playerColor.equals(Piece.Color.WHITE);
 		Piece.Color opponentColor = isWhite ? Piece.Color.BLACK : Piece.Color.WHITE;
-		this.drawPieceInBank(new Piece(Piece.Type.PAWN, opponentColor), opPawns, 4);
-		this.drawPieceInBank(new Piece(Piece.Type.KNIGHT, opponentColor), opKnights, 3);
-		this.drawPieceInBank(new Piece(Piece.Type.BISHOP, opponentColor), opBishops, 2);
-		this.drawPieceInBank(new Piece(Piece.Type.ROOK, opponentColor), opRooks, 1);
-		this.drawPieceInBank(new Piece(Piece.Type.QUEEN, opponentColor), opQueens, 0);
+		this.drawPieceInBank(Piece.of(Piece.Type.PAWN, opponentColor), opPawns, 4);
+		this.drawPieceInBank(Piece.of(Piece.Type.KNIGHT, opponentColor), opKnights, 3);
+		this.drawPieceInBank(Piece.of(Piece.Type.BISHOP, opponentColor), opBishops, 2);
+		this.drawPieceInBank(Piece.of(Piece.Type.ROOK, opponentColor), opRooks, 1);
+		this.drawPieceInBank(Piece.of(Piece.Type.QUEEN, opponentColor), opQueens, 0);
 	}
 
 
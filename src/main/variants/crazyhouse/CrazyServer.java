@@ -100,6 +100,12 @@ public class CrazyServer extends Server {
 	}
 
 
+	@Override
+	protected boolean allowsDrops() {
+		return true;
+	}
+
+
 	@Override
 	public void clientConnected(JClientSocket clientSocket) {
 		if (this.clients == null)
@@ -140,7 +146,9 @@ public class CrazyServer extends Server {
 
 		// Send information
 		clientSocket.send(Communication.serialize(Communication.cmdColor(color)));
-		clientSocket.send(Communication.serialize(Communication.cmdState(super.getBoardInfo())));
+		Map<String, String> stateCmd =
+			Communication.cmdState(super.getBoardInfo(), this.allowsDrops());
+		clientSocket.send(Communication.serialize(stateCmd));
 	}
 
 
@@ -209,7 +217,7 @@ public class CrazyServer extends Server {
 			try {
 				Piece capturedPiece = super.getBoardInfo().getPiece(endTile);
 				if (flag.equals(Move.Flag.EN_PASSANT)) // Somewhat hacky edge case for ep capture
-					capturedPiece = new Piece(Piece.Type.PAWN, Piece.Color.NONE);
+					capturedPiece = Piece.of(Piece.Type.PAWN, Piece.Color.NONE);
 				
 				super.getBoard().makeMove(move);
 
@@ -296,11 +304,11 @@ public class CrazyServer extends Server {
 				case QUEEN -> pieceRow = 7;
 				}
 				
-				Coordinate startTile = new Coordinate(-1, pieceRow);
+				Coordinate startTile = Coordinate.of(-1, pieceRow);
 				Move placement = new Move(startTile, endTile, Move.Flag.NONE);
 				Piece.Color pieceColor = whiteToMove ? Piece.Color.WHITE : Piece.Color.BLACK;
 				if (legalMoves.contains(placement)) {
-					super.getBoardInfoPointer().setPiece(endTile, new Piece(pieceType, pieceColor));
+					super.getBoardInfoPointer().setPiece(endTile, Piece.of(pieceType, pieceColor));
 					super.getBoardInfoPointer().updateAfterMove();
 					super.sendBoard();
 					